@@ -2,11 +2,13 @@ package com.example.process;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 多无人设备协同图形化预案配置与执行平台启动类
  */
 @SpringBootApplication
+@EnableScheduling
 public class ProcessEngineApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,82 @@
+package com.example.process.config;
+
+import com.example.process.engine.cluster.PartitionListener;
+import com.example.process.engine.cluster.PartitionManager;
+import com.example.process.engine.context.InstanceContextCache;
+import com.example.process.engine.event.EventSubscriptionIndex;
+import com.example.process.engine.timer.FlowTimerScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 执行引擎集群配置类
+ * 仅在 process.engine.cluster.enabled=true 时生效
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "process.engine.cluster", name = "enabled", havingValue = "true")
+public class EngineClusterConfig {
+
+    /**
+     * 实例分区管理器
+     * 依赖上下文缓存和定时器调度器，关闭时先于它们销毁，释放分区前可以写回内存状态
+     *
+     * @param dataSource            数据源
+     * @param transactionManager    事务管理器
+     * @param engineProperties      执行引擎配置属性
+     * @param instanceContextCache  实例运行时上下文缓存
+     * @param flowTimerScheduler    定时器调度器
+     * @param eventSubscriptionIndex 事件订阅索引
+     * @return 分区管理器
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public PartitionManager partitionManager(DataSource dataSource,
+                                             PlatformTransactionManager transactionManager,
+                                             EngineProperties engineProperties,
+                                             InstanceContextCache instanceContextCache,
+                                             FlowTimerScheduler flowTimerScheduler,
+                                             EventSubscriptionIndex eventSubscriptionIndex) {
+        EngineProperties.Cluster properties = engineProperties.getCluster();
+        int partitionCount = properties.getPartitionCount();
+        PartitionListener listener = new PartitionListener() {
+            @Override
+            public void onAssigned(Set<Integer> partitions) {
+                // 新获得分区中已在加载窗口内的定时器需要补充加载
+                flowTimerScheduler.reload();
+                // 其他节点登记的订阅（如切换当前版本产生的启动事件）在重建时同步
+                eventSubscriptionIndex.rebuild();
+            }
+
+            @Override
+            public void onRevoked(Set<Integer> partitions) {
+                instanceContextCache.release(
+                        instanceId -> partitions.contains(PartitionManager.partitionOf(instanceId, partitionCount)));
+            }
+        };
+        return new PartitionManager(dataSource, new TransactionTemplate(transactionManager),
+                properties, resolveNodeId(properties), properties.getAdvertisedUrl(), listener);
+    }
+
+    private static String resolveNodeId(EngineProperties.Cluster properties) {
+        if (StringUtils.hasText(properties.getNodeId())) {
+            return properties.getNodeId();
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "engine";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.process.config;
+
+import com.example.process.engine.priority.PriorityTaskExecutor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 执行引擎线程池配置类
+ */
+@Configuration
+public class EngineExecutorConfig {
+
+    /**
+     * 并行网关分支线程池
+     * 有界队列，饱和时由分叉线程自己执行分支，不丢弃分支；分支不在引擎事务中执行（见 FlowRunner）
+     *
+     * @param engineProperties 执行引擎配置属性
+     * @return 分支线程池
+     */
+    @Bean(name = "flowBranchExecutor")
+    public ThreadPoolTaskExecutor flowBranchExecutor(EngineProperties engineProperties) {
+        EngineProperties.BranchExecutor properties = engineProperties.getBranchExecutor();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("flow-branch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 异步引擎线程池
+     * 与请求线程解耦，按优先级分级的有界队列，饱和时拒绝提交，避免告警风暴时无限堆积
+     *
+     * @param engineProperties 执行引擎配置属性
+     * @return 引擎线程池
+     */
+    @Bean(name = "flowEngineExecutor", initMethod = "start", destroyMethod = "shutdown")
+    public PriorityTaskExecutor flowEngineExecutor(EngineProperties engineProperties) {
+        EngineProperties.AsyncExecutor properties = engineProperties.getAsyncExecutor();
+        return new PriorityTaskExecutor("flow-engine-", properties.getCorePoolSize(), properties.getQueueCapacity(),
+                new int[]{properties.getReservedHigh(), properties.getReservedMedium()}, properties.getAgingMs());
+    }
+}
@@ -0,0 +1,942 @@
+package com.example.process.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 执行引擎配置属性
+ * 对应配置文件中的 process.engine 前缀
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "process.engine")
+public class EngineProperties {
+
+    /**
+     * 流程图缓存配置
+     */
+    private GraphCache graphCache = new GraphCache();
+
+    /**
+     * 并行分支线程池配置
+     */
+    private BranchExecutor branchExecutor = new BranchExecutor();
+
+    /**
+     * 异步引擎线程池配置
+     */
+    private AsyncExecutor asyncExecutor = new AsyncExecutor();
+
+    /**
+     * 定时器配置
+     */
+    private Timer timer = new Timer();
+
+    /**
+     * 实例运行时上下文缓存配置
+     */
+    private RuntimeContext runtimeContext = new RuntimeContext();
+
+    /**
+     * 集群配置
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 批量事件接收配置
+     */
+    private EventIngest eventIngest = new EventIngest();
+
+    /**
+     * 事件流水线配置
+     */
+    private EventPipeline eventPipeline = new EventPipeline();
+
+    /**
+     * 事件去重配置
+     */
+    private EventDedup eventDedup = new EventDedup();
+
+    /**
+     * 设备读数窗口聚合配置
+     */
+    private Aggregation aggregation = new Aggregation();
+
+    /**
+     * 高频事件合并配置
+     */
+    private EventCoalesce eventCoalesce = new EventCoalesce();
+
+    /**
+     * 事件和设备动作领取租约配置
+     */
+    private Lease lease = new Lease();
+
+    /**
+     * 发件箱中继配置
+     */
+    private Outbox outbox = new Outbox();
+
+    /**
+     * 事件回放配置
+     */
+    private Replay replay = new Replay();
+
+    /**
+     * 历史表分区配置
+     */
+    private Partitioning partitioning = new Partitioning();
+
+    /**
+     * 设备动作调度配置
+     */
+    private DeviceDispatch deviceDispatch = new DeviceDispatch();
+
+    /**
+     * 设备动作失败重试配置
+     */
+    private DeviceRetry deviceRetry = new DeviceRetry();
+
+    /**
+     * 设备网关选择配置
+     */
+    private DeviceGateway deviceGateway = new DeviceGateway();
+
+    /**
+     * 本地设备模拟器配置
+     */
+    private DeviceSimulator deviceSimulator = new DeviceSimulator();
+
+    /**
+     * 设备熔断配置
+     */
+    private DeviceCircuitBreaker deviceCircuitBreaker = new DeviceCircuitBreaker();
+
+    /**
+     * 流程图缓存配置
+     */
+    @Data
+    public static class GraphCache {
+
+        /**
+         * 最多缓存的流程版本数量
+         */
+        private int maxSize = 256;
+    }
+
+    /**
+     * 并行分支线程池配置
+     */
+    @Data
+    public static class BranchExecutor {
+
+        /**
+         * 核心线程数
+         */
+        private int corePoolSize = 8;
+
+        /**
+         * 最大线程数
+         */
+        private int maxPoolSize = 32;
+
+        /**
+         * 等待队列容量，队列满且线程数达到上限时由分叉线程自己执行分支
+         */
+        private int queueCapacity = 256;
+    }
+
+    /**
+     * 异步引擎线程池配置
+     * 按优先级排队，高优先级先执行，等待过久的任务逐级提升
+     */
+    @Data
+    public static class AsyncExecutor {
+
+        /**
+         * 工作线程数
+         */
+        private int corePoolSize = 16;
+
+        /**
+         * 每个优先级的等待队列容量，队列满时拒绝该优先级新的提交
+         */
+        private int queueCapacity = 2000;
+
+        /**
+         * 为高优先级预留的线程数，中、低优先级任务不能使用
+         */
+        private int reservedHigh = 4;
+
+        /**
+         * 为中优先级预留的线程数，低优先级任务不能使用
+         */
+        private int reservedMedium = 2;
+
+        /**
+         * 老化周期（毫秒），任务每等待一个周期按提升一级参与比较，为 0 时不老化
+         */
+        private long agingMs = 2000;
+    }
+
+    /**
+     * 定时器配置
+     */
+    @Data
+    public static class Timer {
+
+        /**
+         * 时间轮最底层每格的毫秒数
+         */
+        private long tickMs = 100;
+
+        /**
+         * 时间轮每层格数
+         */
+        private int wheelSize = 512;
+
+        /**
+         * 加载窗口长度（秒），只有在窗口内到期的定时器才放入内存
+         */
+        private int horizonSeconds = 60;
+
+        /**
+         * 加载间隔（毫秒），应小于加载窗口长度
+         */
+        private long loadIntervalMs = 30000;
+
+        /**
+         * 每批加载的定时器数量
+         */
+        private int batchSize = 1000;
+
+        /**
+         * 引擎线程池饱和时重新触发的延迟（毫秒），也是触发失败后重试的初始延迟
+         */
+        private long retryDelayMs = 1000;
+
+        /**
+         * 触发失败后重试的最大延迟（毫秒），连续失败时延迟逐次加倍到该值
+         */
+        private long maxRetryDelayMs = 60000;
+
+        /**
+         * 实例暂停时定时器推迟的秒数
+         */
+        private int postponeSeconds = 30;
+    }
+
+    /**
+     * 实例运行时上下文缓存配置
+     */
+    @Data
+    public static class RuntimeContext {
+
+        /**
+         * 最多缓存的实例数量
+         */
+        private int maxSize = 10000;
+
+        /**
+         * 脏上下文定时写回的间隔（毫秒）
+         */
+        private long flushIntervalMs = 1000;
+
+        /**
+         * 每推进多少步在当前事务内写回一次，为 0 时只按时间间隔写回
+         */
+        private int checkpointSteps = 0;
+
+        /**
+         * 每个写回事务包含的实例数量
+         */
+        private int flushBatchSize = 500;
+    }
+
+    /**
+     * 集群配置
+     * 开启后实例按分区归属到节点，每个节点额外占用一个数据库连接持有分区锁
+     */
+    @Data
+    public static class Cluster {
+
+        /**
+         * 是否开启集群模式
+         */
+        private boolean enabled = false;
+
+        /**
+         * 节点ID，为空时使用主机名加随机后缀
+         */
+        private String nodeId;
+
+        /**
+         * 节点对外地址（如 http://10.0.0.1:8080），其他节点据此把请求重定向过来
+         */
+        private String advertisedUrl;
+
+        /**
+         * 分区数量，所有节点必须一致，应明显大于节点数量
+         */
+        private int partitionCount = 64;
+
+        /**
+         * 心跳间隔（毫秒）
+         */
+        private long heartbeatIntervalMs = 5000;
+
+        /**
+         * 节点超时（毫秒），超过该时间没有心跳的节点不再计入存活节点
+         */
+        private long nodeTimeoutMs = 15000;
+
+        /**
+         * 增量同步其他节点登记的事件订阅的间隔（毫秒）
+         */
+        private long subscriptionSyncIntervalMs = 2000;
+
+        /**
+         * 增量同步回看的时间（毫秒），覆盖订阅保存到事务提交之间的耗时
+         */
+        private long subscriptionSyncLookbackMs = 60000;
+
+        /**
+         * 重建事件订阅索引的间隔（毫秒），清理其他节点移除的订阅
+         */
+        private long subscriptionRebuildIntervalMs = 300000;
+    }
+
+    /**
+     * 批量事件接收配置
+     */
+    @Data
+    public static class EventIngest {
+
+        /**
+         * 每批解析、写入和分发的事件数量，请求体按批流式处理，不整体缓存
+         */
+        private int batchSize = 500;
+    }
+
+    /**
+     * 事件流水线配置
+     */
+    @Data
+    public static class EventPipeline {
+
+        /**
+         * 分片数量，同一事件源的事件进入同一分片按顺序处理
+         */
+        private int shards = 8;
+
+        /**
+         * 每个分片的缓冲区容量，向上取整为 2 的幂
+         */
+        private int bufferSize = 4096;
+
+        /**
+         * 消费线程每批最多处理的事件数量
+         */
+        private int maxBatchSize = 256;
+
+        /**
+         * 中、低优先级事件每批最多处理的数量，批次越小，新到的高优先级事件等待越短
+         */
+        private int lowPriorityBatchSize = 32;
+
+        /**
+         * 老化周期（毫秒），排队事件每等待一个周期按提升一级参与比较，为 0 时不老化
+         */
+        private long agingMs = 2000;
+
+        /**
+         * 缓冲区已满时建议调用方重试的等待秒数
+         */
+        private long retryAfterSeconds = 1;
+    }
+
+    /**
+     * 事件去重配置
+     */
+    @Data
+    public static class EventDedup {
+
+        /**
+         * 是否开启内存去重窗口（幂等键的唯一约束始终生效）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 去重窗口（秒），同一事件在窗口内重复到达时丢弃
+         */
+        private int windowSeconds = 300;
+
+        /**
+         * 窗口内最多保留的指纹数量
+         */
+        private int maxEntries = 200000;
+
+        /**
+         * 布隆过滤器的误判率，误判只会多查一次指纹集合
+         */
+        private double falsePositiveRate = 0.01;
+    }
+
+    /**
+     * 设备读数窗口聚合配置
+     */
+    @Data
+    public static class Aggregation {
+
+        /**
+         * 最多保留聚合状态的事件源数量
+         */
+        private int maxSources = 10000;
+
+        /**
+         * 聚合窗口
+         */
+        private List<Window> windows = new ArrayList<>();
+    }
+
+    /**
+     * 聚合窗口配置
+     */
+    @Data
+    public static class Window {
+
+        /**
+         * 窗口名，条件表达式通过 window.{事件源ID}.{窗口名}.{统计项} 引用
+         */
+        private String name;
+
+        /**
+         * 参与聚合的事件类型
+         */
+        private String eventType = "device_data_report";
+
+        /**
+         * 参与聚合的事件源类型，为空表示任意
+         */
+        private String sourceType;
+
+        /**
+         * 读数在事件数据中的字段名
+         */
+        private String field;
+
+        /**
+         * 窗口类型（tumbling、sliding、count）
+         */
+        private String type = "sliding";
+
+        /**
+         * 滚动窗口、滑动窗口的时长（秒）
+         */
+        private int sizeSeconds = 60;
+
+        /**
+         * 计数窗口的读数数量
+         */
+        private int sizeCount = 10;
+
+        /**
+         * 滑动窗口最多保留的读数数量，超出时淘汰最早的读数
+         */
+        private int maxSamples = 1024;
+    }
+
+    /**
+     * 高频事件合并配置
+     */
+    @Data
+    public static class EventCoalesce {
+
+        /**
+         * 是否开启合并
+         */
+        private boolean enabled = true;
+
+        /**
+         * 参与合并的事件类型
+         */
+        private List<String> eventTypes = new ArrayList<>(List.of("device_location_change", "device_status_change"));
+
+        /**
+         * 合并窗口（毫秒），同一事件源窗口内只处理第一条和最新一条事件
+         */
+        private long windowMs = 1000;
+
+        /**
+         * 状态字段，事件数据中该字段的值变化时立即放行
+         */
+        private String transitionField = "status";
+
+        /**
+         * 检查窗口是否结束的间隔（毫秒）
+         */
+        private long flushIntervalMs = 100;
+    }
+
+    /**
+     * 事件和设备动作领取租约配置
+     * 多个节点通过 SELECT ... FOR UPDATE SKIP LOCKED 领取同一张表中的待处理行，租约到期未完成的行重新投递
+     */
+    @Data
+    public static class Lease {
+
+        /**
+         * 租约持有者标识，为空时取集群节点ID，再为空时由主机名和进程号生成
+         */
+        private String owner;
+
+        /**
+         * 租约时长（秒），超过该时长未完成的行可被其他节点重新领取
+         */
+        private long leaseSeconds = 120;
+
+        /**
+         * 排队中事件的续约间隔（毫秒），应明显小于租约时长
+         */
+        private long renewIntervalMs = 40000;
+
+        /**
+         * 最大投递次数，达到后不再投递并标记为失败
+         */
+        private int maxDeliveries = 5;
+
+        /**
+         * 领取事件的回看范围（小时）：只领取发生时间在该范围内的事件，查询只扫描最近的分区
+         */
+        private long eventLookbackHours = 168;
+
+        /**
+         * 是否定期重新投递未处理的事件
+         */
+        private boolean redeliveryEnabled = true;
+
+        /**
+         * 重新投递轮询间隔（毫秒）
+         */
+        private long redeliveryIntervalMs = 5000;
+
+        /**
+         * 每次最多领取的事件数量
+         */
+        private int redeliveryBatchSize = 200;
+    }
+
+    /**
+     * 发件箱中继配置
+     */
+    @Data
+    public static class Outbox {
+
+        /**
+         * 每批最多投递的消息数量
+         */
+        private int batchSize = 200;
+
+        /**
+         * 空闲时检查待投递消息的间隔（毫秒），引擎事务提交后会立即唤醒中继
+         */
+        private long pollIntervalMs = 1000;
+
+        /**
+         * 投递租约时长（秒），投递失败的消息在租约到期后重试
+         */
+        private long leaseSeconds = 30;
+
+        /**
+         * 最大投递次数，达到后标记为失败
+         */
+        private int maxDeliveries = 10;
+    }
+
+    /**
+     * 事件回放配置
+     */
+    @Data
+    public static class Replay {
+
+        /**
+         * 每批读取的事件数量
+         */
+        private int batchSize = 1000;
+
+        /**
+         * 同时运行的回放数量上限
+         */
+        private int maxConcurrent = 1;
+
+        /**
+         * 计算处理耗时分位数保留的样本数量
+         */
+        private int latencySamples = 100000;
+
+        /**
+         * 与生产实例对比时最多读取的实例数量
+         */
+        private int maxCompareInstances = 100000;
+
+        /**
+         * 报告中保留的不一致实例样本数量
+         */
+        private int diffSamples = 100;
+
+        /**
+         * 保留的回放报告数量
+         */
+        private int retainedReports = 20;
+    }
+
+    /**
+     * 历史表分区配置
+     */
+    @Data
+    public static class Partitioning {
+
+        /**
+         * 是否维护分区（改建分区表、创建未来分区、删除过期分区）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 是否改建已有数据的普通表，改建期间复制数据并锁表，应只在维护窗口开启
+         */
+        private boolean convertExistingTables = false;
+
+        /**
+         * 维护间隔（毫秒）
+         */
+        private long maintenanceIntervalMs = 3600000;
+
+        /**
+         * 事件表 flow_event，按发生时间分区
+         */
+        private PartitionedTable events = new PartitionedTable("day", 7, 0);
+
+        /**
+         * 执行记录表 flow_execution_log，按执行时间分区
+         */
+        private PartitionedTable executionLogs = new PartitionedTable("month", 2, 0);
+    }
+
+    /**
+     * 分区表配置
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PartitionedTable {
+
+        /**
+         * 分区跨度：day 或 month
+         */
+        private String interval = "day";
+
+        /**
+         * 提前创建的分区数量（不含当前分区）
+         */
+        private int premake = 7;
+
+        /**
+         * 保留天数，超过的分区整体删除，0 表示不删除（默认）
+         */
+        private int retentionDays = 0;
+    }
+
+    /**
+     * 设备动作调度配置
+     */
+    @Data
+    public static class DeviceDispatch {
+
+        /**
+         * 是否由本节点调度设备动作
+         */
+        private boolean enabled = true;
+
+        /**
+         * 全局同时执行的设备动作上限
+         */
+        private int maxConcurrent = 256;
+
+        /**
+         * 未单独配置的设备类型同时执行的上限，0 表示只受全局上限限制
+         */
+        private int defaultDeviceTypeLimit = 0;
+
+        /**
+         * 各设备类型同时执行的上限（设备类型到上限）
+         */
+        private Map<String, Integer> deviceTypeLimits = new HashMap<>();
+
+        /**
+         * 本节点已领取、等待执行的设备动作上限，达到后暂停领取
+         */
+        private int maxQueued = 2000;
+
+        /**
+         * 空闲时检查待执行动作的间隔（毫秒），有新动作登记时会立即唤醒
+         */
+        private long pollIntervalMs = 500;
+
+        /**
+         * 状态批量写回的条数，达到后立即写回
+         */
+        private int flushBatchSize = 200;
+
+        /**
+         * 状态写回的最长间隔（毫秒）
+         */
+        private long flushIntervalMs = 50;
+
+        /**
+         * 设备队列空闲多久后回收（毫秒）
+         */
+        private long idleEvictMs = 60000;
+
+        /**
+         * 同一设备、同一动作类型的指令合并窗口（毫秒），窗口内相同的指令去重、不同的由最新的覆盖；0 表示不合并
+         */
+        private long coalesceWindowMs = 20;
+
+        /**
+         * 单个设备动作的执行超时（毫秒），超时后不再等待设备响应；0 表示不限制
+         */
+        private long actionTimeoutMs = 30000;
+
+        /**
+         * 各设备类型的执行超时（设备类型到毫秒数），未配置的使用 actionTimeoutMs
+         */
+        private Map<String, Long> deviceTypeTimeoutMs = new HashMap<>();
+    }
+
+    /**
+     * 设备动作失败重试配置
+     */
+    @Data
+    public static class DeviceRetry {
+
+        /**
+         * 设备动作未指定最大重试次数时的默认值，0 表示不重试
+         */
+        private int defaultMaxRetries = 3;
+
+        /**
+         * 第一次重试的基础延迟（毫秒），之后每次翻倍
+         */
+        private long baseDelayMs = 1000;
+
+        /**
+         * 重试延迟上限（毫秒）
+         */
+        private long maxDelayMs = 300000;
+
+        /**
+         * 随机抖动比例（0~1）：实际延迟在 [(1 - jitter) × 退避延迟, 退避延迟] 之间均匀分布，1 为完全随机
+         */
+        private double jitter = 1.0;
+
+        /**
+         * 设备离线时推迟重试的间隔（毫秒），推迟不消耗重试次数
+         */
+        private long offlineRecheckMs = 30000;
+
+        /**
+         * 重试时间轮每格的毫秒数
+         */
+        private long tickMs = 100;
+
+        /**
+         * 重试时间轮每层的格数
+         */
+        private int wheelSize = 512;
+    }
+
+    /**
+     * 设备网关选择配置
+     */
+    @Data
+    public static class DeviceGateway {
+
+        /**
+         * 默认使用的设备网关名称（logging、simulator 或接入的设备 SDK 网关）
+         */
+        private String defaultGateway = "logging";
+
+        /**
+         * 各设备类型使用的设备网关名称（设备类型到网关名称），未配置的使用默认网关
+         */
+        private Map<String, String> deviceTypeGateways = new HashMap<>();
+    }
+
+    /**
+     * 本地设备模拟器配置
+     */
+    @Data
+    public static class DeviceSimulator {
+
+        /**
+         * 是否注册模拟器网关，默认不注册，由 simulator 配置文件启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 随机种子，配置后同一设备收到的指令序列得到相同的结果和延迟；为空时每次启动随机
+         */
+        private Long seed;
+
+        /**
+         * 完成模拟指令和发送遥测的线程数
+         */
+        private int threads = 2;
+
+        /**
+         * 模拟的设备数量上限，超出后新设备的指令直接失败
+         */
+        private int maxDevices = 100000;
+
+        /**
+         * 是否把模拟设备的遥测（指令回执、上下线）作为事件送回引擎
+         */
+        private boolean telemetryEnabled = true;
+
+        /**
+         * 在线设备定期上报读数的间隔（毫秒），0 表示不定期上报
+         */
+        private long telemetryIntervalMs = 0;
+
+        /**
+         * 未单独配置的设备类型使用的模型
+         */
+        private DeviceProfile defaultProfile = new DeviceProfile();
+
+        /**
+         * 各设备类型的模型（设备类型到模型）
+         */
+        private Map<String, DeviceProfile> profiles = new HashMap<>();
+    }
+
+    /**
+     * 模拟设备模型
+     */
+    @Data
+    public static class DeviceProfile {
+
+        /**
+         * 响应延迟分布：fixed、uniform（minMs~maxMs）、normal、lognormal、exponential
+         */
+        private String distribution = "lognormal";
+
+        /**
+         * 延迟均值（毫秒）
+         */
+        private long meanMs = 200;
+
+        /**
+         * 延迟标准差（毫秒），用于 normal 和 lognormal
+         */
+        private long stddevMs = 100;
+
+        /**
+         * 延迟下限（毫秒）
+         */
+        private long minMs = 5;
+
+        /**
+         * 延迟上限（毫秒）
+         */
+        private long maxMs = 10000;
+
+        /**
+         * 执行失败的比例（0~1）
+         */
+        private double failureRate = 0.01;
+
+        /**
+         * 无响应的比例（0~1），无响应的指令在 timeoutMs 后以超时失败
+         */
+        private double timeoutRate = 0.005;
+
+        /**
+         * 无响应的指令判定超时的时间（毫秒）
+         */
+        private long timeoutMs = 10000;
+
+        /**
+         * 单个设备同时执行的指令数量，超出的指令在设备端排队
+         */
+        private int concurrency = 1;
+
+        /**
+         * 无响应后设备离线的时长（毫秒），离线期间的指令都无响应；0 表示无响应不导致离线
+         */
+        private long offlineMs = 0;
+    }
+
+    /**
+     * 设备熔断配置
+     */
+    @Data
+    public static class DeviceCircuitBreaker {
+
+        /**
+         * 是否启用熔断
+         */
+        private boolean enabled = true;
+
+        /**
+         * 单个设备的熔断器
+         */
+        private CircuitBreakerSettings device = new CircuitBreakerSettings(20, 10, 50, 30000, 1);
+
+        /**
+         * 设备类型的熔断器（同类设备整体故障，如接入网关或厂商平台不可用）
+         */
+        private CircuitBreakerSettings deviceType = new CircuitBreakerSettings(200, 50, 80, 10000, 5);
+    }
+
+    /**
+     * 熔断器配置
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CircuitBreakerSettings {
+
+        /**
+         * 滑动窗口的调用次数
+         */
+        private int windowSize;
+
+        /**
+         * 开始计算失败率的最少调用次数
+         */
+        private int minimumCalls;
+
+        /**
+         * 打开的失败率阈值（百分比）
+         */
+        private double failureRateThreshold;
+
+        /**
+         * 打开状态的持续时间（毫秒），之后放行试探调用
+         */
+        private long openMs;
+
+        /**
+         * 半开状态放行的试探调用次数
+         */
+        private int halfOpenCalls;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.process.controller;
+
+import com.example.process.engine.device.DeviceDispatcher;
+import com.example.process.engine.event.EventPipeline;
+import com.example.process.engine.priority.PriorityTaskExecutor;
+import com.example.process.model.common.ApiResponse;
+import com.example.process.model.engine.dto.DeviceDispatchStats;
+import com.example.process.model.engine.dto.PriorityQueueStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 引擎运行状态控制器
+ */
+@RestController
+@RequestMapping("/api/engine")
+public class EngineController {
+
+    private final PriorityTaskExecutor engineExecutor;
+    private final EventPipeline eventPipeline;
+    private final ObjectProvider<DeviceDispatcher> deviceDispatcher;
+
+    public EngineController(@Qualifier("flowEngineExecutor") PriorityTaskExecutor engineExecutor,
+                            EventPipeline eventPipeline,
+                            ObjectProvider<DeviceDispatcher> deviceDispatcher) {
+        this.engineExecutor = engineExecutor;
+        this.eventPipeline = eventPipeline;
+        this.deviceDispatcher = deviceDispatcher;
+    }
+
+    /**
+     * 获取各优先级队列的排队、执行和等待时间统计
+     *
+     * @return 引擎线程池和事件流水线的统计
+     */
+    @GetMapping("/queues")
+    public ApiResponse<Map<String, List<PriorityQueueStats>>> queues() {
+        Map<String, List<PriorityQueueStats>> data = new LinkedHashMap<>();
+        data.put("engineExecutor", engineExecutor.getStats());
+        data.put("eventPipeline", eventPipeline.getStats());
+        return ApiResponse.success(data);
+    }
+
+    /**
+     * 获取设备动作调度统计
+     *
+     * @return 设备队列、执行中的数量和累计结果，本节点未开启设备调度时返回错误
+     */
+    @GetMapping("/devices")
+    public ApiResponse<DeviceDispatchStats> devices() {
+        DeviceDispatcher dispatcher = deviceDispatcher.getIfAvailable();
+        if (dispatcher == null) {
+            return ApiResponse.error("本节点未开启设备动作调度");
+        }
+        return ApiResponse.success(dispatcher.getStats());
+    }
+}
@@ -1,11 +1,22 @@
 package com.example.process.controller;
 
+import com.example.process.engine.AsyncFlowEngine;
 import com.example.process.engine.FlowEngine;
+import com.example.process.engine.event.EventCoalescer;
+import com.example.process.engine.event.EventDeduplicator;
+import com.example.process.engine.event.EventPipeline;
+import com.example.process.engine.event.FlowEventIngestor;
+import com.example.process.model.engine.dto.EventBatchResult;
 import com.example.process.model.engine.dto.FlowEventDTO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+
 /**
  * 事件控制器
  */
@@ -14,22 +25,80 @@ import org.springframework.web.bind.annotation.*;
 public class FlowEventController {
 
     private final FlowEngine flowEngine;
+    private final AsyncFlowEngine asyncFlowEngine;
+    private final FlowEventIngestor flowEventIngestor;
+    private final EventPipeline eventPipeline;
+    private final EventDeduplicator eventDeduplicator;
+    private final EventCoalescer eventCoalescer;
 
     @Autowired
-    public FlowEventController(FlowEngine flowEngine) {
+    public FlowEventController(FlowEngine flowEngine, AsyncFlowEngine asyncFlowEngine,
+                               FlowEventIngestor flowEventIngestor, EventPipeline eventPipeline,
+                               EventDeduplicator eventDeduplicator, EventCoalescer eventCoalescer) {
         this.flowEngine = flowEngine;
+        this.asyncFlowEngine = asyncFlowEngine;
+        this.flowEventIngestor = flowEventIngestor;
+        this.eventPipeline = eventPipeline;
+        this.eventDeduplicator = eventDeduplicator;
+        this.eventCoalescer = eventCoalescer;
     }
 
     /**
      * 触发事件
      *
      * @param event 事件
-     * @return 处理结果
+     * @param async 是否异步处理，异步时放入事件流水线后立即返回202，队列已满时返回429
+     * @return 处理结果，去重窗口内重复的事件不处理并返回 false；被合并的高频事件返回202，由窗口内最新一条代替处理
      */
     @PostMapping("/trigger")
-    public ResponseEntity<Boolean> triggerEvent(@RequestBody FlowEventDTO event) {
-        boolean result = flowEngine.triggerEvent(event);
-        return ResponseEntity.ok(result);
+    public ResponseEntity<Boolean> triggerEvent(
+            @RequestBody FlowEventDTO event,
+            @RequestParam(defaultValue = "false") boolean async) {
+        if (!eventDeduplicator.markIfAbsent(event)) {
+            return ResponseEntity.ok(false);
+        }
+        if (!eventCoalescer.offer(event)) {
+            return ResponseEntity.accepted().body(true);
+        }
+        try {
+            if (async) {
+                asyncFlowEngine.triggerEventAsync(event).whenComplete((result, e) -> {
+                    if (e != null) {
+                        // 异步处理失败的事件同样允许调用方重试
+                        eventDeduplicator.forget(event);
+                    }
+                });
+                return ResponseEntity.accepted().body(true);
+            }
+            boolean result = flowEngine.triggerEvent(event);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            // 未处理成功的事件允许调用方重试
+            eventDeduplicator.forget(event);
+            throw e;
+        }
+    }
+
+    /**
+     * 批量触发事件
+     * 请求体为 NDJSON（每行一个事件）或 JSON 数组，流式解析，事件批量写入后分发
+     *
+     * @param body  请求体
+     * @param async 是否异步处理，异步时事件写入后进入事件流水线，有事件因队列已满被拒绝时返回429
+     * @return 逐条接收结果
+     */
+    @PostMapping(value = "/trigger/batch",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<EventBatchResult> triggerEvents(
+            InputStream body,
+            @RequestParam(defaultValue = "false") boolean async) {
+        EventBatchResult result = flowEventIngestor.ingest(body, async);
+        if (result.getThrottled() > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(eventPipeline.getRetryAfterSeconds()))
+                    .body(result);
+        }
+        return async ? ResponseEntity.accepted().body(result) : ResponseEntity.ok(result);
     }
 
     /**
@@ -38,15 +107,22 @@ public class FlowEventController {
      * @param instanceId 流程实例ID
      * @param nodeId     节点ID
      * @param input      输入参数
+     * @param async      是否异步执行，异步时提交后立即返回202
      * @return 执行结果
      */
     @PostMapping("/execute-node")
     public ResponseEntity<Object> executeNode(
             @RequestParam Long instanceId,
             @RequestParam String nodeId,
-            @RequestBody(required = false) Object input) {
-        Object result = flowEngine.executeNode(instanceId, nodeId, (input instanceof java.util.Map) ? 
-                (java.util.Map<String, Object>) input : new java.util.HashMap<>());
+            @RequestBody(required = false) Object input,
+            @RequestParam(defaultValue = "false") boolean async) {
+        java.util.Map<String, Object> variables = (input instanceof java.util.Map) ? 
+                (java.util.Map<String, Object>) input : new java.util.HashMap<>();
+        if (async) {
+            asyncFlowEngine.executeNodeAsync(instanceId, nodeId, variables);
+            return ResponseEntity.accepted().build();
+        }
+        Object result = flowEngine.executeNode(instanceId, nodeId, variables);
         return ResponseEntity.ok(result);
     }
 
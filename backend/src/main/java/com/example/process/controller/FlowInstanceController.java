@@ -1,5 +1,7 @@
 package com.example.process.controller;
 
+import com.example.process.engine.AsyncFlowEngine;
+import com.example.process.engine.FlowEngine;
 import com.example.process.model.common.PageRequest;
 import com.example.process.model.common.PageResult;
 import com.example.process.model.engine.dto.FlowInstanceDTO;
@@ -19,10 +21,15 @@ import java.util.Map;
 public class FlowInstanceController {
 
     private final FlowInstanceService flowInstanceService;
+    private final FlowEngine flowEngine;
+    private final AsyncFlowEngine asyncFlowEngine;
 
     @Autowired
-    public FlowInstanceController(FlowInstanceService flowInstanceService) {
+    public FlowInstanceController(FlowInstanceService flowInstanceService, FlowEngine flowEngine,
+                                  AsyncFlowEngine asyncFlowEngine) {
         this.flowInstanceService = flowInstanceService;
+        this.flowEngine = flowEngine;
+        this.asyncFlowEngine = asyncFlowEngine;
     }
 
     /**
@@ -58,12 +65,19 @@ public class FlowInstanceController {
     /**
      * 启动流程实例
      *
-     * @param id 实例ID
+     * @param id    实例ID
+     * @param async 是否异步启动，异步时提交后立即返回202和当前实例
      * @return 启动后的流程实例
      */
     @PostMapping("/{id}/start")
-    public ResponseEntity<FlowInstanceDTO> startInstance(@PathVariable Long id) {
-        FlowInstanceDTO instance = flowInstanceService.startInstance(id);
+    public ResponseEntity<FlowInstanceDTO> startInstance(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            asyncFlowEngine.startInstanceAsync(id);
+            return ResponseEntity.accepted().body(flowInstanceService.getInstance(id));
+        }
+        FlowInstanceDTO instance = flowEngine.startInstance(id);
         return ResponseEntity.ok(instance);
     }
 
@@ -164,6 +178,19 @@ public class FlowInstanceController {
         return ResponseEntity.ok(variables);
     }
 
+    /**
+     * 获取流程实例的单个变量
+     *
+     * @param id  实例ID
+     * @param key 变量名
+     * @return 变量值
+     */
+    @GetMapping("/{id}/variables/{key}")
+    public ResponseEntity<Object> getVariable(@PathVariable Long id, @PathVariable String key) {
+        Object value = flowInstanceService.getInstanceVariable(id, key);
+        return ResponseEntity.ok(value);
+    }
+
     /**
      * 获取流程实例活动节点
      *
@@ -0,0 +1,68 @@
+package com.example.process.controller;
+
+import com.example.process.engine.replay.EventReplayer;
+import com.example.process.model.engine.dto.ReplayReport;
+import com.example.process.model.engine.dto.ReplayRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 事件回放控制器
+ */
+@RestController
+@RequestMapping("/api/replays")
+public class ReplayController {
+
+    private final EventReplayer eventReplayer;
+
+    @Autowired
+    public ReplayController(EventReplayer eventReplayer) {
+        this.eventReplayer = eventReplayer;
+    }
+
+    /**
+     * 开始回放
+     *
+     * @param request 回放请求
+     * @return 回放报告（运行中），返回202；同时运行的回放已达上限时返回503
+     */
+    @PostMapping
+    public ResponseEntity<ReplayReport> startReplay(@RequestBody ReplayRequest request) {
+        return ResponseEntity.accepted().body(eventReplayer.start(request));
+    }
+
+    /**
+     * 获取回放报告
+     *
+     * @param id 回放ID
+     * @return 回放报告
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ReplayReport> getReplay(@PathVariable String id) {
+        return ResponseEntity.ok(eventReplayer.get(id));
+    }
+
+    /**
+     * 获取最近的回放报告
+     *
+     * @return 回放报告列表
+     */
+    @GetMapping
+    public ResponseEntity<List<ReplayReport>> listReplays() {
+        return ResponseEntity.ok(eventReplayer.list());
+    }
+
+    /**
+     * 取消回放
+     *
+     * @param id 回放ID
+     * @return 回放报告
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ReplayReport> cancelReplay(@PathVariable String id) {
+        return ResponseEntity.ok(eventReplayer.cancel(id));
+    }
+}
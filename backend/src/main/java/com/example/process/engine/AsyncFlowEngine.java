@@ -0,0 +1,41 @@
+package com.example.process.engine;
+
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.model.engine.dto.FlowInstanceDTO;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步流程执行引擎接口
+ * 在引擎自己的线程池上执行 {@link FlowEngine} 的操作，调用线程立即返回。
+ * 线程池饱和时提交会被拒绝并抛出 {@link java.util.concurrent.RejectedExecutionException}。
+ */
+public interface AsyncFlowEngine {
+
+    /**
+     * 异步启动流程实例
+     *
+     * @param instanceId 流程实例ID
+     * @return 启动后的流程实例
+     */
+    CompletableFuture<FlowInstanceDTO> startInstanceAsync(Long instanceId);
+
+    /**
+     * 异步触发事件
+     *
+     * @param event 事件
+     * @return 处理结果
+     */
+    CompletableFuture<Boolean> triggerEventAsync(FlowEventDTO event);
+
+    /**
+     * 异步执行特定节点
+     *
+     * @param instanceId 流程实例ID
+     * @param nodeId     节点ID
+     * @param input      输入参数
+     * @return 执行结果
+     */
+    CompletableFuture<Map<String, Object>> executeNodeAsync(Long instanceId, String nodeId, Map<String, Object> input);
+}
@@ -62,6 +62,25 @@ public interface FlowEngine {
      */
     Map<String, Object> executeNode(Long instanceId, String nodeId, Map<String, Object> input);
 
+    /**
+     * 令牌离开等待结果的节点（如设备动作节点）继续推进，不再执行该节点
+     *
+     * @param instanceId 流程实例ID
+     * @param nodeId     令牌停留的节点ID
+     * @param nextNodeId 下一个节点ID，为null时沿该节点的出边推进
+     * @param input      输入参数
+     * @return 是否推进（实例不是运行状态或令牌已不在该节点时返回false）
+     */
+    boolean resumeNode(Long instanceId, String nodeId, String nextNodeId, Map<String, Object> input);
+
+    /**
+     * 触发到期的定时器，唤醒停留在等待节点上的令牌并继续推进
+     *
+     * @param timerId 定时器ID
+     * @return 是否触发（定时器已失效时返回false）
+     */
+    boolean fireTimer(Long timerId);
+
     /**
      * 跳转到指定节点
      *
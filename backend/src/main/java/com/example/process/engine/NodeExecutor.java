@@ -1,5 +1,6 @@
 package com.example.process.engine;
 
+import com.example.process.engine.outbox.Outbox;
 import com.example.process.model.engine.FlowInstance;
 import com.example.process.model.flow.dto.FlowNode;
 
@@ -21,6 +22,20 @@ public interface NodeExecutor {
      */
     Map<String, Object> execute(FlowInstance instance, FlowNode node, Map<String, Object> input);
 
+    /**
+     * 执行节点，需要调用外部系统的执行器通过发件箱发布副作用，不在引擎事务中直接调用
+     *
+     * @param instance 流程实例
+     * @param node     节点
+     * @param input    输入参数
+     * @param outbox   发件箱，消息随本次推进的结果一起提交
+     * @return 执行结果
+     */
+    default Map<String, Object> execute(FlowInstance instance, FlowNode node, Map<String, Object> input,
+                                        Outbox outbox) {
+        return execute(instance, node, input);
+    }
+
     /**
      * 获取支持的节点类型
      *
@@ -0,0 +1,80 @@
+package com.example.process.engine.cluster;
+
+import com.example.process.exception.PartitionNotOwnedException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * 实例归属判断
+ * 未开启集群模式时所有实例都属于当前节点；开启后由 {@link PartitionManager} 按分区判断。
+ * 修改实例状态的入口都应先检查归属，保证同一实例只被一个节点修改；写入实例的事务还要通过 {@link #fence(Long)}
+ * 在数据库中核对分区归属，防止分区已被接管而本节点尚未察觉时覆盖新持有节点的写入。
+ */
+@Component
+public class InstanceOwnership {
+
+    private final ObjectProvider<PartitionManager> partitionManagerProvider;
+
+    public InstanceOwnership(ObjectProvider<PartitionManager> partitionManagerProvider) {
+        this.partitionManagerProvider = partitionManagerProvider;
+    }
+
+    /**
+     * 实例是否属于当前节点
+     *
+     * @param instanceId 实例ID
+     * @return 是否属于当前节点
+     */
+    public boolean isOwner(Long instanceId) {
+        PartitionManager partitionManager = partitionManagerProvider.getIfAvailable();
+        return partitionManager == null || partitionManager.owns(instanceId);
+    }
+
+    /**
+     * 检查实例是否属于当前节点
+     *
+     * @param instanceId 实例ID
+     * @throws PartitionNotOwnedException 实例属于其他节点
+     */
+    public void checkOwner(Long instanceId) {
+        PartitionManager partitionManager = partitionManagerProvider.getIfAvailable();
+        if (partitionManager != null && !partitionManager.owns(instanceId)) {
+            throw new PartitionNotOwnedException(instanceId, partitionManager.findOwnerAddress(instanceId));
+        }
+    }
+
+    /**
+     * 在当前事务中核对实例所在分区仍由当前节点持有，核对持有的共享锁到事务结束时释放
+     *
+     * @param instanceId 实例ID
+     * @throws PartitionNotOwnedException 分区已不属于当前节点
+     */
+    public void fence(Long instanceId) {
+        PartitionManager partitionManager = partitionManagerProvider.getIfAvailable();
+        if (partitionManager != null && !partitionManager.holdsFence(instanceId)) {
+            throw new PartitionNotOwnedException(instanceId, partitionManager.findOwnerAddress(instanceId));
+        }
+    }
+
+    /**
+     * 在当前事务中核对实例所在分区仍由当前节点持有
+     *
+     * @param instanceId 实例ID
+     * @return 是否持有
+     */
+    public boolean holdsFence(Long instanceId) {
+        PartitionManager partitionManager = partitionManagerProvider.getIfAvailable();
+        return partitionManager == null || partitionManager.holdsFence(instanceId);
+    }
+
+    /**
+     * 生成匹配属于当前节点的实例的 SQL 条件
+     *
+     * @param column 实例ID列
+     * @return SQL 条件，未开启集群模式时返回 null（不需要过滤）
+     */
+    public String ownedInstancesCondition(String column) {
+        PartitionManager partitionManager = partitionManagerProvider.getIfAvailable();
+        return partitionManager != null ? partitionManager.ownedPartitionsCondition(column) : null;
+    }
+}
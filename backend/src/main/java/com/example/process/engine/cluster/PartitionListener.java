@@ -0,0 +1,24 @@
+package com.example.process.engine.cluster;
+
+import java.util.Set;
+
+/**
+ * 分区归属变化监听器
+ */
+public interface PartitionListener {
+
+    /**
+     * 获得分区之后调用
+     *
+     * @param partitions 新获得的分区
+     */
+    void onAssigned(Set<Integer> partitions);
+
+    /**
+     * 释放分区之前调用，返回后分区锁才会被释放，实现方应在此写回并丢弃这些分区的内存状态
+     * 数据库会话断开导致分区锁丢失时，调用发生在锁已经丢失之后
+     *
+     * @param partitions 将要释放的分区
+     */
+    void onRevoked(Set<Integer> partitions);
+}
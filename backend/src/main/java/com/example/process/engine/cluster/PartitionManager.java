@@ -0,0 +1,403 @@
+package com.example.process.engine.cluster;
+
+import com.example.process.config.EngineProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实例分区管理器
+ * 流程实例ID散列到固定数量的分区，每个分区同一时刻只属于一个引擎节点。
+ * 节点通过一个专用数据库连接上的 PostgreSQL 会话级咨询锁（pg_try_advisory_lock）持有分区，
+ * 并定期写入心跳：按存活节点数计算每个节点应持有的分区数，多出的释放，不足的从空闲分区中抢占。
+ * 节点加入后，其他节点在下一次心跳时让出多余分区；节点进程退出或连接断开时，数据库自动释放它的锁，
+ * 其余节点在下一次心跳时接管。
+ * <p>
+ * 咨询锁只保证同一时刻只有一个节点认为自己持有分区，锁连接断开后原持有节点要到下一次心跳才能发现。
+ * 因此每个分区在 flow_engine_partition 表中还有一个纪元：节点获得分区时把纪元加一并记住新值，
+ * 修改实例的事务通过 {@link #holdsFence(Long)} 以共享锁读取分区记录并核对纪元。接管分区的更新要等待原持有节点
+ * 进行中的事务结束，之后原持有节点的事务核对失败，写入被拒绝；新持有节点加载状态时已能看到此前提交的全部修改。
+ * <p>
+ * 实例按ID取模分区，领取事件时可以在数据库端用 {@link #ownedPartitionsCondition(String)} 按分区过滤。
+ * 只依赖数据源，同一个 JVM 中可以创建多个管理器模拟多个节点。
+ */
+@Slf4j
+public class PartitionManager {
+
+    /**
+     * 咨询锁命名空间（"FLOW"），与分区号组成双键咨询锁
+     */
+    public static final int LOCK_NAMESPACE = 0x464C4F57;
+
+    private static final String HEARTBEAT_SQL = "INSERT INTO flow_engine_node " +
+            "(node_id, address, backend_pid, heartbeat_time, created_at, updated_at, is_deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, false) ON CONFLICT (node_id) DO UPDATE SET address = EXCLUDED.address, " +
+            "backend_pid = EXCLUDED.backend_pid, heartbeat_time = EXCLUDED.heartbeat_time, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private static final String FIND_OWNER_SQL = "SELECT n.address FROM pg_locks l " +
+            "JOIN flow_engine_node n ON n.backend_pid = l.pid " +
+            "WHERE l.locktype = 'advisory' AND l.granted AND l.objsubid = 2 " +
+            "AND l.database = (SELECT oid FROM pg_database WHERE datname = current_database()) " +
+            "AND CAST(l.classid AS bigint) = ? AND CAST(l.objid AS bigint) = ? AND n.heartbeat_time > ? LIMIT 1";
+
+    private static final String CLAIM_EPOCH_SQL = "INSERT INTO flow_engine_partition " +
+            "(partition_no, owner_node, epoch, created_at, updated_at, is_deleted) VALUES (?, ?, 1, ?, ?, false) " +
+            "ON CONFLICT (partition_no) DO UPDATE SET owner_node = EXCLUDED.owner_node, " +
+            "epoch = flow_engine_partition.epoch + 1, updated_at = EXCLUDED.updated_at RETURNING epoch";
+
+    private static final String FENCE_SQL = "SELECT epoch FROM flow_engine_partition " +
+            "WHERE partition_no = ? AND owner_node = ? FOR SHARE";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EngineProperties.Cluster properties;
+    private final String nodeId;
+    private final String address;
+    private final PartitionListener listener;
+
+    /**
+     * 已持有的分区，心跳线程修改，请求线程读取
+     */
+    private final Set<Integer> owned = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 分区获得时的纪元；让出分区时在写回内存状态之后才移除，写回仍能通过核对
+     */
+    private final Map<Integer, Long> epochs = new ConcurrentHashMap<>();
+
+    /**
+     * 持有咨询锁的专用连接（只在心跳线程中使用）
+     */
+    private Connection lockConnection;
+    private int backendPid;
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    public PartitionManager(DataSource dataSource,
+                            TransactionTemplate transactionTemplate,
+                            EngineProperties.Cluster properties,
+                            String nodeId,
+                            String address,
+                            PartitionListener listener) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.nodeId = nodeId;
+        this.address = address;
+        this.listener = listener;
+    }
+
+    /**
+     * 计算实例所在分区
+     *
+     * @param instanceId     实例ID
+     * @param partitionCount 分区数量
+     * @return 分区号
+     */
+    public static int partitionOf(Long instanceId, int partitionCount) {
+        // 与 SQL 中的 MOD(id, n) 一致；连续ID轮流落入各分区，分布本身是均匀的
+        return (int) Math.floorMod(instanceId, (long) partitionCount);
+    }
+
+    /**
+     * 启动：立即执行一次心跳抢占分区，之后按心跳间隔定期执行
+     */
+    public void start() {
+        heartbeat();
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flow-partition-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getHeartbeatIntervalMs();
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("引擎节点加入集群：nodeId={}, partitions={}", nodeId, owned.size());
+    }
+
+    /**
+     * 停止：释放全部分区并注销节点
+     */
+    public void stop() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+        synchronized (this) {
+            release(new TreeSet<>(owned));
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.update("DELETE FROM flow_engine_node WHERE node_id = ?", nodeId));
+            } catch (Exception e) {
+                log.warn("注销引擎节点失败：nodeId={}", nodeId, e);
+            }
+            closeConnection();
+        }
+        log.info("引擎节点退出集群：nodeId={}", nodeId);
+    }
+
+    /**
+     * 心跳：写入节点心跳，按存活节点数重新平衡分区
+     */
+    public synchronized void heartbeat() {
+        try {
+            ensureConnection();
+            int pid = backendPid;
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime since = now.minusNanos(properties.getNodeTimeoutMs() * 1_000_000L);
+            Long liveNodes = transactionTemplate.execute(status -> {
+                Timestamp timestamp = Timestamp.valueOf(now);
+                jdbcTemplate.update(HEARTBEAT_SQL, nodeId, address, pid, timestamp, timestamp, timestamp);
+                // 长时间没有心跳的节点记录直接清理
+                jdbcTemplate.update("DELETE FROM flow_engine_node WHERE heartbeat_time < ?",
+                        Timestamp.valueOf(since.minusNanos(properties.getNodeTimeoutMs() * 9_000_000L)));
+                return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM flow_engine_node WHERE heartbeat_time > ?",
+                        Long.class, Timestamp.valueOf(since));
+            });
+            rebalance(liveNodes != null ? (int) Math.max(1, liveNodes) : 1);
+        } catch (Exception e) {
+            log.error("引擎节点心跳失败：nodeId={}", nodeId, e);
+        }
+    }
+
+    /**
+     * 实例是否属于当前节点
+     *
+     * @param instanceId 实例ID
+     * @return 是否持有实例所在分区
+     */
+    public boolean owns(Long instanceId) {
+        return owned.contains(partitionOf(instanceId, properties.getPartitionCount()));
+    }
+
+    /**
+     * 查找持有实例所在分区的节点地址
+     *
+     * @param instanceId 实例ID
+     * @return 节点地址，分区暂无持有者时返回 null
+     */
+    public String findOwnerAddress(Long instanceId) {
+        LocalDateTime since = LocalDateTime.now().minusNanos(properties.getNodeTimeoutMs() * 1_000_000L);
+        List<String> addresses = jdbcTemplate.queryForList(FIND_OWNER_SQL, String.class, (long) LOCK_NAMESPACE,
+                (long) partitionOf(instanceId, properties.getPartitionCount()), Timestamp.valueOf(since));
+        return addresses.isEmpty() ? null : addresses.get(0);
+    }
+
+    /**
+     * 在当前事务中核对实例所在分区仍由当前节点持有（写入屏障）
+     * 以共享锁读取分区记录直到事务结束，其他节点在此期间无法接管该分区；必须在修改实例的事务中调用
+     *
+     * @param instanceId 实例ID
+     * @return 分区记录的持有节点和纪元与本节点获得分区时一致时返回 true
+     */
+    public boolean holdsFence(Long instanceId) {
+        int partition = partitionOf(instanceId, properties.getPartitionCount());
+        Long epoch = epochs.get(partition);
+        if (epoch == null) {
+            return false;
+        }
+        List<Long> current = jdbcTemplate.queryForList(FENCE_SQL, Long.class, partition, nodeId);
+        return current.size() == 1 && epoch.equals(current.get(0));
+    }
+
+    /**
+     * 生成只匹配当前节点所持有分区中实例的 SQL 条件
+     *
+     * @param column 实例ID列
+     * @return SQL 条件，未持有任何分区时为 FALSE
+     */
+    public String ownedPartitionsCondition(String column) {
+        Set<Integer> partitions = getOwnedPartitions();
+        if (partitions.isEmpty()) {
+            return "FALSE";
+        }
+        return "MOD(" + column + ", " + properties.getPartitionCount() + ") IN ("
+                + partitions.stream().map(String::valueOf).collect(Collectors.joining(", ")) + ")";
+    }
+
+    /**
+     * 获取已持有的分区
+     *
+     * @return 分区号（副本，升序）
+     */
+    public Set<Integer> getOwnedPartitions() {
+        return new TreeSet<>(owned);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void rebalance(int liveNodes) {
+        int partitionCount = properties.getPartitionCount();
+        int share = (partitionCount + liveNodes - 1) / liveNodes;
+
+        if (owned.size() > share) {
+            // 让出编号最大的多余分区
+            List<Integer> sorted = new ArrayList<>(owned);
+            sorted.sort(Comparator.reverseOrder());
+            release(new TreeSet<>(sorted.subList(0, owned.size() - share)));
+            return;
+        }
+
+        if (owned.size() < share) {
+            // 从节点自己的起点开始抢占，减少多个节点争抢同一批分区
+            Set<Integer> acquired = new TreeSet<>();
+            int start = Math.floorMod(nodeId.hashCode(), partitionCount);
+            for (int i = 0; i < partitionCount && owned.size() + acquired.size() < share; i++) {
+                int partition = (start + i) % partitionCount;
+                if (!owned.contains(partition) && tryLock(partition)) {
+                    if (claimEpoch(partition)) {
+                        acquired.add(partition);
+                    } else {
+                        unlock(partition);
+                    }
+                }
+            }
+            if (!acquired.isEmpty()) {
+                owned.addAll(acquired);
+                log.info("引擎节点获得分区：nodeId={}, partitions={}, total={}", nodeId, acquired, owned.size());
+                try {
+                    listener.onAssigned(acquired);
+                } catch (Exception e) {
+                    log.error("处理分区获得失败：nodeId={}", nodeId, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 释放分区：先停止接受这些分区的请求，再通知监听器写回状态，最后释放锁
+     */
+    private void release(Set<Integer> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        owned.removeAll(partitions);
+        try {
+            listener.onRevoked(partitions);
+        } catch (Exception e) {
+            log.error("处理分区释放失败：nodeId={}", nodeId, e);
+        }
+        for (Integer partition : partitions) {
+            epochs.remove(partition);
+            unlock(partition);
+        }
+        log.info("引擎节点让出分区：nodeId={}, partitions={}, total={}", nodeId, partitions, owned.size());
+    }
+
+    /**
+     * 确保锁连接可用，连接断开时数据库已释放全部咨询锁，本地持有的分区随之失效
+     */
+    private void ensureConnection() throws SQLException {
+        if (lockConnection != null && lockConnection.isValid(2)) {
+            return;
+        }
+        if (!owned.isEmpty()) {
+            Set<Integer> lost = new TreeSet<>(owned);
+            owned.clear();
+            log.warn("分区锁连接断开，分区已丢失：nodeId={}, partitions={}", nodeId, lost);
+            try {
+                listener.onRevoked(lost);
+            } catch (Exception e) {
+                log.error("处理分区丢失失败：nodeId={}", nodeId, e);
+            }
+        }
+        epochs.clear();
+        closeConnection();
+        lockConnection = dataSource.getConnection();
+        lockConnection.setAutoCommit(true);
+        try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_backend_pid()");
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            backendPid = resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * 登记本节点为分区持有者并把纪元加一
+     * 原持有节点进行中的事务持有分区记录的共享锁，更新等待这些事务结束
+     *
+     * @return 是否登记成功
+     */
+    private boolean claimEpoch(int partition) {
+        try {
+            Long epoch = transactionTemplate.execute(status -> {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                return jdbcTemplate.queryForObject(CLAIM_EPOCH_SQL, Long.class, partition, nodeId, now, now);
+            });
+            if (epoch == null) {
+                return false;
+            }
+            epochs.put(partition, epoch);
+            return true;
+        } catch (Exception e) {
+            log.warn("登记分区持有者失败：nodeId={}, partition={}", nodeId, partition, e);
+            return false;
+        }
+    }
+
+    private boolean tryLock(int partition) {
+        try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, partition);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            log.warn("抢占分区失败：nodeId={}, partition={}", nodeId, partition, e);
+            return false;
+        }
+    }
+
+    private void unlock(int partition) {
+        if (lockConnection == null) {
+            return;
+        }
+        try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, partition);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            log.warn("释放分区失败：nodeId={}, partition={}", nodeId, partition, e);
+        }
+    }
+
+    /**
+     * 关闭锁连接；连接来自连接池，归还前必须释放会话上残留的咨询锁，无法释放时中止物理连接
+     */
+    private void closeConnection() {
+        if (lockConnection != null) {
+            try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_advisory_unlock_all()")) {
+                statement.executeQuery().close();
+            } catch (SQLException e) {
+                try {
+                    lockConnection.abort(Runnable::run);
+                } catch (SQLException abortException) {
+                    log.debug("中止分区锁连接失败：nodeId={}", nodeId, abortException);
+                }
+            }
+            try {
+                lockConnection.close();
+            } catch (SQLException e) {
+                log.debug("关闭分区锁连接失败：nodeId={}", nodeId, e);
+            }
+            lockConnection = null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.process.engine.condition;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 编译后的条件表达式
+ * 由 {@link ConditionCompiler} 构建，不可变，可在多线程间共享。
+ * 表达式引用的变量在编译时分配到槽位，求值时按槽位从流程变量中各取一次，再执行预先组装好的判断树。
+ */
+public final class CompiledCondition {
+
+    /**
+     * 恒为 false 的条件（无效表达式）
+     */
+    static final CompiledCondition ALWAYS_FALSE = new CompiledCondition(slots -> false, new String[0]);
+
+    private final SlotPredicate predicate;
+
+    /**
+     * 槽位对应的变量名
+     */
+    private final String[] slotNames;
+
+    CompiledCondition(SlotPredicate predicate, String[] slotNames) {
+        this.predicate = predicate;
+        this.slotNames = slotNames;
+    }
+
+    /**
+     * 对流程变量求值
+     *
+     * @param variables 流程变量
+     * @return 条件是否成立
+     */
+    public boolean evaluate(Map<String, Object> variables) {
+        return evaluate(variables, null);
+    }
+
+    /**
+     * 对流程变量求值，流程变量中不存在的变量再从虚拟变量中查找
+     *
+     * @param variables        流程变量
+     * @param virtualVariables 虚拟变量（如窗口聚合结果），可以为 null
+     * @return 条件是否成立
+     */
+    public boolean evaluate(Map<String, Object> variables, Function<String, Object> virtualVariables) {
+        Object[] slots = new Object[slotNames.length];
+        for (int i = 0; i < slotNames.length; i++) {
+            // 与前端一致：不存在的变量取 null
+            Object value = variables.get(slotNames[i]);
+            if (value == null && virtualVariables != null && !variables.containsKey(slotNames[i])) {
+                value = virtualVariables.apply(slotNames[i]);
+            }
+            slots[i] = value;
+        }
+        return predicate.test(slots);
+    }
+
+    /**
+     * 获取表达式引用的变量名
+     *
+     * @return 变量名数组（副本）
+     */
+    public String[] getVariableNames() {
+        return slotNames.clone();
+    }
+
+    /**
+     * 基于槽位的判断
+     */
+    @FunctionalInterface
+    interface SlotPredicate {
+
+        boolean test(Object[] slots);
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.process.engine.condition;
+
+import com.example.process.engine.condition.CompiledCondition.SlotPredicate;
+import com.example.process.util.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * 条件表达式编译器
+ * 把前端条件编辑器生成的 JSON 表达式（见 frontend/src/components/flow/condition/types.ts）编译为判断树，
+ * 求值结果与 ConditionEvaluator.ts 一致：
+ * <ul>
+ *     <li>eq/neq 为严格相等，gt/lt/gte/lte 为 JavaScript 关系比较</li>
+ *     <li>and/or/not 按真值判断，contains/startsWith/endsWith 要求两侧都是字符串</li>
+ *     <li>in/notIn 要求集合是数组，按 SameValueZero 判断；isNull/isNotNull 把 null 和 undefined 都视为空</li>
+ *     <li>不存在的变量取 null，函数操作数在服务端没有可用函数，取 null</li>
+ *     <li>不支持的操作符、结构错误的表达式求值为 false</li>
+ * </ul>
+ * 与常量比较的数值运算在编译时把常量转换为 double，求值时不装箱。
+ */
+@Slf4j
+public final class ConditionCompiler {
+
+    private static final String OPERATOR = "operator";
+    private static final String OPERANDS = "operands";
+
+    private static final Set<String> OPERATORS = new HashSet<>(Arrays.asList(
+            "eq", "neq", "gt", "lt", "gte", "lte", "and", "or", "not",
+            "contains", "startsWith", "endsWith", "in", "notIn", "isNull", "isNotNull"));
+
+    /**
+     * 槽位分配表：变量名到槽位下标
+     */
+    private final Map<String, Integer> slots = new LinkedHashMap<>();
+
+    private ConditionCompiler() {
+    }
+
+    /**
+     * 编译 JSON 字符串形式的条件表达式
+     *
+     * @param expression 条件表达式 JSON
+     * @return 编译后的条件，表达式为空时返回 null；无法解析时返回恒为 false 的条件
+     */
+    public static CompiledCondition compile(String expression) {
+        if (!StringUtils.hasText(expression)) {
+            return null;
+        }
+        Object tree;
+        try {
+            tree = JsonUtils.getObjectMapper().readValue(expression, Object.class);
+        } catch (Exception e) {
+            log.warn("条件表达式解析失败，按不满足处理: {}", expression);
+            return CompiledCondition.ALWAYS_FALSE;
+        }
+        return compileTree(tree);
+    }
+
+    /**
+     * 编译已解析的条件表达式
+     *
+     * @param tree 条件表达式（Map 结构）
+     * @return 编译后的条件
+     */
+    public static CompiledCondition compileTree(Object tree) {
+        ConditionCompiler compiler = new ConditionCompiler();
+        SlotPredicate predicate = compiler.expression(tree);
+        return new CompiledCondition(predicate, compiler.slots.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * 编译一个条件表达式节点，结果即 !!handler(operands)
+     */
+    private SlotPredicate expression(Object node) {
+        if (!(node instanceof Map)) {
+            return slots -> false;
+        }
+        Map<?, ?> map = (Map<?, ?>) node;
+        Object operator = map.get(OPERATOR);
+        if (!(operator instanceof String) || !OPERATORS.contains(operator)) {
+            log.warn("不支持的操作符: {}", operator);
+            return slots -> false;
+        }
+        if (!(map.get(OPERANDS) instanceof List)) {
+            return slots -> false;
+        }
+
+        List<?> rawOperands = (List<?>) map.get(OPERANDS);
+        List<Operand> operands = new ArrayList<>(rawOperands.size());
+        for (Object raw : rawOperands) {
+            // 前端用 'operator' in operand 判断嵌套表达式，operand 为 null 或原始值时会抛出异常，整个表达式为 false
+            if (!(raw instanceof Map) && !(raw instanceof List)) {
+                return slots -> false;
+            }
+            operands.add(operand(raw));
+        }
+        return operator((String) operator, operands);
+    }
+
+    private Operand operand(Object raw) {
+        if (raw instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) raw;
+            if (map.containsKey(OPERATOR)) {
+                return Operand.nested(expression(map));
+            }
+            Object type = map.get("type");
+            if ("variable".equals(type)) {
+                String name = JsValues.toJsString(map.containsKey("value") ? map.get("value") : JsValues.UNDEFINED);
+                Integer index = slots.get(name);
+                if (index == null) {
+                    index = slots.size();
+                    slots.put(name, index);
+                }
+                return Operand.slot(index);
+            }
+            if ("constant".equals(type)) {
+                return Operand.constant(map.containsKey("value") ? map.get("value") : JsValues.UNDEFINED);
+            }
+        }
+        // 函数操作数和未知类型的操作数都取 null
+        return Operand.constant(null);
+    }
+
+    private static Operand at(List<Operand> operands, int index) {
+        return index < operands.size() ? operands.get(index) : Operand.constant(JsValues.UNDEFINED);
+    }
+
+    private SlotPredicate operator(String operator, List<Operand> operands) {
+        Operand left = at(operands, 0);
+        Operand right = at(operands, 1);
+        switch (operator) {
+            case "eq":
+                return equality(left, right);
+            case "neq": {
+                SlotPredicate eq = equality(left, right);
+                return slots -> !eq.test(slots);
+            }
+            case "gt":
+            case "lt":
+            case "gte":
+            case "lte":
+                return relational(operator, left, right);
+            case "and": {
+                SlotPredicate[] parts = truthiness(operands);
+                return slots -> {
+                    for (SlotPredicate part : parts) {
+                        if (!part.test(slots)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+            case "or": {
+                SlotPredicate[] parts = truthiness(operands);
+                return slots -> {
+                    for (SlotPredicate part : parts) {
+                        if (part.test(slots)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+            case "not": {
+                SlotPredicate value = left.truthy();
+                return slots -> !value.test(slots);
+            }
+            case "contains":
+                return slots -> left.get(slots) instanceof String && right.get(slots) instanceof String
+                        && ((String) left.get(slots)).contains((String) right.get(slots));
+            case "startsWith":
+                return slots -> left.get(slots) instanceof String && right.get(slots) instanceof String
+                        && ((String) left.get(slots)).startsWith((String) right.get(slots));
+            case "endsWith":
+                return slots -> left.get(slots) instanceof String && right.get(slots) instanceof String
+                        && ((String) left.get(slots)).endsWith((String) right.get(slots));
+            case "in":
+                return membership(left, right, true);
+            case "notIn":
+                return membership(left, right, false);
+            case "isNull":
+                return slots -> {
+                    Object value = left.get(slots);
+                    return value == null || value == JsValues.UNDEFINED;
+                };
+            default:
+                // isNotNull
+                return slots -> {
+                    Object value = left.get(slots);
+                    return value != null && value != JsValues.UNDEFINED;
+                };
+        }
+    }
+
+    /**
+     * 严格相等，与数值或字符串常量比较时使用专用判断
+     */
+    private static SlotPredicate equality(Operand left, Operand right) {
+        if (right.isConstant() && !left.isConstant()) {
+            return equalityWithConstant(left, right.constant);
+        }
+        if (left.isConstant() && !right.isConstant()) {
+            return equalityWithConstant(right, left.constant);
+        }
+        return slots -> JsValues.strictEquals(left.get(slots), right.get(slots));
+    }
+
+    private static SlotPredicate equalityWithConstant(Operand operand, Object constant) {
+        if (constant instanceof Number) {
+            double c = ((Number) constant).doubleValue();
+            return slots -> {
+                Object value = operand.get(slots);
+                return value instanceof Number && ((Number) value).doubleValue() == c;
+            };
+        }
+        if (constant instanceof String) {
+            return slots -> constant.equals(operand.get(slots));
+        }
+        return slots -> JsValues.strictEquals(operand.get(slots), constant);
+    }
+
+    /**
+     * 关系比较，一侧为非字符串常量时不可能出现两侧都是字符串的情况，直接按 double 比较
+     */
+    private static SlotPredicate relational(String operator, Operand left, Operand right) {
+        boolean numeric = left.isConstant() && JsValues.isNonStringPrimitive(left.constant)
+                || right.isConstant() && JsValues.isNonStringPrimitive(right.constant)
+                || left.nested != null || right.nested != null;
+        if (!numeric) {
+            return slots -> JsValues.compare(operator, left.get(slots), right.get(slots));
+        }
+
+        if (right.isConstant()) {
+            double c = JsValues.toNumber(right.constant);
+            switch (operator) {
+                case "gt":
+                    return slots -> left.number(slots) > c;
+                case "lt":
+                    return slots -> left.number(slots) < c;
+                case "gte":
+                    return slots -> left.number(slots) >= c;
+                default:
+                    return slots -> left.number(slots) <= c;
+            }
+        }
+        if (left.isConstant()) {
+            double c = JsValues.toNumber(left.constant);
+            switch (operator) {
+                case "gt":
+                    return slots -> c > right.number(slots);
+                case "lt":
+                    return slots -> c < right.number(slots);
+                case "gte":
+                    return slots -> c >= right.number(slots);
+                default:
+                    return slots -> c <= right.number(slots);
+            }
+        }
+        return slots -> JsValues.compareNumbers(operator, left.number(slots), right.number(slots));
+    }
+
+    /**
+     * 集合判断，集合为常量数组时预先整理：全部是字符串用哈希集合，全部是数值用 double 数组
+     */
+    private static SlotPredicate membership(Operand item, Operand collection, boolean in) {
+        if (collection.isConstant()) {
+            if (!(collection.constant instanceof List)) {
+                return slots -> false;
+            }
+            List<?> list = (List<?>) collection.constant;
+            if (!list.isEmpty() && list.stream().allMatch(e -> e instanceof String)) {
+                Set<Object> set = new HashSet<>(list);
+                return slots -> {
+                    Object value = item.get(slots);
+                    return (value instanceof String && set.contains(value)) == in;
+                };
+            }
+            if (!list.isEmpty() && list.stream().allMatch(e -> e instanceof Number)) {
+                double[] numbers = list.stream().mapToDouble(e -> ((Number) e).doubleValue()).toArray();
+                return slots -> {
+                    Object value = item.get(slots);
+                    boolean found = false;
+                    if (value instanceof Number) {
+                        double d = ((Number) value).doubleValue();
+                        for (double n : numbers) {
+                            if (n == d || Double.isNaN(n) && Double.isNaN(d)) {
+                                found = true;
+                                break;
+                            }
+                        }
+                    }
+                    return found == in;
+                };
+            }
+        }
+        return slots -> {
+            Object values = collection.get(slots);
+            if (!(values instanceof List)) {
+                return false;
+            }
+            Object value = item.get(slots);
+            boolean found = false;
+            for (Object element : (List<?>) values) {
+                if (JsValues.sameValueZero(value, element)) {
+                    found = true;
+                    break;
+                }
+            }
+            return found == in;
+        };
+    }
+
+    private static SlotPredicate[] truthiness(List<Operand> operands) {
+        SlotPredicate[] parts = new SlotPredicate[operands.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = operands.get(i).truthy();
+        }
+        return parts;
+    }
+
+    /**
+     * 编译后的操作数：常量、变量槽位或嵌套表达式，三者之一
+     */
+    private static final class Operand {
+
+        private static final int NO_SLOT = -1;
+
+        private final Object constant;
+        private final int slot;
+        private final SlotPredicate nested;
+
+        private Operand(Object constant, int slot, SlotPredicate nested) {
+            this.constant = constant;
+            this.slot = slot;
+            this.nested = nested;
+        }
+
+        private static Operand constant(Object value) {
+            return new Operand(value, NO_SLOT, null);
+        }
+
+        private static Operand slot(int index) {
+            return new Operand(null, index, null);
+        }
+
+        private static Operand nested(SlotPredicate predicate) {
+            return new Operand(null, NO_SLOT, predicate);
+        }
+
+        private boolean isConstant() {
+            return slot == NO_SLOT && nested == null;
+        }
+
+        private Object get(Object[] slots) {
+            if (slot != NO_SLOT) {
+                return slots[slot];
+            }
+            if (nested != null) {
+                return nested.test(slots) ? Boolean.TRUE : Boolean.FALSE;
+            }
+            return constant;
+        }
+
+        private double number(Object[] slots) {
+            if (nested != null) {
+                return nested.test(slots) ? 1 : 0;
+            }
+            Object value = get(slots);
+            return value instanceof Number ? ((Number) value).doubleValue() : JsValues.toNumber(value);
+        }
+
+        private SlotPredicate truthy() {
+            if (nested != null) {
+                return nested;
+            }
+            if (slot != NO_SLOT) {
+                int index = slot;
+                return slots -> JsValues.truthy(slots[index]);
+            }
+            boolean value = JsValues.truthy(constant);
+            return slots -> value;
+        }
+    }
+}
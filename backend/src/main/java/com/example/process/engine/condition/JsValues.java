@@ -0,0 +1,271 @@
+package com.example.process.engine.condition;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * JavaScript 取值语义
+ * 条件表达式由前端 ConditionEvaluator.ts 定义，后端求值必须与其结果一致，
+ * 这里按 ECMAScript 规范实现其用到的严格相等、SameValueZero、真值判断、关系比较和类型转换。
+ * JSON 值的对应关系：null - {@code null}，undefined - {@link #UNDEFINED}，
+ * number - {@link Number}，string - {@link String}，boolean - {@link Boolean}，
+ * array - {@link List}，其他对象 - {@link Map} 等。
+ */
+final class JsValues {
+
+    /**
+     * undefined（例如缺少的操作数、没有 value 的常量）
+     */
+    static final Object UNDEFINED = new Object() {
+        @Override
+        public String toString() {
+            return "undefined";
+        }
+    };
+
+    private static final String OBJECT_STRING = "[object Object]";
+
+    private static final Pattern DECIMAL_LITERAL =
+            Pattern.compile("[+-]?(?:(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][+-]?\\d+)?|Infinity)");
+
+    private JsValues() {
+        // 私有构造函数，防止实例化
+    }
+
+    /**
+     * 严格相等（===）
+     */
+    static boolean strictEquals(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+        }
+        if (a instanceof String && b instanceof String || a instanceof Boolean && b instanceof Boolean) {
+            return a.equals(b);
+        }
+        // null、undefined、数组和对象按引用比较，类型不同时引用必然不同
+        return a == b;
+    }
+
+    /**
+     * SameValueZero（Array.prototype.includes 使用），与严格相等的区别是 NaN 等于 NaN
+     */
+    static boolean sameValueZero(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            double x = ((Number) a).doubleValue();
+            double y = ((Number) b).doubleValue();
+            return x == y || Double.isNaN(x) && Double.isNaN(y);
+        }
+        return strictEquals(a, b);
+    }
+
+    /**
+     * 真值判断（Boolean(value)）
+     */
+    static boolean truthy(Object value) {
+        if (value == null || value == UNDEFINED) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            return d != 0 && !Double.isNaN(d);
+        }
+        if (value instanceof String) {
+            return !((String) value).isEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * 值转换为原始值后是否一定不是字符串（决定关系比较是否可以直接走数值比较）
+     */
+    static boolean isNonStringPrimitive(Object value) {
+        return value == null || value == UNDEFINED || value instanceof Number || value instanceof Boolean;
+    }
+
+    /**
+     * 关系比较（&lt; &gt; &lt;= &gt;=）
+     *
+     * @param operator gt、lt、gte、lte
+     */
+    static boolean compare(String operator, Object a, Object b) {
+        Object pa = toPrimitive(a);
+        Object pb = toPrimitive(b);
+        if (pa instanceof String && pb instanceof String) {
+            int c = ((String) pa).compareTo((String) pb);
+            switch (operator) {
+                case "gt":
+                    return c > 0;
+                case "lt":
+                    return c < 0;
+                case "gte":
+                    return c >= 0;
+                default:
+                    return c <= 0;
+            }
+        }
+        return compareNumbers(operator, toNumber(pa), toNumber(pb));
+    }
+
+    /**
+     * 数值关系比较，任一侧为 NaN 时结果为 false
+     */
+    static boolean compareNumbers(String operator, double x, double y) {
+        switch (operator) {
+            case "gt":
+                return x > y;
+            case "lt":
+                return x < y;
+            case "gte":
+                return x >= y;
+            default:
+                return x <= y;
+        }
+    }
+
+    /**
+     * 转换为数值（ToNumber）
+     */
+    static double toNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof String) {
+            return stringToNumber((String) value);
+        }
+        if (value instanceof List) {
+            return stringToNumber(toJsString(value));
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * 转换为字符串（String(value)），也用于属性名
+     */
+    static String toJsString(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Number) {
+            return numberToString(((Number) value).doubleValue());
+        }
+        if (value instanceof Boolean || value == UNDEFINED) {
+            return value.toString();
+        }
+        if (value instanceof List) {
+            StringBuilder sb = new StringBuilder();
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                Object item = list.get(i);
+                if (item != null && item != UNDEFINED) {
+                    sb.append(toJsString(item));
+                }
+            }
+            return sb.toString();
+        }
+        return OBJECT_STRING;
+    }
+
+    private static Object toPrimitive(Object value) {
+        if (value == null || value == UNDEFINED || value instanceof Number
+                || value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        return toJsString(value);
+    }
+
+    private static double stringToNumber(String value) {
+        String s = trim(value);
+        if (s.isEmpty()) {
+            return 0;
+        }
+        if (s.length() > 2 && s.charAt(0) == '0') {
+            char prefix = Character.toLowerCase(s.charAt(1));
+            int radix = prefix == 'x' ? 16 : prefix == 'o' ? 8 : prefix == 'b' ? 2 : 0;
+            if (radix > 0) {
+                double result = 0;
+                for (int i = 2; i < s.length(); i++) {
+                    int digit = Character.digit(s.charAt(i), radix);
+                    if (digit < 0) {
+                        return Double.NaN;
+                    }
+                    result = result * radix + digit;
+                }
+                return result;
+            }
+        }
+        if (!DECIMAL_LITERAL.matcher(s).matches()) {
+            return Double.NaN;
+        }
+        if (s.endsWith("Infinity")) {
+            return s.charAt(0) == '-' ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        return Double.parseDouble(s);
+    }
+
+    private static String trim(String s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && isJsWhitespace(s.charAt(start))) {
+            start++;
+        }
+        while (end > start && isJsWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+        return s.substring(start, end);
+    }
+
+    private static boolean isJsWhitespace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\uFEFF';
+    }
+
+    private static String numberToString(double d) {
+        if (Double.isNaN(d)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(d)) {
+            return d > 0 ? "Infinity" : "-Infinity";
+        }
+        if (d == 0) {
+            return "0";
+        }
+        double abs = Math.abs(d);
+        if (d == Math.rint(d) && abs < 1e21) {
+            return abs < 9.2e18 ? Long.toString((long) d) : new BigDecimal(d).toPlainString();
+        }
+        BigDecimal decimal = new BigDecimal(Double.toString(d)).stripTrailingZeros();
+        // Number.prototype.toString：1e-6 及以上、1e21 以下用定点表示
+        if (abs >= 1e-6 && abs < 1e21) {
+            return decimal.toPlainString();
+        }
+        // 科学计数法：1.5e-7、1e+21
+        String digits = decimal.unscaledValue().abs().toString();
+        int exponent = digits.length() - 1 - decimal.scale();
+        StringBuilder sb = new StringBuilder();
+        if (d < 0) {
+            sb.append('-');
+        }
+        sb.append(digits.charAt(0));
+        if (digits.length() > 1) {
+            sb.append('.').append(digits, 1, digits.length());
+        }
+        sb.append('e').append(exponent >= 0 ? "+" : "-").append(Math.abs(exponent));
+        return sb.toString();
+    }
+}
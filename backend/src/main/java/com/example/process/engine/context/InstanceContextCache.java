@@ -0,0 +1,431 @@
+package com.example.process.engine.context;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.cluster.InstanceOwnership;
+import com.example.process.exception.PartitionNotOwnedException;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.repository.FlowInstanceRepository;
+import com.example.process.util.JsonUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * 流程实例运行时上下文缓存
+ * 以实例ID为键缓存 {@link InstanceRuntimeContext}，容量有限，按最近最少使用淘汰。
+ * 推进实例时在事务内通过 {@link #acquire(FlowInstance)} 锁定上下文并直接修改内存中的状态，
+ * 修改按写回策略持久化，写回时只发送上次写回后变化的顶层变量键，在数据库端合并到 jsonb 列：
+ * <ul>
+ *     <li>每推进 checkpoint-steps 步在当前事务内写回一次（为 0 时不按步数写回）</li>
+ *     <li>定时任务每隔 flush-interval-ms 把其余脏上下文批量写回</li>
+ *     <li>实例结束时由调用方写回并在事务提交后移除上下文</li>
+ *     <li>应用关闭时写回全部脏上下文</li>
+ * </ul>
+ * 只淘汰未被锁定且已写回的上下文，脏上下文在写回后才能被淘汰，因此缓存数量可能暂时超过上限。
+ * 集群模式下只缓存属于当前节点的实例，分区被让出前通过 {@link #release(Predicate)} 写回并丢弃。
+ */
+@Slf4j
+@Component
+public class InstanceContextCache {
+
+    private final FlowInstanceRepository flowInstanceRepository;
+    private final InstanceOwnership instanceOwnership;
+    private final TransactionTemplate transactionTemplate;
+    private final EngineProperties.RuntimeContext properties;
+
+    private final LinkedHashMap<Long, InstanceRuntimeContext> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    public InstanceContextCache(FlowInstanceRepository flowInstanceRepository,
+                                InstanceOwnership instanceOwnership,
+                                PlatformTransactionManager transactionManager,
+                                EngineProperties engineProperties) {
+        this.flowInstanceRepository = flowInstanceRepository;
+        this.instanceOwnership = instanceOwnership;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = engineProperties.getRuntimeContext();
+    }
+
+    /**
+     * 锁定实例的运行时上下文，未缓存时从实例实体加载
+     * 锁在当前事务结束时释放，事务提交则修改生效，回滚则丢弃修改。
+     *
+     * @param instance 流程实例实体
+     * @return 运行时上下文
+     * @throws PartitionNotOwnedException 集群模式下实例不属于当前节点，或分区已被其他节点接管
+     */
+    public InstanceRuntimeContext acquire(FlowInstance instance) {
+        requireTransaction();
+        while (true) {
+            InstanceRuntimeContext context;
+            synchronized (cache) {
+                context = cache.get(instance.getId());
+                if (context == null) {
+                    context = load(instance);
+                    cache.put(instance.getId(), context);
+                }
+            }
+            if (lock(context)) {
+                // 加锁后再检查归属：分区让出时先撤销归属再逐个写回上下文，二者不会交错
+                if (!instanceOwnership.isOwner(instance.getId())) {
+                    evict(instance.getId());
+                    instanceOwnership.checkOwner(instance.getId());
+                    continue;
+                }
+                // 分区可能已被其他节点接管而本节点尚未察觉，在数据库中核对，核对失败时事务回滚
+                instanceOwnership.fence(instance.getId());
+                trim();
+                return context;
+            }
+        }
+    }
+
+    /**
+     * 锁定已缓存的运行时上下文
+     *
+     * @param instanceId 实例ID
+     * @return 运行时上下文，未缓存时返回 null
+     */
+    public InstanceRuntimeContext acquireIfPresent(Long instanceId) {
+        requireTransaction();
+        while (true) {
+            InstanceRuntimeContext context;
+            synchronized (cache) {
+                context = cache.get(instanceId);
+            }
+            if (context == null) {
+                return null;
+            }
+            if (lock(context)) {
+                return context;
+            }
+        }
+    }
+
+    /**
+     * 查看已缓存的运行时上下文，不加载、不锁定
+     *
+     * @param instanceId 实例ID
+     * @return 运行时上下文，未缓存时返回 null
+     */
+    public InstanceRuntimeContext find(Long instanceId) {
+        synchronized (cache) {
+            return cache.get(instanceId);
+        }
+    }
+
+    /**
+     * 更新运行时状态（调用方已通过 acquire 锁定上下文）
+     *
+     * @param context       运行时上下文
+     * @param variables     新的变量
+     * @param activeNodeIds 新的活动节点
+     */
+    public void update(InstanceRuntimeContext context, Map<String, Object> variables, List<String> activeNodeIds) {
+        requireLocked(context);
+        context.replace(variables, activeNodeIds);
+    }
+
+    /**
+     * 是否到达按步数写回的检查点
+     *
+     * @param context 运行时上下文
+     * @return 是否需要在当前事务内写回
+     */
+    public boolean isCheckpointDue(InstanceRuntimeContext context) {
+        int checkpointSteps = properties.getCheckpointSteps();
+        return checkpointSteps > 0 && context.getStepsSinceFlush() >= checkpointSteps;
+    }
+
+    /**
+     * 在当前事务内写回运行时状态的变化
+     *
+     * @param context 运行时上下文
+     */
+    public void checkpoint(InstanceRuntimeContext context) {
+        requireLocked(context);
+        persist(context);
+        long version = context.getVersion();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                context.markFlushed(version);
+            }
+        });
+    }
+
+    /**
+     * 在事务提交后移除上下文（实例结束时调用，状态应已通过 checkpoint 写回）
+     *
+     * @param instanceId 实例ID
+     */
+    public void evictAfterCommit(Long instanceId) {
+        requireTransaction();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(instanceId);
+            }
+        });
+    }
+
+    /**
+     * 立即移除上下文，不写回（实例被删除时调用）
+     *
+     * @param instanceId 实例ID
+     */
+    public void evict(Long instanceId) {
+        synchronized (cache) {
+            if (cache.remove(instanceId) != null) {
+                log.debug("移除实例运行时上下文：instanceId={}", instanceId);
+            }
+        }
+    }
+
+    /**
+     * 写回并丢弃匹配的上下文（集群模式下让出分区前调用）
+     * 逐个加锁，正在推进的实例等待其事务结束后再写回
+     *
+     * @param instanceFilter 实例ID过滤条件
+     */
+    public void release(Predicate<Long> instanceFilter) {
+        List<InstanceRuntimeContext> contexts = new ArrayList<>();
+        synchronized (cache) {
+            for (InstanceRuntimeContext context : cache.values()) {
+                if (instanceFilter.test(context.getInstanceId())) {
+                    contexts.add(context);
+                }
+            }
+        }
+        for (InstanceRuntimeContext context : contexts) {
+            context.getLock().lock();
+            try {
+                if (context.isDirty()) {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (instanceOwnership.holdsFence(context.getInstanceId())) {
+                            persist(context);
+                        } else {
+                            log.warn("分区已被其他节点接管，放弃写回：instanceId={}", context.getInstanceId());
+                        }
+                    });
+                    context.markFlushed(context.getVersion());
+                }
+            } catch (Exception e) {
+                log.error("写回实例运行时上下文失败：instanceId={}", context.getInstanceId(), e);
+            } finally {
+                evict(context.getInstanceId());
+                context.getLock().unlock();
+            }
+        }
+        if (!contexts.isEmpty()) {
+            log.info("释放实例运行时上下文：count={}", contexts.size());
+        }
+    }
+
+    /**
+     * 获取当前缓存数量
+     *
+     * @return 缓存数量
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * 定时批量写回脏上下文
+     * 只处理当前未被锁定的上下文，正在推进的实例留到下一轮，保证写回的都是已提交的状态。
+     */
+    @Scheduled(fixedDelayString = "${process.engine.runtime-context.flush-interval-ms:1000}")
+    public void flushDirty() {
+        List<InstanceRuntimeContext> contexts;
+        synchronized (cache) {
+            contexts = new ArrayList<>(cache.values());
+        }
+
+        int batchSize = Math.max(1, properties.getFlushBatchSize());
+        List<InstanceRuntimeContext> batch = new ArrayList<>(Math.min(batchSize, contexts.size()));
+        int flushed = 0;
+        for (InstanceRuntimeContext context : contexts) {
+            if (!context.getLock().tryLock()) {
+                continue;
+            }
+            if (!context.isDirty()) {
+                context.getLock().unlock();
+                continue;
+            }
+            batch.add(context);
+            if (batch.size() >= batchSize) {
+                flushed += flushBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushed += flushBatch(batch);
+        }
+
+        if (flushed > 0) {
+            log.debug("写回实例运行时上下文：count={}", flushed);
+            trim();
+        }
+    }
+
+    /**
+     * 应用关闭时写回全部脏上下文
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flushDirty();
+        } catch (Exception e) {
+            log.error("关闭时写回实例运行时上下文失败", e);
+        }
+    }
+
+    /**
+     * 在一个事务中写回一批上下文（调用方已锁定），结束后释放锁
+     *
+     * @return 写回的数量
+     */
+    private int flushBatch(List<InstanceRuntimeContext> batch) {
+        try {
+            List<Long> missing = new ArrayList<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                for (InstanceRuntimeContext context : batch) {
+                    // 分区已被接管的实例不再写回，由新持有节点从数据库重新加载
+                    if (!instanceOwnership.holdsFence(context.getInstanceId()) || persist(context) == 0) {
+                        missing.add(context.getInstanceId());
+                    }
+                }
+            });
+            for (InstanceRuntimeContext context : batch) {
+                context.markFlushed(context.getVersion());
+            }
+            missing.forEach(this::evict);
+            return batch.size();
+        } catch (Exception e) {
+            log.error("写回实例运行时上下文失败，下一轮重试：count={}", batch.size(), e);
+            return 0;
+        } finally {
+            batch.forEach(context -> context.getLock().unlock());
+        }
+    }
+
+    /**
+     * 写回上下文的变化（调用方持有锁）
+     * 变量只发送新增、修改的键和删除的键，活动节点有变化时整体写入
+     *
+     * @return 更新的记录数，没有变化时不访问数据库并返回 1
+     */
+    private int persist(InstanceRuntimeContext context) {
+        String activeNodeIds = context.isActiveNodesChanged()
+                ? JsonUtils.toJsonString(context.getActiveNodeIds()) : null;
+        if (context.getChangedKeys().isEmpty() && context.getRemovedKeys().isEmpty()) {
+            return activeNodeIds != null
+                    ? flowInstanceRepository.updateActiveNodeIds(context.getInstanceId(), activeNodeIds) : 1;
+        }
+        Map<String, Object> variables = context.getVariables();
+        Map<String, Object> patch = new LinkedHashMap<>();
+        for (String key : context.getChangedKeys()) {
+            patch.put(key, variables.get(key));
+        }
+        return flowInstanceRepository.patchVariables(context.getInstanceId(), JsonUtils.toJsonString(patch),
+                JsonUtils.toJsonString(context.getRemovedKeys()), activeNodeIds);
+    }
+
+    /**
+     * 锁定上下文，并登记在事务结束时提交或回滚状态、释放锁
+     *
+     * @return 上下文仍在缓存中时返回 true；已被淘汰时释放锁并返回 false，由调用方重新获取
+     */
+    private boolean lock(InstanceRuntimeContext context) {
+        context.getLock().lock();
+        synchronized (cache) {
+            if (cache.get(context.getInstanceId()) != context) {
+                context.getLock().unlock();
+                return false;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        context.commit();
+                    } else {
+                        context.rollback();
+                    }
+                } finally {
+                    context.getLock().unlock();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 按最近最少使用顺序淘汰超出容量的上下文，跳过被锁定或未写回的
+     * 只尝试加锁，不会与持有上下文锁后再访问缓存的线程死锁
+     */
+    private void trim() {
+        int maxSize = Math.max(1, properties.getMaxSize());
+        synchronized (cache) {
+            Iterator<InstanceRuntimeContext> iterator = cache.values().iterator();
+            while (cache.size() > maxSize && iterator.hasNext()) {
+                InstanceRuntimeContext context = iterator.next();
+                if (!context.getLock().tryLock()) {
+                    continue;
+                }
+                try {
+                    if (!context.isDirty()) {
+                        iterator.remove();
+                    }
+                } finally {
+                    context.getLock().unlock();
+                }
+            }
+        }
+    }
+
+    private InstanceRuntimeContext load(FlowInstance instance) {
+        Map<String, Object> variables = new HashMap<>();
+        if (StringUtils.hasText(instance.getVariables())) {
+            Map<String, Object> parsed = JsonUtils.parseObject(instance.getVariables(),
+                    new TypeReference<Map<String, Object>>() {
+                    });
+            if (parsed != null) {
+                variables.putAll(parsed);
+            }
+        }
+        List<String> activeNodeIds = new ArrayList<>();
+        if (StringUtils.hasText(instance.getActiveNodeIds())) {
+            List<String> parsed = JsonUtils.parseArray(instance.getActiveNodeIds(), String.class);
+            if (parsed != null) {
+                activeNodeIds.addAll(parsed);
+            }
+        }
+        return new InstanceRuntimeContext(instance.getId(), variables, activeNodeIds);
+    }
+
+    private static void requireTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("实例运行时上下文只能在事务中修改");
+        }
+    }
+
+    private static void requireLocked(InstanceRuntimeContext context) {
+        if (!context.getLock().isHeldByCurrentThread()) {
+            throw new IllegalStateException("实例运行时上下文未锁定: " + context.getInstanceId());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.process.engine.context;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 流程实例运行时上下文
+ * 缓存热点实例已解析的变量和活动节点，避免每一步都从数据库读取并反序列化 JSON。
+ * 上下文由 {@link InstanceContextCache} 管理：修改只能在持有锁的事务中进行，
+ * 持锁线程看到的是工作状态，其他线程只看到已提交的状态；事务回滚时工作状态恢复为已提交状态。
+ * 变量和活动节点整体替换而不原地修改，读取方拿到的引用不会被并发改写。
+ * 替换时按顶层键与旧值比较，记录上次写回后新增、修改和删除的键，写回时只发送这些键。
+ */
+public class InstanceRuntimeContext {
+
+    private final Long instanceId;
+
+    /**
+     * 同一实例的推进串行执行，锁一直持有到事务结束
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Map<String, Object> variables;
+    private List<String> activeNodeIds;
+
+    private volatile Map<String, Object> committedVariables;
+    private volatile List<String> committedActiveNodeIds;
+
+    /**
+     * 上次写回后新增或修改的变量键、删除的变量键、活动节点是否变化
+     * 集合写时复制，已提交状态与工作状态可以共享同一个集合
+     */
+    private Set<String> changedKeys = Collections.emptySet();
+    private Set<String> removedKeys = Collections.emptySet();
+    private boolean activeNodesChanged;
+    private Set<String> committedChangedKeys = Collections.emptySet();
+    private Set<String> committedRemovedKeys = Collections.emptySet();
+    private boolean committedActiveNodesChanged;
+
+    /**
+     * 状态版本号，每次修改加一
+     */
+    private long version;
+    private long committedVersion;
+
+    /**
+     * 已写入数据库的版本号
+     */
+    private long flushedVersion;
+
+    /**
+     * 上次写回后推进的步数
+     */
+    private int stepsSinceFlush;
+    private int committedStepsSinceFlush;
+
+    InstanceRuntimeContext(Long instanceId, Map<String, Object> variables, List<String> activeNodeIds) {
+        this.instanceId = instanceId;
+        this.variables = variables;
+        this.activeNodeIds = activeNodeIds;
+        this.committedVariables = variables;
+        this.committedActiveNodeIds = activeNodeIds;
+    }
+
+    public Long getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * 获取变量副本
+     *
+     * @return 变量
+     */
+    public Map<String, Object> copyVariables() {
+        return new HashMap<>(lock.isHeldByCurrentThread() ? variables : committedVariables);
+    }
+
+    /**
+     * 获取活动节点副本
+     *
+     * @return 活动节点ID列表
+     */
+    public List<String> copyActiveNodeIds() {
+        return new ArrayList<>(lock.isHeldByCurrentThread() ? activeNodeIds : committedActiveNodeIds);
+    }
+
+    /**
+     * 获取单个变量
+     *
+     * @param key 变量名
+     * @return 变量值
+     */
+    public Object getVariable(String key) {
+        return (lock.isHeldByCurrentThread() ? variables : committedVariables).get(key);
+    }
+
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    Map<String, Object> getVariables() {
+        return variables;
+    }
+
+    List<String> getActiveNodeIds() {
+        return activeNodeIds;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    int getStepsSinceFlush() {
+        return stepsSinceFlush;
+    }
+
+    Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    Set<String> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    boolean isActiveNodesChanged() {
+        return activeNodesChanged;
+    }
+
+    /**
+     * 是否有尚未写入数据库的修改（调用方持有锁）
+     */
+    boolean isDirty() {
+        return version != flushedVersion;
+    }
+
+    /**
+     * 替换工作状态（调用方持有锁）
+     */
+    void replace(Map<String, Object> variables, List<String> activeNodeIds) {
+        trackChanges(this.variables, variables);
+        if (!activeNodesChanged && !this.activeNodeIds.equals(activeNodeIds)) {
+            activeNodesChanged = true;
+        }
+        this.variables = variables;
+        this.activeNodeIds = activeNodeIds;
+        this.version++;
+        this.stepsSinceFlush++;
+    }
+
+    /**
+     * 事务提交，工作状态成为已提交状态（调用方持有锁）
+     */
+    void commit() {
+        committedVariables = variables;
+        committedActiveNodeIds = activeNodeIds;
+        committedVersion = version;
+        committedStepsSinceFlush = stepsSinceFlush;
+        committedChangedKeys = changedKeys;
+        committedRemovedKeys = removedKeys;
+        committedActiveNodesChanged = activeNodesChanged;
+    }
+
+    /**
+     * 事务回滚，丢弃工作状态（调用方持有锁）
+     */
+    void rollback() {
+        variables = committedVariables;
+        activeNodeIds = committedActiveNodeIds;
+        version = committedVersion;
+        stepsSinceFlush = committedStepsSinceFlush;
+        changedKeys = committedChangedKeys;
+        removedKeys = committedRemovedKeys;
+        activeNodesChanged = committedActiveNodesChanged;
+    }
+
+    /**
+     * 标记指定版本已写入数据库（调用方持有锁）
+     */
+    void markFlushed(long version) {
+        if (version > flushedVersion) {
+            flushedVersion = version;
+        }
+        if (version == this.version) {
+            stepsSinceFlush = 0;
+            committedStepsSinceFlush = 0;
+            changedKeys = Collections.emptySet();
+            removedKeys = Collections.emptySet();
+            activeNodesChanged = false;
+            committedChangedKeys = changedKeys;
+            committedRemovedKeys = removedKeys;
+            committedActiveNodesChanged = false;
+        }
+    }
+
+    /**
+     * 按顶层键比较新旧变量，值引用相同或相等的键视为未变化
+     */
+    private void trackChanges(Map<String, Object> previous, Map<String, Object> next) {
+        Set<String> changed = null;
+        Set<String> removed = null;
+        for (Map.Entry<String, Object> entry : next.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            Object old = previous.get(key);
+            boolean unchanged = old == value ? value != null || previous.containsKey(key) : value != null && value.equals(old);
+            if (unchanged) {
+                continue;
+            }
+            if (changed == null) {
+                changed = new HashSet<>(changedKeys);
+                removed = new HashSet<>(removedKeys);
+            }
+            changed.add(key);
+            removed.remove(key);
+        }
+        for (String key : previous.keySet()) {
+            if (next.containsKey(key)) {
+                continue;
+            }
+            if (changed == null) {
+                changed = new HashSet<>(changedKeys);
+                removed = new HashSet<>(removedKeys);
+            }
+            changed.remove(key);
+            removed.add(key);
+        }
+        if (changed != null) {
+            changedKeys = changed;
+            removedKeys = removed;
+        }
+    }
+}
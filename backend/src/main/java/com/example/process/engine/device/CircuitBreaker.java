@@ -0,0 +1,165 @@
+package com.example.process.engine.device;
+
+import java.util.Arrays;
+
+/**
+ * 熔断器
+ * 关闭状态下在最近 windowSize 次调用的滑动窗口上统计失败率，调用次数达到 minimumCalls 且失败率达到阈值时打开；
+ * 打开状态拒绝调用，openMs 后进入半开状态，放行 halfOpenCalls 次试探调用：全部成功则关闭并清空窗口，任一失败则重新打开。
+ * 打开之前已经发出的调用在打开后返回的结果不再计入。
+ * <p>
+ * 非线程安全，由调用方保证单线程访问；时间使用 {@link System#nanoTime()}。
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 滑动窗口，true 表示失败
+     */
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private int next;
+    private int calls;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int trials;
+    private int trialSuccesses;
+    private long opened;
+
+    /**
+     * @param windowSize           滑动窗口的调用次数
+     * @param minimumCalls         开始计算失败率的最少调用次数
+     * @param failureRateThreshold 打开的失败率阈值（百分比）
+     * @param openMs               打开状态的持续时间（毫秒）
+     * @param halfOpenCalls        半开状态放行的试探调用次数
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openMs,
+                          int halfOpenCalls) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = Math.max(0, openMs) * 1_000_000L;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * 申请一次调用：打开状态到期后转为半开，半开状态只放行有限次数的试探调用
+     *
+     * @param now 当前时间（纳秒）
+     * @return 是否放行
+     */
+    public boolean tryAcquire(long now) {
+        if (state == State.OPEN) {
+            if (now - openUntil < 0) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trials = 0;
+            trialSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trials >= halfOpenCalls) {
+                return false;
+            }
+            trials++;
+        }
+        return true;
+    }
+
+    /**
+     * 撤销一次已放行但未实际发出的调用
+     */
+    public void cancel() {
+        if (state == State.HALF_OPEN && trials > 0) {
+            trials--;
+        }
+    }
+
+    /**
+     * 记录一次调用结果
+     *
+     * @param success 是否成功
+     * @param now     当前时间（纳秒）
+     */
+    public void record(boolean success, long now) {
+        if (state == State.HALF_OPEN) {
+            if (!success) {
+                open(now);
+            } else if (++trialSuccesses >= halfOpenCalls) {
+                reset();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (calls == window.length && window[next]) {
+            failures--;
+        }
+        window[next] = !success;
+        next = (next + 1) % window.length;
+        calls = Math.min(calls + 1, window.length);
+        if (!success) {
+            failures++;
+            if (calls >= minimumCalls && failures * 100.0 >= failureRateThreshold * calls) {
+                open(now);
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 获取滑动窗口内的失败率
+     *
+     * @return 失败率（百分比）
+     */
+    public double getFailureRate() {
+        return calls == 0 ? 0 : failures * 100.0 / calls;
+    }
+
+    /**
+     * 获取累计打开的次数
+     *
+     * @return 次数
+     */
+    public long getOpened() {
+        return opened;
+    }
+
+    /**
+     * 获取打开状态的剩余时间
+     *
+     * @param now 当前时间（纳秒）
+     * @return 剩余毫秒数，未打开时返回0
+     */
+    public long remainingOpenMs(long now) {
+        return state == State.OPEN ? Math.max(0, (openUntil - now) / 1_000_000L) : 0;
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openUntil = now + openNanos;
+        opened++;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        next = 0;
+        calls = 0;
+        failures = 0;
+        Arrays.fill(window, false);
+    }
+}
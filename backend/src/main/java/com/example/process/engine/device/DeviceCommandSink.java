@@ -0,0 +1,104 @@
+package com.example.process.engine.device;
+
+import com.example.process.engine.outbox.OutboxSink;
+import com.example.process.model.engine.OutboxMessage;
+import com.example.process.model.engine.constant.DeviceActionStatus;
+import com.example.process.util.JsonUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备指令投递目标
+ * 设备动作节点发布的指令在事务提交后登记为等待执行的设备动作，登记后唤醒本节点的 {@link DeviceDispatcher} 下发到设备。
+ * 同一条消息重复投递时按发件箱消息ID去重，只登记一次。
+ */
+@Component
+public class DeviceCommandSink implements OutboxSink {
+
+    /**
+     * 设备指令主题
+     */
+    public static final String TOPIC = "device_command";
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private static final String INSERT_SQL = "INSERT INTO device_action (flow_instance_id, node_id, device_id, " +
+            "device_type, device_name, action_type, action_name, parameters, status, scheduled_time, retry_count, " +
+            "max_retries, priority, outbox_message_id, delivery_count, created_at, is_deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, 0, ?, false) " +
+            "ON CONFLICT (outbox_message_id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<DeviceDispatcher> deviceDispatcher;
+
+    public DeviceCommandSink(JdbcTemplate jdbcTemplate, ObjectProvider<DeviceDispatcher> deviceDispatcher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.deviceDispatcher = deviceDispatcher;
+    }
+
+    @Override
+    public String getTopic() {
+        return TOPIC;
+    }
+
+    @Override
+    public void deliver(List<OutboxMessage> messages) {
+        List<Map<String, Object>> payloads = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            Map<String, Object> payload = JsonUtils.parseObject(message.getPayload(), MAP_TYPE);
+            payloads.add(payload != null ? payload : Map.of());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OutboxMessage message = messages.get(i);
+                Map<String, Object> payload = payloads.get(i);
+                ps.setLong(1, message.getFlowInstanceId());
+                ps.setString(2, message.getNodeId());
+                ps.setString(3, text(payload.get("deviceId")));
+                ps.setString(4, text(payload.get("deviceType")));
+                ps.setString(5, text(payload.get("deviceName")));
+                ps.setString(6, text(payload.get("actionType")));
+                ps.setString(7, text(payload.get("actionName")));
+                ps.setString(8, payload.get("parameters") != null
+                        ? JsonUtils.toJsonString(payload.get("parameters")) : null);
+                ps.setString(9, DeviceActionStatus.PENDING.getCode());
+                long delaySeconds = payload.get("delaySeconds") instanceof Number number ? number.longValue() : 0L;
+                LocalDateTime createdAt = message.getCreatedAt() != null ? message.getCreatedAt() : now;
+                ps.setTimestamp(10, delaySeconds > 0 ? Timestamp.valueOf(createdAt.plusSeconds(delaySeconds)) : null);
+                if (payload.get("maxRetries") instanceof Number number) {
+                    ps.setInt(11, number.intValue());
+                } else {
+                    ps.setNull(11, Types.INTEGER);
+                }
+                ps.setString(12, text(payload.get("priority")));
+                ps.setLong(13, message.getId());
+                ps.setTimestamp(14, Timestamp.valueOf(now));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return messages.size();
+            }
+        });
+        deviceDispatcher.ifAvailable(DeviceDispatcher::wakeUp);
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
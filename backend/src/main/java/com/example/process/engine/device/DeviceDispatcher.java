@@ -0,0 +1,878 @@
+package com.example.process.engine.device;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.cluster.InstanceOwnership;
+import com.example.process.engine.event.EventPipeline;
+import com.example.process.engine.event.FlowEventWriter;
+import com.example.process.engine.lease.LeaseManager;
+import com.example.process.engine.timer.HierarchicalTimingWheel;
+import com.example.process.model.engine.DeviceAction;
+import com.example.process.model.engine.constant.DeviceActionStatus;
+import com.example.process.model.engine.constant.EventType;
+import com.example.process.model.engine.dto.CircuitBreakerStats;
+import com.example.process.model.engine.dto.DeviceDispatchStats;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.util.JsonUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 设备动作调度器
+ * 领取计划时间已到的设备动作，按设备ID放入各自的串行队列：同一设备同时只执行一个动作，完成后才下发下一个，
+ * 不同设备之间并行执行，同时执行的数量受全局上限和按设备类型的上限约束。
+ * 调度由一个后台线程完成，设备队列只是内存中的数据结构，不占用线程；动作通过按设备类型选择的 {@link DeviceGateway} 异步下发，
+ * 结果回调只把完成记录交回调度线程。空闲的设备队列超过一定时间后回收，一万个设备不需要一万个线程或常驻队列。
+ * 领取时动作状态已改为执行中；开始时间和执行结果先在内存中累积，按条数或时间间隔批量写回，写回时校验租约，
+ * 租约已被其他节点接管的动作不更新。领取后尚未下发的动作定期续约，停止时归还。
+ * 领取时跳过其他节点仍持有有效租约的设备，同一设备的动作集中在一个节点上串行执行。
+ * <p>
+ * 执行失败的动作按指数退避加随机抖动安排重试，放入内存中的时间轮，不重新写回等待状态，也不重新领取：
+ * 数据库中只写入重试次数和下次执行时间，节点宕机后其他节点按这个时间领取，网络抖动后大量失败的动作分散在退避区间内重试，
+ * 不会同时冲击数据库和设备。等待重试的动作仍由本节点持有租约，所在设备的后续动作排在它之后。
+ * 重试到期时设备已知离线（{@link DevicePresence}）的推迟重试，不消耗重试次数。
+ * 重试次数用尽的动作标记为失败，并发出关联实例和节点的 device_action_failed 事件，由流程的错误分支处理；
+ * 执行成功的动作发出 device_action_completed 事件，停留在设备动作节点上的令牌据此继续推进。
+ * <p>
+ * 重大事件中多个预案实例会在几毫秒内向同一设备发出相同或相互覆盖的指令。领取的动作在设备队列中按（设备ID，动作类型）合并：
+ * 合并窗口内到达、与队列末尾指令同类的动作，参数相同的去重，参数不同的由最新的一条覆盖，合并后只向设备下发一次，
+ * 不越过其间的其他类型指令合并，设备收到指令的先后顺序不变；
+ * 执行结果（包括重试和失败）写回合并进来的每一条动作。新的指令至少在队列中等待一个合并窗口再下发。
+ * 同一设备的动作只由一个节点领取，合并覆盖所有实例和节点发出的指令。
+ * <p>
+ * 每条指令有执行超时，超时后不再等待设备响应，按失败处理（重试用尽时状态为超时），慢设备不会长期占用设备队列和执行名额。
+ * 单个设备和设备类型各有一个熔断器（{@link CircuitBreaker}），失败率达到阈值后打开，打开期间指令不下发，
+ * 与设备离线一样推迟到熔断器转为半开时再试，不消耗重试次数，已死的设备不再持续收到指令；到期后放行试探指令，成功后恢复。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "process.engine.device-dispatch", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class DeviceDispatcher {
+
+    private static final String START_SQL = "UPDATE device_action SET start_time = ?, updated_at = ? " +
+            "WHERE id = ? AND lease_owner = ? AND status = ?";
+    private static final String COMPLETE_SQL = "UPDATE device_action SET status = ?, completion_time = ?, " +
+            "duration = ?, result = ?, error_message = ?, lease_owner = NULL, lease_expire_time = NULL, updated_at = ? " +
+            "WHERE id = ? AND lease_owner = ? AND status = ?";
+    private static final long STATS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String RETRY_SQL = "UPDATE device_action SET retry_count = ?, scheduled_time = ?, " +
+            "error_message = ?, updated_at = ? WHERE id = ? AND lease_owner = ? AND status = ?";
+    private static final long FLUSH_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LeaseManager leaseManager;
+    private final DeviceGatewayRegistry deviceGatewayRegistry;
+    private final DevicePresence devicePresence;
+    private final FlowEventWriter flowEventWriter;
+    private final EventPipeline eventPipeline;
+    private final InstanceOwnership instanceOwnership;
+    private final EngineProperties.DeviceDispatch properties;
+    private final EngineProperties.DeviceRetry retryProperties;
+    private final EngineProperties.DeviceCircuitBreaker circuitBreakerProperties;
+    private final String owner;
+    private final long renewIntervalNanos;
+    private final long coalesceWindowNanos;
+    private final long clockOrigin = System.nanoTime();
+
+    // 以下状态只由调度线程访问
+
+    /**
+     * 设备ID到设备队列
+     */
+    private final Map<String, DeviceQueue> queues = new HashMap<>();
+
+    /**
+     * 有待执行动作、当前没有动作在执行的设备，按就绪顺序
+     */
+    private final ArrayDeque<DeviceQueue> ready = new ArrayDeque<>();
+
+    /**
+     * 已领取、尚未完成的动作（等待执行和执行中），用于续约
+     */
+    private final Map<Long, DeviceAction> held = new HashMap<>();
+
+    /**
+     * 等待重试的指令（下发的动作ID到重试），到期时间由时间轮管理
+     */
+    private final Map<Long, Retry> retries = new HashMap<>();
+    private final HierarchicalTimingWheel<Retry> retryWheel;
+
+    /**
+     * 设备ID到熔断器，设备队列回收时一并回收关闭状态的熔断器
+     */
+    private final Map<String, CircuitBreaker> deviceBreakers = new HashMap<>();
+
+    /**
+     * 设备类型到熔断器
+     */
+    private final Map<String, CircuitBreaker> typeBreakers = new HashMap<>();
+
+    private final Map<String, Integer> inFlightByType = new HashMap<>();
+    private final List<Object[]> startWrites = new ArrayList<>();
+    private final List<Object[]> retryWrites = new ArrayList<>();
+    private final List<Object[]> completeWrites = new ArrayList<>();
+    private final List<FlowEventDTO> resultEvents = new ArrayList<>();
+    private int queued;
+    private int inFlight;
+    private long started;
+    private long succeeded;
+    private long failed;
+    private long timedOut;
+    private long rejected;
+    private long retried;
+    private long escalated;
+    private long deduplicated;
+    private long superseded;
+    private long nextHoldNanos;
+    private long evicted;
+    private long firstWriteNanos;
+    private long flushRetryNanos;
+
+    private final ConcurrentLinkedQueue<Completion> completions = new ConcurrentLinkedQueue<>();
+    private volatile DeviceDispatchStats stats = new DeviceDispatchStats();
+    private volatile boolean claimRequested = true;
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    public DeviceDispatcher(JdbcTemplate jdbcTemplate,
+                            LeaseManager leaseManager,
+                            DeviceGatewayRegistry deviceGatewayRegistry,
+                            DevicePresence devicePresence,
+                            FlowEventWriter flowEventWriter,
+                            EventPipeline eventPipeline,
+                            InstanceOwnership instanceOwnership,
+                            EngineProperties engineProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.leaseManager = leaseManager;
+        this.deviceGatewayRegistry = deviceGatewayRegistry;
+        this.devicePresence = devicePresence;
+        this.flowEventWriter = flowEventWriter;
+        this.eventPipeline = eventPipeline;
+        this.instanceOwnership = instanceOwnership;
+        this.properties = engineProperties.getDeviceDispatch();
+        this.retryProperties = engineProperties.getDeviceRetry();
+        this.circuitBreakerProperties = engineProperties.getDeviceCircuitBreaker();
+        this.retryWheel = new HierarchicalTimingWheel<>(Math.max(1, retryProperties.getTickMs()),
+                Math.max(2, retryProperties.getWheelSize()), 0);
+        this.owner = leaseManager.getOwner();
+        this.renewIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, engineProperties.getLease().getLeaseSeconds())) / 3;
+        this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, properties.getCoalesceWindowMs()));
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "device-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 唤醒调度器领取新动作（有设备动作登记时调用）
+     */
+    public void wakeUp() {
+        claimRequested = true;
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    /**
+     * 获取调度统计
+     *
+     * @return 最近一次发布的统计
+     */
+    public DeviceDispatchStats getStats() {
+        return stats;
+    }
+
+    private void run() {
+        long pollNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, properties.getPollIntervalMs()));
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, properties.getFlushIntervalMs()));
+        long evictNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, properties.getIdleEvictMs()));
+        long now = System.nanoTime();
+        long nextPoll = now;
+        long nextRenew = now + renewIntervalNanos;
+        long nextEvict = now + evictNanos;
+        long nextStats = now;
+        while (running) {
+            now = System.nanoTime();
+            try {
+                drainCompletions(now);
+                long due = now;
+                retryWheel.advance(millis(due), retry -> fireRetry(retry, due));
+                if (claimRequested || now - nextPoll >= 0) {
+                    // 等待执行的动作已达上限时不领取，保留领取请求，下发后再领取
+                    if (queued < properties.getMaxQueued()) {
+                        claimRequested = false;
+                        claim(properties.getMaxQueued() - queued, now);
+                    }
+                    nextPoll = now + pollNanos;
+                }
+                dispatch(now);
+                int writes = pendingWrites();
+                if (writes > 0 && now - flushRetryNanos >= 0
+                        && (writes >= properties.getFlushBatchSize() || now - firstWriteNanos >= flushNanos)) {
+                    flush(now);
+                }
+                if (now - nextRenew >= 0) {
+                    renew();
+                    nextRenew = now + renewIntervalNanos;
+                }
+                if (now - nextEvict >= 0) {
+                    evictIdle(now, evictNanos);
+                    nextEvict = now + evictNanos;
+                }
+            } catch (RuntimeException e) {
+                log.error("设备动作调度失败", e);
+                nextPoll = now + pollNanos;
+            }
+            if (now - nextStats >= 0) {
+                publishStats();
+                nextStats = now + STATS_INTERVAL_NANOS;
+            }
+
+            long wait = Math.min(nextPoll, Math.min(nextRenew, nextEvict)) - now;
+            if (pendingWrites() > 0) {
+                wait = Math.min(wait, Math.max(firstWriteNanos + flushNanos, flushRetryNanos) - now);
+            }
+            if (!retries.isEmpty()) {
+                wait = Math.min(wait, TimeUnit.MILLISECONDS.toNanos(Math.max(1, retryProperties.getTickMs())));
+            }
+            if (nextHoldNanos != 0) {
+                wait = Math.min(wait, nextHoldNanos - now);
+            }
+            boolean claimPending = claimRequested && queued < properties.getMaxQueued();
+            if (wait > 0 && running && completions.isEmpty() && !claimPending) {
+                LockSupport.parkNanos(this, Math.min(wait, STATS_INTERVAL_NANOS * 10));
+            }
+        }
+        shutdown();
+    }
+
+    private void claim(int limit, long now) {
+        for (DeviceAction action : leaseManager.claimActions(limit)) {
+            held.put(action.getId(), action);
+            DeviceQueue queue = queues.computeIfAbsent(action.getDeviceId(), DeviceQueue::new);
+            queue.idleSince = now;
+            queued++;
+            if (!coalesce(queue, action, now)) {
+                queue.pending.add(new Command(action, now + coalesceWindowNanos));
+                markReady(queue);
+            }
+        }
+    }
+
+    /**
+     * 合并到设备队列末尾合并窗口内、尚未下发的同类指令：参数相同的去重，参数不同的覆盖原指令下发的动作。
+     * 只与最后一条指令合并，不越过其间的其他指令：open、close、open' 依次下发，不会变成 open'、close
+     *
+     * @return 是否已合并
+     */
+    private boolean coalesce(DeviceQueue queue, DeviceAction action, long now) {
+        if (coalesceWindowNanos <= 0) {
+            return false;
+        }
+        Command command = queue.pending.peekLast();
+        if (command == null || !Objects.equals(command.action.getActionType(), action.getActionType())
+                || now - command.holdUntil >= 0) {
+            return false;
+        }
+        command.members.add(action);
+        if (Objects.equals(command.action.getParameters(), action.getParameters())) {
+            deduplicated++;
+        } else {
+            command.action = action;
+            superseded++;
+        }
+        return true;
+    }
+
+    /**
+     * 按就绪顺序下发各设备队首的指令，设备类型已达上限或仍在合并窗口内的设备保持就绪，不阻塞其他设备
+     */
+    private void dispatch(long now) {
+        List<DeviceQueue> deferred = null;
+        nextHoldNanos = 0;
+        int candidates = ready.size();
+        while (candidates-- > 0 && inFlight < properties.getMaxConcurrent()) {
+            DeviceQueue queue = ready.poll();
+            Command command = queue.pending.peek();
+            String type = typeOf(command.action);
+            boolean holding = now - command.holdUntil < 0;
+            if (holding || inFlightByType.getOrDefault(type, 0) >= limitOf(type)) {
+                if (holding && (nextHoldNanos == 0 || command.holdUntil - nextHoldNanos < 0)) {
+                    nextHoldNanos = command.holdUntil;
+                }
+                if (deferred == null) {
+                    deferred = new ArrayList<>();
+                }
+                deferred.add(queue);
+                continue;
+            }
+            queue.inReady = false;
+            queue.pending.poll();
+            queued -= command.members.size();
+            if (!acquireBreakers(command.action, type, now)) {
+                rejected++;
+                deferUntilHalfOpen(queue, command, type, now);
+                continue;
+            }
+            send(queue, command, type, now);
+        }
+        if (deferred != null) {
+            for (int i = deferred.size() - 1; i >= 0; i--) {
+                ready.addFirst(deferred.get(i));
+            }
+        }
+    }
+
+    private void send(DeviceQueue queue, Command command, String type, long now) {
+        queue.running = true;
+        inFlight++;
+        inFlightByType.merge(type, 1, Integer::sum);
+        started++;
+        LocalDateTime startTime = LocalDateTime.now();
+        for (DeviceAction member : command.members) {
+            member.setStartTime(startTime);
+            addWrite(startWrites, now, Timestamp.valueOf(startTime), Timestamp.valueOf(startTime), member.getId(),
+                    owner, DeviceActionStatus.RUNNING.getCode());
+        }
+
+        CompletableFuture<Map<String, Object>> future;
+        try {
+            future = deviceGatewayRegistry.resolve(command.action).send(command.action);
+            if (future == null) {
+                future = CompletableFuture.completedFuture(null);
+            }
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        // 超时只作用于调度器等待的副本，不影响网关自己的结果
+        long timeoutMs = timeoutOf(type);
+        if (timeoutMs > 0) {
+            future = future.copy().orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        future.whenComplete((result, error) -> {
+            completions.add(new Completion(queue, command, type, result, error, System.nanoTime() - now));
+            Thread current = thread;
+            if (current != null) {
+                LockSupport.unpark(current);
+            }
+        });
+    }
+
+    private void drainCompletions(long now) {
+        Completion completion;
+        while ((completion = completions.poll()) != null) {
+            DeviceQueue queue = completion.queue;
+            queue.running = false;
+            inFlight--;
+            inFlightByType.computeIfPresent(completion.type, (type, count) -> count > 1 ? count - 1 : null);
+            recordBreakers(completion.command.action, completion.type, completion.error == null, now);
+            finish(queue, completion.command, completion.result, completion.error, completion.elapsedNanos, now);
+        }
+    }
+
+    /**
+     * 处理指令结果：失败且可以重试的安排重试，其余写回合并进来的每一条动作；
+     * 重试用尽时最后一次是超时的记为超时，否则记为失败
+     */
+    private void finish(DeviceQueue queue, Command command, Map<String, Object> resultData, Throwable failure,
+                        long elapsedNanos, long now) {
+        DeviceAction action = command.action;
+        queue.idleSince = now;
+        DeviceActionStatus status;
+        String error = null;
+        if (failure == null) {
+            status = DeviceActionStatus.SUCCESS;
+            succeeded += command.members.size();
+            devicePresence.markOnline(action.getDeviceId());
+        } else {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            boolean timeout = cause instanceof TimeoutException;
+            error = cause.getMessage() != null ? cause.getMessage()
+                    : timeout ? "设备动作执行超时" : cause.getClass().getSimpleName();
+            int retryCount = action.getRetryCount() != null ? action.getRetryCount() : 0;
+            int maxRetries = action.getMaxRetries() != null
+                    ? action.getMaxRetries() : retryProperties.getDefaultMaxRetries();
+            if (retryCount < maxRetries) {
+                scheduleRetry(queue, command, retryCount + 1, error, now);
+                return;
+            }
+            if (timeout) {
+                status = DeviceActionStatus.TIMEOUT;
+                timedOut += command.members.size();
+            } else {
+                status = DeviceActionStatus.FAILED;
+                failed += command.members.size();
+            }
+            log.warn("设备动作执行{}，已重试 {} 次，转入错误处理：actionId={}, deviceId={}, actionType={}, 合并 {} 条, {}",
+                    timeout ? "超时" : "失败", retryCount, action.getId(), action.getDeviceId(),
+                    action.getActionType(), command.members.size(), error);
+        }
+        LocalDateTime completionTime = LocalDateTime.now();
+        String result = resultData != null ? JsonUtils.toJsonString(resultData) : null;
+        for (DeviceAction member : command.members) {
+            held.remove(member.getId());
+            addWrite(completeWrites, now, status.getCode(), Timestamp.valueOf(completionTime),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), result, error,
+                    Timestamp.valueOf(completionTime), member.getId(), owner, DeviceActionStatus.RUNNING.getCode());
+            // 每个被合并的动作按自己的重试次数上报
+            report(member, status, resultData, error, now);
+        }
+        markReady(queue);
+    }
+
+    /**
+     * 申请设备和设备类型熔断器的放行，任一拒绝时不下发
+     */
+    private boolean acquireBreakers(DeviceAction action, String type, long now) {
+        if (!circuitBreakerProperties.isEnabled()) {
+            return true;
+        }
+        CircuitBreaker device = deviceBreakers.computeIfAbsent(action.getDeviceId(),
+                deviceId -> newBreaker(circuitBreakerProperties.getDevice()));
+        if (!device.tryAcquire(now)) {
+            return false;
+        }
+        CircuitBreaker deviceType = typeBreakers.computeIfAbsent(type,
+                key -> newBreaker(circuitBreakerProperties.getDeviceType()));
+        if (!deviceType.tryAcquire(now)) {
+            device.cancel();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 熔断器拒绝下发：与设备离线一样推迟到熔断器转为半开时再试，不消耗重试次数
+     * 半开状态的试探名额已被占满时按基础退避延迟再检查
+     */
+    private void deferUntilHalfOpen(DeviceQueue queue, Command command, String type, long now) {
+        DeviceAction action = command.action;
+        CircuitBreaker device = deviceBreakers.get(action.getDeviceId());
+        CircuitBreaker deviceType = typeBreakers.get(type);
+        long delayMs = Math.max(device != null ? device.remainingOpenMs(now) : 0,
+                deviceType != null ? deviceType.remainingOpenMs(now) : 0);
+        if (delayMs <= 0) {
+            delayMs = retryProperties.getBaseDelayMs();
+        }
+        delayMs = Math.max(delayMs, retryProperties.getTickMs());
+        queue.retrying = true;
+        log.debug("设备熔断中，{} 毫秒后再下发：actionId={}, deviceId={}, actionType={}",
+                delayMs, action.getId(), action.getDeviceId(), action.getActionType());
+        arm(new Retry(queue, command), delayMs, now);
+    }
+
+    private void recordBreakers(DeviceAction action, String type, boolean success, long now) {
+        CircuitBreaker device = deviceBreakers.get(action.getDeviceId());
+        if (device != null) {
+            device.record(success, now);
+        }
+        CircuitBreaker deviceType = typeBreakers.get(type);
+        if (deviceType != null) {
+            deviceType.record(success, now);
+        }
+    }
+
+    private static CircuitBreaker newBreaker(EngineProperties.CircuitBreakerSettings settings) {
+        return new CircuitBreaker(settings.getWindowSize(), settings.getMinimumCalls(),
+                settings.getFailureRateThreshold(), settings.getOpenMs(), settings.getHalfOpenCalls());
+    }
+
+    /**
+     * 安排重试：按退避延迟放入时间轮，记录重试次数和下次执行时间，设备队列在重试前不下发后续指令
+     */
+    private void scheduleRetry(DeviceQueue queue, Command command, int retryCount, String error, long now) {
+        long delayMs = backoff(retryCount);
+        for (DeviceAction member : command.members) {
+            member.setRetryCount(retryCount);
+            member.setErrorMessage(error);
+        }
+        queue.retrying = true;
+        retried++;
+        DeviceAction action = command.action;
+        log.warn("设备动作执行失败，{} 毫秒后第 {} 次重试：actionId={}, deviceId={}, actionType={}, {}",
+                delayMs, retryCount, action.getId(), action.getDeviceId(), action.getActionType(), error);
+        arm(new Retry(queue, command), delayMs, now);
+    }
+
+    /**
+     * 把重试放入时间轮并写回下次执行时间
+     */
+    private void arm(Retry retry, long delayMs, long now) {
+        LocalDateTime current = LocalDateTime.now();
+        LocalDateTime nextAttempt = current.plus(delayMs, ChronoUnit.MILLIS);
+        for (DeviceAction member : retry.command.members) {
+            member.setScheduledTime(nextAttempt);
+            addWrite(retryWrites, now, member.getRetryCount(), Timestamp.valueOf(nextAttempt),
+                    member.getErrorMessage(), Timestamp.valueOf(current), member.getId(), owner,
+                    DeviceActionStatus.RUNNING.getCode());
+        }
+        retries.put(retry.command.action.getId(), retry);
+        if (!retryWheel.add(millis(now) + delayMs, retry)) {
+            fireRetry(retry, now);
+        }
+    }
+
+    /**
+     * 重试到期：设备已知离线时推迟，否则放回设备队列的队首
+     */
+    private void fireRetry(Retry retry, long now) {
+        Command command = retry.command;
+        if (retries.remove(command.action.getId()) == null) {
+            return;
+        }
+        if (devicePresence.isOffline(command.action.getDeviceId())) {
+            arm(retry, Math.max(retryProperties.getOfflineRecheckMs(), retryProperties.getTickMs()), now);
+            return;
+        }
+        DeviceQueue queue = retry.queue;
+        queue.retrying = false;
+        command.holdUntil = now;
+        queue.pending.addFirst(command);
+        queue.idleSince = now;
+        queued += command.members.size();
+        markReady(queue);
+    }
+
+    /**
+     * 退避延迟：基础延迟 × 2^(重试次数 - 1)，不超过上限，再按抖动比例随机缩短
+     */
+    private long backoff(int retryCount) {
+        long base = Math.max(1, retryProperties.getBaseDelayMs());
+        long max = Math.max(base, retryProperties.getMaxDelayMs());
+        int shift = retryCount - 1;
+        long delay = shift >= Long.numberOfLeadingZeros(base) - 1 ? max : Math.min(max, base << shift);
+        double jitter = Math.min(1.0, Math.max(0.0, retryProperties.getJitter()));
+        return Math.max(1, delay - (long) (delay * jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * 动作完成：执行成功时生成 device_action_completed 事件，重试用尽时生成 device_action_failed 事件，
+     * 随执行结果一起写回后交给事件流水线。以动作ID作为幂等键，写回失败重试时不会重复生成
+     */
+    private void report(DeviceAction action, DeviceActionStatus status, Map<String, Object> result, String error,
+                        long now) {
+        boolean success = status == DeviceActionStatus.SUCCESS;
+        EventType type = success ? EventType.DEVICE_ACTION_COMPLETED : EventType.DEVICE_ACTION_FAILED;
+        Map<String, Object> data = new HashMap<>();
+        data.put("actionId", action.getId());
+        data.put("status", status.getCode());
+        data.put("deviceId", action.getDeviceId());
+        data.put("deviceType", action.getDeviceType());
+        data.put("actionType", action.getActionType());
+        data.put("retryCount", action.getRetryCount() != null ? action.getRetryCount() : 0);
+        if (success) {
+            data.put("result", result);
+        } else {
+            data.put("error", error);
+        }
+
+        FlowEventDTO event = new FlowEventDTO();
+        event.setEventType(type.getCode());
+        event.setEventName(type.getDescription());
+        event.setSourceId(action.getDeviceId());
+        event.setSourceType(action.getDeviceType());
+        event.setEventData(data);
+        event.setOccurrenceTime(LocalDateTime.now());
+        event.setFlowInstanceId(action.getFlowInstanceId());
+        event.setNodeId(action.getNodeId());
+        event.setPriority(action.getPriority());
+        event.setIdempotencyKey(type.getCode() + ":" + action.getId());
+        beforeWrite(now);
+        resultEvents.add(event);
+        if (!success) {
+            escalated++;
+        }
+    }
+
+    /**
+     * 批量写回开始时间、重试时间和执行结果，开始时间先于执行结果写回，结果事件在执行结果之后写入；
+     * 写回失败时保留，稍后重试
+     */
+    private void flush(long now) {
+        try {
+            if (!startWrites.isEmpty()) {
+                jdbcTemplate.batchUpdate(START_SQL, startWrites);
+                startWrites.clear();
+            }
+            if (!retryWrites.isEmpty()) {
+                jdbcTemplate.batchUpdate(RETRY_SQL, retryWrites);
+                retryWrites.clear();
+            }
+            if (!completeWrites.isEmpty()) {
+                jdbcTemplate.batchUpdate(COMPLETE_SQL, completeWrites);
+                completeWrites.clear();
+            }
+            if (!resultEvents.isEmpty()) {
+                publishResults();
+            }
+        } catch (RuntimeException e) {
+            log.error("设备动作状态写回失败，稍后重试：{} 条", pendingWrites(), e);
+            flushRetryNanos = now + FLUSH_RETRY_NANOS;
+        }
+    }
+
+    /**
+     * 写入结果事件并交给事件流水线；流水线已满的事件由本节点持有租约，到期后重新投递。
+     * 集群模式下关联实例属于其他节点的结果事件不持有租约写入，由实例所在节点领取处理
+     */
+    private void publishResults() {
+        List<FlowEventDTO> events = new ArrayList<>(resultEvents.size());
+        List<FlowEventDTO> handOffs = new ArrayList<>();
+        for (FlowEventDTO event : resultEvents) {
+            if (event.getFlowInstanceId() == null || instanceOwnership.isOwner(event.getFlowInstanceId())) {
+                events.add(event);
+            } else {
+                handOffs.add(event);
+            }
+        }
+        flowEventWriter.insertBatch(events);
+        flowEventWriter.handOff(handOffs);
+        resultEvents.clear();
+        int unpublished = 0;
+        for (FlowEventDTO event : events) {
+            if (event.getId() != null && eventPipeline.tryPublish(event) == null) {
+                unpublished++;
+            }
+        }
+        if (unpublished > 0) {
+            log.warn("事件流水线已满，设备动作结果事件 {} 个等待重新投递", unpublished);
+        }
+    }
+
+    private void renew() {
+        if (held.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(held.keySet());
+        int renewed = leaseManager.renewActions(ids).size();
+        if (renewed < ids.size()) {
+            log.warn("设备动作续约 {} 个，成功 {} 个，其余的租约已失效", ids.size(), renewed);
+        }
+    }
+
+    private void evictIdle(long now, long evictNanos) {
+        int before = queues.size();
+        queues.values().removeIf(queue -> !queue.running && !queue.retrying && queue.pending.isEmpty()
+                && now - queue.idleSince >= evictNanos);
+        evicted += before - queues.size();
+        deviceBreakers.entrySet().removeIf(entry -> entry.getValue().getState() == CircuitBreaker.State.CLOSED
+                && !queues.containsKey(entry.getKey()));
+    }
+
+    private void shutdown() {
+        long now = System.nanoTime();
+        try {
+            drainCompletions(now);
+            flush(now);
+            List<Long> unsent = new ArrayList<>();
+            queues.values().forEach(queue -> queue.pending.forEach(command -> command.members
+                    .forEach(action -> unsent.add(action.getId()))));
+            retries.values().forEach(retry -> retry.command.members.forEach(action -> unsent.add(action.getId())));
+            if (!unsent.isEmpty()) {
+                leaseManager.releaseActions(unsent);
+                log.info("设备动作调度停止，归还未下发和等待重试的动作 {} 个", unsent.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("设备动作调度停止时写回失败，租约到期后由其他节点重新执行", e);
+        }
+    }
+
+    private void markReady(DeviceQueue queue) {
+        if (!queue.running && !queue.retrying && !queue.inReady && !queue.pending.isEmpty()) {
+            queue.inReady = true;
+            ready.add(queue);
+        }
+    }
+
+    private void addWrite(List<Object[]> writes, long now, Object... args) {
+        beforeWrite(now);
+        writes.add(args);
+    }
+
+    private void beforeWrite(long now) {
+        if (pendingWrites() == 0) {
+            firstWriteNanos = now;
+        }
+    }
+
+    private int pendingWrites() {
+        return startWrites.size() + retryWrites.size() + completeWrites.size() + resultEvents.size();
+    }
+
+    private long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos - clockOrigin);
+    }
+
+    private static void addBreakerStats(List<CircuitBreakerStats> stats, String scope,
+                                        Map<String, CircuitBreaker> breakers, long now) {
+        breakers.forEach((key, breaker) -> {
+            if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+                CircuitBreakerStats item = new CircuitBreakerStats();
+                item.setScope(scope);
+                item.setKey(key);
+                item.setState(breaker.getState().name());
+                item.setFailureRate(breaker.getFailureRate());
+                item.setRemainingOpenMs(breaker.remainingOpenMs(now));
+                item.setOpened(breaker.getOpened());
+                stats.add(item);
+            }
+        });
+    }
+
+    private long timeoutOf(String type) {
+        Long timeout = properties.getDeviceTypeTimeoutMs().get(type);
+        return timeout != null ? timeout : properties.getActionTimeoutMs();
+    }
+
+    private int limitOf(String type) {
+        Integer limit = properties.getDeviceTypeLimits().get(type);
+        int value = limit != null ? limit : properties.getDefaultDeviceTypeLimit();
+        return value > 0 ? value : Integer.MAX_VALUE;
+    }
+
+    private static String typeOf(DeviceAction action) {
+        return action.getDeviceType() != null ? action.getDeviceType() : "";
+    }
+
+    private void publishStats() {
+        DeviceDispatchStats snapshot = new DeviceDispatchStats();
+        snapshot.setDevices(queues.size());
+        snapshot.setQueued(queued);
+        snapshot.setInFlight(inFlight);
+        snapshot.setMaxConcurrent(properties.getMaxConcurrent());
+        snapshot.getInFlightByType().putAll(inFlightByType);
+        snapshot.setStarted(started);
+        snapshot.setSucceeded(succeeded);
+        snapshot.setFailed(failed);
+        snapshot.setTimedOut(timedOut);
+        snapshot.setRejected(rejected);
+        snapshot.setRetried(retried);
+        snapshot.setRetrying(retries.size());
+        snapshot.setEscalated(escalated);
+        snapshot.setDeduplicated(deduplicated);
+        snapshot.setSuperseded(superseded);
+        snapshot.setEvicted(evicted);
+        snapshot.setPendingWrites(pendingWrites());
+        long now = System.nanoTime();
+        addBreakerStats(snapshot.getCircuitBreakers(), "deviceType", typeBreakers, now);
+        addBreakerStats(snapshot.getCircuitBreakers(), "device", deviceBreakers, now);
+        stats = snapshot;
+    }
+
+    /**
+     * 设备队列
+     */
+    private static final class DeviceQueue {
+
+        private final String deviceId;
+        private final ArrayDeque<Command> pending = new ArrayDeque<>();
+        private boolean running;
+        private boolean retrying;
+        private boolean inReady;
+        private long idleSince;
+
+        private DeviceQueue(String deviceId) {
+            this.deviceId = deviceId;
+        }
+    }
+
+    /**
+     * 下发给设备的指令，由合并窗口内同一设备、同一动作类型的动作合并而成
+     */
+    private static final class Command {
+
+        /**
+         * 合并进来的所有动作（按领取顺序），执行结果写回每一条
+         */
+        private final List<DeviceAction> members = new ArrayList<>(1);
+
+        /**
+         * 实际下发的动作（参数最新的一条）
+         */
+        private DeviceAction action;
+
+        /**
+         * 合并窗口结束时间，之前不下发
+         */
+        private long holdUntil;
+
+        private Command(DeviceAction action, long holdUntil) {
+            this.members.add(action);
+            this.action = action;
+            this.holdUntil = holdUntil;
+        }
+    }
+
+    /**
+     * 等待重试的指令
+     */
+    private static final class Retry {
+
+        private final DeviceQueue queue;
+        private final Command command;
+
+        private Retry(DeviceQueue queue, Command command) {
+            this.queue = queue;
+            this.command = command;
+        }
+    }
+
+    /**
+     * 动作执行完成的记录，由回调线程交给调度线程
+     */
+    private static final class Completion {
+
+        private final DeviceQueue queue;
+        private final Command command;
+        private final String type;
+        private final Map<String, Object> result;
+        private final Throwable error;
+        private final long elapsedNanos;
+
+        private Completion(DeviceQueue queue, Command command, String type, Map<String, Object> result,
+                           Throwable error, long elapsedNanos) {
+            this.queue = queue;
+            this.command = command;
+            this.type = type;
+            this.result = result;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.process.engine.device;
+
+import com.example.process.model.engine.DeviceAction;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 设备网关
+ * 向设备下发一个动作并异步返回结果：正常完成表示设备执行成功，结果写入设备动作的执行结果；异常完成表示执行失败。
+ * 调度器在少量线程上同时等待大量设备的结果，实现不能阻塞调用线程。
+ * <p>
+ * 接入设备 SDK 时实现本接口并注册为 Spring Bean，由 {@link DeviceGatewayRegistry} 按名称收集，
+ * 通过 process.engine.device-gateway 配置默认网关和各设备类型使用的网关。
+ */
+public interface DeviceGateway {
+
+    /**
+     * 获取网关名称
+     *
+     * @return 网关名称，配置中以此引用
+     */
+    String getName();
+
+    /**
+     * 下发设备动作
+     *
+     * @param action 设备动作
+     * @return 执行结果
+     */
+    CompletableFuture<Map<String, Object>> send(DeviceAction action);
+}
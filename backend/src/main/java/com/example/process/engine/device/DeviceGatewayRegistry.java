@@ -0,0 +1,60 @@
+package com.example.process.engine.device;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.engine.DeviceAction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备网关注册表
+ * 收集容器中的 {@link DeviceGateway}，按设备类型选择下发动作的网关，未单独配置的设备类型使用默认网关。
+ */
+@Slf4j
+@Component
+public class DeviceGatewayRegistry {
+
+    private final Map<String, DeviceGateway> gateways = new ConcurrentHashMap<>();
+    private final EngineProperties.DeviceGateway properties;
+
+    public DeviceGatewayRegistry(EngineProperties engineProperties, ObjectProvider<DeviceGateway> gatewayProvider) {
+        this.properties = engineProperties.getDeviceGateway();
+        gatewayProvider.orderedStream().forEach(this::registerGateway);
+        if (!gateways.containsKey(properties.getDefaultGateway())) {
+            log.warn("默认设备网关 [{}] 未注册，已注册的网关: {}", properties.getDefaultGateway(), gateways.keySet());
+        }
+    }
+
+    /**
+     * 注册设备网关
+     *
+     * @param gateway 设备网关
+     */
+    public void registerGateway(DeviceGateway gateway) {
+        if (gateway != null && StringUtils.hasText(gateway.getName())) {
+            gateways.put(gateway.getName(), gateway);
+            log.info("注册设备网关: {}", gateway.getName());
+        }
+    }
+
+    /**
+     * 选择下发动作的网关
+     *
+     * @param action 设备动作
+     * @return 设备网关
+     * @throws IllegalStateException 配置的网关未注册
+     */
+    public DeviceGateway resolve(DeviceAction action) {
+        String name = action.getDeviceType() != null ? properties.getDeviceTypeGateways()
+                .getOrDefault(action.getDeviceType(), properties.getDefaultGateway()) : properties.getDefaultGateway();
+        DeviceGateway gateway = gateways.get(name);
+        if (gateway == null) {
+            throw new IllegalStateException("找不到设备网关: " + name);
+        }
+        return gateway;
+    }
+}
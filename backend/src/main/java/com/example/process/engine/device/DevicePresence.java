@@ -0,0 +1,79 @@
+package com.example.process.engine.device;
+
+import com.example.process.model.engine.constant.EventType;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备在线状态
+ * 根据本节点处理的设备上线、离线和状态变化事件记录当前已知离线的设备，设备动作执行成功时视为在线。
+ * 只记录离线的设备，没有收到过状态事件的设备视为在线；状态只保存在内存中，重启后重新从事件中获得。
+ */
+@Component
+public class DevicePresence {
+
+    private static final Set<String> OFFLINE_VALUES = Set.of("offline", "OFFLINE", "离线", "false");
+
+    private final Set<String> offline = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 根据事件更新设备在线状态
+     * device_status_change 事件以事件数据中的 online（布尔）或 status 字段判断
+     *
+     * @param event 事件
+     */
+    public void accept(FlowEventDTO event) {
+        String deviceId = event.getSourceId();
+        if (deviceId == null) {
+            return;
+        }
+        String eventType = event.getEventType();
+        if (EventType.DEVICE_OFFLINE.getCode().equals(eventType)) {
+            offline.add(deviceId);
+        } else if (EventType.DEVICE_ONLINE.getCode().equals(eventType)) {
+            offline.remove(deviceId);
+        } else if (EventType.DEVICE_STATUS_CHANGE.getCode().equals(eventType)) {
+            Map<String, Object> data = event.getEventData();
+            Object value = data == null ? null : data.get("online") != null ? data.get("online") : data.get("status");
+            if (value != null) {
+                if (OFFLINE_VALUES.contains(value.toString())) {
+                    offline.add(deviceId);
+                } else {
+                    offline.remove(deviceId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 标记设备在线（设备响应了指令）
+     *
+     * @param deviceId 设备ID
+     */
+    public void markOnline(String deviceId) {
+        offline.remove(deviceId);
+    }
+
+    /**
+     * 设备是否已知离线
+     *
+     * @param deviceId 设备ID
+     * @return 是否离线
+     */
+    public boolean isOffline(String deviceId) {
+        return offline.contains(deviceId);
+    }
+
+    /**
+     * 获取已知离线的设备数量
+     *
+     * @return 数量
+     */
+    public int offlineCount() {
+        return offline.size();
+    }
+}
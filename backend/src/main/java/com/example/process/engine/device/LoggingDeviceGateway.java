@@ -0,0 +1,39 @@
+package com.example.process.engine.device;
+
+import com.example.process.model.engine.DeviceAction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 模拟设备网关
+ * 尚未接入实际设备时使用：记录下发的指令并立即返回成功
+ */
+@Slf4j
+@Component
+public class LoggingDeviceGateway implements DeviceGateway {
+
+    /**
+     * 网关名称
+     */
+    public static final String NAME = "logging";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> send(DeviceAction action) {
+        log.info("模拟下发设备指令：deviceId={}, actionType={}, parameters={}",
+                action.getDeviceId(), action.getActionType(), action.getParameters());
+        Map<String, Object> result = new HashMap<>();
+        result.put("deviceId", action.getDeviceId());
+        result.put("actionType", action.getActionType());
+        result.put("simulated", true);
+        return CompletableFuture.completedFuture(result);
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.process.engine.device;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.event.EventPipeline;
+import com.example.process.model.engine.DeviceAction;
+import com.example.process.model.engine.constant.EventType;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地设备模拟器
+ * 接入实际设备 SDK 之前，用于在接近真实的设备延迟下压测引擎。按设备类型的模型模拟响应延迟分布、执行失败、无响应（超时）和离线，
+ * 每个设备同时只执行有限数量的指令，超出的在设备端排队；指令回执和上下线作为遥测事件经 {@link EventPipeline} 送回引擎。
+ * <p>
+ * 每个设备有独立的随机数序列，由种子和设备ID决定：配置种子后，同一设备收到的第 n 条指令的结果和延迟在每次运行中都相同，
+ * 与其他设备的指令如何交错无关；离线期间的指令都无响应，离线窗口与实际到达时间有关。
+ * 指令的完成由少量调度线程按到期时间触发，不为每个指令或设备占用线程。
+ * 只在显式启用（process.engine.device-simulator.enabled=true，如 simulator 配置文件）时注册，避免生产环境误用模拟网关。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "process.engine.device-simulator", name = "enabled", havingValue = "true")
+public class SimulatedDeviceGateway implements DeviceGateway {
+
+    /**
+     * 网关名称
+     */
+    public static final String NAME = "simulator";
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final EngineProperties.DeviceSimulator properties;
+    private final ObjectProvider<EventPipeline> eventPipeline;
+    private final long seed;
+    private final Map<String, SimulatedDevice> devices = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor scheduler;
+
+    public SimulatedDeviceGateway(EngineProperties engineProperties, ObjectProvider<EventPipeline> eventPipeline) {
+        this.properties = engineProperties.getDeviceSimulator();
+        this.eventPipeline = eventPipeline;
+        this.seed = properties.getSeed() != null ? properties.getSeed() : System.nanoTime();
+    }
+
+    @PostConstruct
+    public void start() {
+        validate(properties.getDefaultProfile());
+        properties.getProfiles().values().forEach(SimulatedDeviceGateway::validate);
+        AtomicInteger index = new AtomicInteger();
+        scheduler = new ScheduledThreadPoolExecutor(Math.max(1, properties.getThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "device-simulator-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        if (properties.isTelemetryEnabled() && properties.getTelemetryIntervalMs() > 0) {
+            scheduler.scheduleWithFixedDelay(this::reportReadings, properties.getTelemetryIntervalMs(),
+                    properties.getTelemetryIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+        log.info("设备模拟器已启动：seed={}", seed);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> send(DeviceAction action) {
+        SimulatedDevice device = devices.get(action.getDeviceId());
+        if (device == null) {
+            if (devices.size() >= properties.getMaxDevices()) {
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException("模拟设备数量已达上限: " + properties.getMaxDevices()));
+            }
+            String deviceType = action.getDeviceType();
+            device = devices.computeIfAbsent(action.getDeviceId(),
+                    deviceId -> new SimulatedDevice(deviceId, deviceType, profileOf(deviceType)));
+        }
+
+        long now = System.currentTimeMillis();
+        Outcome outcome;
+        synchronized (device) {
+            outcome = device.next(now);
+        }
+        CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        SimulatedDevice target = device;
+        scheduler.schedule(() -> complete(target, action, outcome, future), outcome.respondAt - now,
+                TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    /**
+     * 获取模拟的设备数量
+     *
+     * @return 数量
+     */
+    public int getDeviceCount() {
+        return devices.size();
+    }
+
+    private void complete(SimulatedDevice device, DeviceAction action, Outcome outcome,
+                          CompletableFuture<Map<String, Object>> future) {
+        switch (outcome.kind) {
+            case SUCCESS -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("deviceId", device.deviceId);
+                result.put("actionType", action.getActionType());
+                result.put("simulated", true);
+                result.put("sequence", outcome.sequence);
+                result.put("latencyMs", outcome.latencyMs);
+                future.complete(result);
+            }
+            case FAILURE -> future.completeExceptionally(
+                    new IllegalStateException("模拟设备执行失败: " + device.deviceId));
+            case TIMEOUT -> future.completeExceptionally(
+                    new TimeoutException("模拟设备无响应: " + device.deviceId));
+        }
+
+        if (!properties.isTelemetryEnabled()) {
+            return;
+        }
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("actionId", action.getId());
+        receipt.put("actionType", action.getActionType());
+        receipt.put("outcome", outcome.kind.name().toLowerCase());
+        receipt.put("latencyMs", outcome.latencyMs);
+        receipt.put("sequence", outcome.sequence);
+        publish(device, EventType.DEVICE_DATA_REPORT, receipt);
+        if (outcome.offlineUntil > 0) {
+            publish(device, EventType.DEVICE_OFFLINE, Map.of("status", "offline"));
+            long delay = Math.max(0, outcome.offlineUntil - System.currentTimeMillis());
+            scheduler.schedule(() -> publish(device, EventType.DEVICE_ONLINE, Map.of("status", "online")),
+                    delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 在线设备定期上报读数（随机游走），读数使用独立的随机数序列，不影响指令结果
+     */
+    private void reportReadings() {
+        long now = System.currentTimeMillis();
+        for (SimulatedDevice device : devices.values()) {
+            double reading;
+            synchronized (device) {
+                if (now < device.offlineUntil) {
+                    continue;
+                }
+                device.reading += device.readingRandom.nextGaussian();
+                reading = device.reading;
+            }
+            publish(device, EventType.DEVICE_DATA_REPORT, Map.of("value", reading));
+        }
+    }
+
+    private void publish(SimulatedDevice device, EventType type, Map<String, Object> data) {
+        EventPipeline pipeline = eventPipeline.getIfAvailable();
+        if (pipeline == null) {
+            return;
+        }
+        FlowEventDTO event = new FlowEventDTO();
+        event.setEventType(type.getCode());
+        event.setEventName(type.getDescription());
+        event.setSourceId(device.deviceId);
+        event.setSourceType(device.deviceType);
+        event.setEventData(new HashMap<>(data));
+        event.setOccurrenceTime(LocalDateTime.now());
+        if (pipeline.tryPublish(event) == null) {
+            log.debug("事件流水线已满，丢弃模拟设备遥测：deviceId={}, eventType={}", device.deviceId, type.getCode());
+        }
+    }
+
+    private EngineProperties.DeviceProfile profileOf(String deviceType) {
+        EngineProperties.DeviceProfile profile = deviceType != null ? properties.getProfiles().get(deviceType) : null;
+        return profile != null ? profile : properties.getDefaultProfile();
+    }
+
+    private static void validate(EngineProperties.DeviceProfile profile) {
+        switch (profile.getDistribution()) {
+            case "fixed", "uniform", "normal", "lognormal", "exponential" -> {
+            }
+            default -> throw new IllegalArgumentException("无效的延迟分布: " + profile.getDistribution());
+        }
+    }
+
+    /**
+     * 按模型抽取一次延迟
+     */
+    private static long sample(EngineProperties.DeviceProfile profile, SplittableRandom random) {
+        double mean = Math.max(0, profile.getMeanMs());
+        double stddev = Math.max(0, profile.getStddevMs());
+        double value = switch (profile.getDistribution()) {
+            case "fixed" -> mean;
+            case "uniform" -> profile.getMinMs() + (profile.getMaxMs() - profile.getMinMs()) * random.nextDouble();
+            case "normal" -> mean + stddev * random.nextGaussian();
+            case "exponential" -> mean * random.nextExponential();
+            default -> {
+                // 对数正态：由均值和标准差换算 mu、sigma
+                if (mean <= 0) {
+                    yield 0;
+                }
+                double sigma2 = Math.log(1 + (stddev * stddev) / (mean * mean));
+                double mu = Math.log(mean) - sigma2 / 2;
+                yield Math.exp(mu + Math.sqrt(sigma2) * random.nextGaussian());
+            }
+        };
+        return Math.max(profile.getMinMs(), Math.min(profile.getMaxMs(), Math.round(value)));
+    }
+
+    private enum Kind {
+        SUCCESS, FAILURE, TIMEOUT
+    }
+
+    /**
+     * 一条指令的模拟结果
+     */
+    private static final class Outcome {
+
+        private final Kind kind;
+        private final long sequence;
+        private final long latencyMs;
+        private final long respondAt;
+        private final long offlineUntil;
+
+        private Outcome(Kind kind, long sequence, long latencyMs, long respondAt, long offlineUntil) {
+            this.kind = kind;
+            this.sequence = sequence;
+            this.latencyMs = latencyMs;
+            this.respondAt = respondAt;
+            this.offlineUntil = offlineUntil;
+        }
+    }
+
+    /**
+     * 模拟设备（访问时以自身加锁）
+     */
+    private final class SimulatedDevice {
+
+        private final String deviceId;
+        private final String deviceType;
+        private final EngineProperties.DeviceProfile profile;
+        private final SplittableRandom random;
+        private final SplittableRandom readingRandom;
+
+        /**
+         * 各执行槽位空闲的时间，指令占用最早空闲的槽位
+         */
+        private final long[] slotFreeAt;
+        private long sequence;
+        private long offlineUntil;
+        private double reading;
+
+        private SimulatedDevice(String deviceId, String deviceType, EngineProperties.DeviceProfile profile) {
+            this.deviceId = deviceId;
+            this.deviceType = deviceType;
+            this.profile = profile;
+            long deviceSeed = seed ^ (deviceId.hashCode() * GOLDEN_GAMMA);
+            this.random = new SplittableRandom(deviceSeed);
+            this.readingRandom = new SplittableRandom(deviceSeed ^ GOLDEN_GAMMA);
+            this.slotFreeAt = new long[Math.max(1, profile.getConcurrency())];
+        }
+
+        /**
+         * 抽取下一条指令的结果：每条指令固定消耗两次随机数（结果、延迟），保证同一种子下序列可重现
+         */
+        private Outcome next(long now) {
+            long number = ++sequence;
+            double roll = random.nextDouble();
+            long latency = sample(profile, random);
+
+            int slot = 0;
+            for (int i = 1; i < slotFreeAt.length; i++) {
+                if (slotFreeAt[i] < slotFreeAt[slot]) {
+                    slot = i;
+                }
+            }
+            long start = Math.max(now, slotFreeAt[slot]);
+            Kind kind;
+            long wentOffline = 0;
+            if (start < offlineUntil) {
+                kind = Kind.TIMEOUT;
+            } else if (roll < profile.getTimeoutRate()) {
+                kind = Kind.TIMEOUT;
+                if (profile.getOfflineMs() > 0) {
+                    offlineUntil = start + profile.getOfflineMs();
+                    wentOffline = offlineUntil;
+                }
+            } else if (roll < profile.getTimeoutRate() + profile.getFailureRate()) {
+                kind = Kind.FAILURE;
+            } else {
+                kind = Kind.SUCCESS;
+            }
+            long busy = kind == Kind.TIMEOUT ? Math.max(0, profile.getTimeoutMs()) : latency;
+            slotFreeAt[slot] = start + busy;
+            return new Outcome(kind, number, busy, start + busy, wentOffline);
+        }
+    }
+}
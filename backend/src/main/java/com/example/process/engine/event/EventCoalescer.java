@@ -0,0 +1,192 @@
+package com.example.process.engine.event;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 高频事件合并
+ * 对配置的事件类型按 (事件类型, 事件源ID) 合并：窗口内第一条事件立即放行，之后到达的事件只保留最新一条，
+ * 窗口结束时把最新一条写入事件表并放入事件流水线，被取代的事件既不写库也不分发。
+ * 状态字段（如 status）与上一条放行事件不同的事件视为状态变化，立即放行并丢弃窗口内尚未放行的旧事件，
+ * 上线、离线等不在合并类型中的事件不经过合并。
+ * 窗口结束时放行的事件总是写入事件表后经事件流水线异步处理：提交它的请求早已返回，同步触发的请求也一样，
+ * 写入事件表后处理状态可查询，流水线处理失败时由租约恢复重新领取。应用关闭时窗口内尚未放行的事件全部放行。
+ */
+@Slf4j
+@Component
+public class EventCoalescer {
+
+    private static final char SEPARATOR = '\u0001';
+
+    private final FlowEventWriter flowEventWriter;
+    private final EventPipeline eventPipeline;
+    private final EngineProperties.EventCoalesce properties;
+    private final Set<String> eventTypes;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+    private volatile boolean stopped;
+
+    public EventCoalescer(FlowEventWriter flowEventWriter,
+                          EventPipeline eventPipeline,
+                          EngineProperties engineProperties) {
+        this.flowEventWriter = flowEventWriter;
+        this.eventPipeline = eventPipeline;
+        this.properties = engineProperties.getEventCoalesce();
+        this.eventTypes = new HashSet<>(properties.getEventTypes());
+    }
+
+    /**
+     * 判断事件是否立即放行
+     *
+     * @param event 事件
+     * @return true 表示调用方继续处理；false 表示事件已被合并，窗口结束时如仍是最新一条会由合并器处理
+     */
+    public boolean offer(FlowEventDTO event) {
+        if (stopped || !properties.isEnabled() || event.getSourceId() == null || !eventTypes.contains(event.getEventType())) {
+            return true;
+        }
+        String key = event.getEventType() + SEPARATOR + event.getSourceId();
+        while (true) {
+            Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+            synchronized (slot) {
+                if (!slot.removed) {
+                    return offer(slot, event);
+                }
+            }
+        }
+    }
+
+    /**
+     * 在事件源的槽位上判断是否放行（调用方持有槽位的锁）
+     */
+    private boolean offer(Slot slot, FlowEventDTO event) {
+        long now = System.currentTimeMillis();
+        Object state = transitionValue(event);
+        boolean transition = slot.emittedAt > 0 && !Objects.equals(state, slot.state);
+        if (transition || now - slot.emittedAt >= properties.getWindowMs()) {
+            if (slot.pending != null) {
+                coalesced.incrementAndGet();
+                slot.pending = null;
+            }
+            slot.emittedAt = now;
+            slot.state = state;
+            return true;
+        }
+        if (slot.pending != null) {
+            coalesced.incrementAndGet();
+        }
+        if (event.getOccurrenceTime() == null) {
+            event.setOccurrenceTime(LocalDateTime.now());
+        }
+        slot.pending = event;
+        return false;
+    }
+
+    /**
+     * 放行窗口已结束的最新事件，并清理长时间没有事件的事件源
+     */
+    @Scheduled(fixedDelayString = "${process.engine.event-coalesce.flush-interval-ms:100}")
+    public void flushDue() {
+        flush(false);
+    }
+
+    /**
+     * 应用关闭时不等窗口结束，放行所有尚未放行的事件，之后到达的事件不再合并
+     */
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        flush(true);
+    }
+
+    /**
+     * 放行窗口已结束（或全部）尚未放行的事件：写入事件表并放入事件流水线
+     */
+    private void flush(boolean all) {
+        long now = System.currentTimeMillis();
+        long windowMs = properties.getWindowMs();
+        List<FlowEventDTO> due = new ArrayList<>();
+        Iterator<Slot> iterator = slots.values().iterator();
+        while (iterator.hasNext()) {
+            Slot slot = iterator.next();
+            synchronized (slot) {
+                if (slot.pending != null && (all || now - slot.emittedAt >= windowMs)) {
+                    due.add(slot.pending);
+                    slot.pending = null;
+                    slot.emittedAt = now;
+                    slot.state = transitionValue(due.get(due.size() - 1));
+                } else if (slot.pending == null && now - slot.emittedAt >= windowMs * 10) {
+                    iterator.remove();
+                    slot.removed = true;
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        try {
+            flowEventWriter.insertBatch(due);
+        } catch (RuntimeException e) {
+            log.error("写入合并后的事件失败：{} 个", due.size(), e);
+            return;
+        }
+        List<FlowEventDTO> rejected = new ArrayList<>();
+        for (FlowEventDTO event : due) {
+            if (event.getId() != null && eventPipeline.tryPublish(event) == null) {
+                rejected.add(event);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            log.warn("事件队列已满，合并后的事件处理失败：{} 个", rejected.size());
+            flowEventWriter.reject(rejected, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * 获取被合并（未单独处理）的事件总数
+     *
+     * @return 数量
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private Object transitionValue(FlowEventDTO event) {
+        Map<String, Object> data = event.getEventData();
+        return data != null ? data.get(properties.getTransitionField()) : null;
+    }
+
+    private static final class Slot {
+
+        /**
+         * 上次放行的时间（毫秒）
+         */
+        private long emittedAt;
+
+        /**
+         * 上次放行事件的状态字段值
+         */
+        private Object state;
+
+        /**
+         * 窗口内尚未放行的最新事件
+         */
+        private FlowEventDTO pending;
+
+        /**
+         * 已从表中移除，并发放入的事件需要重新创建
+         */
+        private boolean removed;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.process.engine.event;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.util.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 事件去重窗口
+ * 网关超时重试会把同一事件发送多次。接收事件时按指纹判断是否在窗口内出现过，重复的事件在写库和分发之前丢弃。
+ * 指纹优先取幂等键，否则由事件类型、事件源、发生时间和事件数据计算；没有幂等键也没有发生时间的事件无法区分重试和新读数，不去重。
+ * 窗口分为当前和上一代，每代由布隆过滤器和指纹集合组成：布隆过滤器判断不存在时无需查集合，
+ * 当前代存满一半容量或超过半个窗口时轮换，指纹在窗口内保留半个到一个窗口时长，内存不超过容量上限。
+ * 窗口只在当前节点内生效，跨节点和跨窗口的重复由 flow_event_idempotency_key 表的唯一约束兜底（flow_event 是分区表，不能单独对幂等键建唯一约束）。
+ */
+@Slf4j
+@Component
+public class EventDeduplicator {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char SEPARATOR = '\u0001';
+
+    private final EngineProperties.EventDedup properties;
+    private final long generationMillis;
+    private final int generationCapacity;
+
+    private Generation current;
+    private Generation previous;
+
+    public EventDeduplicator(EngineProperties engineProperties) {
+        this.properties = engineProperties.getEventDedup();
+        this.generationMillis = Math.max(1L, properties.getWindowSeconds() * 1000L / 2);
+        this.generationCapacity = Math.max(1, properties.getMaxEntries() / 2);
+        this.current = newGeneration(System.currentTimeMillis());
+        this.previous = newGeneration(0L);
+    }
+
+    /**
+     * 登记事件，事件已在窗口内出现过时返回 false
+     *
+     * @param event 事件（发生时间尚未补全）
+     * @return 是否首次出现，未开启去重或无法计算指纹时返回 true
+     */
+    public boolean markIfAbsent(FlowEventDTO event) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        Long fingerprint = fingerprint(event);
+        if (fingerprint == null) {
+            return true;
+        }
+        synchronized (this) {
+            rotateIfNeeded(System.currentTimeMillis());
+            if (current.contains(fingerprint) || previous.contains(fingerprint)) {
+                return false;
+            }
+            current.add(fingerprint);
+            return true;
+        }
+    }
+
+    /**
+     * 撤销登记（事件写入失败时调用，允许调用方重试）
+     * 布隆过滤器不支持删除，撤销后同一指纹仍需查集合，但不会被误判为重复
+     *
+     * @param event 事件
+     */
+    public void forget(FlowEventDTO event) {
+        Long fingerprint = fingerprint(event);
+        if (fingerprint == null) {
+            return;
+        }
+        synchronized (this) {
+            current.fingerprints.remove(fingerprint);
+            previous.fingerprints.remove(fingerprint);
+        }
+    }
+
+    /**
+     * 获取窗口内的指纹数量
+     *
+     * @return 数量
+     */
+    public synchronized int size() {
+        return current.fingerprints.size() + previous.fingerprints.size();
+    }
+
+    /**
+     * 计算事件指纹
+     *
+     * @return 64 位指纹，无法区分重试时返回 null
+     */
+    static Long fingerprint(FlowEventDTO event) {
+        StringBuilder text = new StringBuilder(128);
+        if (event.getIdempotencyKey() != null) {
+            text.append("key").append(SEPARATOR).append(event.getIdempotencyKey());
+        } else if (event.getOccurrenceTime() != null) {
+            text.append(event.getEventType()).append(SEPARATOR)
+                    .append(event.getSourceType()).append(SEPARATOR)
+                    .append(event.getSourceId()).append(SEPARATOR)
+                    .append(event.getFlowInstanceId()).append(SEPARATOR)
+                    .append(event.getNodeId()).append(SEPARATOR)
+                    .append(event.getOccurrenceTime()).append(SEPARATOR)
+                    .append(JsonUtils.toJsonString(event.getEventData()));
+        } else {
+            return null;
+        }
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private void rotateIfNeeded(long now) {
+        if (now - current.startMillis < generationMillis && current.fingerprints.size() < generationCapacity) {
+            return;
+        }
+        previous = now - current.startMillis < 2 * generationMillis ? current : newGeneration(0L);
+        current = newGeneration(now);
+        log.debug("事件去重窗口轮换：上一代指纹 {} 个", previous.fingerprints.size());
+    }
+
+    private Generation newGeneration(long startMillis) {
+        return new Generation(startMillis, generationCapacity, properties.getFalsePositiveRate());
+    }
+
+    /**
+     * 64 位混淆（splitmix64 终结函数），让指纹的高低位都均匀分布
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 窗口的一代：布隆过滤器 + 指纹集合
+     */
+    private static final class Generation {
+
+        private final long startMillis;
+        private final long[] bits;
+        private final int bitCount;
+        private final int hashCount;
+        private final Set<Long> fingerprints;
+
+        private Generation(long startMillis, int capacity, double falsePositiveRate) {
+            double p = Math.min(0.5, Math.max(1e-6, falsePositiveRate));
+            double ln2 = Math.log(2);
+            long m = (long) Math.ceil(-capacity * Math.log(p) / (ln2 * ln2));
+            this.startMillis = startMillis;
+            this.bitCount = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 63, m));
+            this.bits = new long[(bitCount + 63) >>> 6];
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+            this.fingerprints = new HashSet<>();
+        }
+
+        private boolean contains(long fingerprint) {
+            int h1 = (int) fingerprint;
+            int h2 = (int) (fingerprint >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return fingerprints.contains(fingerprint);
+        }
+
+        private void add(long fingerprint) {
+            int h1 = (int) fingerprint;
+            int h2 = (int) (fingerprint >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bitCount);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+            fingerprints.add(fingerprint);
+        }
+    }
+}
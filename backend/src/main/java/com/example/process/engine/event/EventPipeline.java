@@ -0,0 +1,430 @@
+package com.example.process.engine.event;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.FlowEngine;
+import com.example.process.exception.EventQueueFullException;
+import com.example.process.exception.PartitionNotOwnedException;
+import com.example.process.model.engine.constant.EventStatus;
+import com.example.process.model.engine.constant.Priority;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.model.engine.dto.PriorityQueueStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 事件流水线
+ * 异步事件先放入预分配的环形缓冲区再由消费线程分发给引擎，调用线程只做一次无锁写入。
+ * 事件按事件源ID分片，每个分片一个消费线程：同一设备的事件串行处理，不同设备的事件并行处理。
+ * 每个分片按优先级各有一个缓冲区，消费线程总是先处理优先级高的事件，排队过久的事件逐级提升，
+ * 因此同一设备同一优先级的事件保持到达顺序，高优先级事件（如火警）可以越过排队中的常规遥测。
+ * 消费线程一次取出一批事件，逐个在独立事务中处理，已持久化的事件按结果分组批量更新状态；
+ * 中、低优先级的批次较小，新到的高优先级事件最多等待一个小批次。
+ * 分片缓冲区已满时拒绝写入并抛出 {@link EventQueueFullException}，调用方收到 429 后稍后重试，
+ * 告警风暴只会让事件排队或被拒绝，不会拖慢其他请求。
+ * 集群模式下关联实例不属于当前节点的已持久化事件不标记失败，而是归还租约，由实例所在节点领取处理。
+ * 已持久化的事件在排队和处理期间定期续约，续约失败（租约已被其他节点接管）的事件出队时跳过；
+ * 处理结果只写回本节点仍持有租约的事件，同一事件不会被两个节点重复处理后各自写回。
+ */
+@Slf4j
+@Component
+public class EventPipeline {
+
+    /**
+     * 空闲时自旋等待的次数，超过后挂起
+     */
+    private static final int SPIN_TRIES = 100;
+
+    /**
+     * 挂起的最长时间，防止错过唤醒
+     */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final Priority[] LEVELS = Priority.values();
+
+    private final FlowEngine flowEngine;
+    private final FlowEventWriter flowEventWriter;
+    private final EngineProperties.EventPipeline properties;
+
+    private Shard[] shards;
+    private volatile boolean running;
+
+    /**
+     * 排队和处理中的已持久化事件ID，定期续约
+     */
+    private final Set<Long> leased = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 按优先级统计：提交、拒绝、出队数量，累计和最长等待时间
+     */
+    private final AtomicLongArray submitted = new AtomicLongArray(LEVELS.length);
+    private final AtomicLongArray rejected = new AtomicLongArray(LEVELS.length);
+    private final AtomicLongArray dequeued = new AtomicLongArray(LEVELS.length);
+    private final AtomicLongArray aged = new AtomicLongArray(LEVELS.length);
+    private final AtomicLongArray totalWaitNanos = new AtomicLongArray(LEVELS.length);
+    private final AtomicLongArray maxWaitNanos = new AtomicLongArray(LEVELS.length);
+    private final AtomicLong[] inFlight = new AtomicLong[LEVELS.length];
+
+    public EventPipeline(FlowEngine flowEngine,
+                         FlowEventWriter flowEventWriter,
+                         EngineProperties engineProperties) {
+        this.flowEngine = flowEngine;
+        this.flowEventWriter = flowEventWriter;
+        this.properties = engineProperties.getEventPipeline();
+    }
+
+    @PostConstruct
+    public void start() {
+        int shardCount = Math.max(1, properties.getShards());
+        shards = new Shard[shardCount];
+        running = true;
+        for (int i = 0; i < LEVELS.length; i++) {
+            inFlight[i] = new AtomicLong();
+        }
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, properties.getBufferSize());
+            shards[i].thread.start();
+        }
+        log.info("事件流水线已启动：分片 {} 个，每个分片每个优先级容量 {}", shardCount, shards[0].buffers.get(0).capacity());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (shards == null) {
+            return;
+        }
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 放入事件，缓冲区已满时抛出异常
+     *
+     * @param event 事件
+     * @return 处理结果
+     * @throws EventQueueFullException 事件所在分片的缓冲区已满
+     */
+    public CompletableFuture<Boolean> publish(FlowEventDTO event) {
+        CompletableFuture<Boolean> future = tryPublish(event);
+        if (future == null) {
+            throw new EventQueueFullException(properties.getRetryAfterSeconds());
+        }
+        return future;
+    }
+
+    /**
+     * 尝试放入事件
+     *
+     * @param event 事件
+     * @return 处理结果，缓冲区已满或流水线已停止时返回 null
+     */
+    public CompletableFuture<Boolean> tryPublish(FlowEventDTO event) {
+        if (!running) {
+            return null;
+        }
+        Shard shard = shards[Math.floorMod(Objects.hashCode(shardKey(event)), shards.length)];
+        int level = Priority.parse(event.getPriority()).ordinal();
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (event.getId() != null) {
+            leased.add(event.getId());
+        }
+        if (!shard.buffers.get(level).offer(new Entry(event, future, System.nanoTime()))) {
+            if (event.getId() != null) {
+                leased.remove(event.getId());
+            }
+            rejected.incrementAndGet(level);
+            return null;
+        }
+        submitted.incrementAndGet(level);
+        if (shard.sleeping) {
+            LockSupport.unpark(shard.thread);
+        }
+        return future;
+    }
+
+    /**
+     * 获取排队中的事件数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            for (EventRingBuffer<Entry> buffer : shard.buffers) {
+                size += buffer.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 获取各优先级的统计
+     *
+     * @return 统计（按优先级从高到低）
+     */
+    public List<PriorityQueueStats> getStats() {
+        List<PriorityQueueStats> stats = new ArrayList<>(LEVELS.length);
+        for (int i = 0; i < LEVELS.length; i++) {
+            PriorityQueueStats item = new PriorityQueueStats();
+            int queued = 0;
+            for (Shard shard : shards) {
+                queued += shard.buffers.get(i).size();
+            }
+            long count = dequeued.get(i);
+            item.setPriority(LEVELS[i].getCode());
+            item.setQueued(queued);
+            item.setRunning((int) inFlight[i].get());
+            item.setConcurrencyLimit(shards.length);
+            item.setSubmitted(submitted.get(i));
+            item.setCompleted(count);
+            item.setRejected(rejected.get(i));
+            item.setAged(aged.get(i));
+            item.setAvgWaitMs(count > 0 ? totalWaitNanos.get(i) / 1e6 / count : 0);
+            item.setMaxWaitMs(maxWaitNanos.get(i) / 1e6);
+            stats.add(item);
+        }
+        return stats;
+    }
+
+    /**
+     * 为排队和处理中的已持久化事件续约，租约已失效的事件出队时跳过
+     */
+    @Scheduled(fixedDelayString = "${process.engine.lease.renew-interval-ms:40000}")
+    public void renewLeases() {
+        if (leased.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(leased);
+        Set<Long> renewed;
+        try {
+            renewed = new HashSet<>(flowEventWriter.renew(ids));
+        } catch (RuntimeException e) {
+            log.error("事件续约失败：{} 个", ids.size(), e);
+            return;
+        }
+        int lost = 0;
+        for (Long id : ids) {
+            if (!renewed.contains(id) && leased.remove(id)) {
+                lost++;
+            }
+        }
+        if (lost > 0) {
+            log.warn("事件续约 {} 个，{} 个的租约已失效，出队时跳过", ids.size(), lost);
+        }
+    }
+
+    /**
+     * 获取建议调用方重试的等待秒数
+     *
+     * @return 秒数
+     */
+    public long getRetryAfterSeconds() {
+        return properties.getRetryAfterSeconds();
+    }
+
+    /**
+     * 分片键：同一事件源的事件进入同一分片，没有事件源时按实例、再按事件类型分片
+     */
+    private static Object shardKey(FlowEventDTO event) {
+        if (event.getSourceId() != null) {
+            return event.getSourceId();
+        }
+        if (event.getFlowInstanceId() != null) {
+            return event.getFlowInstanceId();
+        }
+        return event.getEventType();
+    }
+
+    private void consume(Shard shard) {
+        int maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        int lowPriorityBatchSize = Math.max(1, Math.min(maxBatchSize, properties.getLowPriorityBatchSize()));
+        long agingNanos = TimeUnit.MILLISECONDS.toNanos(properties.getAgingMs());
+        List<Entry> batch = new ArrayList<>(maxBatchSize);
+        int idle = 0;
+        while (true) {
+            int level = select(shard, agingNanos);
+            if (level >= 0 && shard.buffers.get(level)
+                    .drain(batch, level == 0 ? maxBatchSize : lowPriorityBatchSize) > 0) {
+                idle = 0;
+                long now = System.nanoTime();
+                for (Entry entry : batch) {
+                    long waited = now - entry.enqueuedAt;
+                    totalWaitNanos.addAndGet(level, waited);
+                    maxWaitNanos.accumulateAndGet(level, waited, Math::max);
+                }
+                inFlight[level].addAndGet(batch.size());
+                try {
+                    process(batch);
+                } finally {
+                    inFlight[level].addAndGet(-batch.size());
+                    dequeued.addAndGet(level, batch.size());
+                }
+                batch.clear();
+                continue;
+            }
+            if (!running) {
+                // 停止前已取空缓冲区
+                return;
+            }
+            if (++idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+                continue;
+            }
+            shard.sleeping = true;
+            if (shard.isEmpty() && running) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            shard.sleeping = false;
+        }
+    }
+
+    /**
+     * 选择下一批处理的优先级：比较各缓冲区队首事件老化后的优先级，相同时取原优先级高的
+     *
+     * @return 优先级下标，所有缓冲区都为空时返回 -1
+     */
+    private int select(Shard shard, long agingNanos) {
+        long now = System.nanoTime();
+        int selected = -1;
+        long selectedRank = Long.MAX_VALUE;
+        for (int i = 0; i < LEVELS.length; i++) {
+            Entry head = shard.buffers.get(i).peek();
+            if (head == null) {
+                continue;
+            }
+            long promoted = agingNanos > 0 ? (now - head.enqueuedAt) / agingNanos : 0;
+            long rank = Math.max(0, i - promoted);
+            if (rank < selectedRank) {
+                selected = i;
+                selectedRank = rank;
+            }
+        }
+        if (selected >= 0 && selectedRank < selected) {
+            aged.incrementAndGet(selected);
+        }
+        return selected;
+    }
+
+    private void process(List<Entry> batch) {
+        Map<EventStatus, List<Long>> idsByStatus = new EnumMap<>(EventStatus.class);
+        List<Long> handedOff = new ArrayList<>();
+        for (Entry entry : batch) {
+            Long id = entry.event.getId();
+            if (id != null && !leased.contains(id)) {
+                // 租约已失效，事件由领取到它的节点处理
+                log.debug("事件租约已失效，跳过：eventId={}", id);
+                entry.future.complete(false);
+                continue;
+            }
+            EventStatus status;
+            try {
+                boolean handled = flowEngine.triggerEvent(entry.event);
+                status = handled ? EventStatus.PROCESSED : EventStatus.IGNORED;
+                entry.future.complete(handled);
+            } catch (PartitionNotOwnedException e) {
+                if (entry.event.getId() == null) {
+                    entry.future.completeExceptionally(e);
+                    continue;
+                }
+                log.debug("事件关联的实例属于其他节点，归还事件：eventId={}, instanceId={}",
+                        entry.event.getId(), e.getInstanceId());
+                handedOff.add(entry.event.getId());
+                entry.future.complete(false);
+                continue;
+            } catch (RuntimeException e) {
+                log.warn("处理事件失败：eventType={}, sourceId={}, {}",
+                        entry.event.getEventType(), entry.event.getSourceId(), e.getMessage());
+                status = EventStatus.FAILED;
+                entry.future.completeExceptionally(e);
+            }
+            if (entry.event.getId() != null) {
+                idsByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(entry.event.getId());
+            }
+        }
+        try {
+            idsByStatus.forEach((status, ids) -> {
+                int completed = flowEventWriter.complete(ids, status);
+                if (completed < ids.size()) {
+                    log.warn("写回事件处理结果 {} 个，{} 个的租约已被其他节点接管", ids.size(), ids.size() - completed);
+                }
+            });
+            if (!handedOff.isEmpty()) {
+                flowEventWriter.release(handedOff);
+            }
+        } catch (RuntimeException e) {
+            log.error("更新事件状态失败：{} 个", batch.size(), e);
+        } finally {
+            for (Entry entry : batch) {
+                if (entry.event.getId() != null) {
+                    leased.remove(entry.event.getId());
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final FlowEventDTO event;
+        private final CompletableFuture<Boolean> future;
+        private final long enqueuedAt;
+
+        private Entry(FlowEventDTO event, CompletableFuture<Boolean> future, long enqueuedAt) {
+            this.event = event;
+            this.future = future;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final class Shard {
+
+        /**
+         * 按优先级的缓冲区，下标为 {@link Priority#ordinal()}
+         */
+        private final List<EventRingBuffer<Entry>> buffers;
+        private final Thread thread;
+
+        /**
+         * 消费线程是否已挂起或即将挂起，生产者据此决定是否唤醒
+         */
+        private volatile boolean sleeping;
+
+        private Shard(int index, int bufferSize) {
+            List<EventRingBuffer<Entry>> levels = new ArrayList<>(LEVELS.length);
+            for (int i = 0; i < LEVELS.length; i++) {
+                levels.add(new EventRingBuffer<>(bufferSize));
+            }
+            this.buffers = List.copyOf(levels);
+            this.thread = new Thread(() -> consume(this), "flow-event-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private boolean isEmpty() {
+            for (EventRingBuffer<Entry> buffer : buffers) {
+                if (!buffer.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.process.engine.event;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 预分配的环形缓冲区（多生产者、单消费者）
+ * 生产者用 CAS 申请序号后写入槽位，再发布序号；消费者按序号顺序取出已发布的槽位，
+ * 取出后推进消费序号，槽位才可被重新申请。全程无锁，缓冲区满时申请直接失败，由调用方决定如何处理。
+ *
+ * @param <T> 元素类型
+ */
+final class EventRingBuffer<T> {
+
+    private final Object[] entries;
+
+    /**
+     * 每个槽位最近发布的序号，消费者据此判断槽位是否已写入
+     */
+    private final AtomicLongArray published;
+
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * 下一个待申请的序号
+     */
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * 下一个待消费的序号，只由消费者线程写入
+     */
+    private volatile long consumed;
+
+    EventRingBuffer(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.entries = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1L);
+        }
+    }
+
+    /**
+     * 写入一个元素
+     *
+     * @param entry 元素
+     * @return 缓冲区已满时返回 false
+     */
+    boolean offer(T entry) {
+        long sequence;
+        do {
+            sequence = next.get();
+            if (sequence - consumed >= capacity) {
+                return false;
+            }
+        } while (!next.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        entries[index] = entry;
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /**
+     * 取出已发布的元素（只能由消费者线程调用）
+     * 遇到已申请但尚未发布的槽位即停止，保证按序号顺序消费
+     *
+     * @param out      输出列表
+     * @param maxCount 最多取出的数量
+     * @return 取出的数量
+     */
+    @SuppressWarnings("unchecked")
+    int drain(List<T> out, int maxCount) {
+        long sequence = consumed;
+        int count = 0;
+        while (count < maxCount) {
+            int index = (int) (sequence & mask);
+            if (published.get(index) != sequence) {
+                break;
+            }
+            out.add((T) entries[index]);
+            entries[index] = null;
+            sequence++;
+            count++;
+        }
+        if (count > 0) {
+            consumed = sequence;
+        }
+        return count;
+    }
+
+    /**
+     * 查看下一个待消费的元素但不取出（只能由消费者线程调用）
+     *
+     * @return 元素，尚未发布时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    T peek() {
+        long sequence = consumed;
+        int index = (int) (sequence & mask);
+        return published.get(index) == sequence ? (T) entries[index] : null;
+    }
+
+    /**
+     * 是否没有待消费的已发布元素
+     */
+    boolean isEmpty() {
+        long sequence = consumed;
+        return published.get((int) (sequence & mask)) != sequence;
+    }
+
+    /**
+     * 已申请但尚未消费的数量
+     */
+    int size() {
+        return (int) Math.max(0L, next.get() - consumed);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,439 @@
+package com.example.process.engine.event;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.engine.EventSubscription;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.constant.SubscriptionType;
+import com.example.process.model.flow.dto.FlowNode;
+import com.example.process.repository.EventSubscriptionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * 事件订阅索引
+ * 以 (事件类型, 事件源类型, 事件源ID) 为键索引等待中的实例和以事件启动的流程，事件到达时最多查找四个键即可得到全部订阅者，
+ * 不需要扫描实例。订阅持久化在 flow_event_subscription 表中，启动时重建索引，
+ * 实例进入或离开事件节点、流程切换当前版本时增量维护，内存索引在事务提交后更新。
+ * 事件节点和开始节点在属性中配置 eventType、sourceType、sourceId，后两者为空表示匹配任意值。
+ * <p>
+ * 重建时加载到新的索引中，期间的增量维护同时记录下来，加载完成后重放到新索引再整体替换，查找不会看到加载了一半的索引。
+ * 集群模式下其他节点登记的订阅定期按创建时间增量同步，其他节点移除的订阅在定期重建时清理：
+ * 同步之前到达的事件漏掉新订阅，清理之前到达的事件转交给实例所在节点后因令牌已离开而被忽略。
+ */
+@Slf4j
+@Component
+public class EventSubscriptionIndex {
+
+    private static final String ANY = "*";
+    private static final char SEPARATOR = '\u0001';
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final EventSubscriptionRepository eventSubscriptionRepository;
+    private final EngineProperties.Cluster cluster;
+
+    /**
+     * 当前索引，重建时整体替换
+     */
+    private volatile Index index = new Index();
+
+    /**
+     * 重建期间的增量维护记录，不在重建时为 null
+     */
+    private List<Consumer<Index>> journal;
+
+    /**
+     * 重建锁，同一时间只有一次重建
+     */
+    private final Object rebuildLock = new Object();
+
+    /**
+     * 增量同步的时间游标
+     */
+    private LocalDateTime syncedAt;
+
+    public EventSubscriptionIndex(EventSubscriptionRepository eventSubscriptionRepository,
+                                  EngineProperties engineProperties) {
+        this.eventSubscriptionRepository = eventSubscriptionRepository;
+        this.cluster = engineProperties.getCluster();
+    }
+
+    /**
+     * 查找匹配事件的订阅
+     *
+     * @param eventType  事件类型
+     * @param sourceType 事件源类型
+     * @param sourceId   事件源ID
+     * @return 订阅列表
+     */
+    public List<EventSubscription> match(String eventType, String sourceType, String sourceId) {
+        if (!StringUtils.hasText(eventType)) {
+            return Collections.emptyList();
+        }
+        Index current = index;
+        List<EventSubscription> result = new ArrayList<>();
+        for (String key : matchKeys(eventType, sourceType, sourceId)) {
+            current.collect(result, key);
+        }
+        return result;
+    }
+
+    /**
+     * 计算事件需要查找的索引键：精确匹配，以及事件源类型、事件源ID分别或同时为任意值的订阅
+     *
+     * @param eventType  事件类型
+     * @param sourceType 事件源类型
+     * @param sourceId   事件源ID
+     * @return 索引键（最多四个）
+     */
+    public static List<String> matchKeys(String eventType, String sourceType, String sourceId) {
+        List<String> keys = new ArrayList<>(4);
+        keys.add(key(eventType, sourceType, sourceId));
+        if (sourceId != null) {
+            keys.add(key(eventType, sourceType, null));
+        }
+        if (sourceType != null) {
+            keys.add(key(eventType, null, sourceId));
+            if (sourceId != null) {
+                keys.add(key(eventType, null, null));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 计算订阅的索引键
+     *
+     * @param subscription 订阅
+     * @return 索引键
+     */
+    public static String keyOf(EventSubscription subscription) {
+        return key(subscription.getEventType(), subscription.getSourceType(), subscription.getSourceId());
+    }
+
+    /**
+     * 实例进入事件节点时登记订阅
+     *
+     * @param instance 流程实例
+     * @param node     事件节点
+     */
+    public void subscribe(FlowInstance instance, FlowNode node) {
+        EventSubscription subscription = fromNode(node);
+        if (subscription == null) {
+            // 未配置事件类型的事件节点只能通过执行节点接口唤醒
+            return;
+        }
+        subscription.setSubscriptionType(SubscriptionType.INSTANCE.getCode());
+        subscription.setFlowDefinitionId(instance.getFlowDefinitionId());
+        subscription.setFlowVersionId(instance.getFlowVersionId());
+        subscription.setFlowInstanceId(instance.getId());
+        eventSubscriptionRepository.save(subscription);
+        afterCommit(() -> apply(i -> i.add(subscription)));
+    }
+
+    /**
+     * 实例离开事件节点时移除订阅
+     *
+     * @param instanceId 流程实例ID
+     * @param nodeId     事件节点ID
+     */
+    public void unsubscribe(Long instanceId, String nodeId) {
+        eventSubscriptionRepository.deleteByFlowInstanceIdAndNodeId(instanceId, nodeId);
+        afterCommit(() -> apply(i -> i.removeInstance(instanceId, nodeId)));
+    }
+
+    /**
+     * 移除实例的全部订阅（实例取消、跳转时调用）
+     *
+     * @param instanceId 流程实例ID
+     */
+    public void unsubscribeAll(Long instanceId) {
+        eventSubscriptionRepository.deleteByFlowInstanceId(instanceId);
+        afterCommit(() -> apply(i -> i.removeInstance(instanceId, null)));
+    }
+
+    /**
+     * 登记流程的启动事件，替换该流程原有的启动事件订阅
+     *
+     * @param flowDefinitionId 流程定义ID
+     * @param flowVersionId    当前版本ID
+     * @param startNode        开始节点，未配置事件类型时只移除原有订阅
+     */
+    public void registerStartTrigger(Long flowDefinitionId, Long flowVersionId, FlowNode startNode) {
+        eventSubscriptionRepository.deleteByFlowDefinitionIdAndSubscriptionType(
+                flowDefinitionId, SubscriptionType.START.getCode());
+        EventSubscription subscription = startNode != null ? fromNode(startNode) : null;
+        if (subscription != null) {
+            subscription.setSubscriptionType(SubscriptionType.START.getCode());
+            subscription.setFlowDefinitionId(flowDefinitionId);
+            subscription.setFlowVersionId(flowVersionId);
+            eventSubscriptionRepository.save(subscription);
+        }
+        afterCommit(() -> apply(i -> {
+            i.removeStartTriggers(s -> s.getFlowDefinitionId().equals(flowDefinitionId));
+            if (subscription != null) {
+                i.add(subscription);
+            }
+        }));
+    }
+
+    /**
+     * 移除流程版本的启动事件订阅（版本禁用时调用）
+     *
+     * @param flowVersionId 流程版本ID
+     */
+    public void unregisterStartTrigger(Long flowVersionId) {
+        eventSubscriptionRepository.deleteByFlowVersionIdAndSubscriptionType(
+                flowVersionId, SubscriptionType.START.getCode());
+        afterCommit(() -> apply(i -> i.removeStartTriggers(s -> s.getFlowVersionId().equals(flowVersionId))));
+    }
+
+    /**
+     * 从持久化的订阅重建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            LocalDateTime startedAt = LocalDateTime.now();
+            synchronized (this) {
+                journal = new ArrayList<>();
+            }
+            Index rebuilt = new Index();
+            int loaded;
+            try {
+                loaded = load(afterId -> eventSubscriptionRepository.findBatchAfter(
+                        afterId, PageRequest.of(0, REBUILD_BATCH_SIZE)), rebuilt::add);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    journal = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                journal.forEach(operation -> operation.accept(rebuilt));
+                journal = null;
+                index = rebuilt;
+                syncedAt = startedAt;
+            }
+            log.info("事件订阅索引重建完成：订阅 {} 个，索引键 {} 个", loaded, rebuilt.byKey.size());
+        }
+    }
+
+    /**
+     * 集群模式下增量同步其他节点登记的订阅
+     * 创建时间由应用在保存时填写，早于事务提交，按同步间隔之外再回看一段时间查询
+     */
+    @Scheduled(fixedDelayString = "${process.engine.cluster.subscription-sync-interval-ms:2000}")
+    public void sync() {
+        if (!cluster.isEnabled()) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            if (syncedAt == null) {
+                return;
+            }
+            LocalDateTime startedAt = LocalDateTime.now();
+            LocalDateTime since = syncedAt.minusNanos(cluster.getSubscriptionSyncLookbackMs() * 1_000_000L);
+            List<EventSubscription> created = new ArrayList<>();
+            load(afterId -> eventSubscriptionRepository.findCreatedSince(
+                    since, afterId, PageRequest.of(0, REBUILD_BATCH_SIZE)), created::add);
+            apply(i -> created.forEach(i::add));
+            syncedAt = startedAt;
+            log.debug("事件订阅索引增量同步：订阅 {} 个", created.size());
+        }
+    }
+
+    /**
+     * 集群模式下定期重建索引，清理其他节点移除的订阅
+     */
+    @Scheduled(initialDelayString = "${process.engine.cluster.subscription-rebuild-interval-ms:300000}",
+            fixedDelayString = "${process.engine.cluster.subscription-rebuild-interval-ms:300000}")
+    public void refresh() {
+        if (cluster.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 获取索引中的订阅数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        Index current = index;
+        return current.byInstance.values().stream().mapToInt(Map::size).sum() + current.startTriggers.size();
+    }
+
+    /**
+     * 从节点属性读取订阅条件
+     *
+     * @param node 事件节点或开始节点
+     * @return 订阅（未保存），未配置事件类型时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public static EventSubscription fromNode(FlowNode node) {
+        Map<String, Object> properties = node.getProperties();
+        if ((properties == null || properties.get("eventType") == null) && node.getData() != null
+                && node.getData().get("properties") instanceof Map) {
+            properties = (Map<String, Object>) node.getData().get("properties");
+        }
+        if (properties == null || !(properties.get("eventType") instanceof String)
+                || !StringUtils.hasText((String) properties.get("eventType"))) {
+            return null;
+        }
+        EventSubscription subscription = new EventSubscription();
+        subscription.setEventType((String) properties.get("eventType"));
+        subscription.setSourceType(textOrNull(properties.get("sourceType")));
+        subscription.setSourceId(textOrNull(properties.get("sourceId")));
+        subscription.setNodeId(node.getId());
+        return subscription;
+    }
+
+    /**
+     * 按ID游标分批加载订阅
+     *
+     * @return 加载的数量
+     */
+    private int load(LongFunction<List<EventSubscription>> batchAfter, Consumer<EventSubscription> target) {
+        long afterId = 0L;
+        int loaded = 0;
+        while (true) {
+            List<EventSubscription> subscriptions = batchAfter.apply(afterId);
+            subscriptions.forEach(target);
+            loaded += subscriptions.size();
+            if (subscriptions.size() < REBUILD_BATCH_SIZE) {
+                return loaded;
+            }
+            afterId = subscriptions.get(subscriptions.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 增量维护当前索引，重建期间同时记录下来
+     */
+    private synchronized void apply(Consumer<Index> operation) {
+        operation.accept(index);
+        if (journal != null) {
+            journal.add(operation);
+        }
+    }
+
+    /**
+     * 索引数据，修改由外层同步，查找不加锁
+     */
+    private static class Index {
+
+        /**
+         * 索引键到订阅（订阅ID到订阅）
+         */
+        final Map<String, Map<Long, EventSubscription>> byKey = new ConcurrentHashMap<>();
+
+        /**
+         * 实例ID到该实例的订阅，用于按实例移除
+         */
+        final Map<Long, Map<Long, EventSubscription>> byInstance = new ConcurrentHashMap<>();
+
+        /**
+         * 启动流程订阅，数量少，移除时直接遍历
+         */
+        final Map<Long, EventSubscription> startTriggers = new ConcurrentHashMap<>();
+
+        void add(EventSubscription subscription) {
+            byKey.computeIfAbsent(keyOf(subscription), k -> new ConcurrentHashMap<>())
+                    .put(subscription.getId(), subscription);
+            if (subscription.getFlowInstanceId() != null) {
+                byInstance.computeIfAbsent(subscription.getFlowInstanceId(), k -> new ConcurrentHashMap<>())
+                        .put(subscription.getId(), subscription);
+            } else {
+                startTriggers.put(subscription.getId(), subscription);
+            }
+        }
+
+        /**
+         * 移除实例的订阅
+         *
+         * @param nodeId 节点ID，为空时移除实例的全部订阅
+         */
+        void removeInstance(Long instanceId, String nodeId) {
+            Map<Long, EventSubscription> subscriptions = byInstance.get(instanceId);
+            if (subscriptions == null) {
+                return;
+            }
+            for (EventSubscription subscription : new ArrayList<>(subscriptions.values())) {
+                if (nodeId == null || nodeId.equals(subscription.getNodeId())) {
+                    subscriptions.remove(subscription.getId());
+                    removeFromKey(subscription);
+                }
+            }
+            if (subscriptions.isEmpty()) {
+                byInstance.remove(instanceId);
+            }
+        }
+
+        void removeStartTriggers(Predicate<EventSubscription> filter) {
+            for (EventSubscription subscription : new ArrayList<>(startTriggers.values())) {
+                if (filter.test(subscription)) {
+                    startTriggers.remove(subscription.getId());
+                    removeFromKey(subscription);
+                }
+            }
+        }
+
+        private void removeFromKey(EventSubscription subscription) {
+            String key = keyOf(subscription);
+            Map<Long, EventSubscription> subscriptions = byKey.get(key);
+            if (subscriptions != null) {
+                subscriptions.remove(subscription.getId());
+                if (subscriptions.isEmpty()) {
+                    byKey.remove(key);
+                }
+            }
+        }
+
+        void collect(List<EventSubscription> result, String key) {
+            Map<Long, EventSubscription> subscriptions = byKey.get(key);
+            if (subscriptions != null) {
+                result.addAll(subscriptions.values());
+            }
+        }
+    }
+
+    private static String key(String eventType, String sourceType, String sourceId) {
+        return eventType + SEPARATOR + (sourceType != null ? sourceType : ANY) + SEPARATOR
+                + (sourceId != null ? sourceId : ANY);
+    }
+
+    private static String textOrNull(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString();
+        return StringUtils.hasText(text) ? text : null;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
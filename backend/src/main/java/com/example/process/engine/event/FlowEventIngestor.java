@@ -0,0 +1,219 @@
+package com.example.process.engine.event;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.FlowEngine;
+import com.example.process.exception.PartitionNotOwnedException;
+import com.example.process.model.engine.constant.EventStatus;
+import com.example.process.model.engine.dto.EventBatchResult;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 批量事件接收
+ * 请求体为 NDJSON（每行一个事件）或 JSON 数组，用 Jackson 流式解析逐个读取事件，不整体缓存请求体。
+ * 每攒够一批先批量写入 flow_event，再逐个分发给引擎，最后按处理结果分组批量更新状态；
+ * 异步处理时写入后放入 {@link EventPipeline}，由流水线处理并更新状态，放不进去的事件标记为失败并允许重试。
+ * 重复的事件（去重窗口内出现过，或幂等键已存在）在写入前丢弃，不会再次分发；
+ * 高频事件经 {@link EventCoalescer} 合并，被合并的事件不写入，由合并器在窗口结束时处理最新一条。
+ * 单个事件字段无效时只拒绝该事件；请求体语法错误时无法定位下一个事件，之后的内容全部忽略。
+ */
+@Slf4j
+@Component
+public class FlowEventIngestor {
+
+    private static final String DUPLICATE_MESSAGE = "重复事件，已忽略";
+
+    private final ObjectReader eventReader;
+    private final FlowEventWriter flowEventWriter;
+    private final EventDeduplicator eventDeduplicator;
+    private final EventCoalescer eventCoalescer;
+    private final FlowEngine flowEngine;
+    private final EventPipeline eventPipeline;
+    private final EngineProperties engineProperties;
+
+    public FlowEventIngestor(ObjectMapper objectMapper,
+                             FlowEventWriter flowEventWriter,
+                             EventDeduplicator eventDeduplicator,
+                             EventCoalescer eventCoalescer,
+                             FlowEngine flowEngine,
+                             EventPipeline eventPipeline,
+                             EngineProperties engineProperties) {
+        this.eventReader = objectMapper.readerFor(FlowEventDTO.class);
+        this.flowEventWriter = flowEventWriter;
+        this.eventDeduplicator = eventDeduplicator;
+        this.eventCoalescer = eventCoalescer;
+        this.flowEngine = flowEngine;
+        this.eventPipeline = eventPipeline;
+        this.engineProperties = engineProperties;
+    }
+
+    /**
+     * 接收并处理一批事件
+     *
+     * @param body  请求体
+     * @param async 是否交给事件流水线异步处理
+     * @return 逐条结果
+     */
+    public EventBatchResult ingest(InputStream body, boolean async) {
+        int batchSize = Math.max(1, engineProperties.getEventIngest().getBatchSize());
+        EventBatchResult result = new EventBatchResult();
+        List<FlowEventDTO> batch = new ArrayList<>(batchSize);
+        List<EventBatchResult.Item> batchItems = new ArrayList<>(batchSize);
+
+        try (MappingIterator<FlowEventDTO> iterator = eventReader.readValues(body)) {
+            while (true) {
+                FlowEventDTO event;
+                try {
+                    if (!iterator.hasNextValue()) {
+                        break;
+                    }
+                    event = iterator.nextValue();
+                } catch (JsonParseException e) {
+                    addItem(result, "请求体格式错误，之后的内容已忽略：" + e.getOriginalMessage());
+                    break;
+                } catch (JsonMappingException e) {
+                    addItem(result, "事件字段无效：" + e.getOriginalMessage());
+                    continue;
+                }
+
+                if (event == null || !StringUtils.hasText(event.getEventType())) {
+                    addItem(result, "事件类型不能为空");
+                    continue;
+                }
+                if (!eventDeduplicator.markIfAbsent(event)) {
+                    addItem(result, DUPLICATE_MESSAGE);
+                    result.setDuplicates(result.getDuplicates() + 1);
+                    continue;
+                }
+                if (event.getOccurrenceTime() == null) {
+                    event.setOccurrenceTime(LocalDateTime.now());
+                }
+                if (!eventCoalescer.offer(event)) {
+                    EventBatchResult.Item item = addItem(result, null);
+                    item.setAccepted(true);
+                    item.setStatus(EventStatus.COALESCED.getCode());
+                    result.setAccepted(result.getAccepted() + 1);
+                    continue;
+                }
+                batch.add(event);
+                batchItems.add(addItem(result, null));
+                if (batch.size() >= batchSize) {
+                    process(result, batch, batchItems, async);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("读取批量事件失败，已读取 {} 个", result.getItems().size(), e);
+            addItem(result, "读取请求体失败，之后的内容已忽略：" + e.getMessage());
+        }
+        process(result, batch, batchItems, async);
+
+        result.setTotal(result.getItems().size());
+        result.setRejected(result.getTotal() - result.getAccepted());
+        log.info("批量接收事件：共 {} 个，接收 {} 个，拒绝 {} 个",
+                result.getTotal(), result.getAccepted(), result.getRejected());
+        return result;
+    }
+
+    /**
+     * 写入并分发一批事件，处理完成后清空批次
+     */
+    private void process(EventBatchResult result, List<FlowEventDTO> batch, List<EventBatchResult.Item> batchItems,
+                         boolean async) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            flowEventWriter.insertBatch(batch);
+        } catch (DataAccessException e) {
+            log.error("批量写入事件失败：{} 个", batch.size(), e);
+            batch.forEach(eventDeduplicator::forget);
+            batchItems.forEach(item -> item.setMessage("事件写入失败"));
+            batch.clear();
+            batchItems.clear();
+            return;
+        }
+
+        Map<EventStatus, List<Long>> idsByStatus = new EnumMap<>(EventStatus.class);
+        List<FlowEventDTO> throttled = new ArrayList<>();
+        List<Long> handedOffIds = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            FlowEventDTO event = batch.get(i);
+            EventBatchResult.Item item = batchItems.get(i);
+            if (event.getId() == null) {
+                // 幂等键已存在
+                item.setMessage(DUPLICATE_MESSAGE);
+                result.setDuplicates(result.getDuplicates() + 1);
+                continue;
+            }
+            item.setAccepted(true);
+            item.setEventId(event.getId());
+
+            if (async) {
+                if (eventPipeline.tryPublish(event) != null) {
+                    item.setStatus(EventStatus.PENDING.getCode());
+                    result.setAccepted(result.getAccepted() + 1);
+                } else {
+                    item.setAccepted(false);
+                    item.setStatus(EventStatus.FAILED.getCode());
+                    item.setMessage("事件队列已满");
+                    result.setThrottled(result.getThrottled() + 1);
+                    throttled.add(event);
+                    eventDeduplicator.forget(event);
+                }
+                continue;
+            }
+
+            result.setAccepted(result.getAccepted() + 1);
+            EventStatus status;
+            try {
+                status = flowEngine.triggerEvent(event) ? EventStatus.PROCESSED : EventStatus.IGNORED;
+            } catch (PartitionNotOwnedException e) {
+                // 关联实例属于其他节点：归还事件，由实例所在节点领取处理
+                item.setStatus(EventStatus.PENDING.getCode());
+                handedOffIds.add(event.getId());
+                continue;
+            } catch (RuntimeException e) {
+                log.warn("分发事件失败：eventId={}, {}", event.getId(), e.getMessage());
+                status = EventStatus.FAILED;
+                item.setMessage(e.getMessage());
+                // 未处理成功的事件允许调用方重试
+                eventDeduplicator.forget(event);
+            }
+            item.setStatus(status.getCode());
+            idsByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(event.getId());
+        }
+
+        LocalDateTime processingTime = LocalDateTime.now();
+        idsByStatus.forEach((status, ids) -> flowEventWriter.complete(ids, status));
+        flowEventWriter.reject(throttled, processingTime);
+        if (!handedOffIds.isEmpty()) {
+            flowEventWriter.release(handedOffIds);
+        }
+        batch.clear();
+        batchItems.clear();
+    }
+
+    /**
+     * 追加一条结果，message 不为空表示拒绝
+     */
+    private static EventBatchResult.Item addItem(EventBatchResult result, String message) {
+        EventBatchResult.Item item = new EventBatchResult.Item();
+        item.setIndex(result.getItems().size());
+        item.setMessage(message);
+        result.getItems().add(item);
+        return item;
+    }
+}
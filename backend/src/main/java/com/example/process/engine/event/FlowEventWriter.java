@@ -0,0 +1,215 @@
+package com.example.process.engine.event;
+
+import com.example.process.engine.lease.LeaseManager;
+import com.example.process.model.engine.constant.EventStatus;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.repository.FlowEventIdempotencyKeyRepository;
+import com.example.process.repository.FlowEventRepository;
+import com.example.process.util.JsonUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 事件批量写入
+ * 批量接收的事件绕过 JPA 逐条持久化，用一条 JDBC 批量 INSERT 写入并取回生成的ID，
+ * 处理完成后按状态分组批量更新，只更新本节点仍持有租约的事件。
+ * 带幂等键的事件先在同一事务中登记幂等键，已被登记的不写入，由幂等键表的唯一约束保证同一幂等键只写入一次
+ * （flow_event 按发生时间分区，无法在事件表上建立幂等键的唯一约束）。
+ * 写入的事件随即交给本节点的事件流水线处理，写入时即由本节点持有租约，其他节点在租约到期前不会领取；
+ * 本节点未处理完就退出时，租约到期后由其他节点重新投递；排队时间可能超过租约时长，由事件流水线定期续约。
+ * 集群模式下需要由其他节点处理的事件（关联实例属于其他节点）通过 {@link #handOff(List)} 写入或 {@link #release(List)}
+ * 归还，不持有租约，由实例所在节点的重新投递轮询领取。
+ */
+@Component
+public class FlowEventWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO flow_event (event_type, event_name, source_id, source_type, " +
+            "event_data, occurrence_time, status, flow_instance_id, node_id, priority, remarks, idempotency_key, " +
+            "lease_owner, lease_expire_time, delivery_count, created_at, is_deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, ?, false)";
+
+    private static final String CLAIM_KEYS_SQL = "INSERT INTO flow_event_idempotency_key " +
+            "(idempotency_key, created_at, is_deleted) SELECT k, ?, false FROM unnest(?::text[]) AS k " +
+            "ON CONFLICT (idempotency_key) DO NOTHING RETURNING idempotency_key";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FlowEventRepository flowEventRepository;
+    private final FlowEventIdempotencyKeyRepository flowEventIdempotencyKeyRepository;
+    private final LeaseManager leaseManager;
+
+    public FlowEventWriter(JdbcTemplate jdbcTemplate, FlowEventRepository flowEventRepository,
+                           FlowEventIdempotencyKeyRepository flowEventIdempotencyKeyRepository,
+                           LeaseManager leaseManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flowEventRepository = flowEventRepository;
+        this.flowEventIdempotencyKeyRepository = flowEventIdempotencyKeyRepository;
+        this.leaseManager = leaseManager;
+    }
+
+    /**
+     * 批量写入事件，写入后回填事件ID和状态
+     * 幂等键重复而未写入的事件ID保持为空
+     *
+     * @param events 事件列表
+     */
+    @Transactional
+    public void insertBatch(List<FlowEventDTO> events) {
+        insert(events, leaseManager.getOwner(), Timestamp.valueOf(leaseManager.nextExpireTime()));
+    }
+
+    /**
+     * 批量写入交给其他节点处理的事件，不持有租约，写入后回填事件ID
+     *
+     * @param events 事件列表
+     */
+    @Transactional
+    public void handOff(List<FlowEventDTO> events) {
+        insert(events, null, null);
+    }
+
+    /**
+     * 归还本节点不能处理的事件（关联实例属于其他节点），由实例所在节点领取
+     *
+     * @param ids 事件ID列表
+     * @return 归还数量
+     */
+    public int release(List<Long> ids) {
+        return leaseManager.releaseEvents(ids);
+    }
+
+    private void insert(List<FlowEventDTO> events, String leaseOwner, Timestamp leaseExpireTime) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<FlowEventDTO> accepted = claimIdempotencyKeys(events, now);
+        if (accepted.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        FlowEventDTO event = accepted.get(i);
+                        ps.setString(1, event.getEventType());
+                        ps.setString(2, event.getEventName());
+                        ps.setString(3, event.getSourceId());
+                        ps.setString(4, event.getSourceType());
+                        ps.setString(5, JsonUtils.toJsonString(event.getEventData()));
+                        ps.setTimestamp(6, Timestamp.valueOf(event.getOccurrenceTime()));
+                        ps.setString(7, EventStatus.PENDING.getCode());
+                        if (event.getFlowInstanceId() != null) {
+                            ps.setLong(8, event.getFlowInstanceId());
+                        } else {
+                            ps.setNull(8, Types.BIGINT);
+                        }
+                        ps.setString(9, event.getNodeId());
+                        ps.setString(10, event.getPriority());
+                        ps.setString(11, event.getRemarks());
+                        ps.setString(12, event.getIdempotencyKey());
+                        ps.setString(13, leaseOwner);
+                        ps.setTimestamp(14, leaseExpireTime);
+                        ps.setTimestamp(15, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return accepted.size();
+                    }
+                },
+                keyHolder);
+
+        // 返回的行与写入的事件顺序一致
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < accepted.size(); i++) {
+            FlowEventDTO event = accepted.get(i);
+            event.setId(((Number) keys.get(i).get("id")).longValue());
+            event.setStatus(EventStatus.PENDING.getCode());
+            event.setCreateTime(now.toLocalDateTime());
+        }
+    }
+
+    /**
+     * 登记幂等键，返回需要写入的事件：没有幂等键的事件，以及幂等键登记成功的事件（批内重复的只取第一个）
+     */
+    private List<FlowEventDTO> claimIdempotencyKeys(List<FlowEventDTO> events, Timestamp now) {
+        String[] keys = events.stream().map(FlowEventDTO::getIdempotencyKey).filter(Objects::nonNull)
+                .distinct().toArray(String[]::new);
+        if (keys.length == 0) {
+            return events;
+        }
+        Set<String> claimed = new HashSet<>(jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(CLAIM_KEYS_SQL);
+            ps.setTimestamp(1, now);
+            ps.setArray(2, connection.createArrayOf("text", keys));
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1)));
+        List<FlowEventDTO> accepted = new ArrayList<>(events.size());
+        for (FlowEventDTO event : events) {
+            if (event.getIdempotencyKey() == null || claimed.remove(event.getIdempotencyKey())) {
+                accepted.add(event);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * 批量写入事件处理结果并清除租约
+     *
+     * @param ids    事件ID列表
+     * @param status 处理状态
+     * @return 更新数量，租约已被其他节点接管的事件不更新
+     */
+    public int complete(List<Long> ids, EventStatus status) {
+        return ids.isEmpty() ? 0 : leaseManager.completeEvents(ids, status);
+    }
+
+    /**
+     * 事件续约
+     *
+     * @param ids 事件ID列表
+     * @return 续约成功的事件ID
+     */
+    public List<Long> renew(List<Long> ids) {
+        return ids.isEmpty() ? Collections.emptyList() : leaseManager.renewEvents(ids);
+    }
+
+    /**
+     * 把未能处理的事件标记为失败并释放其幂等键，调用方可以用同一幂等键重试
+     * 按事件的发生时间范围更新，只扫描覆盖该范围的分区
+     *
+     * @param events         已写入的事件
+     * @param processingTime 处理时间
+     */
+    @Transactional
+    public void reject(List<FlowEventDTO> events, LocalDateTime processingTime) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(events.size());
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (FlowEventDTO event : events) {
+            ids.add(event.getId());
+            LocalDateTime time = event.getOccurrenceTime();
+            from = from == null || time.isBefore(from) ? time : from;
+            to = to == null || time.isAfter(to) ? time : to;
+        }
+        flowEventRepository.updateStatus(ids, from, to, EventStatus.FAILED.getCode(), processingTime);
+        flowEventIdempotencyKeyRepository.deleteByEventIds(ids);
+        flowEventRepository.clearIdempotencyKey(ids, from, to);
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.process.engine.graph;
+
+import com.example.process.engine.condition.CompiledCondition;
+import com.example.process.engine.condition.ConditionCompiler;
+import com.example.process.model.flow.constant.NodeType;
+import com.example.process.model.flow.dto.FlowEdge;
+import com.example.process.model.flow.dto.FlowGraph;
+import com.example.process.model.flow.dto.FlowNode;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的流程图
+ * 由流程版本的流程图数据一次性构建，构建后不可变，可在多线程间共享。
+ * 包含节点ID索引、每个节点的出边/入边数组、编译后的出边条件以及预先确定的开始节点。
+ */
+public final class CompiledFlowGraph {
+
+    private static final FlowEdge[] NO_EDGES = new FlowEdge[0];
+    private static final CompiledCondition[] NO_CONDITIONS = new CompiledCondition[0];
+
+    /**
+     * 流程版本ID
+     */
+    private final Long versionId;
+
+    /**
+     * 节点数组（按流程图中的顺序）
+     */
+    private final FlowNode[] nodes;
+
+    /**
+     * 节点ID到节点下标的索引
+     */
+    private final Map<String, Integer> nodeIndex;
+
+    /**
+     * 每个节点的出边，下标与nodes一致
+     */
+    private final FlowEdge[][] outgoing;
+
+    /**
+     * 每个节点的入边，下标与nodes一致
+     */
+    private final FlowEdge[][] incoming;
+
+    /**
+     * 每个节点出边的编译后条件，与outgoing一一对应，无条件的边为null
+     */
+    private final CompiledCondition[][] outgoingConditions;
+
+    /**
+     * 开始节点下标，没有开始节点时为-1
+     */
+    private final int startIndex;
+
+    private CompiledFlowGraph(Long versionId, FlowNode[] nodes, Map<String, Integer> nodeIndex,
+                              FlowEdge[][] outgoing, FlowEdge[][] incoming,
+                              CompiledCondition[][] outgoingConditions, int startIndex) {
+        this.versionId = versionId;
+        this.nodes = nodes;
+        this.nodeIndex = nodeIndex;
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.outgoingConditions = outgoingConditions;
+        this.startIndex = startIndex;
+    }
+
+    /**
+     * 编译流程图
+     *
+     * @param versionId 流程版本ID
+     * @param flowGraph 流程图
+     * @return 编译后的流程图
+     */
+    public static CompiledFlowGraph compile(Long versionId, FlowGraph flowGraph) {
+        List<FlowNode> nodeList = flowGraph.getNodes() != null ? flowGraph.getNodes() : Collections.emptyList();
+        List<FlowEdge> edgeList = flowGraph.getEdges() != null ? flowGraph.getEdges() : Collections.emptyList();
+
+        // 建立节点索引，重复ID以第一个为准
+        List<FlowNode> uniqueNodes = new ArrayList<>(nodeList.size());
+        Map<String, Integer> index = new HashMap<>(nodeList.size() * 2);
+        for (FlowNode node : nodeList) {
+            if (node == null || !StringUtils.hasText(node.getId()) || index.containsKey(node.getId())) {
+                continue;
+            }
+            index.put(node.getId(), uniqueNodes.size());
+            uniqueNodes.add(node);
+        }
+        FlowNode[] nodes = uniqueNodes.toArray(new FlowNode[0]);
+
+        // 按节点归集出边和入边，忽略端点不存在的边
+        List<List<FlowEdge>> out = new ArrayList<>(nodes.length);
+        List<List<FlowEdge>> in = new ArrayList<>(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            out.add(new ArrayList<>(2));
+            in.add(new ArrayList<>(2));
+        }
+        for (FlowEdge edge : edgeList) {
+            if (edge == null) {
+                continue;
+            }
+            Integer source = index.get(edge.getSource());
+            Integer target = index.get(edge.getTarget());
+            if (source == null || target == null) {
+                continue;
+            }
+            out.get(source).add(edge);
+            in.get(target).add(edge);
+        }
+
+        FlowEdge[][] outgoing = new FlowEdge[nodes.length][];
+        FlowEdge[][] incoming = new FlowEdge[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            outgoing[i] = out.get(i).isEmpty() ? NO_EDGES : out.get(i).toArray(NO_EDGES);
+            incoming[i] = in.get(i).isEmpty() ? NO_EDGES : in.get(i).toArray(NO_EDGES);
+        }
+
+        // 每个条件表达式只编译一次
+        CompiledCondition[][] outgoingConditions = new CompiledCondition[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            outgoingConditions[i] = outgoing[i].length == 0 ? NO_CONDITIONS : new CompiledCondition[outgoing[i].length];
+            for (int j = 0; j < outgoing[i].length; j++) {
+                outgoingConditions[i][j] = compileCondition(outgoing[i][j]);
+            }
+        }
+
+        // 预先确定开始节点
+        int startIndex = -1;
+        for (int i = 0; i < nodes.length; i++) {
+            if (NodeType.START.equalsIgnoreCase(nodes[i].getType())) {
+                startIndex = i;
+                break;
+            }
+        }
+
+        return new CompiledFlowGraph(versionId, nodes, Collections.unmodifiableMap(index),
+                outgoing, incoming, outgoingConditions, startIndex);
+    }
+
+    /**
+     * 编译边上的条件表达式
+     * 条件可以在边的 conditionExpression 字段，也可以在设计器保存的 data.conditionExpression 中；
+     * data.isConditional 明确为 false 时忽略条件
+     */
+    private static CompiledCondition compileCondition(FlowEdge edge) {
+        Map<String, Object> data = edge.getData();
+        if (data != null && Boolean.FALSE.equals(data.get("isConditional"))) {
+            return null;
+        }
+        if (StringUtils.hasText(edge.getConditionExpression())) {
+            return ConditionCompiler.compile(edge.getConditionExpression());
+        }
+        Object expression = data != null ? data.get("conditionExpression") : null;
+        if (expression instanceof String) {
+            return ConditionCompiler.compile((String) expression);
+        }
+        if (expression instanceof Map) {
+            return ConditionCompiler.compileTree(expression);
+        }
+        return null;
+    }
+
+    /**
+     * 获取流程版本ID
+     *
+     * @return 流程版本ID
+     */
+    public Long getVersionId() {
+        return versionId;
+    }
+
+    /**
+     * 获取开始节点
+     *
+     * @return 开始节点，不存在时返回null
+     */
+    public FlowNode getStartNode() {
+        return startIndex >= 0 ? nodes[startIndex] : null;
+    }
+
+    /**
+     * 根据节点ID查找节点
+     *
+     * @param nodeId 节点ID
+     * @return 节点，不存在时返回null
+     */
+    public FlowNode getNode(String nodeId) {
+        int i = indexOf(nodeId);
+        return i >= 0 ? nodes[i] : null;
+    }
+
+    /**
+     * 判断节点是否存在
+     *
+     * @param nodeId 节点ID
+     * @return 是否存在
+     */
+    public boolean containsNode(String nodeId) {
+        return indexOf(nodeId) >= 0;
+    }
+
+    /**
+     * 获取节点的出边
+     *
+     * @param nodeId 节点ID
+     * @return 出边数组（只读，不要修改）
+     */
+    public FlowEdge[] getOutgoingEdges(String nodeId) {
+        int i = indexOf(nodeId);
+        return i >= 0 ? outgoing[i] : NO_EDGES;
+    }
+
+    /**
+     * 获取节点出边的编译后条件
+     *
+     * @param nodeId 节点ID
+     * @return 条件数组，与 {@link #getOutgoingEdges(String)} 一一对应，无条件的边为null（只读，不要修改）
+     */
+    public CompiledCondition[] getOutgoingConditions(String nodeId) {
+        int i = indexOf(nodeId);
+        return i >= 0 ? outgoingConditions[i] : NO_CONDITIONS;
+    }
+
+    /**
+     * 获取节点的入边
+     *
+     * @param nodeId 节点ID
+     * @return 入边数组（只读，不要修改）
+     */
+    public FlowEdge[] getIncomingEdges(String nodeId) {
+        int i = indexOf(nodeId);
+        return i >= 0 ? incoming[i] : NO_EDGES;
+    }
+
+    /**
+     * 获取节点数量
+     *
+     * @return 节点数量
+     */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    private int indexOf(String nodeId) {
+        if (nodeId == null) {
+            return -1;
+        }
+        Integer i = nodeIndex.get(nodeId);
+        return i != null ? i : -1;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.process.engine.graph;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.exception.BusinessException;
+import com.example.process.model.flow.FlowVersion;
+import com.example.process.model.flow.dto.FlowGraph;
+import com.example.process.repository.FlowVersionRepository;
+import com.example.process.util.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 编译后流程图缓存
+ * 以流程版本ID为键缓存 {@link CompiledFlowGraph}，容量有限，按最近最少使用淘汰。
+ * 流程版本被修改、发布或删除时需调用 {@link #invalidate(Long)} 使缓存失效。
+ * 每次失效都递增失效计数，加载期间发生过失效的结果只返回给调用方、不放入缓存，
+ * 避免在事务提交后的失效之后写回提交前读到的旧数据。
+ */
+@Slf4j
+@Component
+public class FlowGraphCache {
+
+    private final FlowVersionRepository flowVersionRepository;
+
+    private final Map<Long, CompiledFlowGraph> cache;
+
+    /**
+     * 失效计数（由cache锁保护）
+     */
+    private long invalidations;
+
+    public FlowGraphCache(FlowVersionRepository flowVersionRepository, EngineProperties engineProperties) {
+        this.flowVersionRepository = flowVersionRepository;
+        int maxSize = Math.max(1, engineProperties.getGraphCache().getMaxSize());
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompiledFlowGraph> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取编译后的流程图，未命中时加载并编译
+     *
+     * @param versionId 流程版本ID
+     * @return 编译后的流程图
+     */
+    public CompiledFlowGraph get(Long versionId) {
+        CompiledFlowGraph graph;
+        long loadedAt;
+        synchronized (cache) {
+            graph = cache.get(versionId);
+            loadedAt = invalidations;
+        }
+        if (graph != null) {
+            return graph;
+        }
+
+        // 在锁外加载和编译，避免慢查询阻塞其他版本的读取
+        CompiledFlowGraph compiled = load(versionId);
+        synchronized (cache) {
+            if (invalidations != loadedAt) {
+                // 加载期间有版本失效，读到的可能是失效前的数据
+                return compiled;
+            }
+            CompiledFlowGraph existing = cache.putIfAbsent(versionId, compiled);
+            return existing != null ? existing : compiled;
+        }
+    }
+
+    /**
+     * 使指定版本的缓存失效
+     * 立即移除缓存，如果当前存在事务，则在事务提交后再移除一次，
+     * 防止事务提交前被并发读取重新加载旧数据。
+     *
+     * @param versionId 流程版本ID
+     */
+    public void invalidate(Long versionId) {
+        evict(versionId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(versionId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (cache) {
+            invalidations++;
+            cache.clear();
+        }
+    }
+
+    /**
+     * 获取当前缓存数量
+     *
+     * @return 缓存数量
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private void evict(Long versionId) {
+        synchronized (cache) {
+            invalidations++;
+            if (cache.remove(versionId) != null) {
+                log.debug("流程图缓存失效：versionId={}", versionId);
+            }
+        }
+    }
+
+    private CompiledFlowGraph load(Long versionId) {
+        FlowVersion version = flowVersionRepository.findById(versionId)
+                .orElseThrow(() -> new BusinessException("流程版本不存在: " + versionId));
+
+        // 优先使用流程图字段，未设置时使用流程数据字段
+        String graphJson = StringUtils.hasText(version.getFlowGraph()) ? version.getFlowGraph() : version.getFlowData();
+        if (!StringUtils.hasText(graphJson)) {
+            throw new BusinessException("无法获取流程图");
+        }
+
+        FlowGraph flowGraph = JsonUtils.parseObject(graphJson, FlowGraph.class);
+        if (flowGraph == null) {
+            throw new BusinessException("无法获取流程图");
+        }
+
+        CompiledFlowGraph compiled = CompiledFlowGraph.compile(versionId, flowGraph);
+        log.debug("编译流程图：versionId={}, nodes={}", versionId, compiled.getNodeCount());
+        return compiled;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.process.engine.impl;
+
+import com.example.process.engine.AsyncFlowEngine;
+import com.example.process.engine.FlowEngine;
+import com.example.process.engine.cluster.InstanceOwnership;
+import com.example.process.engine.event.EventPipeline;
+import com.example.process.engine.priority.PriorityTaskExecutor;
+import com.example.process.model.engine.constant.Priority;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.model.engine.dto.FlowInstanceDTO;
+import com.example.process.repository.FlowInstanceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 异步流程执行引擎默认实现
+ * 每个操作在引擎线程池上调用 {@link FlowEngine}，各自在独立事务中执行；事件交给 {@link EventPipeline} 按事件源分片排队处理。
+ * 实例操作按实例的优先级排队，线程池繁忙时高优先级实例先执行。
+ * 集群模式下提交前先检查实例归属，不属于当前节点的请求直接拒绝，由调用方重定向。
+ */
+@Service
+@Slf4j
+public class DefaultAsyncFlowEngine implements AsyncFlowEngine {
+
+    private final FlowEngine flowEngine;
+    private final PriorityTaskExecutor engineExecutor;
+    private final InstanceOwnership instanceOwnership;
+    private final EventPipeline eventPipeline;
+    private final FlowInstanceRepository flowInstanceRepository;
+
+    @Autowired
+    public DefaultAsyncFlowEngine(FlowEngine flowEngine,
+                                  @Qualifier("flowEngineExecutor") PriorityTaskExecutor engineExecutor,
+                                  InstanceOwnership instanceOwnership,
+                                  EventPipeline eventPipeline,
+                                  FlowInstanceRepository flowInstanceRepository) {
+        this.flowEngine = flowEngine;
+        this.engineExecutor = engineExecutor;
+        this.instanceOwnership = instanceOwnership;
+        this.eventPipeline = eventPipeline;
+        this.flowInstanceRepository = flowInstanceRepository;
+    }
+
+    @Override
+    public CompletableFuture<FlowInstanceDTO> startInstanceAsync(Long instanceId) {
+        instanceOwnership.checkOwner(instanceId);
+        return submit("启动流程实例 " + instanceId, priorityOf(instanceId), () -> flowEngine.startInstance(instanceId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> triggerEventAsync(FlowEventDTO event) {
+        if (event.getFlowInstanceId() != null) {
+            instanceOwnership.checkOwner(event.getFlowInstanceId());
+        }
+        return eventPipeline.publish(event);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> executeNodeAsync(Long instanceId, String nodeId, Map<String, Object> input) {
+        instanceOwnership.checkOwner(instanceId);
+        return submit("执行节点 " + instanceId + "/" + nodeId, priorityOf(instanceId),
+                () -> flowEngine.executeNode(instanceId, nodeId, input));
+    }
+
+    /**
+     * 提交到引擎线程池，线程池饱和时直接抛出拒绝异常，由调用方决定如何响应
+     */
+    private <T> CompletableFuture<T> submit(String operation, Priority priority, Supplier<T> task) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(task, runnable -> engineExecutor.execute(runnable, priority));
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                log.error("异步{}失败: {}", operation, e.getMessage());
+            }
+        });
+        return future;
+    }
+
+    private Priority priorityOf(Long instanceId) {
+        return Priority.parse(flowInstanceRepository.findPriorityById(instanceId).orElse(null));
+    }
+}
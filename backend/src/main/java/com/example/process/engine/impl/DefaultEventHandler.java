@@ -17,13 +17,11 @@ public class DefaultEventHandler implements EventHandler {
 
     @Override
     public boolean handleEvent(FlowEventDTO event) {
-        log.info("处理默认事件: {}, 事件ID: {}", event.getEventType(), event.getId());
-        
-        // 默认事件处理器只是记录事件信息
-        log.info("事件名称: {}", event.getEventName());
-        log.info("事件源: {}", event.getSourceId());
-        log.info("事件源类型: {}", event.getSourceType());
-        log.info("事件数据: {}", event.getEventData());
+        // 默认事件处理器只是记录事件信息，高频事件下逐条输出的日志本身就是开销，只在调试级别输出一行
+        if (log.isDebugEnabled()) {
+            log.debug("处理默认事件: type={}, id={}, name={}, source={}/{}, data={}", event.getEventType(),
+                    event.getId(), event.getEventName(), event.getSourceType(), event.getSourceId(), event.getEventData());
+        }
         
         // 实际应用中，这里应该根据事件类型和数据进行相应的处理
         
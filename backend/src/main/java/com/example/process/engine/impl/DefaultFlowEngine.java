@@ -1,28 +1,51 @@
 package com.example.process.engine.impl;
 
+import com.example.process.config.EngineProperties;
 import com.example.process.engine.EventHandler;
 import com.example.process.engine.FlowEngine;
 import com.example.process.engine.NodeExecutor;
+import com.example.process.engine.cluster.InstanceOwnership;
+import com.example.process.engine.context.InstanceContextCache;
+import com.example.process.engine.context.InstanceRuntimeContext;
+import com.example.process.engine.device.DevicePresence;
+import com.example.process.engine.event.EventSubscriptionIndex;
+import com.example.process.engine.event.FlowEventWriter;
+import com.example.process.engine.graph.CompiledFlowGraph;
+import com.example.process.engine.graph.FlowGraphCache;
+import com.example.process.engine.outbox.TransactionalOutbox;
+import com.example.process.engine.timer.FlowTimerScheduler;
+import com.example.process.engine.window.WindowAggregator;
 import com.example.process.exception.BusinessException;
+import com.example.process.exception.PartitionNotOwnedException;
+import com.example.process.model.engine.EventSubscription;
 import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.FlowTimer;
+import com.example.process.model.engine.constant.EventType;
 import com.example.process.model.engine.constant.InstanceStatus;
+import com.example.process.model.engine.constant.SubscriptionType;
+import com.example.process.model.engine.constant.TimerStatus;
 import com.example.process.model.engine.dto.FlowEventDTO;
 import com.example.process.model.engine.dto.FlowInstanceDTO;
-import com.example.process.model.flow.FlowVersion;
-import com.example.process.model.flow.dto.FlowGraph;
+import com.example.process.model.flow.constant.NodeType;
 import com.example.process.model.flow.dto.FlowNode;
+import com.example.process.repository.FlowExecutionLogRepository;
 import com.example.process.repository.FlowInstanceRepository;
-import com.example.process.repository.FlowVersionRepository;
+import com.example.process.repository.FlowTimerRepository;
 import com.example.process.service.FlowInstanceService;
-import com.example.process.util.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * 流程执行引擎默认实现
@@ -33,7 +56,23 @@ public class DefaultFlowEngine implements FlowEngine {
 
     private final FlowInstanceService flowInstanceService;
     private final FlowInstanceRepository flowInstanceRepository;
-    private final FlowVersionRepository flowVersionRepository;
+    private final FlowGraphCache flowGraphCache;
+    private final InstanceContextCache instanceContextCache;
+    private final InstanceOwnership instanceOwnership;
+    private final EventSubscriptionIndex eventSubscriptionIndex;
+    private final WindowAggregator windowAggregator;
+    private final DevicePresence devicePresence;
+    private final FlowExecutionLogRepository flowExecutionLogRepository;
+    private final Executor branchExecutor;
+    private final FlowTimerScheduler flowTimerScheduler;
+    private final FlowTimerRepository flowTimerRepository;
+    private final TransactionalOutbox transactionalOutbox;
+    private final FlowEventWriter flowEventWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final EngineProperties engineProperties;
+    
+    // 默认执行器/处理器类型
+    private static final String DEFAULT_TYPE = "default";
     
     // 事件处理器注册表
     private final Map<String, EventHandler> eventHandlers = new ConcurrentHashMap<>();
@@ -45,41 +84,67 @@ public class DefaultFlowEngine implements FlowEngine {
     public DefaultFlowEngine(
             FlowInstanceService flowInstanceService,
             FlowInstanceRepository flowInstanceRepository,
-            FlowVersionRepository flowVersionRepository) {
+            FlowGraphCache flowGraphCache,
+            InstanceContextCache instanceContextCache,
+            InstanceOwnership instanceOwnership,
+            EventSubscriptionIndex eventSubscriptionIndex,
+            WindowAggregator windowAggregator,
+            DevicePresence devicePresence,
+            FlowExecutionLogRepository flowExecutionLogRepository,
+            @Qualifier("flowBranchExecutor") Executor branchExecutor,
+            FlowTimerScheduler flowTimerScheduler,
+            FlowTimerRepository flowTimerRepository,
+            TransactionalOutbox transactionalOutbox,
+            FlowEventWriter flowEventWriter,
+            PlatformTransactionManager transactionManager,
+            EngineProperties engineProperties,
+            ObjectProvider<NodeExecutor> nodeExecutorProvider,
+            ObjectProvider<EventHandler> eventHandlerProvider) {
         this.flowInstanceService = flowInstanceService;
         this.flowInstanceRepository = flowInstanceRepository;
-        this.flowVersionRepository = flowVersionRepository;
+        this.flowGraphCache = flowGraphCache;
+        this.instanceContextCache = instanceContextCache;
+        this.instanceOwnership = instanceOwnership;
+        this.eventSubscriptionIndex = eventSubscriptionIndex;
+        this.windowAggregator = windowAggregator;
+        this.devicePresence = devicePresence;
+        this.flowExecutionLogRepository = flowExecutionLogRepository;
+        this.branchExecutor = branchExecutor;
+        this.flowTimerScheduler = flowTimerScheduler;
+        this.flowTimerRepository = flowTimerRepository;
+        this.transactionalOutbox = transactionalOutbox;
+        this.flowEventWriter = flowEventWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.engineProperties = engineProperties;
+        
+        // 自动注册容器中的节点执行器和事件处理器
+        nodeExecutorProvider.orderedStream()
+                .forEach(executor -> registerNodeExecutor(executor.getSupportedNodeType(), executor));
+        eventHandlerProvider.orderedStream()
+                .forEach(handler -> registerEventHandler(handler.getSupportedEventType(), handler));
     }
 
     @Override
     @Transactional
     public FlowInstanceDTO startInstance(Long instanceId) {
         // 调用服务层启动实例
-        FlowInstanceDTO instance = flowInstanceService.startInstance(instanceId);
+        flowInstanceService.startInstance(instanceId);
+        FlowInstance flowInstance = getFlowInstance(instanceId);
         
         // 获取流程图
-        FlowGraph flowGraph = getFlowGraph(instance.getFlowVersionId());
-        if (flowGraph == null) {
-            throw new BusinessException("无法获取流程图");
-        }
+        CompiledFlowGraph flowGraph = flowGraphCache.get(flowInstance.getFlowVersionId());
         
         // 找到开始节点
-        FlowNode startNode = findStartNode(flowGraph);
+        FlowNode startNode = flowGraph.getStartNode();
         if (startNode == null) {
             throw new BusinessException("流程图中没有开始节点");
         }
         
-        // 设置活动节点
-        List<String> activeNodes = new ArrayList<>();
-        activeNodes.add(startNode.getId());
-        
-        // 更新实例活动节点
-        FlowInstance flowInstance = getFlowInstance(instanceId);
-        flowInstance.setActiveNodeIds(JsonUtils.toJsonString(activeNodes));
-        flowInstanceRepository.save(flowInstance);
-        
-        // 执行开始节点
-        executeNode(instanceId, startNode.getId(), new HashMap<>());
+        // 从开始节点推进到等待状态
+        InstanceRuntimeContext context = instanceContextCache.acquire(flowInstance);
+        FlowRunner runner = newRunner(flowInstance, flowGraph, context.copyVariables(), new ArrayList<>());
+        runner.enterNode(startNode.getId());
+        flush(flowInstance, flowGraph, context, Collections.emptyList(), runner);
         
         return flowInstanceService.getInstance(instanceId);
     }
@@ -102,11 +167,20 @@ public class DefaultFlowEngine implements FlowEngine {
     @Transactional
     public FlowInstanceDTO cancelInstance(Long instanceId) {
         // 调用服务层取消实例
-        return flowInstanceService.cancelInstance(instanceId);
+        FlowInstanceDTO instance = flowInstanceService.cancelInstance(instanceId);
+        
+        // 取消等待中的定时器和事件订阅
+        flowTimerScheduler.cancel(instanceId);
+        eventSubscriptionIndex.unsubscribeAll(instanceId);
+        return instance;
     }
 
+    /**
+     * 触发事件
+     * 不在同一个事务中投递全部订阅：每个订阅的投递各自使用一个事务，一个订阅失败不会回滚其他订阅，
+     * 也不会在投递大量订阅期间一直持有已唤醒实例的行锁
+     */
     @Override
-    @Transactional
     public boolean triggerEvent(FlowEventDTO event) {
         // 获取事件类型
         String eventType = event.getEventType();
@@ -115,19 +189,38 @@ public class DefaultFlowEngine implements FlowEngine {
             return false;
         }
         
+        // 关联了实例的事件只能由实例所在节点处理
+        if (event.getFlowInstanceId() != null) {
+            instanceOwnership.checkOwner(event.getFlowInstanceId());
+        }
+        
+        // 其他节点转交的事件直接投递到目标实例，原事件已在接收节点更新过窗口聚合和订阅匹配
+        if (EventType.EVENT_DELIVERY.getCode().equals(eventType)) {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> deliverHandedOff(event)));
+        }
+        
+        // 先更新窗口聚合，被唤醒的实例求值条件时能看到这条读数
+        windowAggregator.accept(event);
+        devicePresence.accept(event);
+        
+        // 按订阅索引投递给等待的实例和以该事件启动的流程
+        boolean delivered = deliver(event);
+        
         // 查找事件处理器
         EventHandler handler = eventHandlers.get(eventType);
         if (handler == null) {
-            log.warn("找不到事件类型 [{}] 的处理器", eventType);
-            return false;
+            if (!delivered) {
+                log.warn("找不到事件类型 [{}] 的处理器或订阅", eventType);
+            }
+            return delivered;
         }
         
         // 处理事件
         try {
-            return handler.handleEvent(event);
+            return handler.handleEvent(event) || delivered;
         } catch (Exception e) {
             log.error("处理事件时发生错误", e);
-            return false;
+            return delivered;
         }
     }
 
@@ -143,48 +236,85 @@ public class DefaultFlowEngine implements FlowEngine {
         }
         
         // 获取流程图
-        FlowGraph flowGraph = getFlowGraph(instance.getFlowVersionId());
-        if (flowGraph == null) {
-            throw new BusinessException("无法获取流程图");
-        }
+        CompiledFlowGraph flowGraph = flowGraphCache.get(instance.getFlowVersionId());
         
         // 查找节点
-        FlowNode node = findNode(flowGraph, nodeId);
-        if (node == null) {
+        if (!flowGraph.containsNode(nodeId)) {
             throw new BusinessException("找不到节点: " + nodeId);
         }
         
-        // 查找节点执行器
-        NodeExecutor executor = nodeExecutors.get(node.getType());
-        if (executor == null) {
-            throw new BusinessException("找不到节点类型 [" + node.getType() + "] 的执行器");
+        // 执行节点并推进到等待状态
+        InstanceRuntimeContext context = instanceContextCache.acquire(instance);
+        List<String> previousActiveNodeIds = context.copyActiveNodeIds();
+        FlowRunner runner = newRunner(instance, flowGraph, context.copyVariables(), new ArrayList<>(previousActiveNodeIds));
+        Map<String, Object> result = runner.executeNode(nodeId, input);
+        flush(instance, flowGraph, context, previousActiveNodeIds, runner);
+        
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public boolean resumeNode(Long instanceId, String nodeId, String nextNodeId, Map<String, Object> input) {
+        FlowInstance instance = getFlowInstance(instanceId);
+        if (!InstanceStatus.RUNNING.getCode().equals(instance.getStatus())) {
+            log.warn("实例不是运行状态，令牌不再推进：instanceId={}, nodeId={}, status={}",
+                    instanceId, nodeId, instance.getStatus());
+            return false;
         }
         
-        // 执行节点
-        try {
-            // 合并输入参数和实例变量
-            Map<String, Object> variables = getInstanceVariables(instanceId);
-            if (input != null) {
-                variables.putAll(input);
-            }
-            
-            // 执行节点
-            Map<String, Object> result = executor.execute(instance, node, variables);
-            
-            // 更新实例变量
-            if (result != null && !result.isEmpty()) {
-                updateVariables(instanceId, result);
-            }
-            
-            // TODO: 记录执行日志
-            
-            // TODO: 处理节点执行后的流程流转
-            
-            return result;
-        } catch (Exception e) {
-            log.error("执行节点时发生错误", e);
-            throw new BusinessException("执行节点时发生错误: " + e.getMessage());
+        // 令牌已离开该节点（已收到结果、跳转或重新进入前），结果失效
+        InstanceRuntimeContext context = instanceContextCache.acquire(instance);
+        List<String> previousActiveNodeIds = context.copyActiveNodeIds();
+        if (!previousActiveNodeIds.contains(nodeId)) {
+            log.debug("令牌不在节点上，不推进：instanceId={}, nodeId={}", instanceId, nodeId);
+            return false;
         }
+        
+        CompiledFlowGraph flowGraph = flowGraphCache.get(instance.getFlowVersionId());
+        FlowRunner runner = newRunner(instance, flowGraph, context.copyVariables(), new ArrayList<>(previousActiveNodeIds));
+        runner.resumeNode(nodeId, nextNodeId, input);
+        flush(instance, flowGraph, context, previousActiveNodeIds, runner);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean fireTimer(Long timerId) {
+        FlowTimer timer = flowTimerRepository.findById(timerId).orElse(null);
+        if (timer == null || !TimerStatus.PENDING.getCode().equals(timer.getStatus())) {
+            return false;
+        }
+        
+        // 分区已迁移到其他节点，保持等待状态，由新的持有节点加载触发
+        if (!instanceOwnership.isOwner(timer.getFlowInstanceId())) {
+            return false;
+        }
+        
+        FlowInstance instance = getFlowInstance(timer.getFlowInstanceId());
+        
+        // 暂停的实例推迟唤醒，恢复后继续
+        if (InstanceStatus.SUSPENDED.getCode().equals(instance.getStatus())) {
+            flowTimerScheduler.reschedule(timer,
+                    LocalDateTime.now().plusSeconds(engineProperties.getTimer().getPostponeSeconds()));
+            return false;
+        }
+        
+        // 实例已结束或令牌已不在该节点，定时器失效
+        if (!InstanceStatus.RUNNING.getCode().equals(instance.getStatus())
+                || !instanceContextCache.acquire(instance).copyActiveNodeIds().contains(timer.getNodeId())) {
+            timer.setStatus(TimerStatus.CANCELLED.getCode());
+            flowTimerRepository.save(timer);
+            return false;
+        }
+        
+        timer.setStatus(TimerStatus.FIRED.getCode());
+        timer.setFiredTime(LocalDateTime.now());
+        flowTimerRepository.save(timer);
+        
+        log.debug("定时器触发：timerId={}, instanceId={}, nodeId={}", timerId, instance.getId(), timer.getNodeId());
+        executeNode(instance.getId(), timer.getNodeId(), new HashMap<>());
+        return true;
     }
 
     @Override
@@ -199,22 +329,25 @@ public class DefaultFlowEngine implements FlowEngine {
         }
         
         // 获取流程图
-        FlowGraph flowGraph = getFlowGraph(instance.getFlowVersionId());
-        if (flowGraph == null) {
-            throw new BusinessException("无法获取流程图");
-        }
+        CompiledFlowGraph flowGraph = flowGraphCache.get(instance.getFlowVersionId());
         
         // 查找节点
-        FlowNode node = findNode(flowGraph, nodeId);
+        FlowNode node = flowGraph.getNode(nodeId);
         if (node == null) {
             throw new BusinessException("找不到节点: " + nodeId);
         }
         
-        // 设置活动节点
+        // 设置活动节点，跳转属于人工干预，立即写回
         List<String> activeNodes = new ArrayList<>();
         activeNodes.add(nodeId);
-        instance.setActiveNodeIds(JsonUtils.toJsonString(activeNodes));
-        flowInstanceRepository.save(instance);
+        InstanceRuntimeContext context = instanceContextCache.acquire(instance);
+        List<String> previousActiveNodeIds = context.copyActiveNodeIds();
+        instanceContextCache.update(context, context.copyVariables(), activeNodes);
+        instanceContextCache.checkpoint(context);
+        syncEventSubscriptions(instance, flowGraph, previousActiveNodeIds, activeNodes);
+        
+        // 原有令牌已被移除，其定时器一并取消
+        flowTimerScheduler.cancel(instanceId);
         
         // TODO: 记录跳转日志
         
@@ -254,7 +387,7 @@ public class DefaultFlowEngine implements FlowEngine {
     @Override
     public void registerNodeExecutor(String nodeType, NodeExecutor nodeExecutor) {
         if (StringUtils.hasText(nodeType) && nodeExecutor != null) {
-            nodeExecutors.put(nodeType, nodeExecutor);
+            nodeExecutors.put(nodeType.toUpperCase(Locale.ROOT), nodeExecutor);
             log.info("注册节点执行器: {}", nodeType);
         }
     }
@@ -271,60 +404,237 @@ public class DefaultFlowEngine implements FlowEngine {
     }
 
     /**
-     * 获取流程图
+     * 根据节点类型查找执行器（不区分大小写），没有专用执行器时使用默认执行器
      *
-     * @param versionId 版本ID
-     * @return 流程图
+     * @param nodeType 节点类型
+     * @return 节点执行器
      */
-    private FlowGraph getFlowGraph(Long versionId) {
-        FlowVersion version = flowVersionRepository.findById(versionId)
-                .orElseThrow(() -> new BusinessException("流程版本不存在: " + versionId));
-        
-        if (!StringUtils.hasText(version.getFlowGraph())) {
-            return null;
-        }
-        
-        return JsonUtils.parseObject(version.getFlowGraph(), FlowGraph.class);
+    private NodeExecutor resolveNodeExecutor(String nodeType) {
+        NodeExecutor executor = nodeType != null ? nodeExecutors.get(nodeType.toUpperCase(Locale.ROOT)) : null;
+        return executor != null ? executor : nodeExecutors.get(DEFAULT_TYPE.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * 创建流程推进器，变量和活动节点取自运行时上下文的副本
+     */
+    private FlowRunner newRunner(FlowInstance instance, CompiledFlowGraph flowGraph,
+                                 Map<String, Object> variables, List<String> activeNodeIds) {
+        FlowRunner runner = new FlowRunner(instance, flowGraph, variables, activeNodeIds,
+                this::resolveNodeExecutor, branchExecutor);
+        runner.setVirtualVariables(windowAggregator::resolve);
+        return runner;
     }
 
     /**
-     * 查找开始节点
+     * 投递事件到匹配的订阅
+     * 等待实例只在令牌仍停留在事件节点时唤醒，失效的订阅顺便清理；启动流程订阅创建并启动新实例。
+     * 集群模式下不属于当前节点的实例写入转交事件，由实例所在节点领取后投递；
+     * 新创建的实例不属于当前节点时，在创建实例的同一个事务中写入启动转交事件，由实例所在节点启动。
+     * 每个订阅各自使用一个事务：等待实例投递失败时转交给实例所在节点（可能就是当前节点）重试；
+     * 启动流程订阅失败时整个事务回滚，不留下未启动的实例，其余订阅投递完后抛出异常，由事件重新投递
      *
-     * @param flowGraph 流程图
-     * @return 开始节点
+     * @return 是否至少投递（或转交）了一个订阅
      */
-    private FlowNode findStartNode(FlowGraph flowGraph) {
-        if (flowGraph == null || flowGraph.getNodes() == null) {
-            return null;
+    private boolean deliver(FlowEventDTO event) {
+        List<EventSubscription> subscriptions = eventSubscriptionIndex.match(
+                event.getEventType(), event.getSourceType(), event.getSourceId());
+        if (subscriptions.isEmpty()) {
+            return false;
         }
         
-        for (FlowNode node : flowGraph.getNodes()) {
-            if ("start".equals(node.getType())) {
-                return node;
+        Map<String, Object> eventData = event.getEventData() != null ? event.getEventData() : Collections.emptyMap();
+        int delivered = 0;
+        List<FlowEventDTO> handOffs = new ArrayList<>();
+        RuntimeException startFailure = null;
+        for (EventSubscription subscription : subscriptions) {
+            boolean start = SubscriptionType.START.getCode().equals(subscription.getSubscriptionType());
+            Long instanceId = subscription.getFlowInstanceId();
+            try {
+                if (start) {
+                    transactionTemplate.executeWithoutResult(status -> startBySubscription(event, subscription));
+                    delivered++;
+                    continue;
+                }
+                
+                if (!instanceOwnership.isOwner(instanceId)) {
+                    handOffs.add(handOffEvent(event, instanceId, subscription.getNodeId()));
+                    continue;
+                }
+                if (Boolean.TRUE.equals(transactionTemplate.execute(
+                        status -> deliverToNode(instanceId, subscription.getNodeId(), eventData)))) {
+                    delivered++;
+                }
+            } catch (PartitionNotOwnedException e) {
+                // 投递期间实例分区被其他节点接管
+                if (start) {
+                    startFailure = addFailure(startFailure, e);
+                } else {
+                    handOffs.add(handOffEvent(event, instanceId, subscription.getNodeId()));
+                }
+            } catch (BusinessException e) {
+                log.warn("投递事件失败：eventType={}, subscriptionId={}, {}",
+                        event.getEventType(), subscription.getId(), e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("投递事件失败：eventType={}, subscriptionId={}", event.getEventType(), subscription.getId(), e);
+                if (start) {
+                    startFailure = addFailure(startFailure, e);
+                } else {
+                    handOffs.add(handOffEvent(event, instanceId, subscription.getNodeId()));
+                }
             }
         }
-        
-        return null;
+        if (!handOffs.isEmpty()) {
+            flowEventWriter.handOff(handOffs);
+            delivered += handOffs.size();
+        }
+        log.debug("投递事件：eventType={}, sourceId={}, 订阅 {} 个，投递 {} 个，转交 {} 个",
+                event.getEventType(), event.getSourceId(), subscriptions.size(), delivered, handOffs.size());
+        if (startFailure != null) {
+            throw startFailure;
+        }
+        return delivered > 0;
+    }
+
+    private static RuntimeException addFailure(RuntimeException failure, RuntimeException e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    /**
+     * 按启动流程订阅创建实例：实例属于当前节点时直接启动，否则写入启动转交事件
+     */
+    private void startBySubscription(FlowEventDTO event, EventSubscription subscription) {
+        Map<String, Object> eventData = event.getEventData() != null ? event.getEventData() : Collections.emptyMap();
+        FlowInstanceDTO created = flowInstanceService.createInstance(
+                subscription.getFlowDefinitionId(), subscription.getFlowVersionId(),
+                "事件触发: " + event.getEventType(), event.getEventName(), new HashMap<>(eventData),
+                null, null, event.getPriority(), null, null);
+        if (instanceOwnership.isOwner(created.getId())) {
+            startInstance(created.getId());
+        } else {
+            flowEventWriter.handOff(Collections.singletonList(handOffEvent(event, created.getId(), null)));
+        }
     }
 
     /**
-     * 查找节点
+     * 令牌仍停留在订阅节点时执行该节点，否则清理失效的订阅
      *
-     * @param flowGraph 流程图
-     * @param nodeId    节点ID
-     * @return 节点
+     * @return 是否执行
      */
-    private FlowNode findNode(FlowGraph flowGraph, String nodeId) {
-        if (flowGraph == null || flowGraph.getNodes() == null || !StringUtils.hasText(nodeId)) {
-            return null;
+    private boolean deliverToNode(Long instanceId, String nodeId, Map<String, Object> eventData) {
+        if (!flowInstanceService.getActiveNodes(instanceId).contains(nodeId)) {
+            eventSubscriptionIndex.unsubscribe(instanceId, nodeId);
+            return false;
         }
-        
-        for (FlowNode node : flowGraph.getNodes()) {
-            if (nodeId.equals(node.getId())) {
-                return node;
+        executeNode(instanceId, nodeId, new HashMap<>(eventData));
+        return true;
+    }
+
+    /**
+     * 投递其他节点转交的事件：未指定节点时启动仍处于已创建状态的实例；
+     * 否则令牌仍停留在目标节点时执行该节点，不在时忽略
+     *
+     * @return 是否投递
+     */
+    private boolean deliverHandedOff(FlowEventDTO event) {
+        Long instanceId = event.getFlowInstanceId();
+        if (instanceId == null) {
+            log.warn("转交事件缺少目标实例：eventId={}", event.getId());
+            return false;
+        }
+        if (event.getNodeId() == null) {
+            FlowInstance instance = flowInstanceRepository.findById(instanceId).orElse(null);
+            if (instance == null || !InstanceStatus.CREATED.getCode().equals(instance.getStatus())) {
+                return false;
             }
+            startInstance(instanceId);
+            return true;
+        }
+        Map<String, Object> eventData = event.getEventData() != null ? event.getEventData() : Collections.emptyMap();
+        return deliverToNode(instanceId, event.getNodeId(), eventData);
+    }
+
+    /**
+     * 创建转交给实例所在节点的事件，nodeId 为空表示启动实例
+     * 原事件已持久化时以原事件ID生成幂等键，原事件被重新投递时不会重复转交
+     */
+    private static FlowEventDTO handOffEvent(FlowEventDTO event, Long instanceId, String nodeId) {
+        FlowEventDTO handOff = new FlowEventDTO();
+        handOff.setEventType(EventType.EVENT_DELIVERY.getCode());
+        handOff.setEventName(event.getEventType());
+        handOff.setSourceId(event.getSourceId());
+        handOff.setSourceType(event.getSourceType());
+        handOff.setEventData(event.getEventData() != null ? new HashMap<>(event.getEventData()) : new HashMap<>());
+        handOff.setOccurrenceTime(LocalDateTime.now());
+        handOff.setFlowInstanceId(instanceId);
+        handOff.setNodeId(nodeId);
+        handOff.setPriority(event.getPriority());
+        if (event.getId() != null) {
+            handOff.setIdempotencyKey(EventType.EVENT_DELIVERY.getCode() + ":" + event.getId() + ":" + instanceId
+                    + ":" + nodeId);
+        }
+        return handOff;
+    }
+
+    /**
+     * 根据推进前后的活动节点维护事件订阅：新进入的事件节点登记订阅，已离开的移除
+     */
+    private void syncEventSubscriptions(FlowInstance instance, CompiledFlowGraph flowGraph,
+                                        List<String> previousActiveNodeIds, List<String> activeNodeIds) {
+        Set<String> previous = eventNodeIds(flowGraph, previousActiveNodeIds);
+        Set<String> current = eventNodeIds(flowGraph, activeNodeIds);
+        for (String nodeId : current) {
+            if (!previous.contains(nodeId)) {
+                eventSubscriptionIndex.subscribe(instance, flowGraph.getNode(nodeId));
+            }
+        }
+        for (String nodeId : previous) {
+            if (!current.contains(nodeId)) {
+                eventSubscriptionIndex.unsubscribe(instance.getId(), nodeId);
+            }
+        }
+    }
+
+    private static Set<String> eventNodeIds(CompiledFlowGraph flowGraph, List<String> activeNodeIds) {
+        Set<String> eventNodeIds = new HashSet<>();
+        for (String nodeId : activeNodeIds) {
+            FlowNode node = flowGraph.getNode(nodeId);
+            if (node != null && NodeType.EVENT.equalsIgnoreCase(node.getType())) {
+                eventNodeIds.add(nodeId);
+            }
+        }
+        return eventNodeIds;
+    }
+
+    /**
+     * 推进结束后更新运行时上下文和事件订阅，并批量保存执行日志
+     * 实例结束或到达检查点时随当前事务写回实例，否则由上下文缓存定时写回；
+     * 节点发布的外部副作用写入发件箱，事务提交后才投递。产生了发件箱消息或定时器时实例必须随同一事务写回，
+     * 否则节点在定时写回前宕机会从旧状态重新推进，重复发布已提交的副作用
+     */
+    private void flush(FlowInstance instance, CompiledFlowGraph flowGraph, InstanceRuntimeContext context,
+                       List<String> previousActiveNodeIds, FlowRunner runner) {
+        syncEventSubscriptions(instance, flowGraph, previousActiveNodeIds, runner.getActiveNodeIds());
+        instanceContextCache.update(context, runner.getVariables(), runner.getActiveNodeIds());
+        if (runner.isCompleted()) {
+            instance.setStatus(InstanceStatus.COMPLETED.getCode());
+            instance.setEndTime(LocalDateTime.now());
+            instanceContextCache.checkpoint(context);
+            flowInstanceRepository.save(instance);
+            instanceContextCache.evictAfterCommit(instance.getId());
+            log.info("流程实例执行完成：instanceId={}", instance.getId());
+        } else if (instanceContextCache.isCheckpointDue(context)
+                || !runner.getOutboxMessages().isEmpty() || !runner.getTimers().isEmpty()) {
+            instanceContextCache.checkpoint(context);
         }
         
-        return null;
+        if (!runner.getExecutionLogs().isEmpty()) {
+            flowExecutionLogRepository.saveAll(runner.getExecutionLogs());
+        }
+        flowTimerScheduler.schedule(runner.getTimers());
+        transactionalOutbox.append(runner.getOutboxMessages());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package com.example.process.engine.impl;
+
+import com.example.process.engine.EventHandler;
+import com.example.process.engine.FlowEngine;
+import com.example.process.engine.device.DeviceCommandSink;
+import com.example.process.model.engine.constant.DeviceActionStatus;
+import com.example.process.model.engine.constant.EventType;
+import com.example.process.model.engine.constant.OutboxStatus;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.repository.DeviceActionRepository;
+import com.example.process.repository.OutboxMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备动作完成事件处理器
+ * 设备动作执行成功后调度器发出 device_action_completed 事件（关联产生该动作的实例和节点），
+ * 节点发出的所有指令都已执行完成（没有尚未登记的发件箱消息，也没有等待执行或执行中的设备动作）时，
+ * 停留在设备动作节点上的令牌以执行结果作为输入沿出边继续推进。
+ */
+@Slf4j
+@Component
+public class DeviceActionCompletionHandler implements EventHandler {
+
+    private static final List<String> UNFINISHED_ACTIONS = List.of(
+            DeviceActionStatus.PENDING.getCode(), DeviceActionStatus.RUNNING.getCode());
+    private static final List<String> UNDELIVERED_MESSAGES = List.of(
+            OutboxStatus.PENDING.getCode(), OutboxStatus.DELIVERING.getCode());
+
+    private final DeviceActionRepository deviceActionRepository;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final ObjectProvider<FlowEngine> flowEngine;
+
+    public DeviceActionCompletionHandler(DeviceActionRepository deviceActionRepository,
+                                         OutboxMessageRepository outboxMessageRepository,
+                                         ObjectProvider<FlowEngine> flowEngine) {
+        this.deviceActionRepository = deviceActionRepository;
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.flowEngine = flowEngine;
+    }
+
+    @Override
+    public boolean handleEvent(FlowEventDTO event) {
+        Long instanceId = event.getFlowInstanceId();
+        String nodeId = event.getNodeId();
+        if (instanceId == null || nodeId == null) {
+            return false;
+        }
+        if (outboxMessageRepository.countByFlowInstanceIdAndNodeIdAndTopicAndStatusIn(
+                instanceId, nodeId, DeviceCommandSink.TOPIC, UNDELIVERED_MESSAGES) > 0
+                || deviceActionRepository.countByFlowInstanceIdAndNodeIdAndStatusIn(
+                instanceId, nodeId, UNFINISHED_ACTIONS) > 0) {
+            log.debug("设备动作节点还有未完成的指令，继续等待：instanceId={}, nodeId={}", instanceId, nodeId);
+            return false;
+        }
+
+        Map<String, Object> input = new HashMap<>();
+        if (event.getEventData() != null) {
+            input.putAll(event.getEventData());
+        }
+        return flowEngine.getObject().resumeNode(instanceId, nodeId, null, input);
+    }
+
+    @Override
+    public String getSupportedEventType() {
+        return EventType.DEVICE_ACTION_COMPLETED.getCode();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.process.engine.impl;
+
+import com.example.process.engine.EventHandler;
+import com.example.process.engine.FlowEngine;
+import com.example.process.engine.graph.CompiledFlowGraph;
+import com.example.process.engine.graph.FlowGraphCache;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.constant.EventType;
+import com.example.process.model.engine.constant.InstanceStatus;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.model.flow.dto.FlowNode;
+import com.example.process.repository.FlowInstanceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 设备动作失败事件处理器
+ * 设备动作重试用尽后调度器发出 device_action_failed 事件（关联产生该动作的实例和节点），
+ * 设备动作节点配置了 errorNodeId 属性时，停留在该节点上的令牌以失败信息作为输入转到错误节点，流程沿错误分支继续；
+ * 未配置时令牌继续停留在设备动作节点，等待人工跳转，事件仍按订阅投递，等待该事件的节点同样可以处理失败。
+ * 令牌已离开设备动作节点（实例已取消、已跳转等）时失败事件不再改变流程。
+ */
+@Slf4j
+@Component
+public class DeviceActionFailureHandler implements EventHandler {
+
+    private final FlowInstanceRepository flowInstanceRepository;
+    private final FlowGraphCache flowGraphCache;
+    private final ObjectProvider<FlowEngine> flowEngine;
+
+    public DeviceActionFailureHandler(FlowInstanceRepository flowInstanceRepository,
+                                      FlowGraphCache flowGraphCache,
+                                      ObjectProvider<FlowEngine> flowEngine) {
+        this.flowInstanceRepository = flowInstanceRepository;
+        this.flowGraphCache = flowGraphCache;
+        this.flowEngine = flowEngine;
+    }
+
+    @Override
+    public boolean handleEvent(FlowEventDTO event) {
+        if (event.getFlowInstanceId() == null || event.getNodeId() == null) {
+            return false;
+        }
+        FlowInstance instance = flowInstanceRepository.findById(event.getFlowInstanceId()).orElse(null);
+        if (instance == null || !InstanceStatus.RUNNING.getCode().equals(instance.getStatus())) {
+            log.warn("设备动作失败，实例不是运行状态，不执行错误分支：instanceId={}, nodeId={}",
+                    event.getFlowInstanceId(), event.getNodeId());
+            return false;
+        }
+        CompiledFlowGraph flowGraph = flowGraphCache.get(instance.getFlowVersionId());
+        FlowNode node = flowGraph.getNode(event.getNodeId());
+        Object errorNodeId = node != null ? DeviceActionNodeExecutor.properties(node).get("errorNodeId") : null;
+        if (errorNodeId == null || !StringUtils.hasText(errorNodeId.toString())) {
+            log.warn("设备动作失败，节点未配置 errorNodeId：instanceId={}, nodeId={}, data={}",
+                    instance.getId(), event.getNodeId(), event.getEventData());
+            return false;
+        }
+
+        Map<String, Object> input = new HashMap<>();
+        if (event.getEventData() != null) {
+            input.putAll(event.getEventData());
+        }
+        input.put("failedNodeId", event.getNodeId());
+        if (!flowEngine.getObject().resumeNode(instance.getId(), event.getNodeId(), errorNodeId.toString(), input)) {
+            return false;
+        }
+        log.info("设备动作失败，转到错误分支：instanceId={}, nodeId={}, errorNodeId={}",
+                instance.getId(), event.getNodeId(), errorNodeId);
+        return true;
+    }
+
+    @Override
+    public String getSupportedEventType() {
+        return EventType.DEVICE_ACTION_FAILED.getCode();
+    }
+}
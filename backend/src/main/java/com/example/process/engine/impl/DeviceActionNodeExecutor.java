@@ -0,0 +1,162 @@
+package com.example.process.engine.impl;
+
+import com.example.process.engine.NodeExecutor;
+import com.example.process.engine.device.DeviceCommandSink;
+import com.example.process.engine.outbox.Outbox;
+import com.example.process.exception.BusinessException;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.flow.constant.NodeType;
+import com.example.process.model.flow.dto.FlowNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备动作节点执行器
+ * 按节点属性（deviceId、deviceType、deviceName、actionType、actionName、parameters、maxRetries、delaySeconds、priority）
+ * 生成设备指令并写入发件箱，指令在引擎事务提交后才登记和下发，事务回滚时不会产生多余的指令。
+ * 属性值为 ${变量名} 时取流程变量的值，优先级未配置时取实例的优先级。
+ * 流程设计器生成的动作节点（type 为 action，properties.actionType 为 deviceControl）带 deviceActions 列表，
+ * 列表中每一项（deviceId、operationId 或 actionType、parameters）生成一条指令，节点级属性作为各项的默认值。
+ * 节点执行后令牌停留在节点上等待设备执行结果：所有指令执行成功后沿出边继续（见 {@link DeviceActionCompletionHandler}），
+ * 动作失败且重试用尽时引擎收到 device_action_failed 事件，配置了 errorNodeId 属性时令牌转到该节点（见 {@link DeviceActionFailureHandler}）。
+ */
+@Slf4j
+@Component
+public class DeviceActionNodeExecutor implements NodeExecutor {
+
+    private static final String[] FIELDS = {
+            "deviceId", "deviceType", "deviceName", "actionType", "actionName", "parameters", "maxRetries",
+            "delaySeconds", "priority"};
+
+    /**
+     * 流程设计器动作节点的设备控制动作类型
+     */
+    private static final String DEVICE_CONTROL = "deviceControl";
+
+    private static final String DEVICE_ACTIONS = "deviceActions";
+
+    @Override
+    public Map<String, Object> execute(FlowInstance instance, FlowNode node, Map<String, Object> input) {
+        throw new BusinessException("设备动作节点需要通过发件箱执行: " + node.getId());
+    }
+
+    @Override
+    public Map<String, Object> execute(FlowInstance instance, FlowNode node, Map<String, Object> input,
+                                       Outbox outbox) {
+        Map<String, Object> properties = properties(node);
+        List<Map<String, Object>> commands = new ArrayList<>();
+        if (properties.get(DEVICE_ACTIONS) instanceof List<?> actions) {
+            if (actions.isEmpty()) {
+                throw new BusinessException("设备动作节点的 deviceActions 为空: " + node.getId());
+            }
+            for (Object action : actions) {
+                if (!(action instanceof Map<?, ?> item)) {
+                    throw new BusinessException("设备动作节点的 deviceActions 格式不正确: " + node.getId());
+                }
+                commands.add(command(instance, node, designerAction(properties, item), input));
+            }
+        } else {
+            commands.add(command(instance, node, properties, input));
+        }
+
+        List<String> deviceIds = new ArrayList<>(commands.size());
+        for (Map<String, Object> command : commands) {
+            String deviceId = command.get("deviceId").toString();
+            outbox.publish(DeviceCommandSink.TOPIC, deviceId, command);
+            deviceIds.add(deviceId);
+            log.debug("设备指令写入发件箱：instanceId={}, nodeId={}, deviceId={}, actionType={}",
+                    instance.getId(), node.getId(), deviceId, command.get("actionType"));
+        }
+
+        Map<String, Object> output = new HashMap<>(input);
+        output.put("deviceId", deviceIds.get(0));
+        output.put("actionType", commands.get(0).get("actionType"));
+        output.put("deviceIds", deviceIds);
+        return output;
+    }
+
+    @Override
+    public String getSupportedNodeType() {
+        return NodeType.DEVICE_ACTION;
+    }
+
+    /**
+     * 是否为流程设计器的设备控制动作节点
+     *
+     * @param node 节点
+     * @return 动作类型为 deviceControl 时返回 true
+     */
+    static boolean isDeviceControl(FlowNode node) {
+        return DEVICE_CONTROL.equals(properties(node).get("actionType"));
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> properties(FlowNode node) {
+        Map<String, Object> properties = node.getProperties();
+        if ((properties == null || (properties.get("deviceId") == null && properties.get(DEVICE_ACTIONS) == null))
+                && node.getData() != null && node.getData().get("properties") instanceof Map) {
+            properties = (Map<String, Object>) node.getData().get("properties");
+        }
+        return properties != null ? properties : Map.of();
+    }
+
+    /**
+     * 生成一条设备指令，缺少 deviceId 或 actionType 时抛出异常
+     */
+    private static Map<String, Object> command(FlowInstance instance, FlowNode node, Map<?, ?> properties,
+                                               Map<String, Object> input) {
+        Map<String, Object> command = new HashMap<>();
+        for (String field : FIELDS) {
+            Object value = resolve(properties.get(field), input);
+            if (value != null) {
+                command.put(field, value);
+            }
+        }
+        if (!hasText(command.get("deviceId")) || !hasText(command.get("actionType"))) {
+            throw new BusinessException("设备动作节点缺少 deviceId 或 actionType: " + node.getId());
+        }
+        command.putIfAbsent("priority", instance.getPriority());
+        return command;
+    }
+
+    /**
+     * 合并设计器 deviceActions 中的一项和节点级属性：项中的 operationId 作为动作类型，
+     * 节点级的 actionType（deviceControl）只表示节点种类，不作为指令的动作类型
+     */
+    private static Map<String, Object> designerAction(Map<String, Object> properties, Map<?, ?> item) {
+        Map<String, Object> merged = new HashMap<>(properties);
+        merged.remove(DEVICE_ACTIONS);
+        if (DEVICE_CONTROL.equals(merged.get("actionType"))) {
+            merged.remove("actionType");
+        }
+        item.forEach((key, value) -> {
+            if (value != null) {
+                merged.put(String.valueOf(key), value);
+            }
+        });
+        if (merged.get("actionType") == null && item.get("operationId") != null) {
+            merged.put("actionType", String.valueOf(item.get("operationId")));
+        }
+        return merged;
+    }
+
+    /**
+     * 解析变量引用 ${name}
+     */
+    private static Object resolve(Object value, Map<String, Object> variables) {
+        if (value instanceof String text && text.startsWith("${") && text.endsWith("}")) {
+            return variables.get(text.substring(2, text.length() - 1).trim());
+        }
+        return value;
+    }
+
+    private static boolean hasText(Object value) {
+        return value != null && StringUtils.hasText(value.toString());
+    }
+}
@@ -0,0 +1,703 @@
+package com.example.process.engine.impl;
+
+import com.example.process.engine.NodeExecutor;
+import com.example.process.engine.condition.CompiledCondition;
+import com.example.process.engine.graph.CompiledFlowGraph;
+import com.example.process.engine.outbox.Outbox;
+import com.example.process.exception.BusinessException;
+import com.example.process.model.engine.FlowExecutionLog;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.FlowTimer;
+import com.example.process.model.engine.OutboxMessage;
+import com.example.process.model.engine.constant.ExecutionStatus;
+import com.example.process.model.engine.constant.ExecutionType;
+import com.example.process.model.engine.constant.OutboxStatus;
+import com.example.process.model.engine.constant.TimerStatus;
+import com.example.process.model.flow.constant.NodeType;
+import com.example.process.model.flow.dto.FlowEdge;
+import com.example.process.model.flow.dto.FlowNode;
+import com.example.process.util.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 流程推进器
+ * 在内存中沿流程图的出边推进令牌，连续执行后继节点，直到所有令牌都停在等待节点、事件节点或结束节点。
+ * 停在配置了延迟的等待节点上的令牌会生成定时器，由调用方持久化并调度；节点执行器发布的发件箱消息同样由调用方持久化。
+ * 设备动作节点执行（发布设备指令）后令牌停留在该节点，等待设备执行结果，由 {@link #resumeNode} 继续推进。
+ * 推进器只操作内存中的变量和活动节点，不访问数据库，由调用方在推进结束后一次性持久化结果。
+ * <p>
+ * 并行网关有多条出边时分叉，各分支在分支线程池上并发执行，每个分支持有分叉时的变量副本并记录自己的写入；
+ * 并行网关有多条入边时汇聚，每个网关一个原子计数器，最后到达的分支触发汇聚节点且只触发一次，
+ * 各分支的写入按汇聚网关入边顺序合并。
+ * 分支线程不继承调用线程的事务和其他线程绑定的资源：第一条分支在调用线程上执行，处于引擎事务中，其余分支不在。
+ * 节点执行器因此不能在执行中直接读写数据库或依赖事务同步，需要持久化的结果通过返回值和发件箱交回，
+ * 由调用方在推进结束后于引擎事务中统一写入，事务回滚时分支的结果一并丢弃。
+ * <p>
+ * 每个实例是单次推进使用的有状态对象，由一个调用线程驱动。
+ */
+@Slf4j
+public class FlowRunner {
+
+    /**
+     * 单次推进允许执行的最大节点数，防止无等待节点的环路导致死循环
+     */
+    private static final int MAX_STEPS = 10000;
+
+    /**
+     * 当前线程是否为分支线程，分支线程内的嵌套分叉直接在本线程顺序执行，避免占满线程池后互相等待
+     */
+    private static final ThreadLocal<Boolean> IN_BRANCH = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final FlowInstance instance;
+    private final CompiledFlowGraph graph;
+    private final Scope rootScope;
+    private final List<String> activeNodeIds;
+    private final Function<String, NodeExecutor> executorResolver;
+    private final Executor branchExecutor;
+    private Function<String, Object> virtualVariables;
+
+    private final List<FlowExecutionLog> executionLogs = Collections.synchronizedList(new ArrayList<>());
+    private final List<FlowTimer> timers = Collections.synchronizedList(new ArrayList<>());
+    private final List<OutboxMessage> outboxMessages = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, JoinState> joins = new ConcurrentHashMap<>();
+    private final AtomicInteger steps = new AtomicInteger();
+    private volatile boolean endReached;
+
+    /**
+     * 创建顺序执行分支的推进器
+     *
+     * @param instance         流程实例
+     * @param graph            编译后的流程图
+     * @param variables        流程变量（推进过程中直接修改）
+     * @param activeNodeIds    当前活动节点（推进过程中直接修改）
+     * @param executorResolver 根据节点类型查找节点执行器
+     */
+    public FlowRunner(FlowInstance instance, CompiledFlowGraph graph, Map<String, Object> variables,
+                      List<String> activeNodeIds, Function<String, NodeExecutor> executorResolver) {
+        this(instance, graph, variables, activeNodeIds, executorResolver, null);
+    }
+
+    /**
+     * @param instance         流程实例
+     * @param graph            编译后的流程图
+     * @param variables        流程变量（推进过程中直接修改）
+     * @param activeNodeIds    当前活动节点（推进过程中直接修改）
+     * @param executorResolver 根据节点类型查找节点执行器
+     * @param branchExecutor   并行分支线程池，为null时分支在调用线程上顺序执行
+     */
+    public FlowRunner(FlowInstance instance, CompiledFlowGraph graph, Map<String, Object> variables,
+                      List<String> activeNodeIds, Function<String, NodeExecutor> executorResolver,
+                      Executor branchExecutor) {
+        this.instance = instance;
+        this.graph = graph;
+        this.rootScope = new Scope(variables);
+        this.activeNodeIds = activeNodeIds;
+        this.executorResolver = executorResolver;
+        this.branchExecutor = branchExecutor;
+    }
+
+    /**
+     * 设置条件求值时使用的虚拟变量，流程变量中不存在的变量从这里查找
+     *
+     * @param virtualVariables 虚拟变量解析
+     */
+    public void setVirtualVariables(Function<String, Object> virtualVariables) {
+        this.virtualVariables = virtualVariables;
+    }
+
+    /**
+     * 令牌到达节点并推进到等待状态
+     * 等待节点和事件节点只记录为活动节点，不执行
+     *
+     * @param nodeId 节点ID
+     */
+    public void enterNode(String nodeId) {
+        Deque<Token> pending = new ArrayDeque<>();
+        pending.add(new Token(nodeId, null));
+        drain(rootScope, pending);
+        settleJoins();
+    }
+
+    /**
+     * 执行指定节点并推进到等待状态
+     * 如果该节点是活动节点（例如停在等待节点的令牌），执行后将其移出活动节点
+     *
+     * @param nodeId 节点ID
+     * @param input  输入参数
+     * @return 该节点的执行结果
+     */
+    public Map<String, Object> executeNode(String nodeId, Map<String, Object> input) {
+        FlowNode node = requireNode(nodeId);
+        synchronized (activeNodeIds) {
+            activeNodeIds.remove(nodeId);
+        }
+        if (input != null) {
+            rootScope.putAll(input);
+        }
+
+        Deque<Token> pending = new ArrayDeque<>();
+        Map<String, Object> result = execute(rootScope, node);
+        if (awaitsResult(node)) {
+            await(node);
+        } else if (isEndNode(node)) {
+            endReached = true;
+        } else {
+            advance(rootScope, node, pending);
+        }
+        drain(rootScope, pending);
+        settleJoins();
+        return result;
+    }
+
+    /**
+     * 令牌离开停留的节点继续推进，不再执行该节点
+     * 用于等待结果的节点（如设备动作节点）收到结果后继续：未指定下一个节点时沿该节点的出边推进，
+     * 否则令牌转到指定节点（如设备动作失败时的错误分支），不会在原节点上留下令牌
+     *
+     * @param nodeId     令牌停留的节点ID
+     * @param nextNodeId 下一个节点ID，为null时沿出边推进
+     * @param input      输入参数
+     */
+    public void resumeNode(String nodeId, String nextNodeId, Map<String, Object> input) {
+        FlowNode node = requireNode(nodeId);
+        removeActive(nodeId, 1);
+        if (input != null) {
+            rootScope.putAll(input);
+        }
+
+        Deque<Token> pending = new ArrayDeque<>();
+        if (nextNodeId != null) {
+            pending.add(new Token(requireNode(nextNodeId).getId(), null));
+        } else {
+            advance(rootScope, node, pending);
+        }
+        drain(rootScope, pending);
+        settleJoins();
+    }
+
+    /**
+     * 推进是否已经结束整个流程（没有剩余活动节点且到达过结束节点或无出边的节点）
+     *
+     * @return 是否已完成
+     */
+    public boolean isCompleted() {
+        return activeNodeIds.isEmpty() && endReached;
+    }
+
+    /**
+     * 获取推进后的活动节点
+     *
+     * @return 活动节点ID列表
+     */
+    public List<String> getActiveNodeIds() {
+        return activeNodeIds;
+    }
+
+    /**
+     * 获取推进后的流程变量
+     *
+     * @return 流程变量
+     */
+    public Map<String, Object> getVariables() {
+        return rootScope.values;
+    }
+
+    /**
+     * 获取推进过程中产生的执行日志（尚未持久化）
+     *
+     * @return 执行日志
+     */
+    public List<FlowExecutionLog> getExecutionLogs() {
+        return executionLogs;
+    }
+
+    /**
+     * 获取推进过程中新建的定时器（尚未持久化）
+     *
+     * @return 定时器
+     */
+    public List<FlowTimer> getTimers() {
+        return timers;
+    }
+
+    /**
+     * 获取推进过程中节点执行器发布的发件箱消息（尚未持久化）
+     *
+     * @return 发件箱消息
+     */
+    public List<OutboxMessage> getOutboxMessages() {
+        return outboxMessages;
+    }
+
+    /**
+     * 获取本次推进执行的节点数
+     *
+     * @return 节点数
+     */
+    public int getSteps() {
+        return steps.get();
+    }
+
+    /**
+     * 判断节点是否为等待状态节点（令牌到达后停留，等待外部触发）
+     *
+     * @param node 节点
+     * @return 是否为等待状态节点
+     */
+    public static boolean isWaitState(FlowNode node) {
+        return NodeType.WAIT.equalsIgnoreCase(node.getType()) || NodeType.DELAY.equalsIgnoreCase(node.getType())
+                || NodeType.EVENT.equalsIgnoreCase(node.getType());
+    }
+
+    /**
+     * 获取等待节点配置的延迟秒数（properties.delaySeconds，设计器保存在 data.properties 中）
+     *
+     * @param node 节点
+     * @return 延迟秒数，未配置时为0
+     */
+    @SuppressWarnings("unchecked")
+    public static long getDelaySeconds(FlowNode node) {
+        Object value = node.getProperties() != null ? node.getProperties().get("delaySeconds") : null;
+        if (value == null && node.getData() != null && node.getData().get("properties") instanceof Map) {
+            value = ((Map<String, Object>) node.getData().get("properties")).get("delaySeconds");
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return 0L;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * 判断节点是否在执行后等待结果（设备动作节点），令牌停留到结果返回
+     *
+     * @param node 节点
+     * @return 是否等待结果
+     */
+    public static boolean awaitsResult(FlowNode node) {
+        return NodeType.DEVICE_ACTION.equalsIgnoreCase(executorType(node));
+    }
+
+    private static boolean isEndNode(FlowNode node) {
+        return NodeType.END.equalsIgnoreCase(node.getType());
+    }
+
+    private static boolean isParallelGateway(FlowNode node) {
+        return NodeType.PARALLEL_GATEWAY.equalsIgnoreCase(node.getType());
+    }
+
+    /**
+     * 节点对应的执行器类型：流程设计器的设备控制动作节点（type 为 action）按设备动作节点执行
+     */
+    private static String executorType(FlowNode node) {
+        if (NodeType.ACTION.equalsIgnoreCase(node.getType()) && DeviceActionNodeExecutor.isDeviceControl(node)) {
+            return NodeType.DEVICE_ACTION;
+        }
+        return node.getType();
+    }
+
+    private void drain(Scope scope, Deque<Token> pending) {
+        Token token;
+        while ((token = pending.poll()) != null) {
+            FlowNode node = requireNode(token.nodeId);
+            if (isWaitState(node)) {
+                park(node);
+                continue;
+            }
+
+            // 汇聚网关：未到齐的令牌在此结束，最后到达的令牌继续执行网关
+            if (isParallelGateway(node) && graph.getIncomingEdges(node.getId()).length > 1
+                    && !arrive(scope, node, token.via)) {
+                continue;
+            }
+
+            execute(scope, node);
+            if (awaitsResult(node)) {
+                await(node);
+                continue;
+            }
+            if (isEndNode(node)) {
+                endReached = true;
+                continue;
+            }
+            advance(scope, node, pending);
+        }
+    }
+
+    /**
+     * 令牌停留在等待节点，配置了延迟的节点同时登记定时器
+     */
+    private void park(FlowNode node) {
+        await(node);
+
+        long delaySeconds = getDelaySeconds(node);
+        if (delaySeconds > 0) {
+            FlowTimer timer = new FlowTimer();
+            timer.setFlowInstanceId(instance.getId());
+            timer.setNodeId(node.getId());
+            timer.setDueTime(LocalDateTime.now().plusSeconds(delaySeconds));
+            timer.setStatus(TimerStatus.PENDING.getCode());
+            timers.add(timer);
+        }
+    }
+
+    /**
+     * 令牌停留在节点上等待外部触发
+     */
+    private void await(FlowNode node) {
+        addActive(node.getId(), 1);
+        executionLogs.add(newLog(node, ExecutionType.NODE_EXECUTION, ExecutionStatus.WAITING, 0L));
+    }
+
+    private Map<String, Object> execute(Scope scope, FlowNode node) {
+        if (steps.incrementAndGet() > MAX_STEPS) {
+            throw new BusinessException("流程推进步数超过上限，可能存在没有等待节点的环路: " + node.getId());
+        }
+
+        NodeExecutor executor = executorResolver.apply(executorType(node));
+        if (executor == null) {
+            throw new BusinessException("找不到节点类型 [" + node.getType() + "] 的执行器");
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, Object> result;
+        try {
+            result = executor.execute(instance, node, new HashMap<>(scope.values), outboxFor(node));
+        } catch (Exception e) {
+            log.error("执行节点时发生错误: instanceId={}, nodeId={}", instance.getId(), node.getId(), e);
+            throw new BusinessException("执行节点时发生错误: " + e.getMessage(), e);
+        }
+
+        if (result != null && !result.isEmpty()) {
+            scope.putAll(result);
+        }
+        ExecutionType type = isEndNode(node) ? ExecutionType.FLOW_END : ExecutionType.NODE_EXECUTION;
+        executionLogs.add(newLog(node, type, ExecutionStatus.SUCCESS, System.currentTimeMillis() - start));
+        return result;
+    }
+
+    /**
+     * 节点的发件箱，消息记录发布节点，推进结束后由调用方保存
+     */
+    private Outbox outboxFor(FlowNode node) {
+        return (topic, messageKey, payload) -> {
+            OutboxMessage message = new OutboxMessage();
+            message.setTopic(topic);
+            message.setMessageKey(messageKey);
+            message.setFlowInstanceId(instance.getId());
+            message.setNodeId(node.getId());
+            message.setPayload(JsonUtils.toJsonString(payload));
+            message.setStatus(OutboxStatus.PENDING.getCode());
+            outboxMessages.add(message);
+        };
+    }
+
+    /**
+     * 沿出边推进令牌
+     * 并行网关无条件走所有出边，排他网关和条件节点只走第一条满足条件的边，其他节点走所有满足条件的边
+     */
+    private void advance(Scope scope, FlowNode node, Deque<Token> pending) {
+        FlowEdge[] edges = graph.getOutgoingEdges(node.getId());
+        if (edges.length == 0) {
+            // 没有出边的节点视为隐式结束
+            endReached = true;
+            return;
+        }
+
+        if (isParallelGateway(node)) {
+            if (edges.length == 1) {
+                pending.add(new Token(edges[0].getTarget(), edges[0]));
+            } else {
+                fork(scope, edges);
+            }
+            return;
+        }
+
+        boolean exclusive = NodeType.EXCLUSIVE_GATEWAY.equalsIgnoreCase(node.getType())
+                || NodeType.CONDITION.equalsIgnoreCase(node.getType());
+        CompiledCondition[] conditions = graph.getOutgoingConditions(node.getId());
+        boolean moved = false;
+        for (int i = 0; i < edges.length; i++) {
+            FlowEdge edge = edges[i];
+            if (conditions[i] != null && !conditions[i].evaluate(scope.values, virtualVariables)) {
+                continue;
+            }
+            pending.add(new Token(edge.getTarget(), edge));
+            moved = true;
+            if (exclusive) {
+                break;
+            }
+        }
+
+        if (!moved) {
+            // 没有满足条件的出边，令牌停留在当前节点，等待变量更新后重新执行或人工跳转
+            log.warn("节点没有满足条件的出边，令牌停留：instanceId={}, nodeId={}", instance.getId(), node.getId());
+            addActive(node.getId(), 1);
+        }
+    }
+
+    /**
+     * 并行分叉
+     * 第一条分支在当前线程执行，其余分支提交到分支线程池；全部结束后按出边顺序把分支写入合并回当前作用域，
+     * 触发过汇聚的分支已经包含其他分支的写入，最后合并
+     */
+    private void fork(Scope scope, FlowEdge[] edges) {
+        Scope[] branches = new Scope[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            branches[i] = new Scope(new HashMap<>(scope.values));
+        }
+
+        if (branchExecutor == null || IN_BRANCH.get()) {
+            for (int i = 0; i < edges.length; i++) {
+                runBranch(branches[i], edges[i]);
+            }
+        } else {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(edges.length - 1);
+            for (int i = 1; i < edges.length; i++) {
+                Scope branch = branches[i];
+                FlowEdge edge = edges[i];
+                futures.add(CompletableFuture.runAsync(() -> {
+                    IN_BRANCH.set(Boolean.TRUE);
+                    try {
+                        runBranch(branch, edge);
+                    } finally {
+                        IN_BRANCH.remove();
+                    }
+                }, branchExecutor));
+            }
+            RuntimeException failure = null;
+            try {
+                runBranch(branches[0], edges[0]);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause()
+                                : new BusinessException("并行分支执行失败: " + e.getCause().getMessage(), e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        for (Scope branch : branches) {
+            if (!branch.firedJoin) {
+                scope.putAll(branch.writes);
+            }
+        }
+        for (Scope branch : branches) {
+            if (branch.firedJoin) {
+                scope.putAll(branch.writes);
+            }
+        }
+    }
+
+    private void runBranch(Scope branch, FlowEdge edge) {
+        Deque<Token> pending = new ArrayDeque<>();
+        pending.add(new Token(edge.getTarget(), edge));
+        drain(branch, pending);
+    }
+
+    /**
+     * 令牌到达汇聚网关
+     *
+     * @return 是否由该令牌触发汇聚（每轮只有一个令牌返回true）
+     */
+    private boolean arrive(Scope scope, FlowNode node, FlowEdge via) {
+        FlowEdge[] incoming = graph.getIncomingEdges(node.getId());
+        JoinState join = joins.computeIfAbsent(node.getId(),
+                id -> new JoinState(countActive(id), incoming.length));
+
+        int order = incoming.length;
+        for (int i = 0; i < incoming.length; i++) {
+            if (incoming[i] == via) {
+                order = i;
+                break;
+            }
+        }
+        join.stash(order, scope.writes);
+
+        int arrived = join.arrivals.incrementAndGet();
+        if (join.parked + arrived != join.expected) {
+            return false;
+        }
+
+        // 最后一个令牌到达：消耗之前停留在网关上的令牌，并按入边顺序合并各分支写入
+        removeActive(node.getId(), join.parked);
+        for (Map<String, Object> delta : join.orderedDeltas()) {
+            scope.putAll(delta);
+        }
+        scope.firedJoin = true;
+        join.fired = true;
+        return true;
+    }
+
+    /**
+     * 推进结束后，未触发汇聚的令牌作为活动节点停留在汇聚网关上
+     */
+    private void settleJoins() {
+        joins.forEach((nodeId, join) -> {
+            int arrived = join.arrivals.get();
+            int waiting = join.fired ? join.parked + arrived - join.expected : arrived;
+            addActive(nodeId, waiting);
+        });
+        joins.clear();
+    }
+
+    private int countActive(String nodeId) {
+        synchronized (activeNodeIds) {
+            int count = 0;
+            for (String id : activeNodeIds) {
+                if (id.equals(nodeId)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private void addActive(String nodeId, int count) {
+        synchronized (activeNodeIds) {
+            for (int i = 0; i < count; i++) {
+                activeNodeIds.add(nodeId);
+            }
+        }
+    }
+
+    private void removeActive(String nodeId, int count) {
+        synchronized (activeNodeIds) {
+            for (int i = 0; i < count; i++) {
+                activeNodeIds.remove(nodeId);
+            }
+        }
+    }
+
+    private FlowNode requireNode(String nodeId) {
+        FlowNode node = graph.getNode(nodeId);
+        if (node == null) {
+            throw new BusinessException("找不到节点: " + nodeId);
+        }
+        return node;
+    }
+
+    private FlowExecutionLog newLog(FlowNode node, ExecutionType type, ExecutionStatus status, long duration) {
+        FlowExecutionLog executionLog = new FlowExecutionLog();
+        executionLog.setFlowInstanceId(instance.getId());
+        executionLog.setNodeId(node.getId());
+        executionLog.setNodeType(node.getType());
+        executionLog.setNodeName(node.getName());
+        executionLog.setExecutionType(type.getCode());
+        executionLog.setStatus(status.getCode());
+        executionLog.setExecutionTime(LocalDateTime.now());
+        executionLog.setDuration(duration);
+        executionLog.setExecutorType("system");
+        return executionLog;
+    }
+
+    /**
+     * 待处理令牌
+     */
+    private static final class Token {
+        private final String nodeId;
+        private final FlowEdge via;
+
+        private Token(String nodeId, FlowEdge via) {
+            this.nodeId = nodeId;
+            this.via = via;
+        }
+    }
+
+    /**
+     * 变量作用域：根作用域即流程变量，每个并行分支有自己的作用域
+     * 只记录值真正发生变化的写入，避免透传输入的执行器把分叉时的旧值写回
+     */
+    private static final class Scope {
+        private final Map<String, Object> values;
+        private final Map<String, Object> writes = new LinkedHashMap<>();
+        private boolean firedJoin;
+
+        private Scope(Map<String, Object> values) {
+            this.values = values;
+        }
+
+        private void putAll(Map<String, Object> changes) {
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                if (!values.containsKey(entry.getKey()) || !Objects.equals(values.get(entry.getKey()), entry.getValue())) {
+                    values.put(entry.getKey(), entry.getValue());
+                    writes.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * 汇聚网关状态（单次推进内）
+     */
+    private static final class JoinState {
+        /**
+         * 推进开始前已停留在网关上的令牌数
+         */
+        private final int parked;
+        /**
+         * 触发汇聚所需的令牌数（入边数）
+         */
+        private final int expected;
+        private final AtomicInteger arrivals = new AtomicInteger();
+        private final List<Arrival> deltas = new ArrayList<>();
+        private volatile boolean fired;
+
+        private JoinState(int parked, int expected) {
+            this.parked = parked;
+            this.expected = expected;
+        }
+
+        private synchronized void stash(int order, Map<String, Object> writes) {
+            deltas.add(new Arrival(order, new LinkedHashMap<>(writes)));
+        }
+
+        private synchronized List<Map<String, Object>> orderedDeltas() {
+            List<Arrival> sorted = new ArrayList<>(deltas);
+            sorted.sort(Comparator.comparingInt(arrival -> arrival.order));
+            List<Map<String, Object>> result = new ArrayList<>(sorted.size());
+            for (Arrival arrival : sorted) {
+                result.add(arrival.writes);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 到达汇聚网关的分支写入，order 为入边下标
+     */
+    private static final class Arrival {
+        private final int order;
+        private final Map<String, Object> writes;
+
+        private Arrival(int order, Map<String, Object> writes) {
+            this.order = order;
+            this.writes = writes;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.process.engine.lease;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.event.EventPipeline;
+import com.example.process.model.engine.FlowEvent;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 未处理事件的重新投递
+ * 定期领取没有节点持有租约的未处理事件（写入节点宕机、租约过期、处理中断），交给本节点的事件流水线处理。
+ * 多个节点同时轮询时每个事件只被一个节点领取；流水线已满时归还剩余事件，由下一次轮询或其他节点领取。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "process.engine.lease", name = "redelivery-enabled", havingValue = "true",
+        matchIfMissing = true)
+public class EventRedeliveryPoller {
+
+    private final LeaseManager leaseManager;
+    private final EventPipeline eventPipeline;
+    private final EngineProperties.Lease properties;
+
+    public EventRedeliveryPoller(LeaseManager leaseManager, EventPipeline eventPipeline,
+                                 EngineProperties engineProperties) {
+        this.leaseManager = leaseManager;
+        this.eventPipeline = eventPipeline;
+        this.properties = engineProperties.getLease();
+    }
+
+    /**
+     * 领取一批事件并投递到事件流水线
+     */
+    @Scheduled(fixedDelayString = "${process.engine.lease.redelivery-interval-ms:5000}")
+    public void poll() {
+        List<FlowEvent> events;
+        try {
+            events = leaseManager.claimEvents(properties.getRedeliveryBatchSize());
+        } catch (RuntimeException e) {
+            log.error("领取未处理事件失败", e);
+            return;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<Long> unpublished = new ArrayList<>();
+        for (FlowEvent event : events) {
+            if (!unpublished.isEmpty() || eventPipeline.tryPublish(FlowEventDTO.fromEntity(event)) == null) {
+                unpublished.add(event.getId());
+            }
+        }
+        if (!unpublished.isEmpty()) {
+            leaseManager.releaseEvents(unpublished);
+        }
+        log.info("重新投递未处理事件：{} 个，流水线已满归还 {} 个", events.size() - unpublished.size(), unpublished.size());
+    }
+}
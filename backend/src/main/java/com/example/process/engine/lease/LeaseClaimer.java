@@ -0,0 +1,310 @@
+package com.example.process.engine.lease;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 基于租约的工作队列
+ * 多个节点轮询同一张表时，每个节点用 SELECT ... FOR UPDATE SKIP LOCKED 在一个事务中锁定一批可领取的行，
+ * 写入租约持有者和到期时间后提交：并发的领取跳过已被锁定的行，同一行只会被一个节点领取。
+ * 处理完成后由持有者写入最终状态并清除租约；持有者宕机或超时未完成时租约到期，行可以被重新领取，
+ * 投递次数达到上限的行标记为失败，不再投递。完成、续约和归还只对当前仍持有租约的行生效，
+ * 租约被其他节点接管后原持有者的写入被忽略；写入时即持有租约的就绪行（lease_owner 已填写）同样适用。
+ * 配置了互斥列时（如设备ID），同一值的行同一时间只由一个持有者领取：领取事务按值获取事务级咨询锁，
+ * 获取后再用新的语句确认没有其他持有者的有效租约。并发的领取事务看不到彼此未提交的租约，
+ * 只靠领取语句中的条件判断会让两个节点同时领取同一设备的不同动作。
+ * 配置了分区列时（按时间范围分区的表），领取只查找该列在回看范围内的行，查询只扫描覆盖该范围的分区，
+ * 早于回看范围仍未处理的行不再领取。
+ * 表需要有 status、lease_owner、lease_expire_time、delivery_count、updated_at、is_deleted 列。
+ * 不依赖 Spring 容器，同一个 JVM 中可以创建多个领取者模拟多个节点。
+ */
+@Slf4j
+public class LeaseClaimer {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String table;
+    private final String readyStatus;
+    private final String leasedStatus;
+    private final String deadStatus;
+    private final String readyCondition;
+    private final String exclusiveColumn;
+    private final String partitionColumn;
+    private final long lookbackSeconds;
+    private final String orderBy;
+    private final String completionTimeColumn;
+    private final String owner;
+    private final long leaseSeconds;
+    private final int maxDeliveries;
+
+    /**
+     * @param jdbcTemplate         JDBC 模板
+     * @param transactionTemplate  事务模板
+     * @param table                表名
+     * @param readyStatus          可领取状态
+     * @param leasedStatus         已领取状态
+     * @param deadStatus           投递次数用尽后的状态
+     * @param readyCondition       可领取行的附加条件（SQL，可为空），如计划时间已到
+     * @param exclusiveColumn      互斥列（可为空），该列同一值的行同一时间只由一个持有者领取
+     * @param partitionColumn      分区列（可为空），领取时按回看范围限定该列以裁剪分区
+     * @param lookbackSeconds      分区列的回看范围（秒）
+     * @param orderBy              领取顺序（SQL）
+     * @param completionTimeColumn 完成时写入完成时间的列
+     * @param owner                租约持有者（节点标识）
+     * @param leaseSeconds         租约时长（秒）
+     * @param maxDeliveries        最大投递次数
+     */
+    public LeaseClaimer(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        String table,
+                        String readyStatus,
+                        String leasedStatus,
+                        String deadStatus,
+                        String readyCondition,
+                        String exclusiveColumn,
+                        String partitionColumn,
+                        long lookbackSeconds,
+                        String orderBy,
+                        String completionTimeColumn,
+                        String owner,
+                        long leaseSeconds,
+                        int maxDeliveries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.table = table;
+        this.readyStatus = readyStatus;
+        this.leasedStatus = leasedStatus;
+        this.deadStatus = deadStatus;
+        this.readyCondition = readyCondition != null ? " AND (" + readyCondition + ")" : "";
+        this.exclusiveColumn = exclusiveColumn;
+        this.partitionColumn = partitionColumn;
+        this.lookbackSeconds = Math.max(1, lookbackSeconds);
+        this.orderBy = orderBy;
+        this.completionTimeColumn = completionTimeColumn;
+        this.owner = owner;
+        this.leaseSeconds = Math.max(1, leaseSeconds);
+        this.maxDeliveries = Math.max(1, maxDeliveries);
+    }
+
+    /**
+     * 领取一批行：租约到期且投递次数用尽的行先标记为失败，再按顺序锁定可领取的行并写入租约
+     * 可领取的行包括未领取（或租约已过期）的就绪行和租约已过期的已领取行
+     *
+     * @param limit 最多领取的数量
+     * @return 领取到的行ID（按领取顺序）
+     */
+    public List<Long> claim(int limit) {
+        return claim(limit, null);
+    }
+
+    /**
+     * 领取一批满足附加条件的行
+     *
+     * @param limit     最多领取的数量
+     * @param condition 本次领取的附加条件（SQL，可为空），如只领取属于当前节点的实例的行
+     * @return 领取到的行ID（按领取顺序）
+     */
+    public List<Long> claim(int limit, String condition) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            // 分区列条件使用绑定参数，规划时即可裁剪分区
+            String window = partitionColumn != null ? " AND " + partitionColumn + " >= ?" : "";
+            List<Object> deadArgs = new ArrayList<>(List.of(deadStatus, now, readyStatus, leasedStatus, now,
+                    maxDeliveries));
+            if (partitionColumn != null) {
+                // 子查询和外层更新各限定一次
+                deadArgs.add(partitionLowerBound(now));
+                deadArgs.add(partitionLowerBound(now));
+            }
+            int dead = jdbcTemplate.update("UPDATE " + table + " SET status = ?, lease_owner = NULL, " +
+                            "lease_expire_time = NULL, updated_at = ? WHERE id IN (SELECT id FROM " + table +
+                            " WHERE status IN (?, ?) AND lease_expire_time < ? AND delivery_count >= ?" + window +
+                            " FOR UPDATE SKIP LOCKED)" + window,
+                    deadArgs.toArray());
+            if (dead > 0) {
+                log.warn("{} 投递次数达到上限，标记为 {}：{} 行", table, deadStatus, dead);
+            }
+
+            String claimable = "FROM " + table + " WHERE is_deleted = false " +
+                    "AND ((status = ? AND (lease_expire_time IS NULL OR lease_expire_time < ?)) " +
+                    "OR (status = ? AND lease_expire_time < ?))" + window + readyCondition +
+                    (condition != null ? " AND (" + condition + ")" : "") + " ORDER BY " + orderBy +
+                    " LIMIT ? FOR UPDATE SKIP LOCKED";
+            List<Object> claimArgs = new ArrayList<>(List.of(readyStatus, now, leasedStatus, now));
+            if (partitionColumn != null) {
+                claimArgs.add(partitionLowerBound(now));
+            }
+            claimArgs.add(limit);
+            List<Long> claimed = exclusiveColumn == null
+                    ? jdbcTemplate.queryForList("SELECT id " + claimable, Long.class, claimArgs.toArray())
+                    : exclusive(jdbcTemplate.queryForList("SELECT id, " + exclusiveColumn + " AS exclusive_key " +
+                            claimable, claimArgs.toArray()), now);
+            if (!claimed.isEmpty()) {
+                List<Object> args = new ArrayList<>(claimed.size() + 5);
+                args.add(leasedStatus);
+                args.add(owner);
+                args.add(Timestamp.valueOf(now.toLocalDateTime().plusSeconds(leaseSeconds)));
+                args.add(now);
+                args.addAll(claimed);
+                if (partitionColumn != null) {
+                    args.add(partitionLowerBound(now));
+                }
+                jdbcTemplate.update("UPDATE " + table + " SET status = ?, lease_owner = ?, lease_expire_time = ?, " +
+                        "delivery_count = COALESCE(delivery_count, 0) + 1, updated_at = ? WHERE id IN (" +
+                        placeholders(claimed.size()) + ")" + window, args.toArray());
+            }
+            return claimed;
+        });
+        return ids != null ? ids : Collections.emptyList();
+    }
+
+    /**
+     * 续约：处理时间可能超过租约时长时，持有者定期调用
+     *
+     * @param ids 行ID列表
+     * @return 续约成功的行ID，其余行的租约已被其他节点接管或已完成
+     */
+    public List<Long> renew(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> args = new ArrayList<>(ids.size() + 3);
+        args.add(Timestamp.valueOf(LocalDateTime.now().plusSeconds(leaseSeconds)));
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.addAll(ids);
+        args.add(owner);
+        return jdbcTemplate.queryForList("UPDATE " + table + " SET lease_expire_time = ?, updated_at = ? WHERE id IN (" +
+                placeholders(ids.size()) + ") AND lease_owner = ? RETURNING id", Long.class, args.toArray());
+    }
+
+    /**
+     * 完成：写入最终状态和完成时间并清除租约
+     *
+     * @param ids    行ID列表
+     * @param status 最终状态
+     * @return 更新数量，租约已被其他节点接管的行不更新
+     */
+    public int complete(List<Long> ids, String status) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return updateOwned("status = ?, " + completionTimeColumn + " = ?, lease_owner = NULL, lease_expire_time = NULL",
+                ids, status, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 归还：未处理的行恢复为就绪状态，立即可以被重新领取
+     *
+     * @param ids 行ID列表
+     * @return 归还数量
+     */
+    public int release(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return updateOwned("status = ?, lease_owner = NULL, lease_expire_time = NULL", ids, readyStatus);
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * 获取领取时分区列的下界：本次调用之后领取到的行，分区列都不早于该时间
+     *
+     * @return 下界，未配置分区列时返回 null
+     */
+    public LocalDateTime partitionLowerBound() {
+        return partitionColumn != null ? LocalDateTime.now().minusSeconds(lookbackSeconds) : null;
+    }
+
+    /**
+     * 获取从现在开始的租约到期时间
+     *
+     * @return 到期时间
+     */
+    public LocalDateTime nextExpireTime() {
+        return LocalDateTime.now().plusSeconds(leaseSeconds);
+    }
+
+    /**
+     * 在领取事务中筛选互斥列的值：获取每个值的事务级咨询锁，获取成功后确认没有其他持有者的有效租约
+     * 咨询锁持有到领取事务提交，其他节点的领取事务在此之前无法获取同一个值；
+     * 确认语句在获取锁之后开始，能看到此前已提交的其他节点的租约
+     *
+     * @param rows 候选行（id、exclusive_key，按领取顺序）
+     * @return 可以领取的行ID（按领取顺序）
+     */
+    private List<Long> exclusive(List<Map<String, Object>> rows, Timestamp now) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Map<String, Object> row : rows) {
+            Object key = row.get("exclusive_key");
+            if (key != null) {
+                keys.add(key.toString());
+            }
+        }
+        Set<String> available = new HashSet<>();
+        if (!keys.isEmpty()) {
+            String[] values = keys.toArray(new String[0]);
+            available.addAll(jdbcTemplate.query(connection -> {
+                // 单个 bigint 键的咨询锁与分区管理器使用的两个 int 键的咨询锁互不冲突
+                PreparedStatement ps = connection.prepareStatement("SELECT k FROM unnest(?::text[]) AS k " +
+                        "WHERE pg_try_advisory_xact_lock((hashtext(?)::bigint << 32) | (hashtext(k)::bigint & 4294967295))");
+                ps.setArray(1, connection.createArrayOf("text", values));
+                ps.setString(2, table);
+                return ps;
+            }, (rs, rowNum) -> rs.getString(1)));
+        }
+        if (!available.isEmpty()) {
+            String[] values = available.toArray(new String[0]);
+            available.removeAll(jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("SELECT DISTINCT " + exclusiveColumn + " FROM " +
+                        table + " WHERE " + exclusiveColumn + " = ANY(?::text[]) AND status = ? AND lease_owner <> ? " +
+                        "AND lease_expire_time >= ?");
+                ps.setArray(1, connection.createArrayOf("text", values));
+                ps.setString(2, leasedStatus);
+                ps.setString(3, owner);
+                ps.setTimestamp(4, now);
+                return ps;
+            }, (rs, rowNum) -> rs.getString(1)));
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Object key = row.get("exclusive_key");
+            if (key == null || available.contains(key.toString())) {
+                ids.add(((Number) row.get("id")).longValue());
+            }
+        }
+        if (ids.size() < rows.size()) {
+            log.debug("{} 跳过其他节点正在领取或持有的 {}：{} 行", table, exclusiveColumn, rows.size() - ids.size());
+        }
+        return ids;
+    }
+
+    private Timestamp partitionLowerBound(Timestamp now) {
+        return Timestamp.valueOf(now.toLocalDateTime().minusSeconds(lookbackSeconds));
+    }
+
+    private int updateOwned(String assignments, List<Long> ids, Object... values) {
+        List<Object> args = new ArrayList<>(values.length + ids.size() + 3);
+        Collections.addAll(args, values);
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.addAll(ids);
+        args.add(owner);
+        return jdbcTemplate.update("UPDATE " + table + " SET " + assignments + ", updated_at = ? WHERE id IN (" +
+                placeholders(ids.size()) + ") AND lease_owner = ?", args.toArray());
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.process.engine.lease;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.cluster.InstanceOwnership;
+import com.example.process.model.engine.DeviceAction;
+import com.example.process.model.engine.FlowEvent;
+import com.example.process.model.engine.constant.DeviceActionStatus;
+import com.example.process.model.engine.constant.EventStatus;
+import com.example.process.repository.DeviceActionRepository;
+import com.example.process.repository.FlowEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 事件和设备动作的领取入口
+ * 多个节点轮询未处理的事件和等待执行的设备动作时，通过 {@link LeaseClaimer} 领取，同一行只交给一个节点处理。
+ * 租约持有者取 process.engine.lease.owner，未配置时取集群节点ID，再未配置时由主机名和进程号生成。
+ * 设备动作领取时跳过其他节点持有有效租约或正在领取的设备，同一设备的动作由一个节点串行执行。
+ * 集群模式下关联了实例的事件只由实例所在节点领取，其他节点转交或归还的事件因此会到达实例所在节点。
+ * 事件表按发生时间分区，领取和加载事件时限定发生时间不早于回看范围（process.engine.lease.event-lookback-hours），只扫描最近的分区。
+ */
+@Component
+public class LeaseManager {
+
+    /**
+     * 优先级排序（历史数据中的优先级是自由文本，与 {@code Priority.parse} 的识别规则一致）
+     */
+    private static final String PRIORITY_ORDER = "CASE WHEN priority IN ('high', 'HIGH', '高', '1') THEN 0 " +
+            "WHEN priority IN ('low', 'LOW', '低', '3') THEN 2 ELSE 1 END";
+
+    private final FlowEventRepository flowEventRepository;
+    private final DeviceActionRepository deviceActionRepository;
+    private final InstanceOwnership instanceOwnership;
+    private final LeaseClaimer eventClaimer;
+    private final LeaseClaimer actionClaimer;
+
+    public LeaseManager(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        EngineProperties engineProperties,
+                        FlowEventRepository flowEventRepository,
+                        DeviceActionRepository deviceActionRepository,
+                        InstanceOwnership instanceOwnership) {
+        this.flowEventRepository = flowEventRepository;
+        this.deviceActionRepository = deviceActionRepository;
+        this.instanceOwnership = instanceOwnership;
+        EngineProperties.Lease properties = engineProperties.getLease();
+        String owner = resolveOwner(engineProperties);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventClaimer = new LeaseClaimer(jdbcTemplate, transactionTemplate, "flow_event",
+                EventStatus.PENDING.getCode(), EventStatus.PROCESSING.getCode(), EventStatus.FAILED.getCode(),
+                null, null, "occurrence_time", TimeUnit.HOURS.toSeconds(properties.getEventLookbackHours()),
+                PRIORITY_ORDER + ", occurrence_time, id", "processing_time",
+                owner, properties.getLeaseSeconds(), properties.getMaxDeliveries());
+        this.actionClaimer = new LeaseClaimer(jdbcTemplate, transactionTemplate, "device_action",
+                DeviceActionStatus.PENDING.getCode(), DeviceActionStatus.RUNNING.getCode(),
+                DeviceActionStatus.FAILED.getCode(),
+                "(scheduled_time IS NULL OR scheduled_time <= LOCALTIMESTAMP) AND NOT EXISTS (SELECT 1 FROM " +
+                        "device_action o WHERE o.device_id = device_action.device_id AND o.status = '" +
+                        DeviceActionStatus.RUNNING.getCode() + "' AND o.lease_owner <> '" + owner.replace("'", "''") +
+                        "' AND o.lease_expire_time >= LOCALTIMESTAMP)",
+                "device_id", null, 0, PRIORITY_ORDER + ", scheduled_time NULLS FIRST, id", "completion_time",
+                owner, properties.getLeaseSeconds(), properties.getMaxDeliveries());
+    }
+
+    /**
+     * 领取未处理的事件
+     *
+     * @param limit 最多领取的数量
+     * @return 事件列表（按优先级和发生时间排序）
+     */
+    public List<FlowEvent> claimEvents(int limit) {
+        String owned = instanceOwnership.ownedInstancesCondition("flow_instance_id");
+        String condition = owned != null ? "flow_instance_id IS NULL OR " + owned : null;
+        // 下界在领取之前取得，领取到的事件发生时间都不早于它
+        LocalDateTime since = eventClaimer.partitionLowerBound();
+        return load(eventClaimer.claim(limit, condition), ids -> flowEventRepository.findAllByIdSince(ids, since),
+                FlowEvent::getId);
+    }
+
+    /**
+     * 完成已领取的事件
+     *
+     * @param ids    事件ID列表
+     * @param status 处理结果
+     * @return 更新数量，租约已被其他节点接管的事件不更新
+     */
+    public int completeEvents(List<Long> ids, EventStatus status) {
+        return eventClaimer.complete(ids, status.getCode());
+    }
+
+    /**
+     * 归还未处理的事件，立即可以被重新领取
+     *
+     * @param ids 事件ID列表
+     * @return 归还数量
+     */
+    public int releaseEvents(List<Long> ids) {
+        return eventClaimer.release(ids);
+    }
+
+    /**
+     * 事件续约
+     *
+     * @param ids 事件ID列表
+     * @return 续约成功的事件ID
+     */
+    public List<Long> renewEvents(List<Long> ids) {
+        return eventClaimer.renew(ids);
+    }
+
+    /**
+     * 领取计划时间已到的设备动作
+     *
+     * @param limit 最多领取的数量
+     * @return 设备动作列表（按优先级和计划时间排序）
+     */
+    public List<DeviceAction> claimActions(int limit) {
+        return load(actionClaimer.claim(limit), deviceActionRepository::findAllById, DeviceAction::getId);
+    }
+
+    /**
+     * 完成已领取的设备动作
+     *
+     * @param ids    设备动作ID列表
+     * @param status 执行结果
+     * @return 更新数量，租约已被其他节点接管的动作不更新
+     */
+    public int completeActions(List<Long> ids, DeviceActionStatus status) {
+        return actionClaimer.complete(ids, status.getCode());
+    }
+
+    /**
+     * 归还未执行的设备动作，立即可以被重新领取
+     *
+     * @param ids 设备动作ID列表
+     * @return 归还数量
+     */
+    public int releaseActions(List<Long> ids) {
+        return actionClaimer.release(ids);
+    }
+
+    /**
+     * 设备动作续约
+     *
+     * @param ids 设备动作ID列表
+     * @return 续约成功的设备动作ID
+     */
+    public List<Long> renewActions(List<Long> ids) {
+        return actionClaimer.renew(ids);
+    }
+
+    /**
+     * 获取租约持有者
+     *
+     * @return 当前节点的租约持有者标识
+     */
+    public String getOwner() {
+        return eventClaimer.getOwner();
+    }
+
+    /**
+     * 获取从现在开始的租约到期时间
+     *
+     * @return 到期时间
+     */
+    public LocalDateTime nextExpireTime() {
+        return eventClaimer.nextExpireTime();
+    }
+
+    /**
+     * 按ID加载并保持领取顺序
+     */
+    private static <T> List<T> load(List<Long> ids, Function<List<Long>, List<T>> finder, Function<T, Long> idOf) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, T> byId = new HashMap<>();
+        for (T entity : finder.apply(ids)) {
+            byId.put(idOf.apply(entity), entity);
+        }
+        List<T> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    private static String resolveOwner(EngineProperties engineProperties) {
+        if (StringUtils.hasText(engineProperties.getLease().getOwner())) {
+            return engineProperties.getLease().getOwner();
+        }
+        if (StringUtils.hasText(engineProperties.getCluster().getNodeId())) {
+            return engineProperties.getCluster().getNodeId();
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "engine";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
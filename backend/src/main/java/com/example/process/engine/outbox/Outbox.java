@@ -0,0 +1,20 @@
+package com.example.process.engine.outbox;
+
+import java.util.Map;
+
+/**
+ * 发件箱
+ * 节点执行器不直接调用外部系统，而是把副作用作为消息写入发件箱：消息随实例状态在同一事务中持久化，
+ * 事务提交后由 {@link OutboxRelay} 投递，回滚时消息一并丢弃。
+ */
+public interface Outbox {
+
+    /**
+     * 发布消息
+     *
+     * @param topic      主题，对应一个 {@link OutboxSink}
+     * @param messageKey 消息键（如设备ID），可为空
+     * @param payload    消息内容
+     */
+    void publish(String topic, String messageKey, Map<String, Object> payload);
+}
@@ -0,0 +1,157 @@
+package com.example.process.engine.outbox;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.lease.LeaseClaimer;
+import com.example.process.engine.lease.LeaseManager;
+import com.example.process.model.engine.OutboxMessage;
+import com.example.process.model.engine.constant.OutboxStatus;
+import com.example.process.repository.OutboxMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 发件箱中继
+ * 一个后台线程分批领取待投递的消息，按主题分组交给对应的 {@link OutboxSink}，成功后标记为已投递。
+ * 引擎事务提交后立即唤醒，空闲时按轮询间隔检查，补投其他节点遗留和租约到期的消息。
+ * 领取通过 {@link LeaseClaimer} 完成，多个节点同时运行中继时每条消息只由一个节点投递；
+ * 投递失败的消息保持领取状态，租约到期后重新投递，投递次数达到上限后标记为失败。
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final EngineProperties.Outbox properties;
+    private final LeaseClaimer claimer;
+    private final Map<String, OutboxSink> sinks = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       EngineProperties engineProperties,
+                       LeaseManager leaseManager,
+                       OutboxMessageRepository outboxMessageRepository,
+                       ObjectProvider<OutboxSink> sinkProvider) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.properties = engineProperties.getOutbox();
+        this.claimer = new LeaseClaimer(jdbcTemplate, new TransactionTemplate(transactionManager), "engine_outbox",
+                OutboxStatus.PENDING.getCode(), OutboxStatus.DELIVERING.getCode(), OutboxStatus.FAILED.getCode(),
+                null, null, null, 0, "id", "delivered_time", leaseManager.getOwner(),
+                properties.getLeaseSeconds(), properties.getMaxDeliveries());
+        sinkProvider.orderedStream().forEach(this::registerSink);
+    }
+
+    /**
+     * 注册投递目标，同一主题后注册的覆盖先注册的
+     *
+     * @param sink 投递目标
+     */
+    public void registerSink(OutboxSink sink) {
+        if (sink != null && StringUtils.hasText(sink.getTopic())) {
+            sinks.put(sink.getTopic(), sink);
+            log.info("注册发件箱投递目标: {}", sink.getTopic());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "flow-outbox-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 唤醒中继（有新消息提交时调用）
+     */
+    public void wakeUp() {
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    /**
+     * 领取并投递一批消息
+     *
+     * @return 领取的消息数量
+     */
+    public int relayOnce() {
+        List<Long> ids = claimer.claim(properties.getBatchSize());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Map<Long, OutboxMessage> byId = new HashMap<>();
+        for (OutboxMessage message : outboxMessageRepository.findAllById(ids)) {
+            byId.put(message.getId(), message);
+        }
+        Map<String, List<OutboxMessage>> byTopic = new LinkedHashMap<>();
+        for (Long id : ids) {
+            OutboxMessage message = byId.get(id);
+            if (message != null) {
+                byTopic.computeIfAbsent(message.getTopic(), t -> new ArrayList<>()).add(message);
+            }
+        }
+
+        byTopic.forEach((topic, messages) -> {
+            List<Long> messageIds = messages.stream().map(OutboxMessage::getId).toList();
+            OutboxSink sink = sinks.get(topic);
+            if (sink == null) {
+                log.error("发件箱主题 [{}] 没有投递目标，{} 条消息标记为失败", topic, messages.size());
+                claimer.complete(messageIds, OutboxStatus.FAILED.getCode());
+                return;
+            }
+            try {
+                sink.deliver(messages);
+                claimer.complete(messageIds, OutboxStatus.DELIVERED.getCode());
+            } catch (Exception e) {
+                log.warn("发件箱投递失败，租约到期后重试：topic={}, 消息 {} 条, {}", topic, messages.size(), e.getMessage());
+            }
+        });
+        return ids.size();
+    }
+
+    private void run() {
+        long pollNanos = TimeUnit.MILLISECONDS.toNanos(properties.getPollIntervalMs());
+        while (running) {
+            int relayed;
+            try {
+                relayed = relayOnce();
+            } catch (RuntimeException e) {
+                log.error("发件箱中继失败", e);
+                relayed = 0;
+            }
+            // 取满一批说明还有积压，继续投递；否则等待唤醒或下一次轮询
+            if (relayed < properties.getBatchSize() && running) {
+                LockSupport.parkNanos(this, pollNanos);
+            }
+        }
+    }
+}
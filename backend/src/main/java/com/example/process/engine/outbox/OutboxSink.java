@@ -0,0 +1,27 @@
+package com.example.process.engine.outbox;
+
+import com.example.process.model.engine.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * 发件箱投递目标
+ * 容器中的实现按主题自动注册。投递至少一次：投递中途失败或节点宕机时同一批消息会再次投递，实现需要幂等。
+ */
+public interface OutboxSink {
+
+    /**
+     * 获取处理的主题
+     *
+     * @return 主题
+     */
+    String getTopic();
+
+    /**
+     * 投递一批消息，抛出异常表示整批失败，租约到期后重新投递
+     *
+     * @param messages 同一主题的消息（按写入顺序）
+     * @throws Exception 投递失败
+     */
+    void deliver(List<OutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,47 @@
+package com.example.process.engine.outbox;
+
+import com.example.process.model.engine.OutboxMessage;
+import com.example.process.repository.OutboxMessageRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * 发件箱消息写入
+ * 在调用方事务中保存消息，事务提交后唤醒中继立即投递
+ */
+@Component
+public class TransactionalOutbox {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final OutboxRelay outboxRelay;
+
+    public TransactionalOutbox(OutboxMessageRepository outboxMessageRepository, OutboxRelay outboxRelay) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.outboxRelay = outboxRelay;
+    }
+
+    /**
+     * 保存消息
+     *
+     * @param messages 消息列表
+     */
+    public void append(List<OutboxMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        outboxMessageRepository.saveAll(messages);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxRelay.wakeUp();
+                }
+            });
+        } else {
+            outboxRelay.wakeUp();
+        }
+    }
+}
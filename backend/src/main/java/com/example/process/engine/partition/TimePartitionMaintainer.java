@@ -0,0 +1,124 @@
+package com.example.process.engine.partition;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.engine.constant.EventStatus;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 历史表分区维护
+ * flow_event 按发生时间、flow_execution_log 按执行时间做范围分区。启动时（ddl-auto 建表之后）把普通表改建为分区表，
+ * 之后定期创建未来的分区并删除保留期之外的分区：保留期之外的事件和执行记录随分区整体删除，不逐行删除。
+ * 仍未处理完的事件所在的分区不删除。事件幂等键表不分区，按同一保留期分批删除过期的幂等键。
+ * 保留期默认为 0（不删除任何历史），需要时通过 process.engine.partitioning.events.retention-days 和
+ * process.engine.partitioning.execution-logs.retention-days 开启。
+ * 落入默认分区的行每次维护时按时间移入对应的分区，因此同样受保留期约束。
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@ConditionalOnProperty(prefix = "process.engine.partitioning", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class TimePartitionMaintainer {
+
+    private static final int KEY_DELETE_BATCH_SIZE = 10000;
+
+    /**
+     * 每次维护为默认分区中的行最多新建的分区数量
+     */
+    private static final int ROUTE_BATCH_SIZE = 31;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EngineProperties.Partitioning properties;
+    private final List<TimePartitionedTable> tables;
+
+    public TimePartitionMaintainer(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   EngineProperties engineProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = engineProperties.getPartitioning();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        EngineProperties.PartitionedTable events = properties.getEvents();
+        EngineProperties.PartitionedTable executionLogs = properties.getExecutionLogs();
+        this.tables = List.of(
+                new TimePartitionedTable(jdbcTemplate, transactionTemplate, "flow_event", "occurrence_time",
+                        events.getInterval(), events.getPremake(), events.getRetentionDays(),
+                        "status IN ('" + EventStatus.PENDING.getCode() + "', '" + EventStatus.PROCESSING.getCode() + "')"),
+                new TimePartitionedTable(jdbcTemplate, transactionTemplate, "flow_execution_log", "execution_time",
+                        executionLogs.getInterval(), executionLogs.getPremake(), executionLogs.getRetentionDays(),
+                        null));
+    }
+
+    /**
+     * 改建分区表并创建当前和未来的分区
+     */
+    @PostConstruct
+    public void init() {
+        for (TimePartitionedTable table : tables) {
+            try {
+                table.convert(properties.isConvertExistingTables());
+            } catch (RuntimeException e) {
+                log.error("{} 改建为分区表失败", table.getTable(), e);
+            }
+        }
+        maintain();
+    }
+
+    /**
+     * 创建未来的分区，删除过期的分区和幂等键
+     */
+    @Scheduled(fixedDelayString = "${process.engine.partitioning.maintenance-interval-ms:3600000}",
+            initialDelayString = "${process.engine.partitioning.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        LocalDateTime now = LocalDateTime.now();
+        for (TimePartitionedTable table : tables) {
+            try {
+                int created = table.ensurePartitions(now) + table.routeDefaultRows(ROUTE_BATCH_SIZE);
+                int dropped = table.dropExpired(now);
+                long misplaced = table.countDefaultRows();
+                if (created > 0 || dropped > 0) {
+                    log.info("{} 分区维护完成：新建 {} 个，删除 {} 个", table.getTable(), created, dropped);
+                }
+                if (misplaced > 0) {
+                    log.warn("{} 的默认分区中有 {} 行不属于任何分区", table.getTable(), misplaced);
+                }
+            } catch (RuntimeException e) {
+                log.error("{} 分区维护失败", table.getTable(), e);
+            }
+        }
+        try {
+            purgeIdempotencyKeys(now);
+        } catch (RuntimeException e) {
+            log.error("删除过期的事件幂等键失败", e);
+        }
+    }
+
+    private void purgeIdempotencyKeys(LocalDateTime now) {
+        int retentionDays = properties.getEvents().getRetentionDays();
+        if (retentionDays <= 0) {
+            return;
+        }
+        Timestamp cutoff = Timestamp.valueOf(now.minusDays(retentionDays));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM flow_event_idempotency_key WHERE id IN (SELECT id FROM " +
+                    "flow_event_idempotency_key WHERE created_at < ? LIMIT ?)", cutoff, KEY_DELETE_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == KEY_DELETE_BATCH_SIZE);
+        if (total > 0) {
+            log.info("删除过期的事件幂等键 {} 个", total);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.process.engine.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按时间范围分区的表
+ * 表按时间列做 PostgreSQL 声明式范围分区，每个分区覆盖一天或一个月，分区名为 {表名}_p{yyyyMMdd|yyyyMM}，
+ * 另有一个默认分区接收没有对应分区的行。提前创建未来的分区，保留期之外的分区整体删除，不逐行删除。
+ * 默认分区本身不按保留期删除，其中的行（改建前的历史数据、时间超出已建分区的行）由 {@link #routeDefaultRows}
+ * 按时间建立对应的分区并移入，之后与其他分区一样按保留期删除。
+ * 表由 ddl-auto 按实体建为普通表，{@link #convert} 把它改建为分区表：主键改为 (id, 时间列)，
+ * ID 改由序列生成，非唯一索引在分区表上重建，不含时间列的唯一索引无法在分区表上保留。
+ * 结构变更在事务中持有咨询锁执行，多个节点同时维护同一张表时依次进行。
+ * 不依赖 Spring 容器。
+ */
+@Slf4j
+public class TimePartitionedTable {
+
+    /**
+     * 咨询锁命名空间，锁键为表名的哈希
+     */
+    private static final int LOCK_NAMESPACE = 0x50415254;
+    private static final DateTimeFormatter DAY_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String table;
+    private final String column;
+    private final ChronoUnit interval;
+    private final int premake;
+    private final int retentionDays;
+    private final String retainCondition;
+
+    /**
+     * @param jdbcTemplate        JDBC 模板
+     * @param transactionTemplate 事务模板
+     * @param table               表名
+     * @param column              分区键（时间列）
+     * @param interval            分区跨度：day 或 month
+     * @param premake             提前创建的分区数量（不含当前分区）
+     * @param retentionDays       保留天数，0 表示不删除
+     * @param retainCondition     分区中存在满足条件的行时不删除该分区（SQL，可为空），如尚未处理的事件
+     */
+    public TimePartitionedTable(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                String table,
+                                String column,
+                                String interval,
+                                int premake,
+                                int retentionDays,
+                                String retainCondition) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.table = table;
+        this.column = column;
+        this.interval = parseInterval(interval);
+        this.premake = Math.max(0, premake);
+        this.retentionDays = Math.max(0, retentionDays);
+        this.retainCondition = retainCondition;
+    }
+
+    /**
+     * 表是否已经是分区表
+     *
+     * @return 是否分区表，表不存在时返回 false
+     */
+    public boolean isPartitioned() {
+        return "p".equals(relkind(table));
+    }
+
+    /**
+     * 把普通表改建为分区表
+     * 空表直接改建；已有数据时只有 convertExisting 为 true 才改建，按数据的时间范围建分区并复制数据，
+     * 复制期间持有表锁，应在维护窗口执行
+     *
+     * @param convertExisting 是否改建已有数据的表
+     * @return 是否改建（已是分区表时返回 false）
+     */
+    public boolean convert(boolean convertExisting) {
+        if (!"r".equals(relkind(table))) {
+            return false;
+        }
+        Boolean converted = transactionTemplate.execute(status -> {
+            lock();
+            if (!"r".equals(relkind(table))) {
+                return false;
+            }
+            Boolean hasRows = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + table + ")", Boolean.class);
+            if (Boolean.TRUE.equals(hasRows) && !convertExisting) {
+                log.warn("{} 已有数据，未改建为分区表；在维护窗口开启 convert-existing-tables 后重启完成改建", table);
+                return false;
+            }
+
+            List<String> indexes = new ArrayList<>();
+            for (Map<String, Object> index : jdbcTemplate.queryForList("SELECT c.relname AS name, " +
+                    "pg_get_indexdef(i.indexrelid) AS definition, i.indisprimary AS is_primary, i.indisunique AS is_unique " +
+                    "FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE i.indrelid = to_regclass(?)", table)) {
+                if (Boolean.TRUE.equals(index.get("is_primary"))) {
+                    continue;
+                }
+                if (Boolean.TRUE.equals(index.get("is_unique"))) {
+                    log.warn("{} 的唯一索引 {} 不含分区键，改建为分区表后不再保留", table, index.get("name"));
+                    continue;
+                }
+                indexes.add((String) index.get("definition"));
+            }
+
+            String legacy = table + "_legacy";
+            jdbcTemplate.execute("ALTER TABLE " + table + " RENAME TO " + legacy);
+            jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE " + legacy + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) " +
+                    "PARTITION BY RANGE (" + column + ")");
+            jdbcTemplate.execute("CREATE TABLE " + table + "_default PARTITION OF " + table + " DEFAULT");
+            if (Boolean.TRUE.equals(hasRows)) {
+                Map<String, Object> range = jdbcTemplate.queryForMap("SELECT min(" + column + ") AS lo, max(" + column +
+                        ") AS hi FROM " + legacy);
+                LocalDateTime start = truncate(((Timestamp) range.get("lo")).toLocalDateTime());
+                LocalDateTime end = ((Timestamp) range.get("hi")).toLocalDateTime();
+                for (LocalDateTime lo = start; !lo.isAfter(end); lo = lo.plus(1, interval)) {
+                    createPartition(lo);
+                }
+            }
+            int copied = jdbcTemplate.update("INSERT INTO " + table + " SELECT * FROM " + legacy);
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(max(id), 0) FROM " + legacy, Long.class);
+            // 原表的 ID 若由 serial 序列生成，复制来的默认值依赖原表的序列，删除原表之前先去掉
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id DROP DEFAULT");
+            jdbcTemplate.execute("DROP TABLE " + legacy);
+
+            // 分区表不支持标识列（PostgreSQL 17 之前），ID 由序列默认值生成
+            String sequence = table + "_id_seq";
+            jdbcTemplate.execute("CREATE SEQUENCE " + sequence + " OWNED BY " + table + ".id");
+            jdbcTemplate.queryForObject("SELECT setval(?, ?, false)", Long.class, sequence, maxId + 1);
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + table + "_pkey PRIMARY KEY (id, " + column + ")");
+            indexes.forEach(jdbcTemplate::execute);
+            log.info("{} 已改建为按 {} 分区的表，复制 {} 行，重建索引 {} 个", table, column, copied, indexes.size());
+            return true;
+        });
+        return Boolean.TRUE.equals(converted);
+    }
+
+    /**
+     * 创建当前和未来的分区
+     *
+     * @param now 当前时间
+     * @return 新建的分区数量
+     */
+    public int ensurePartitions(LocalDateTime now) {
+        if (!isPartitioned()) {
+            return 0;
+        }
+        int created = 0;
+        LocalDateTime current = truncate(now);
+        for (int i = 0; i <= premake; i++) {
+            if (create(current.plus(i, interval))) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 为默认分区中的行建立对应的分区，行随之移入新分区
+     * 每次只处理时间最早的若干个分区范围，其余的留到下次维护
+     *
+     * @param limit 最多新建的分区数量
+     * @return 新建的分区数量
+     */
+    public int routeDefaultRows(int limit) {
+        if (limit <= 0 || !isPartitioned() || relkind(table + "_default") == null) {
+            return 0;
+        }
+        List<Timestamp> starts = jdbcTemplate.queryForList("SELECT DISTINCT date_trunc('" +
+                (interval == ChronoUnit.DAYS ? "day" : "month") + "', " + column + ") AS lo FROM " + table +
+                "_default WHERE " + column + " IS NOT NULL ORDER BY lo LIMIT ?", Timestamp.class, limit);
+        int created = 0;
+        for (Timestamp start : starts) {
+            if (create(start.toLocalDateTime())) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 删除保留期之外的分区
+     * 分区的上界不晚于截止时间时整个分区过期；存在满足保留条件的行时跳过，下次维护再检查
+     *
+     * @param now 当前时间
+     * @return 删除的分区数量
+     */
+    public int dropExpired(LocalDateTime now) {
+        if (retentionDays == 0 || !isPartitioned()) {
+            return 0;
+        }
+        LocalDateTime cutoff = now.minusDays(retentionDays);
+        int dropped = 0;
+        for (String partition : listPartitions()) {
+            LocalDateTime lo = parsePartitionStart(partition);
+            if (lo == null || lo.plus(1, interval).isAfter(cutoff)) {
+                continue;
+            }
+            Boolean result = transactionTemplate.execute(status -> {
+                lock();
+                if (relkind(partition) == null) {
+                    return false;
+                }
+                if (retainCondition != null && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE " + retainCondition + ")", Boolean.class))) {
+                    log.warn("分区 {} 已过保留期，但仍有需要保留的行，暂不删除", partition);
+                    return false;
+                }
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                return true;
+            });
+            if (Boolean.TRUE.equals(result)) {
+                log.info("删除过期分区 {}", partition);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * 获取表的分区（不含默认分区）
+     *
+     * @return 分区名（按时间升序）
+     */
+    public List<String> listPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass(?) AND c.relname LIKE ? ORDER BY c.relname", String.class,
+                table, table + "\\_p%");
+    }
+
+    /**
+     * 获取默认分区中的行数，不为零说明有行的时间落在已建分区之外
+     *
+     * @return 行数
+     */
+    public long countDefaultRows() {
+        if (relkind(table + "_default") == null) {
+            return 0;
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + "_default", Long.class);
+        return count != null ? count : 0;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * 在事务中持有咨询锁创建一个分区，分区已存在或创建失败时返回 false
+     */
+    private boolean create(LocalDateTime lo) {
+        if (relkind(partitionName(lo)) != null) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                lock();
+                return createPartition(lo);
+            }));
+        } catch (DataAccessException e) {
+            // 与已有分区范围重叠（分区跨度调整过）等
+            log.warn("创建分区 {} 失败：{}", partitionName(lo), e.getMostSpecificCause().getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 创建一个分区：默认分区中已有该范围的行时，先把这些行移入新表再挂载为分区
+     *
+     * @param lo 分区下界
+     * @return 是否新建
+     */
+    private boolean createPartition(LocalDateTime lo) {
+        String partition = partitionName(lo);
+        if (relkind(partition) != null) {
+            return false;
+        }
+        Timestamp from = Timestamp.valueOf(lo);
+        Timestamp to = Timestamp.valueOf(lo.plus(1, interval));
+        String bounds = " FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+        String defaultPartition = table + "_default";
+        Boolean misplaced = relkind(defaultPartition) != null && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + defaultPartition + " WHERE " + column + " >= ? AND " + column + " < ?)",
+                Boolean.class, from, to));
+        if (!Boolean.TRUE.equals(misplaced)) {
+            jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + table + bounds);
+            return true;
+        }
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + table + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + defaultPartition + " WHERE " + column +
+                " >= ? AND " + column + " < ? RETURNING *) INSERT INTO " + partition + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + partition + bounds);
+        log.info("创建分区 {}，从默认分区移入 {} 行", partition, moved);
+        return true;
+    }
+
+    private String partitionName(LocalDateTime lo) {
+        return table + "_p" + (interval == ChronoUnit.DAYS ? DAY_SUFFIX : MONTH_SUFFIX).format(lo);
+    }
+
+    private LocalDateTime parsePartitionStart(String partition) {
+        String suffix = partition.substring(table.length() + 2);
+        try {
+            return interval == ChronoUnit.DAYS
+                    ? LocalDate.parse(suffix, DAY_SUFFIX).atStartOfDay()
+                    : LocalDate.parse(suffix + "01", DAY_SUFFIX).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private LocalDateTime truncate(LocalDateTime time) {
+        LocalDate date = time.toLocalDate();
+        return (interval == ChronoUnit.DAYS ? date : date.withDayOfMonth(1)).atStartOfDay();
+    }
+
+    private String relkind(String name) {
+        List<String> kinds = jdbcTemplate.queryForList("SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)",
+                String.class, name);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    private void lock() {
+        jdbcTemplate.queryForObject("SELECT 1 FROM pg_advisory_xact_lock(?, hashtext(?))", Integer.class,
+                LOCK_NAMESPACE, table);
+    }
+
+    private static ChronoUnit parseInterval(String interval) {
+        if ("day".equalsIgnoreCase(interval)) {
+            return ChronoUnit.DAYS;
+        }
+        if ("month".equalsIgnoreCase(interval)) {
+            return ChronoUnit.MONTHS;
+        }
+        throw new IllegalArgumentException("无效的分区跨度: " + interval);
+    }
+}
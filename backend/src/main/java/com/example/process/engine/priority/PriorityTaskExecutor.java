@@ -0,0 +1,275 @@
+package com.example.process.engine.priority;
+
+import com.example.process.model.engine.constant.Priority;
+import com.example.process.model.engine.dto.PriorityQueueStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多级优先级线程池
+ * 每个优先级一个有界先进先出队列，工作线程总是先取优先级高的任务；
+ * 任务每等待一个老化周期，出队时按提升一级比较，低优先级任务在持续的高优先级负载下仍能推进。
+ * 并发按优先级预留：为高优先级预留的线程不执行更低优先级的任务，低优先级任务占满其余线程时，高优先级任务仍能立即执行。
+ * 队列已满时拒绝提交（{@link RejectedExecutionException}），由调用方决定如何响应。
+ */
+@Slf4j
+public class PriorityTaskExecutor implements Executor {
+
+    private static final Priority[] LEVELS = Priority.values();
+
+    private final String name;
+    private final int threadCount;
+    private final int queueCapacity;
+    private final long agingNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Level[] levels = new Level[LEVELS.length];
+    private final List<Thread> workers = new ArrayList<>();
+    private boolean shutdown;
+
+    /**
+     * @param name          名称，用作线程名前缀
+     * @param threadCount   工作线程数
+     * @param queueCapacity 每个优先级的队列容量
+     * @param reserved      为各优先级预留的线程数（按 {@link Priority} 声明顺序），只有不低于该优先级的任务能使用
+     * @param agingMs       老化周期（毫秒），为 0 时不老化
+     */
+    public PriorityTaskExecutor(String name, int threadCount, int queueCapacity, int[] reserved, long agingMs) {
+        this.name = name;
+        this.threadCount = Math.max(1, threadCount);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMs);
+        int limit = this.threadCount;
+        for (int i = 0; i < LEVELS.length; i++) {
+            levels[i] = new Level(Math.max(1, limit));
+            if (i < reserved.length) {
+                limit -= reserved[i];
+            }
+        }
+    }
+
+    public void start() {
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(this::work, name + (i + 1));
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+        log.info("优先级线程池已启动：{}，线程 {} 个", name, threadCount);
+    }
+
+    /**
+     * 停止接收任务，等待已提交的任务执行完成
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按中优先级提交任务
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(command, Priority.MEDIUM);
+    }
+
+    /**
+     * 按指定优先级提交任务
+     *
+     * @param command  任务
+     * @param priority 优先级
+     * @throws RejectedExecutionException 该优先级队列已满或线程池已停止
+     */
+    public void execute(Runnable command, Priority priority) {
+        Level level = levels[priority.ordinal()];
+        lock.lock();
+        try {
+            if (shutdown || level.queue.size() >= queueCapacity) {
+                level.rejected++;
+                throw new RejectedExecutionException(name + " " + priority.getCode() + " 队列已满");
+            }
+            level.queue.addLast(new Task(command, System.nanoTime()));
+            level.submitted++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取各优先级的统计
+     *
+     * @return 统计（按优先级从高到低）
+     */
+    public List<PriorityQueueStats> getStats() {
+        List<PriorityQueueStats> stats = new ArrayList<>(LEVELS.length);
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            for (int i = 0; i < LEVELS.length; i++) {
+                Level level = levels[i];
+                PriorityQueueStats item = new PriorityQueueStats();
+                item.setPriority(LEVELS[i].getCode());
+                item.setQueued(level.queue.size());
+                item.setRunning(level.running);
+                item.setConcurrencyLimit(level.limit);
+                item.setSubmitted(level.submitted);
+                item.setCompleted(level.completed);
+                item.setRejected(level.rejected);
+                item.setAged(level.aged);
+                item.setAvgWaitMs(level.dequeued > 0 ? level.totalWaitNanos / 1e6 / level.dequeued : 0);
+                item.setMaxWaitMs(level.maxWaitNanos / 1e6);
+                item.setHeadWaitMs(level.queue.isEmpty() ? 0 : (now - level.queue.peekFirst().enqueuedAt) / 1e6);
+                stats.add(item);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return stats;
+    }
+
+    private void work() {
+        while (true) {
+            Task task;
+            int index;
+            lock.lock();
+            try {
+                while (true) {
+                    index = select();
+                    if (index >= 0) {
+                        break;
+                    }
+                    if (shutdown && isEmpty()) {
+                        return;
+                    }
+                    available.awaitUninterruptibly();
+                }
+                Level level = levels[index];
+                task = level.queue.pollFirst();
+                level.running++;
+                long waited = System.nanoTime() - task.enqueuedAt;
+                level.dequeued++;
+                level.totalWaitNanos += waited;
+                level.maxWaitNanos = Math.max(level.maxWaitNanos, waited);
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                task.command.run();
+            } catch (Throwable e) {
+                log.error("{} 任务执行失败", name, e);
+            } finally {
+                lock.lock();
+                try {
+                    levels[index].running--;
+                    levels[index].completed++;
+                    // 释放的并发额度可能让其他排队任务可以执行
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 选择下一个执行的优先级（调用方持有锁）
+     * 比较各队列队首任务老化后的优先级，相同时取原优先级高的；
+     * 并发上限限制的是该优先级及所有更低优先级正在执行的任务总数：执行一个任务会占用它和所有更高优先级的额度，
+     * 其中任一额度已用完时跳过，更低优先级的任务不能占用为更高优先级预留的线程
+     *
+     * @return 优先级下标，没有可执行的任务时返回 -1
+     */
+    private int select() {
+        long now = System.nanoTime();
+        int selected = -1;
+        long selectedRank = Long.MAX_VALUE;
+        int running = 0;
+        for (Level level : levels) {
+            running += level.running;
+        }
+        boolean saturated = false;
+        for (int i = 0; i < LEVELS.length; i++) {
+            Level level = levels[i];
+            // running 为该优先级及所有更低优先级正在执行的任务数
+            saturated |= running >= level.limit;
+            running -= level.running;
+            Task head = level.queue.peekFirst();
+            if (head == null || saturated) {
+                continue;
+            }
+            long promoted = agingNanos > 0 ? (now - head.enqueuedAt) / agingNanos : 0;
+            long rank = Math.max(0, i - promoted);
+            if (rank < selectedRank) {
+                selected = i;
+                selectedRank = rank;
+            }
+        }
+        if (selected >= 0 && selectedRank < selected) {
+            levels[selected].aged++;
+        }
+        return selected;
+    }
+
+    private boolean isEmpty() {
+        for (Level level : levels) {
+            if (!level.queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Task {
+
+        private final Runnable command;
+        private final long enqueuedAt;
+
+        private Task(Runnable command, long enqueuedAt) {
+            this.command = command;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static final class Level {
+
+        private final ArrayDeque<Task> queue = new ArrayDeque<>();
+        private final int limit;
+        private int running;
+        private long submitted;
+        private long completed;
+        private long rejected;
+        private long aged;
+        private long dequeued;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private Level(int limit) {
+            this.limit = limit;
+        }
+    }
+}
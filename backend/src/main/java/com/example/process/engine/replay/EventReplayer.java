@@ -0,0 +1,427 @@
+package com.example.process.engine.replay;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.NodeExecutor;
+import com.example.process.engine.graph.FlowGraphCache;
+import com.example.process.engine.window.WindowAggregator;
+import com.example.process.exception.BusinessException;
+import com.example.process.model.engine.FlowEvent;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.constant.SubscriptionType;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.model.engine.dto.ReplayReport;
+import com.example.process.model.engine.dto.ReplayRequest;
+import com.example.process.repository.EventSubscriptionRepository;
+import com.example.process.repository.FlowEventRepository;
+import com.example.process.repository.FlowInstanceRepository;
+import com.example.process.util.JsonUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 事件回放
+ * 按发生时间顺序读取 flow_event 中一个时间范围内的事件，投递到独立的 {@link ReplaySandbox} 中执行，
+ * 用真实流量评估引擎版本：报告吞吐量、单个事件的处理耗时分布，并与同一时间范围内创建的生产实例对比最终状态。
+ * 回放只读取生产数据，沙箱使用容器中的节点执行器，外部副作用经发件箱计数后丢弃，不会下发到设备。
+ * 回放在专用线程上异步执行，同时运行的回放数量有上限，超出时拒绝提交。
+ */
+@Slf4j
+@Component
+public class EventReplayer {
+
+    private static final String DEFAULT_TYPE = "default";
+
+    private final FlowEventRepository flowEventRepository;
+    private final FlowInstanceRepository flowInstanceRepository;
+    private final EventSubscriptionRepository eventSubscriptionRepository;
+    private final FlowGraphCache flowGraphCache;
+    private final EngineProperties engineProperties;
+    private final EngineProperties.Replay properties;
+    private final Map<String, NodeExecutor> nodeExecutors = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor replayExecutor;
+
+    /**
+     * 最近的回放（回放ID到回放），超过保留数量时淘汰最早的已结束回放
+     */
+    private final Map<String, Replay> replays = new LinkedHashMap<>();
+
+    public EventReplayer(FlowEventRepository flowEventRepository,
+                         FlowInstanceRepository flowInstanceRepository,
+                         EventSubscriptionRepository eventSubscriptionRepository,
+                         FlowGraphCache flowGraphCache,
+                         EngineProperties engineProperties,
+                         ObjectProvider<NodeExecutor> nodeExecutorProvider) {
+        this.flowEventRepository = flowEventRepository;
+        this.flowInstanceRepository = flowInstanceRepository;
+        this.eventSubscriptionRepository = eventSubscriptionRepository;
+        this.flowGraphCache = flowGraphCache;
+        this.engineProperties = engineProperties;
+        this.properties = engineProperties.getReplay();
+        nodeExecutorProvider.orderedStream().forEach(executor -> {
+            if (StringUtils.hasText(executor.getSupportedNodeType())) {
+                nodeExecutors.put(executor.getSupportedNodeType().toUpperCase(Locale.ROOT), executor);
+            }
+        });
+        int threads = Math.max(1, properties.getMaxConcurrent());
+        this.replayExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "flow-replay");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 开始回放
+     *
+     * @param request 回放请求
+     * @return 回放报告（运行中）
+     * @throws java.util.concurrent.RejectedExecutionException 同时运行的回放已达上限
+     */
+    public ReplayReport start(ReplayRequest request) {
+        if (request.getStartTime() == null || request.getEndTime() == null
+                || !request.getStartTime().isBefore(request.getEndTime())) {
+            throw new BusinessException("回放时间范围无效");
+        }
+        if (request.getSpeed() < 0) {
+            throw new BusinessException("回放速度不能为负数");
+        }
+        Replay replay = new Replay(UUID.randomUUID().toString(), request);
+        synchronized (replays) {
+            replayExecutor.execute(() -> run(replay));
+            replays.put(replay.report.getId(), replay);
+            evict();
+        }
+        log.info("开始事件回放：id={}, {} ~ {}, speed={}", replay.report.getId(),
+                request.getStartTime(), request.getEndTime(), request.getSpeed());
+        return replay.snapshot();
+    }
+
+    /**
+     * 获取回放报告
+     *
+     * @param id 回放ID
+     * @return 回放报告
+     */
+    public ReplayReport get(String id) {
+        return find(id).snapshot();
+    }
+
+    /**
+     * 获取最近的回放报告
+     *
+     * @return 回放报告（按开始时间）
+     */
+    public List<ReplayReport> list() {
+        synchronized (replays) {
+            return replays.values().stream().map(Replay::snapshot).toList();
+        }
+    }
+
+    /**
+     * 取消回放，已处理部分的统计保留在报告中
+     *
+     * @param id 回放ID
+     * @return 回放报告
+     */
+    public ReplayReport cancel(String id) {
+        Replay replay = find(id);
+        replay.cancelled = true;
+        return replay.snapshot();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (replays) {
+            replays.values().forEach(replay -> replay.cancelled = true);
+        }
+        replayExecutor.shutdownNow();
+    }
+
+    private void run(Replay replay) {
+        ReplayRequest request = replay.request;
+        Set<String> eventTypes = request.getEventTypes() != null && !request.getEventTypes().isEmpty()
+                ? new HashSet<>(request.getEventTypes()) : null;
+        ReplaySandbox sandbox = new ReplaySandbox(flowGraphCache::get, this::resolveNodeExecutor,
+                new WindowAggregator(engineProperties),
+                eventSubscriptionRepository.findBySubscriptionType(SubscriptionType.START.getCode()));
+        LatencySampler latencies = new LatencySampler(properties.getLatencySamples());
+        PageRequest batch = PageRequest.of(0, Math.max(1, properties.getBatchSize()));
+        long startNanos = System.nanoTime();
+        long processingNanos = 0L;
+        LocalDateTime firstEventTime = null;
+        LocalDateTime afterTime = request.getStartTime();
+        long afterId = 0L;
+        try {
+            while (!replay.cancelled) {
+                List<FlowEvent> events = flowEventRepository.findBatchBetween(
+                        request.getStartTime(), request.getEndTime(), afterTime, afterId, batch);
+                for (FlowEvent event : events) {
+                    if (replay.cancelled) {
+                        break;
+                    }
+                    if (eventTypes != null && !eventTypes.contains(event.getEventType())) {
+                        continue;
+                    }
+                    if (firstEventTime == null) {
+                        firstEventTime = event.getOccurrenceTime();
+                    }
+                    if (request.getSpeed() > 0) {
+                        pace(replay, startNanos, Duration.between(firstEventTime, event.getOccurrenceTime()),
+                                request.getSpeed());
+                    }
+                    FlowEventDTO dto = FlowEventDTO.fromEntity(event);
+                    long begin = System.nanoTime();
+                    sandbox.accept(dto);
+                    long elapsed = System.nanoTime() - begin;
+                    processingNanos += elapsed;
+                    latencies.add(elapsed);
+                }
+                synchronized (replay) {
+                    sandbox.fill(replay.report);
+                    replay.report.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                }
+                if (events.size() < batch.getPageSize()) {
+                    break;
+                }
+                FlowEvent last = events.get(events.size() - 1);
+                afterTime = last.getOccurrenceTime();
+                afterId = last.getId();
+            }
+            if (!replay.cancelled) {
+                sandbox.finish(request.getEndTime());
+            }
+
+            ReplayReport.Diff diff = request.isCompareWithProduction() && !replay.cancelled ? compare(sandbox, request) : null;
+            synchronized (replay) {
+                ReplayReport report = replay.report;
+                sandbox.fill(report);
+                long elapsedNanos = System.nanoTime() - startNanos;
+                report.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+                // 尽快回放时按处理耗时计算吞吐量，不包括读库和解析；保持间隔时按墙上时间计算
+                long throughputNanos = request.getSpeed() > 0 ? elapsedNanos : processingNanos;
+                report.setThroughput(throughputNanos > 0 ? report.getEventsRead() * 1e9 / throughputNanos : 0);
+                report.setLatencyP50Us(latencies.percentile(0.50) / 1e3);
+                report.setLatencyP95Us(latencies.percentile(0.95) / 1e3);
+                report.setLatencyP99Us(latencies.percentile(0.99) / 1e3);
+                report.setLatencyMaxUs(latencies.max() / 1e3);
+                report.setDiff(diff);
+                report.setStatus(replay.cancelled ? "cancelled" : "completed");
+                report.setFinishedAt(LocalDateTime.now());
+            }
+            log.info("事件回放结束：id={}, status={}, events={}, elapsedMs={}", replay.report.getId(),
+                    replay.report.getStatus(), replay.report.getEventsRead(), replay.report.getElapsedMs());
+        } catch (RuntimeException e) {
+            log.error("事件回放失败：id={}", replay.report.getId(), e);
+            synchronized (replay) {
+                sandbox.fill(replay.report);
+                replay.report.setStatus("failed");
+                replay.report.setError(e.getMessage());
+                replay.report.setFinishedAt(LocalDateTime.now());
+            }
+        }
+    }
+
+    /**
+     * 保持原始事件间隔：等待到该事件相对第一个事件的偏移（按速度压缩）
+     */
+    private static void pace(Replay replay, long startNanos, Duration offset, double speed) {
+        long target = startNanos + (long) (offset.toNanos() / speed);
+        long remaining;
+        while (!replay.cancelled && (remaining = target - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+        }
+    }
+
+    /**
+     * 与生产实例对比
+     * 按流程把沙箱实例和同一时间范围内创建的生产实例按创建顺序配对，比较状态和活动节点
+     */
+    private ReplayReport.Diff compare(ReplaySandbox sandbox, ReplayRequest request) {
+        Map<Long, List<ReplaySandbox.SandboxInstance>> replayed = new TreeMap<>();
+        for (ReplaySandbox.SandboxInstance instance : sandbox.getInstances()) {
+            replayed.computeIfAbsent(instance.getInstance().getFlowDefinitionId(), k -> new ArrayList<>()).add(instance);
+        }
+        ReplayReport.Diff diff = new ReplayReport.Diff();
+        if (replayed.isEmpty()) {
+            return diff;
+        }
+        Map<Long, List<FlowInstance>> production = new TreeMap<>();
+        for (FlowInstance instance : flowInstanceRepository.findCreatedBetween(replayed.keySet(),
+                request.getStartTime(), request.getEndTime(), PageRequest.of(0, properties.getMaxCompareInstances()))) {
+            production.computeIfAbsent(instance.getFlowDefinitionId(), k -> new ArrayList<>()).add(instance);
+        }
+
+        for (Map.Entry<Long, List<ReplaySandbox.SandboxInstance>> entry : replayed.entrySet()) {
+            List<ReplaySandbox.SandboxInstance> replayInstances = entry.getValue();
+            List<FlowInstance> productionInstances = production.getOrDefault(entry.getKey(), Collections.emptyList());
+            ReplayReport.DefinitionDiff definition = new ReplayReport.DefinitionDiff();
+            definition.setFlowDefinitionId(entry.getKey());
+            replayInstances.forEach(i -> definition.getReplay().merge(i.getInstance().getStatus(), 1L, Long::sum));
+            productionInstances.forEach(i -> definition.getProduction().merge(i.getStatus(), 1L, Long::sum));
+            diff.getDefinitions().add(definition);
+
+            for (int i = 0; i < Math.max(replayInstances.size(), productionInstances.size()); i++) {
+                ReplaySandbox.SandboxInstance replayInstance = i < replayInstances.size() ? replayInstances.get(i) : null;
+                FlowInstance productionInstance = i < productionInstances.size() ? productionInstances.get(i) : null;
+                List<String> productionActive = productionInstance != null
+                        ? activeNodeIds(productionInstance.getActiveNodeIds()) : null;
+                if (replayInstance != null && productionInstance != null
+                        && Objects.equals(replayInstance.getInstance().getStatus(), productionInstance.getStatus())
+                        && new HashSet<>(replayInstance.getActiveNodeIds()).equals(new HashSet<>(productionActive))) {
+                    diff.setMatched(diff.getMatched() + 1);
+                    continue;
+                }
+                diff.setMismatched(diff.getMismatched() + 1);
+                if (diff.getSamples().size() < properties.getDiffSamples()) {
+                    ReplayReport.InstanceDiff sample = new ReplayReport.InstanceDiff();
+                    sample.setFlowDefinitionId(entry.getKey());
+                    if (productionInstance != null) {
+                        sample.setProductionInstanceId(productionInstance.getId());
+                        sample.setProductionStatus(productionInstance.getStatus());
+                        sample.setProductionActiveNodeIds(productionActive);
+                    }
+                    if (replayInstance != null) {
+                        sample.setReplayInstanceId(replayInstance.getInstance().getId());
+                        sample.setReplayStatus(replayInstance.getInstance().getStatus());
+                        sample.setReplayActiveNodeIds(new ArrayList<>(replayInstance.getActiveNodeIds()));
+                    }
+                    diff.getSamples().add(sample);
+                }
+            }
+        }
+        return diff;
+    }
+
+    private static List<String> activeNodeIds(String json) {
+        if (json == null || json.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> nodeIds = JsonUtils.parseArray(json, String.class);
+        return nodeIds != null ? nodeIds : Collections.emptyList();
+    }
+
+    private NodeExecutor resolveNodeExecutor(String nodeType) {
+        NodeExecutor executor = nodeType != null ? nodeExecutors.get(nodeType.toUpperCase(Locale.ROOT)) : null;
+        return executor != null ? executor : nodeExecutors.get(DEFAULT_TYPE.toUpperCase(Locale.ROOT));
+    }
+
+    private Replay find(String id) {
+        synchronized (replays) {
+            Replay replay = replays.get(id);
+            if (replay == null) {
+                throw new BusinessException("回放不存在: " + id);
+            }
+            return replay;
+        }
+    }
+
+    private void evict() {
+        Iterator<Replay> iterator = replays.values().iterator();
+        while (replays.size() > Math.max(1, properties.getRetainedReports()) && iterator.hasNext()) {
+            if (!"running".equals(iterator.next().snapshot().getStatus())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 一次回放
+     */
+    private static final class Replay {
+
+        private final ReplayRequest request;
+        private final ReplayReport report = new ReplayReport();
+        private volatile boolean cancelled;
+
+        private Replay(String id, ReplayRequest request) {
+            this.request = request;
+            report.setId(id);
+            report.setStatus("running");
+            report.setRequest(request);
+            report.setStartedAt(LocalDateTime.now());
+        }
+
+        /**
+         * 报告副本，回放线程仍在更新原报告
+         */
+        private synchronized ReplayReport snapshot() {
+            ReplayReport copy = new ReplayReport();
+            copy.setId(report.getId());
+            copy.setStatus(report.getStatus());
+            copy.setRequest(report.getRequest());
+            copy.setStartedAt(report.getStartedAt());
+            copy.setFinishedAt(report.getFinishedAt());
+            copy.setEventsRead(report.getEventsRead());
+            copy.setEventsDelivered(report.getEventsDelivered());
+            copy.setEventsIgnored(report.getEventsIgnored());
+            copy.setEventsFailed(report.getEventsFailed());
+            copy.setInstancesCreated(report.getInstancesCreated());
+            copy.setInstancesCompleted(report.getInstancesCompleted());
+            copy.setNodesExecuted(report.getNodesExecuted());
+            copy.setTimersFired(report.getTimersFired());
+            copy.setSideEffects(new TreeMap<>(report.getSideEffects()));
+            copy.setElapsedMs(report.getElapsedMs());
+            copy.setThroughput(report.getThroughput());
+            copy.setLatencyP50Us(report.getLatencyP50Us());
+            copy.setLatencyP95Us(report.getLatencyP95Us());
+            copy.setLatencyP99Us(report.getLatencyP99Us());
+            copy.setLatencyMaxUs(report.getLatencyMaxUs());
+            copy.setDiff(report.getDiff());
+            copy.setError(report.getError());
+            return copy;
+        }
+    }
+
+    /**
+     * 耗时采样：蓄水池抽样保留固定数量的样本计算分位数，最大值单独记录
+     */
+    private static final class LatencySampler {
+
+        private final long[] samples;
+        private final Random random = new Random(0x5EED);
+        private long count;
+        private long max;
+
+        private LatencySampler(int capacity) {
+            this.samples = new long[Math.max(1, capacity)];
+        }
+
+        private void add(long nanos) {
+            max = Math.max(max, nanos);
+            if (count < samples.length) {
+                samples[(int) count] = nanos;
+            } else {
+                long index = (long) (random.nextDouble() * (count + 1));
+                if (index < samples.length) {
+                    samples[(int) index] = nanos;
+                }
+            }
+            count++;
+        }
+
+        private double percentile(double p) {
+            int size = (int) Math.min(count, samples.length);
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, (int) Math.ceil(p * size) - 1)];
+        }
+
+        private long max() {
+            return max;
+        }
+    }
+}
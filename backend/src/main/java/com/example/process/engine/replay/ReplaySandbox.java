@@ -0,0 +1,360 @@
+package com.example.process.engine.replay;
+
+import com.example.process.engine.NodeExecutor;
+import com.example.process.engine.event.EventSubscriptionIndex;
+import com.example.process.engine.graph.CompiledFlowGraph;
+import com.example.process.engine.impl.FlowRunner;
+import com.example.process.engine.window.WindowAggregator;
+import com.example.process.model.engine.EventSubscription;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.FlowTimer;
+import com.example.process.model.engine.OutboxMessage;
+import com.example.process.model.engine.constant.InstanceStatus;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.model.engine.dto.ReplayReport;
+import com.example.process.model.flow.constant.NodeType;
+import com.example.process.model.flow.dto.FlowNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 事件回放沙箱
+ * 在内存中运行流程实例：实例、变量、活动节点、事件订阅和定时器只保存在沙箱中，不读写生产数据。
+ * 节点通过 {@link FlowRunner} 在回放线程上顺序推进，节点发布到发件箱的外部副作用（设备指令等）只计数不投递，
+ * 等待设备执行结果的设备动作节点按执行成功立即继续推进。
+ * 定时器按事件时间触发：处理每个事件前先触发到期时间不晚于该事件发生时间的定时器。
+ * 每次推进在变量和活动节点的副本上进行，推进失败时实例保持推进前的状态，与生产中事务回滚的效果一致。
+ * 沙箱由一个回放线程使用，不是线程安全的。
+ */
+@Slf4j
+public class ReplaySandbox {
+
+    private final Function<Long, CompiledFlowGraph> graphs;
+    private final Function<String, NodeExecutor> executorResolver;
+    private final WindowAggregator windowAggregator;
+
+    /**
+     * 索引键到启动流程订阅
+     */
+    private final Map<String, List<EventSubscription>> startTriggers = new HashMap<>();
+
+    /**
+     * 索引键到等待中的实例（实例ID到事件节点ID）
+     */
+    private final Map<String, Map<Long, Set<String>>> waiting = new HashMap<>();
+
+    private final Map<Long, SandboxInstance> instances = new LinkedHashMap<>();
+    private final PriorityQueue<SandboxTimer> timers = new PriorityQueue<>(
+            Comparator.comparing((SandboxTimer timer) -> timer.dueTime).thenComparingLong(timer -> timer.sequence));
+
+    private LocalDateTime currentTime;
+    private long instanceSequence;
+    private long timerSequence;
+
+    private long eventsRead;
+    private long eventsDelivered;
+    private long eventsIgnored;
+    private long eventsFailed;
+    private long instancesCreated;
+    private long instancesCompleted;
+    private long nodesExecuted;
+    private long timersFired;
+    private final Map<String, Long> sideEffects = new TreeMap<>();
+
+    /**
+     * @param graphs           按流程版本ID获取编译后的流程图
+     * @param executorResolver 根据节点类型查找节点执行器
+     * @param windowAggregator 沙箱专用的窗口聚合器
+     * @param startTriggers    启动流程订阅
+     */
+    public ReplaySandbox(Function<Long, CompiledFlowGraph> graphs,
+                         Function<String, NodeExecutor> executorResolver,
+                         WindowAggregator windowAggregator,
+                         List<EventSubscription> startTriggers) {
+        this.graphs = graphs;
+        this.executorResolver = executorResolver;
+        this.windowAggregator = windowAggregator;
+        for (EventSubscription trigger : startTriggers) {
+            this.startTriggers.computeIfAbsent(EventSubscriptionIndex.keyOf(trigger), k -> new ArrayList<>())
+                    .add(trigger);
+        }
+    }
+
+    /**
+     * 处理一个事件
+     *
+     * @param event 事件（按发生时间顺序）
+     */
+    public void accept(FlowEventDTO event) {
+        LocalDateTime occurrenceTime = event.getOccurrenceTime() != null ? event.getOccurrenceTime() : currentTime;
+        if (occurrenceTime != null) {
+            fireTimers(occurrenceTime);
+            currentTime = occurrenceTime;
+        }
+        eventsRead++;
+        windowAggregator.accept(event);
+
+        Map<String, Object> eventData = event.getEventData() != null ? event.getEventData() : Collections.emptyMap();
+        int delivered = 0;
+        int failed = 0;
+        for (String key : EventSubscriptionIndex.matchKeys(
+                event.getEventType(), event.getSourceType(), event.getSourceId())) {
+            for (EventSubscription trigger : startTriggers.getOrDefault(key, Collections.emptyList())) {
+                if (start(trigger, event, eventData)) {
+                    delivered++;
+                } else {
+                    failed++;
+                }
+            }
+            Map<Long, Set<String>> waiters = waiting.get(key);
+            if (waiters == null) {
+                continue;
+            }
+            for (Map.Entry<Long, Set<String>> entry : new ArrayList<>(waiters.entrySet())) {
+                for (String nodeId : new ArrayList<>(entry.getValue())) {
+                    SandboxInstance instance = instances.get(entry.getKey());
+                    if (instance == null || !instance.activeNodeIds.contains(nodeId)) {
+                        continue;
+                    }
+                    if (advance(instance, runner -> runner.executeNode(nodeId, new HashMap<>(eventData)))) {
+                        delivered++;
+                    } else {
+                        failed++;
+                    }
+                }
+            }
+        }
+        if (delivered > 0) {
+            eventsDelivered++;
+        } else if (failed > 0) {
+            eventsFailed++;
+        } else {
+            eventsIgnored++;
+        }
+    }
+
+    /**
+     * 回放结束：触发结束时间之前到期的定时器
+     *
+     * @param endTime 回放范围的结束时间
+     */
+    public void finish(LocalDateTime endTime) {
+        fireTimers(endTime);
+    }
+
+    /**
+     * 把统计写入报告
+     *
+     * @param report 回放报告
+     */
+    public void fill(ReplayReport report) {
+        report.setEventsRead(eventsRead);
+        report.setEventsDelivered(eventsDelivered);
+        report.setEventsIgnored(eventsIgnored);
+        report.setEventsFailed(eventsFailed);
+        report.setInstancesCreated(instancesCreated);
+        report.setInstancesCompleted(instancesCompleted);
+        report.setNodesExecuted(nodesExecuted);
+        report.setTimersFired(timersFired);
+        report.setSideEffects(new TreeMap<>(sideEffects));
+    }
+
+    /**
+     * 获取沙箱中的实例
+     *
+     * @return 实例（按创建顺序）
+     */
+    public Collection<SandboxInstance> getInstances() {
+        return instances.values();
+    }
+
+    private boolean start(EventSubscription trigger, FlowEventDTO event, Map<String, Object> eventData) {
+        CompiledFlowGraph graph;
+        try {
+            graph = graphs.apply(trigger.getFlowVersionId());
+        } catch (RuntimeException e) {
+            log.debug("回放启动流程失败：flowVersionId={}, {}", trigger.getFlowVersionId(), e.getMessage());
+            return false;
+        }
+        FlowNode startNode = graph.getStartNode();
+        if (startNode == null) {
+            return false;
+        }
+
+        FlowInstance instance = new FlowInstance();
+        instance.setId(++instanceSequence);
+        instance.setFlowDefinitionId(trigger.getFlowDefinitionId());
+        instance.setFlowVersionId(trigger.getFlowVersionId());
+        instance.setName("事件触发: " + event.getEventType());
+        instance.setStatus(InstanceStatus.RUNNING.getCode());
+        instance.setPriority(event.getPriority());
+        instance.setStartTime(currentTime);
+        instance.setCreatedAt(currentTime);
+        SandboxInstance sandboxInstance = new SandboxInstance(instance, graph, new HashMap<>(eventData));
+        instances.put(instance.getId(), sandboxInstance);
+        instancesCreated++;
+        return advance(sandboxInstance, runner -> runner.enterNode(startNode.getId()));
+    }
+
+    /**
+     * 在副本上推进实例，成功后替换实例状态并维护订阅和定时器
+     */
+    private boolean advance(SandboxInstance instance, Consumer<FlowRunner> step) {
+        Map<String, Object> variables = new HashMap<>(instance.variables);
+        List<String> activeNodeIds = new ArrayList<>(instance.activeNodeIds);
+        FlowRunner runner = new FlowRunner(instance.instance, instance.graph, variables, activeNodeIds,
+                executorResolver);
+        runner.setVirtualVariables(windowAggregator::resolve);
+        LocalDateTime wallTime = LocalDateTime.now();
+        try {
+            step.accept(runner);
+            String awaiting;
+            while ((awaiting = awaitingNode(instance.graph, activeNodeIds)) != null) {
+                runner.resumeNode(awaiting, null, new HashMap<>());
+            }
+        } catch (RuntimeException e) {
+            log.debug("回放推进失败：instanceId={}, {}", instance.instance.getId(), e.getMessage());
+            return false;
+        }
+
+        nodesExecuted += runner.getSteps();
+        for (OutboxMessage message : runner.getOutboxMessages()) {
+            sideEffects.merge(message.getTopic(), 1L, Long::sum);
+        }
+        // 推进器按墙上时间计算到期时间，换算为事件时间
+        for (FlowTimer timer : runner.getTimers()) {
+            LocalDateTime dueTime = currentTime.plus(Duration.between(wallTime, timer.getDueTime()));
+            timers.add(new SandboxTimer(dueTime, instance.instance.getId(), timer.getNodeId(), ++timerSequence));
+        }
+
+        List<String> previousActiveNodeIds = instance.activeNodeIds;
+        instance.variables = variables;
+        instance.activeNodeIds = activeNodeIds;
+        syncSubscriptions(instance, previousActiveNodeIds);
+        if (runner.isCompleted()) {
+            instance.instance.setStatus(InstanceStatus.COMPLETED.getCode());
+            instance.instance.setEndTime(currentTime);
+            instancesCompleted++;
+        }
+        return true;
+    }
+
+    /**
+     * 查找令牌停留、等待设备执行结果的节点
+     */
+    private static String awaitingNode(CompiledFlowGraph graph, List<String> activeNodeIds) {
+        for (String nodeId : activeNodeIds) {
+            FlowNode node = graph.getNode(nodeId);
+            if (node != null && FlowRunner.awaitsResult(node)) {
+                return nodeId;
+            }
+        }
+        return null;
+    }
+
+    private void fireTimers(LocalDateTime time) {
+        while (!timers.isEmpty() && !timers.peek().dueTime.isAfter(time)) {
+            SandboxTimer timer = timers.poll();
+            SandboxInstance instance = instances.get(timer.instanceId);
+            if (instance == null || !InstanceStatus.RUNNING.getCode().equals(instance.instance.getStatus())
+                    || !instance.activeNodeIds.contains(timer.nodeId)) {
+                continue;
+            }
+            currentTime = timer.dueTime;
+            timersFired++;
+            advance(instance, runner -> runner.executeNode(timer.nodeId, new HashMap<>()));
+        }
+    }
+
+    /**
+     * 新进入的事件节点登记订阅，已离开的移除
+     */
+    private void syncSubscriptions(SandboxInstance instance, List<String> previousActiveNodeIds) {
+        Set<String> current = eventNodeIds(instance.graph, instance.activeNodeIds);
+        for (String nodeId : eventNodeIds(instance.graph, previousActiveNodeIds)) {
+            if (!current.contains(nodeId)) {
+                String key = instance.subscriptions.remove(nodeId);
+                Map<Long, Set<String>> waiters = key != null ? waiting.get(key) : null;
+                if (waiters != null) {
+                    Set<String> nodeIds = waiters.get(instance.instance.getId());
+                    if (nodeIds != null && nodeIds.remove(nodeId) && nodeIds.isEmpty()) {
+                        waiters.remove(instance.instance.getId());
+                    }
+                }
+            }
+        }
+        for (String nodeId : current) {
+            if (instance.subscriptions.containsKey(nodeId)) {
+                continue;
+            }
+            EventSubscription subscription = EventSubscriptionIndex.fromNode(instance.graph.getNode(nodeId));
+            if (subscription != null) {
+                String key = EventSubscriptionIndex.keyOf(subscription);
+                instance.subscriptions.put(nodeId, key);
+                waiting.computeIfAbsent(key, k -> new HashMap<>())
+                        .computeIfAbsent(instance.instance.getId(), k -> new LinkedHashSet<>()).add(nodeId);
+            }
+        }
+    }
+
+    private static Set<String> eventNodeIds(CompiledFlowGraph graph, List<String> activeNodeIds) {
+        Set<String> eventNodeIds = new LinkedHashSet<>();
+        for (String nodeId : activeNodeIds) {
+            FlowNode node = graph.getNode(nodeId);
+            if (node != null && NodeType.EVENT.equalsIgnoreCase(node.getType())) {
+                eventNodeIds.add(nodeId);
+            }
+        }
+        return eventNodeIds;
+    }
+
+    /**
+     * 沙箱中的实例
+     */
+    public static final class SandboxInstance {
+
+        private final FlowInstance instance;
+        private final CompiledFlowGraph graph;
+        private Map<String, Object> variables;
+        private List<String> activeNodeIds = new ArrayList<>();
+
+        /**
+         * 事件节点ID到订阅索引键
+         */
+        private final Map<String, String> subscriptions = new HashMap<>();
+
+        private SandboxInstance(FlowInstance instance, CompiledFlowGraph graph, Map<String, Object> variables) {
+            this.instance = instance;
+            this.graph = graph;
+            this.variables = variables;
+        }
+
+        public FlowInstance getInstance() {
+            return instance;
+        }
+
+        public List<String> getActiveNodeIds() {
+            return activeNodeIds;
+        }
+    }
+
+    private static final class SandboxTimer {
+
+        private final LocalDateTime dueTime;
+        private final Long instanceId;
+        private final String nodeId;
+        private final long sequence;
+
+        private SandboxTimer(LocalDateTime dueTime, Long instanceId, String nodeId, long sequence) {
+            this.dueTime = dueTime;
+            this.instanceId = instanceId;
+            this.nodeId = nodeId;
+            this.sequence = sequence;
+        }
+    }
+}
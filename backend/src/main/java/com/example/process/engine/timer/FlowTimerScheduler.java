@@ -0,0 +1,316 @@
+package com.example.process.engine.timer;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.FlowEngine;
+import com.example.process.engine.cluster.InstanceOwnership;
+import com.example.process.exception.PartitionNotOwnedException;
+import com.example.process.model.engine.FlowTimer;
+import com.example.process.model.engine.constant.TimerStatus;
+import com.example.process.repository.FlowTimerRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流程定时器调度器
+ * 定时器持久化在 flow_timer 表中，内存中只保留即将到期（加载窗口内）的定时器，放在分层时间轮里由一个线程推进。
+ * 加载按到期时间分批进行：每次把窗口向后推一段，用游标分页查询新进入窗口的定时器，
+ * 窗口内新建的定时器在事务提交后直接放入时间轮。启动时第一次加载会一并取出所有已过期的定时器，立即批量触发。
+ * 到期的定时器提交到引擎线程池，由 {@link FlowEngine#fireTimer(Long)} 唤醒对应节点。
+ * 集群模式下只加载属于当前节点的实例的定时器，获得新分区时重新扫描已加载窗口。
+ * 触发失败（事务回滚）的定时器仍是等待状态，但已不会再被窗口加载，按逐次加倍的延迟重新放入时间轮。
+ */
+@Slf4j
+@Component
+public class FlowTimerScheduler {
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final FlowTimerRepository flowTimerRepository;
+    private final InstanceOwnership instanceOwnership;
+    private final ObjectProvider<FlowEngine> flowEngineProvider;
+    private final Executor engineExecutor;
+    private final EngineProperties.Timer properties;
+    private final HierarchicalTimingWheel<Long> wheel;
+
+    /**
+     * 已放入时间轮的定时器ID，避免加载和提交回调重复放入（由wheel锁保护）
+     */
+    private final Set<Long> scheduled = new HashSet<>();
+
+    /**
+     * 定时器连续触发失败的次数（由wheel锁保护）
+     */
+    private final Map<Long, Integer> failures = new HashMap<>();
+
+    /**
+     * 已加载窗口的上界，为null表示尚未完成启动加载
+     */
+    private volatile LocalDateTime loadedUntil;
+
+    private ScheduledExecutorService ticker;
+
+    public FlowTimerScheduler(FlowTimerRepository flowTimerRepository,
+                              InstanceOwnership instanceOwnership,
+                              ObjectProvider<FlowEngine> flowEngineProvider,
+                              @Qualifier("flowEngineExecutor") Executor engineExecutor,
+                              EngineProperties engineProperties) {
+        this.flowTimerRepository = flowTimerRepository;
+        this.instanceOwnership = instanceOwnership;
+        this.flowEngineProvider = flowEngineProvider;
+        this.engineExecutor = engineExecutor;
+        this.properties = engineProperties.getTimer();
+        this.wheel = new HierarchicalTimingWheel<>(properties.getTickMs(), properties.getWheelSize(),
+                System.currentTimeMillis());
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flow-timer-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, properties.getTickMs(), properties.getTickMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * 登记新建的定时器
+     * 持久化后，如果到期时间在已加载窗口内，则在事务提交后放入时间轮；否则等待后续分批加载
+     *
+     * @param timers 定时器
+     */
+    public void schedule(List<FlowTimer> timers) {
+        if (timers.isEmpty()) {
+            return;
+        }
+        flowTimerRepository.saveAll(timers);
+        afterCommit(() -> timers.forEach(this::offer));
+    }
+
+    /**
+     * 推迟定时器
+     *
+     * @param timer   定时器
+     * @param dueTime 新的到期时间
+     */
+    public void reschedule(FlowTimer timer, LocalDateTime dueTime) {
+        timer.setDueTime(dueTime);
+        flowTimerRepository.save(timer);
+        afterCommit(() -> offer(timer));
+    }
+
+    /**
+     * 取消流程实例所有等待中的定时器
+     * 已在时间轮中的条目保留，触发时发现状态不是等待中会直接跳过
+     *
+     * @param flowInstanceId 流程实例ID
+     * @return 取消数量
+     */
+    public int cancel(Long flowInstanceId) {
+        return flowTimerRepository.updateStatusByFlowInstanceId(
+                flowInstanceId, TimerStatus.PENDING.getCode(), TimerStatus.CANCELLED.getCode());
+    }
+
+    /**
+     * 获取时间轮中的定时器数量
+     *
+     * @return 数量
+     */
+    public int getWheelSize() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * 启动后恢复：加载所有已过期和即将到期的定时器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        int loaded = loadDueTimers();
+        log.info("定时器恢复完成：加载 {} 个定时器，窗口截至 {}", loaded, loadedUntil);
+    }
+
+    /**
+     * 窗口向后推进，分批加载新进入窗口的定时器
+     */
+    @Scheduled(initialDelayString = "${process.engine.timer.load-interval-ms:30000}",
+            fixedDelayString = "${process.engine.timer.load-interval-ms:30000}")
+    public void loadNextWindow() {
+        if (loadedUntil != null) {
+            loadDueTimers();
+        }
+    }
+
+    /**
+     * 重新扫描已加载窗口内的全部定时器（集群模式下获得新分区时调用），已在时间轮中的按ID去重
+     */
+    public synchronized void reload() {
+        LocalDateTime until = loadedUntil;
+        if (until == null) {
+            return;
+        }
+        int loaded = loadRange(EARLIEST, 0L, until);
+        log.info("重新扫描定时器：加载 {} 个，窗口截至 {}", loaded, until);
+    }
+
+    private synchronized int loadDueTimers() {
+        LocalDateTime from = loadedUntil;
+        LocalDateTime until = LocalDateTime.now().plusSeconds(properties.getHorizonSeconds());
+        // 先推进窗口再查询：查询之后提交的定时器由提交回调放入时间轮，两边重复的按ID去重
+        loadedUntil = until;
+
+        int loaded = from != null ? loadRange(from, Long.MAX_VALUE, until) : loadRange(EARLIEST, 0L, until);
+        if (loaded > 0) {
+            log.debug("加载定时器：{} 个，窗口 ({}, {}]", loaded, from, until);
+        }
+        return loaded;
+    }
+
+    /**
+     * 从游标 (afterDue, afterId) 开始分批加载到期时间不晚于 until 的定时器
+     */
+    private int loadRange(LocalDateTime afterDue, long afterId, LocalDateTime until) {
+        PageRequest batch = PageRequest.of(0, properties.getBatchSize());
+        int loaded = 0;
+        while (true) {
+            List<FlowTimer> timers = flowTimerRepository.findBatchDueBefore(
+                    TimerStatus.PENDING.getCode(), until, afterDue, afterId, batch);
+            if (timers.isEmpty()) {
+                break;
+            }
+            timers.forEach(this::offer);
+            loaded += timers.size();
+
+            FlowTimer last = timers.get(timers.size() - 1);
+            afterDue = last.getDueTime();
+            afterId = last.getId();
+            if (timers.size() < properties.getBatchSize()) {
+                break;
+            }
+        }
+        return loaded;
+    }
+
+    private void offer(FlowTimer timer) {
+        LocalDateTime until = loadedUntil;
+        if (until == null || timer.getDueTime().isAfter(until)
+                || !instanceOwnership.isOwner(timer.getFlowInstanceId())) {
+            return;
+        }
+        long dueMs = timer.getDueTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        boolean expired;
+        synchronized (wheel) {
+            if (!scheduled.add(timer.getId())) {
+                return;
+            }
+            expired = !wheel.add(dueMs, timer.getId());
+            if (expired) {
+                scheduled.remove(timer.getId());
+            }
+        }
+        if (expired) {
+            fire(timer.getId());
+        }
+    }
+
+    private void tick() {
+        List<Long> expired = new ArrayList<>();
+        try {
+            synchronized (wheel) {
+                wheel.advance(System.currentTimeMillis(), expired::add);
+                expired.forEach(scheduled::remove);
+            }
+            expired.forEach(this::fire);
+        } catch (Exception e) {
+            log.error("推进定时器时间轮失败", e);
+        }
+    }
+
+    private void fire(Long timerId) {
+        try {
+            engineExecutor.execute(() -> {
+                try {
+                    flowEngineProvider.getObject().fireTimer(timerId);
+                    clearFailures(timerId);
+                } catch (PartitionNotOwnedException e) {
+                    // 分区已迁移，由新的持有节点加载触发
+                    clearFailures(timerId);
+                } catch (Exception e) {
+                    long delayMs = nextFailureDelay(timerId);
+                    log.error("触发定时器失败，{} 毫秒后重试：timerId={}", delayMs, timerId, e);
+                    retry(timerId, delayMs);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 引擎线程池饱和，稍后重试
+            retry(timerId, properties.getRetryDelayMs());
+        }
+    }
+
+    private void retry(Long timerId, long delayMs) {
+        long retryAt = System.currentTimeMillis() + Math.max(properties.getTickMs(), delayMs);
+        synchronized (wheel) {
+            if (scheduled.add(timerId) && !wheel.add(retryAt, timerId)) {
+                scheduled.remove(timerId);
+            }
+        }
+    }
+
+    /**
+     * 记录一次触发失败，返回重试延迟：从 retryDelayMs 开始逐次加倍，不超过 maxRetryDelayMs
+     */
+    private long nextFailureDelay(Long timerId) {
+        int attempts;
+        synchronized (wheel) {
+            attempts = failures.merge(timerId, 1, Integer::sum);
+        }
+        long delayMs = properties.getRetryDelayMs() << Math.min(attempts - 1, 20);
+        return Math.min(delayMs, Math.max(properties.getRetryDelayMs(), properties.getMaxRetryDelayMs()));
+    }
+
+    private void clearFailures(Long timerId) {
+        synchronized (wheel) {
+            failures.remove(timerId);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.process.engine.timer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ * 最底层每格 tickMs 毫秒、共 wheelSize 格，超出本层范围的任务放入上一层（每格跨度为本层一圈），按需创建。
+ * 非空的格子按到期时间放入一个共享的优先队列，推进时只处理已到期的格子，与任务数量无关；
+ * 上层格子在格子开始时到期，其中的任务重新放入下层；最底层格子在格子结束时到期，任务最多延后一格触发，不会提前。
+ * <p>
+ * 非线程安全，由调用方加锁。
+ *
+ * @param <T> 任务类型
+ */
+public class HierarchicalTimingWheel<T> {
+
+    /**
+     * 格子按到期时间排序，同时到期时先处理下层格子，避免上层任务重新分配时落入尚未清空的下层格子
+     */
+    @SuppressWarnings("rawtypes")
+    private static final Comparator<Bucket> BUCKET_ORDER = Comparator
+            .<Bucket>comparingLong(bucket -> bucket.expiration)
+            .thenComparingInt(bucket -> bucket.level);
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final List<Bucket<T>> buckets;
+    private final PriorityQueue<Bucket<T>> queue;
+    private final boolean overflowLevel;
+    private final int level;
+    private long currentTime;
+    private HierarchicalTimingWheel<T> overflowWheel;
+    private int size;
+
+    /**
+     * @param tickMs    最底层每格的毫秒数
+     * @param wheelSize 每层格数
+     * @param startMs   起始时间（毫秒）
+     */
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        this(tickMs, wheelSize, startMs, new PriorityQueue<>(BUCKET_ORDER), 0);
+    }
+
+    private HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs, PriorityQueue<Bucket<T>> queue,
+                                    int level) {
+        this.overflowLevel = level > 0;
+        this.level = level;
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.queue = queue;
+        this.currentTime = startMs - startMs % tickMs;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new Bucket<>(level));
+        }
+    }
+
+    /**
+     * 添加任务
+     *
+     * @param expirationMs 到期时间（毫秒）
+     * @param task         任务
+     * @return 是否已加入；已经到期时返回false，由调用方立即执行
+     */
+    public boolean add(long expirationMs, T task) {
+        if (!addEntry(new Entry<>(expirationMs, task))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * 推进时间轮，交出所有到期的任务
+     *
+     * @param nowMs   当前时间（毫秒）
+     * @param expired 到期任务的处理函数
+     */
+    public void advance(long nowMs, Consumer<T> expired) {
+        Bucket<T> bucket;
+        while ((bucket = queue.peek()) != null && bucket.expiration <= nowMs) {
+            queue.poll();
+            advanceClock(bucket.expiration);
+            for (Entry<T> entry : bucket.flush()) {
+                if (!addEntry(entry)) {
+                    size--;
+                    expired.accept(entry.task);
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取时间轮中的任务数量
+     *
+     * @return 任务数量
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean addEntry(Entry<T> entry) {
+        long virtualId;
+        if (overflowLevel) {
+            // 上层格子在格子开始时到期，把任务重新分配到下层
+            if (entry.expiration < currentTime + tickMs) {
+                return false;
+            }
+            virtualId = entry.expiration / tickMs;
+        } else {
+            // 最底层格子在格子结束时到期，保证任务不会提前触发
+            if (entry.expiration <= currentTime) {
+                return false;
+            }
+            virtualId = (entry.expiration + tickMs - 1) / tickMs;
+        }
+
+        if (overflowLevel ? entry.expiration < currentTime + interval : virtualId * tickMs <= currentTime + interval) {
+            Bucket<T> bucket = buckets.get((int) (virtualId % wheelSize));
+            bucket.entries.add(entry);
+            long bucketExpiration = virtualId * tickMs;
+            if (bucket.expiration != bucketExpiration) {
+                bucket.expiration = bucketExpiration;
+                queue.offer(bucket);
+            }
+            return true;
+        }
+        if (overflowWheel == null) {
+            overflowWheel = new HierarchicalTimingWheel<>(interval, wheelSize, currentTime, queue, level + 1);
+        }
+        return overflowWheel.addEntry(entry);
+    }
+
+    private void advanceClock(long timeMs) {
+        if (timeMs >= currentTime + tickMs) {
+            currentTime = timeMs - timeMs % tickMs;
+            if (overflowWheel != null) {
+                overflowWheel.advanceClock(currentTime);
+            }
+        }
+    }
+
+    private static final class Entry<T> {
+        private final long expiration;
+        private final T task;
+
+        private Entry(long expiration, T task) {
+            this.expiration = expiration;
+            this.task = task;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private final List<Entry<T>> entries = new ArrayList<>();
+        private final int level;
+        private long expiration = -1L;
+
+        private Bucket(int level) {
+            this.level = level;
+        }
+
+        private List<Entry<T>> flush() {
+            List<Entry<T>> flushed = new ArrayList<>(entries);
+            entries.clear();
+            expiration = -1L;
+            return flushed;
+        }
+    }
+}
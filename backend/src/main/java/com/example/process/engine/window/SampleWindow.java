@@ -0,0 +1,119 @@
+package com.example.process.engine.window;
+
+/**
+ * 保留读数的窗口（滑动窗口、计数窗口）
+ * 读数和时间存放在预分配的原始类型环形数组中，求和随追加和淘汰增量更新，
+ * 最小值和最大值各用一个单调队列（存读数序号）维护，追加和淘汰均摊 O(1)，读取 O(1)。
+ * 滑动窗口按时长淘汰，读数数量超过容量时淘汰最早的读数；计数窗口只按容量淘汰。
+ */
+final class SampleWindow implements WindowState {
+
+    private final long sizeMillis;
+    private final int capacity;
+
+    private final double[] values;
+    private final long[] times;
+
+    /**
+     * 最早一条读数的序号和下一条读数的序号，序号对容量取模即数组下标
+     */
+    private long head;
+    private long tail;
+
+    private double sum;
+
+    private final long[] minQueue;
+    private long minHead;
+    private long minTail;
+    private final long[] maxQueue;
+    private long maxHead;
+    private long maxTail;
+
+    /**
+     * @param sizeMillis 窗口时长（毫秒），小于等于 0 时为计数窗口
+     * @param capacity   最多保留的读数数量
+     */
+    SampleWindow(long sizeMillis, int capacity) {
+        this.sizeMillis = sizeMillis;
+        this.capacity = Math.max(1, capacity);
+        this.values = new double[this.capacity];
+        this.times = new long[this.capacity];
+        this.minQueue = new long[this.capacity];
+        this.maxQueue = new long[this.capacity];
+    }
+
+    @Override
+    public void add(long timestamp, double value) {
+        if (tail > head) {
+            timestamp = Math.max(timestamp, times[index(tail - 1)]);
+        }
+        if (tail - head == capacity) {
+            evictOldest();
+        }
+        int index = index(tail);
+        values[index] = value;
+        times[index] = timestamp;
+        sum += value;
+
+        while (minTail > minHead && values[index(minQueue[index(minTail - 1)])] >= value) {
+            minTail--;
+        }
+        minQueue[index(minTail++)] = tail;
+        while (maxTail > maxHead && values[index(maxQueue[index(maxTail - 1)])] <= value) {
+            maxTail--;
+        }
+        maxQueue[index(maxTail++)] = tail;
+        tail++;
+    }
+
+    @Override
+    public Object stat(String stat, long now) {
+        if (sizeMillis > 0) {
+            while (tail > head && times[index(head)] <= now - sizeMillis) {
+                evictOldest();
+            }
+        }
+        int count = (int) (tail - head);
+        if ("count".equals(stat)) {
+            return count;
+        }
+        if (count == 0) {
+            return null;
+        }
+        switch (stat) {
+            case "sum":
+                return sum;
+            case "avg":
+                return sum / count;
+            case "min":
+                return values[index(minQueue[index(minHead)])];
+            case "max":
+                return values[index(maxQueue[index(maxHead)])];
+            case "last":
+                return values[index(tail - 1)];
+            case "span":
+                return (times[index(tail - 1)] - times[index(head)]) / 1000.0;
+            default:
+                return null;
+        }
+    }
+
+    private void evictOldest() {
+        sum -= values[index(head)];
+        if (minQueue[index(minHead)] == head) {
+            minHead++;
+        }
+        if (maxQueue[index(maxHead)] == head) {
+            maxHead++;
+        }
+        head++;
+        if (head == tail) {
+            // 窗口清空时归零，避免浮点误差累积
+            sum = 0;
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
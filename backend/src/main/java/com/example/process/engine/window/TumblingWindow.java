@@ -0,0 +1,119 @@
+package com.example.process.engine.window;
+
+/**
+ * 滚动窗口
+ * 时间按窗口时长对齐切分，当前窗口只累计统计值，不保留读数；窗口结束后其统计值成为可读取的结果，
+ * 读取的始终是最近一个已结束的窗口，结果在下一个窗口结束前保持不变。
+ */
+final class TumblingWindow implements WindowState {
+
+    private final long sizeMillis;
+
+    private long bucket = Long.MIN_VALUE;
+    private final Aggregate current = new Aggregate();
+    private final Aggregate completed = new Aggregate();
+
+    TumblingWindow(long sizeMillis) {
+        this.sizeMillis = Math.max(1L, sizeMillis);
+    }
+
+    @Override
+    public void add(long timestamp, double value) {
+        long target = Math.floorDiv(timestamp, sizeMillis);
+        if (target < bucket) {
+            // 迟到的读数计入当前窗口
+            target = bucket;
+        }
+        roll(target);
+        current.add(timestamp, value);
+    }
+
+    @Override
+    public Object stat(String stat, long now) {
+        roll(Math.max(bucket, Math.floorDiv(now, sizeMillis)));
+        return completed.stat(stat);
+    }
+
+    /**
+     * 切换到目标窗口：当前窗口紧邻目标窗口时成为已结束窗口，否则中间有空窗口，已结束窗口为空
+     */
+    private void roll(long target) {
+        if (target == bucket) {
+            return;
+        }
+        if (bucket != Long.MIN_VALUE && target == bucket + 1) {
+            completed.copyFrom(current);
+        } else {
+            completed.clear();
+        }
+        current.clear();
+        bucket = target;
+    }
+
+    private static final class Aggregate {
+
+        private int count;
+        private double sum;
+        private double min;
+        private double max;
+        private double last;
+        private long firstTime;
+        private long lastTime;
+
+        private void add(long timestamp, double value) {
+            if (count == 0) {
+                min = value;
+                max = value;
+                firstTime = timestamp;
+            } else {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            count++;
+            sum += value;
+            last = value;
+            lastTime = Math.max(lastTime, timestamp);
+        }
+
+        private Object stat(String stat) {
+            if ("count".equals(stat)) {
+                return count;
+            }
+            if (count == 0) {
+                return null;
+            }
+            switch (stat) {
+                case "sum":
+                    return sum;
+                case "avg":
+                    return sum / count;
+                case "min":
+                    return min;
+                case "max":
+                    return max;
+                case "last":
+                    return last;
+                case "span":
+                    return (lastTime - firstTime) / 1000.0;
+                default:
+                    return null;
+            }
+        }
+
+        private void copyFrom(Aggregate other) {
+            count = other.count;
+            sum = other.sum;
+            min = other.min;
+            max = other.max;
+            last = other.last;
+            firstTime = other.firstTime;
+            lastTime = other.lastTime;
+        }
+
+        private void clear() {
+            count = 0;
+            sum = 0;
+            lastTime = 0;
+        }
+    }
+}
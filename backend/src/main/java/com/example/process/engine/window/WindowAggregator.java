@@ -0,0 +1,169 @@
+package com.example.process.engine.window;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.engine.constant.WindowType;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * 设备读数窗口聚合
+ * 按配置的窗口（process.engine.aggregation.windows）对设备数据上报事件中的指定字段做流式聚合，
+ * 每个事件源、每个窗口一个聚合状态，事件到达时增量更新，不需要查询历史事件。
+ * 聚合结果作为虚拟变量供条件表达式引用：window.{事件源ID}.{窗口名}.{统计项}，
+ * 统计项为 count、sum、avg、min、max、last、span（窗口内首尾读数间隔的秒数），
+ * 例如 "温度 30 秒内持续高于 70" 可写为 window.dev-1.temp-30s.min > 70 且 window.dev-1.temp-30s.span >= 29。
+ * 聚合状态只保存在当前节点内存中，事件源数量超过上限时淘汰最久未更新的事件源。
+ */
+@Slf4j
+@Component
+public class WindowAggregator {
+
+    /**
+     * 虚拟变量前缀
+     */
+    public static final String VARIABLE_PREFIX = "window.";
+
+    private final EngineProperties.Aggregation properties;
+
+    /**
+     * 窗口名到窗口配置
+     */
+    private final Map<String, EngineProperties.Window> windows = new LinkedHashMap<>();
+
+    /**
+     * 事件源ID到各窗口的聚合状态（窗口名到状态），按更新顺序淘汰
+     */
+    private final LinkedHashMap<String, Map<String, WindowState>> sources;
+
+    public WindowAggregator(EngineProperties engineProperties) {
+        this.properties = engineProperties.getAggregation();
+        for (EngineProperties.Window window : properties.getWindows()) {
+            if (!StringUtils.hasText(window.getName()) || !StringUtils.hasText(window.getField())) {
+                log.warn("忽略未配置名称或字段的聚合窗口: {}", window);
+                continue;
+            }
+            WindowType.fromCode(window.getType());
+            windows.put(window.getName(), window);
+        }
+        int maxSources = Math.max(1, properties.getMaxSources());
+        this.sources = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, WindowState>> eldest) {
+                return size() > maxSources;
+            }
+        };
+    }
+
+    /**
+     * 把事件中的读数计入匹配的窗口
+     *
+     * @param event 事件
+     */
+    public void accept(FlowEventDTO event) {
+        if (windows.isEmpty() || event.getSourceId() == null || event.getEventData() == null) {
+            return;
+        }
+        long timestamp = event.getOccurrenceTime() != null
+                ? event.getOccurrenceTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        for (EngineProperties.Window window : windows.values()) {
+            if (!window.getEventType().equals(event.getEventType())
+                    || (window.getSourceType() != null && !window.getSourceType().equals(event.getSourceType()))) {
+                continue;
+            }
+            Double value = toDouble(event.getEventData().get(window.getField()));
+            if (value == null) {
+                continue;
+            }
+            WindowState state = state(event.getSourceId(), window);
+            synchronized (state) {
+                state.add(timestamp, value);
+            }
+        }
+    }
+
+    /**
+     * 解析虚拟变量
+     *
+     * @param name 变量名
+     * @return 统计值，不是窗口变量或窗口内没有读数时返回 null
+     */
+    public Object resolve(String name) {
+        if (name == null || !name.startsWith(VARIABLE_PREFIX)) {
+            return null;
+        }
+        // 事件源ID可能包含点号，从末尾截取窗口名和统计项
+        int statDot = name.lastIndexOf('.');
+        int windowDot = name.lastIndexOf('.', statDot - 1);
+        if (windowDot < VARIABLE_PREFIX.length()) {
+            return null;
+        }
+        String sourceId = name.substring(VARIABLE_PREFIX.length(), windowDot);
+        String windowName = name.substring(windowDot + 1, statDot);
+        String stat = name.substring(statDot + 1);
+        if (!windows.containsKey(windowName)) {
+            return null;
+        }
+
+        WindowState state;
+        synchronized (sources) {
+            Map<String, WindowState> states = sources.get(sourceId);
+            state = states != null ? states.get(windowName) : null;
+        }
+        if (state == null) {
+            return "count".equals(stat) ? 0 : null;
+        }
+        synchronized (state) {
+            return state.stat(stat, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 获取有聚合状态的事件源数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        synchronized (sources) {
+            return sources.size();
+        }
+    }
+
+    private WindowState state(String sourceId, EngineProperties.Window window) {
+        synchronized (sources) {
+            return sources.computeIfAbsent(sourceId, k -> new HashMap<>())
+                    .computeIfAbsent(window.getName(), k -> newState(window));
+        }
+    }
+
+    private static WindowState newState(EngineProperties.Window window) {
+        long sizeMillis = window.getSizeSeconds() * 1000L;
+        switch (WindowType.fromCode(window.getType())) {
+            case TUMBLING:
+                return new TumblingWindow(sizeMillis);
+            case COUNT:
+                return new SampleWindow(0L, window.getSizeCount());
+            default:
+                return new SampleWindow(sizeMillis, window.getMaxSamples());
+        }
+    }
+
+    private static Double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
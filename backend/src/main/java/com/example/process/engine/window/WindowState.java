@@ -0,0 +1,25 @@
+package com.example.process.engine.window;
+
+/**
+ * 单个事件源在单个窗口上的聚合状态
+ * 读数追加时增量维护统计值，读取统计值时按当前时间淘汰过期读数，调用方负责同步
+ */
+interface WindowState {
+
+    /**
+     * 追加一条读数
+     *
+     * @param timestamp 读数时间（毫秒），早于上一条读数时按上一条读数的时间处理
+     * @param value     读数
+     */
+    void add(long timestamp, double value);
+
+    /**
+     * 读取统计值
+     *
+     * @param stat 统计项（count、sum、avg、min、max、last、span）
+     * @param now  当前时间（毫秒）
+     * @return 统计值，窗口内没有读数或统计项不存在时返回 null（count 返回 0）
+     */
+    Object stat(String stat, long now);
+}
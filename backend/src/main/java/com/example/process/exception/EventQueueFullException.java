@@ -0,0 +1,19 @@
+package com.example.process.exception;
+
+/**
+ * 事件队列已满异常
+ * 事件流水线的缓冲区已满时抛出，由全局异常处理器返回 429 并提示调用方稍后重试
+ */
+public class EventQueueFullException extends BusinessException {
+
+    private final long retryAfterSeconds;
+
+    public EventQueueFullException(long retryAfterSeconds) {
+        super("429", "事件队列已满，请稍后重试");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
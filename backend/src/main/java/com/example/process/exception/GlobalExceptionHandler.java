@@ -1,9 +1,11 @@
 package com.example.process.exception;
 
 import com.example.process.model.common.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.BindException;
@@ -20,6 +22,7 @@ import org.springframework.http.ResponseEntity;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -44,6 +47,67 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * 处理分区不属于当前节点异常（集群模式）
+     * 已知持有节点时以 307 重定向到持有节点的同一路径，保留请求方法和请求体；分区迁移中时返回 503 稍后重试
+     *
+     * @param e       分区不属于当前节点异常
+     * @param request 当前请求
+     * @return 错误响应
+     */
+    @ExceptionHandler(PartitionNotOwnedException.class)
+    public ResponseEntity<Map<String, Object>> handlePartitionNotOwnedException(PartitionNotOwnedException e,
+                                                                               HttpServletRequest request) {
+        log.info("流程实例不属于当前节点：instanceId={}, owner={}", e.getInstanceId(), e.getOwnerAddress());
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", e.getCode());
+        response.put("message", e.getMessage());
+        if (e.getOwnerAddress() == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+        }
+        String location = e.getOwnerAddress() + request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                .header(HttpHeaders.LOCATION, location)
+                .body(response);
+    }
+
+    /**
+     * 处理事件队列已满异常，返回 429 并提示稍后重试
+     *
+     * @param e 事件队列已满异常
+     * @return 错误响应
+     */
+    @ExceptionHandler(EventQueueFullException.class)
+    public ResponseEntity<Map<String, Object>> handleEventQueueFullException(EventQueueFullException e) {
+        log.warn("事件队列已满，拒绝请求");
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", e.getCode());
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    /**
+     * 处理任务提交被拒绝异常（执行引擎线程池饱和）
+     *
+     * @param e 拒绝异常
+     * @return 错误响应
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejectedExecutionException(RejectedExecutionException e) {
+        log.warn("执行引擎繁忙，拒绝请求: {}", e.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", "503");
+        response.put("message", "执行引擎繁忙，请稍后重试");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
     /**
      * 处理参数校验异常
      *
@@ -0,0 +1,31 @@
+package com.example.process.exception;
+
+/**
+ * 分区不属于当前节点异常
+ * 集群模式下流程实例只能由其所在分区的持有节点修改，其他节点收到请求时抛出此异常，
+ * 由全局异常处理器把请求重定向到持有节点
+ */
+public class PartitionNotOwnedException extends BusinessException {
+
+    private final Long instanceId;
+    private final String ownerAddress;
+
+    public PartitionNotOwnedException(Long instanceId, String ownerAddress) {
+        super("421", "流程实例不属于当前引擎节点: " + instanceId);
+        this.instanceId = instanceId;
+        this.ownerAddress = ownerAddress;
+    }
+
+    public Long getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * 获取持有节点地址
+     *
+     * @return 地址，分区正在迁移、暂无持有者时为 null
+     */
+    public String getOwnerAddress() {
+        return ownerAddress;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.process.model.engine;
 import com.example.process.model.BaseEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -15,7 +16,12 @@ import java.time.LocalDateTime;
  */
 @Data
 @Entity
-@Table(name = "device_action")
+@Table(name = "device_action", indexes = {
+        @Index(name = "idx_device_action_status_lease", columnList = "status, lease_expire_time"),
+        @Index(name = "idx_device_action_device_status", columnList = "device_id, status"),
+        @Index(name = "idx_device_action_instance_node", columnList = "flow_instance_id, node_id"),
+        @Index(name = "uk_device_action_outbox_message", columnList = "outbox_message_id", unique = true)
+})
 @EqualsAndHashCode(callSuper = true)
 public class DeviceAction extends BaseEntity {
 
@@ -68,7 +74,7 @@ public class DeviceAction extends BaseEntity {
     private String parameters;
 
     /**
-     * 状态（等待执行、执行中、已完成、已取消、失败）
+     * 状态（等待执行、执行中、执行成功、执行失败、执行超时、已取消）
      */
     @Column(name = "status", nullable = false)
     private String status;
@@ -127,6 +133,30 @@ public class DeviceAction extends BaseEntity {
     @Column(name = "priority")
     private String priority;
 
+    /**
+     * 租约持有者（领取该动作的节点）
+     */
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间，到期未完成的动作可被重新领取
+     */
+    @Column(name = "lease_expire_time")
+    private LocalDateTime leaseExpireTime;
+
+    /**
+     * 投递次数
+     */
+    @Column(name = "delivery_count")
+    private Integer deliveryCount;
+
+    /**
+     * 产生该动作的发件箱消息ID（唯一，用于重复投递时去重）
+     */
+    @Column(name = "outbox_message_id")
+    private Long outboxMessageId;
+
     /**
      * 备注
      */
@@ -0,0 +1,45 @@
+package com.example.process.model.engine;
+
+import com.example.process.model.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 引擎节点实体类
+ * 集群模式下每个引擎节点定期写入心跳，用于计算存活节点数和查找分区的持有者
+ */
+@Data
+@Entity
+@Table(name = "flow_engine_node")
+@EqualsAndHashCode(callSuper = true)
+public class EngineNode extends BaseEntity {
+
+    /**
+     * 节点ID
+     */
+    @Column(name = "node_id", nullable = false, unique = true)
+    private String nodeId;
+
+    /**
+     * 节点对外地址（用于把请求转发到分区持有者）
+     */
+    @Column(name = "address")
+    private String address;
+
+    /**
+     * 持有分区锁的数据库会话进程ID
+     */
+    @Column(name = "backend_pid")
+    private Integer backendPid;
+
+    /**
+     * 最近一次心跳时间
+     */
+    @Column(name = "heartbeat_time", nullable = false)
+    private LocalDateTime heartbeatTime;
+}
@@ -0,0 +1,38 @@
+package com.example.process.model.engine;
+
+import com.example.process.model.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 实例分区实体类
+ * 集群模式下记录每个分区的当前持有节点和纪元，节点每次获得分区时纪元加一。
+ * 修改实例的事务在提交前以共享锁读取所在分区的记录并核对纪元，分区被其他节点接管后原持有节点的写入被拒绝
+ */
+@Data
+@Entity
+@Table(name = "flow_engine_partition")
+@EqualsAndHashCode(callSuper = true)
+public class EnginePartition extends BaseEntity {
+
+    /**
+     * 分区号
+     */
+    @Column(name = "partition_no", nullable = false, unique = true)
+    private Integer partitionNo;
+
+    /**
+     * 持有节点ID
+     */
+    @Column(name = "owner_node", nullable = false)
+    private String ownerNode;
+
+    /**
+     * 纪元，每次被节点获得时加一
+     */
+    @Column(name = "epoch", nullable = false)
+    private Long epoch;
+}
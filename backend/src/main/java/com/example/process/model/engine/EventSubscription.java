@@ -0,0 +1,74 @@
+package com.example.process.model.engine;
+
+import com.example.process.model.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 事件订阅实体类
+ * 记录哪些等待中的实例或哪些流程的开始节点关心某类事件，
+ * 事件源类型或事件源ID为空表示匹配任意值
+ */
+@Data
+@Entity
+@Table(name = "flow_event_subscription", indexes = {
+        @Index(name = "idx_event_subscription_event", columnList = "event_type, source_id"),
+        @Index(name = "idx_event_subscription_instance", columnList = "flow_instance_id"),
+        @Index(name = "idx_event_subscription_version", columnList = "flow_version_id"),
+        @Index(name = "idx_event_subscription_created", columnList = "created_at")
+})
+@EqualsAndHashCode(callSuper = true)
+public class EventSubscription extends BaseEntity {
+
+    /**
+     * 订阅类型（等待实例、启动流程）
+     */
+    @Column(name = "subscription_type", nullable = false)
+    private String subscriptionType;
+
+    /**
+     * 事件类型
+     */
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    /**
+     * 事件源类型（为空表示任意）
+     */
+    @Column(name = "source_type")
+    private String sourceType;
+
+    /**
+     * 事件源ID（为空表示任意）
+     */
+    @Column(name = "source_id")
+    private String sourceId;
+
+    /**
+     * 流程定义ID
+     */
+    @Column(name = "flow_definition_id", nullable = false)
+    private Long flowDefinitionId;
+
+    /**
+     * 流程版本ID
+     */
+    @Column(name = "flow_version_id", nullable = false)
+    private Long flowVersionId;
+
+    /**
+     * 流程实例ID（启动流程订阅为空）
+     */
+    @Column(name = "flow_instance_id")
+    private Long flowInstanceId;
+
+    /**
+     * 节点ID（等待的事件节点或开始节点）
+     */
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+}
@@ -3,6 +3,7 @@ package com.example.process.model.engine;
 import com.example.process.model.BaseEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -12,10 +13,15 @@ import java.time.LocalDateTime;
 /**
  * 事件实体类
  * 用于表示流程中的事件触发
+ * 表按发生时间分区（见 {@code TimePartitionedTable}），数据库中的主键为 (id, occurrence_time)，
+ * 按时间范围查询时应带上 occurrence_time 条件以裁剪分区；幂等键的唯一性由 {@link FlowEventIdempotencyKey} 保证
  */
 @Data
 @Entity
-@Table(name = "flow_event")
+@Table(name = "flow_event", indexes = {
+        @Index(name = "idx_flow_event_status_lease", columnList = "status, lease_expire_time"),
+        @Index(name = "idx_flow_event_occurrence_time", columnList = "occurrence_time, id")
+})
 @EqualsAndHashCode(callSuper = true)
 public class FlowEvent extends BaseEntity {
 
@@ -85,6 +91,30 @@ public class FlowEvent extends BaseEntity {
     @Column(name = "priority")
     private String priority;
 
+    /**
+     * 幂等键（可选，唯一性见 {@link FlowEventIdempotencyKey}）
+     */
+    @Column(name = "idempotency_key", length = 128)
+    private String idempotencyKey;
+
+    /**
+     * 租约持有者（领取该事件的节点）
+     */
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间，到期未完成的事件可被重新领取
+     */
+    @Column(name = "lease_expire_time")
+    private LocalDateTime leaseExpireTime;
+
+    /**
+     * 投递次数
+     */
+    @Column(name = "delivery_count")
+    private Integer deliveryCount;
+
     /**
      * 备注
      */
@@ -0,0 +1,30 @@
+package com.example.process.model.engine;
+
+import com.example.process.model.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 事件幂等键实体类
+ * flow_event 按发生时间分区后无法建立不含分区键的唯一约束，幂等键的唯一性由这张不分区的表保证，
+ * 保留时间与事件相同
+ */
+@Data
+@Entity
+@Table(name = "flow_event_idempotency_key", indexes = {
+        @Index(name = "uk_event_idempotency_key", columnList = "idempotency_key", unique = true),
+        @Index(name = "idx_flow_event_idempotency_key_created_at", columnList = "created_at")
+})
+@EqualsAndHashCode(callSuper = true)
+public class FlowEventIdempotencyKey extends BaseEntity {
+
+    /**
+     * 幂等键
+     */
+    @Column(name = "idempotency_key", nullable = false, length = 128)
+    private String idempotencyKey;
+}
@@ -3,6 +3,7 @@ package com.example.process.model.engine;
 import com.example.process.model.BaseEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -12,10 +13,15 @@ import java.time.LocalDateTime;
 /**
  * 流程执行记录实体类
  * 用于记录流程执行的历史
+ * 表按执行时间分区（见 {@code TimePartitionedTable}），数据库中的主键为 (id, execution_time)，
+ * 按时间范围查询时应带上 execution_time 条件以裁剪分区
  */
 @Data
 @Entity
-@Table(name = "flow_execution_log")
+@Table(name = "flow_execution_log", indexes = {
+        @Index(name = "idx_flow_execution_log_instance", columnList = "flow_instance_id, execution_time"),
+        @Index(name = "idx_flow_execution_log_execution_time", columnList = "execution_time")
+})
 @EqualsAndHashCode(callSuper = true)
 public class FlowExecutionLog extends BaseEntity {
 
@@ -6,15 +6,21 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 
 /**
  * 流程实例实体类
  * 表示一个正在执行的流程
+ * 变量和活动节点存放在 jsonb 列中，运行时由引擎按键增量写回；
+ * 只更新变化的列，修改状态等字段时不会重写这两列
  */
 @Data
 @Entity
+@DynamicUpdate
 @Table(name = "flow_instance")
 @EqualsAndHashCode(callSuper = true)
 public class FlowInstance extends BaseEntity {
@@ -58,13 +64,15 @@ public class FlowInstance extends BaseEntity {
     /**
      * 当前活动节点ID列表（JSON数组格式）
      */
-    @Column(name = "active_node_ids", columnDefinition = "TEXT")
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "active_node_ids", columnDefinition = "jsonb")
     private String activeNodeIds;
 
     /**
      * 流程变量（JSON格式）
      */
-    @Column(name = "variables", columnDefinition = "TEXT")
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "variables", columnDefinition = "jsonb")
     private String variables;
 
     /**
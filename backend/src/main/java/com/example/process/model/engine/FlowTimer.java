@@ -0,0 +1,55 @@
+package com.example.process.model.engine;
+
+import com.example.process.model.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 流程定时器实体类
+ * 记录停留在等待节点上的令牌的唤醒时间，保证重启后不丢失
+ */
+@Data
+@Entity
+@Table(name = "flow_timer", indexes = {
+        @Index(name = "idx_flow_timer_status_due", columnList = "status, due_time"),
+        @Index(name = "idx_flow_timer_instance", columnList = "flow_instance_id")
+})
+@EqualsAndHashCode(callSuper = true)
+public class FlowTimer extends BaseEntity {
+
+    /**
+     * 流程实例ID
+     */
+    @Column(name = "flow_instance_id", nullable = false)
+    private Long flowInstanceId;
+
+    /**
+     * 节点ID
+     */
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    /**
+     * 到期时间
+     */
+    @Column(name = "due_time", nullable = false)
+    private LocalDateTime dueTime;
+
+    /**
+     * 状态
+     */
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    /**
+     * 触发时间
+     */
+    @Column(name = "fired_time")
+    private LocalDateTime firedTime;
+}
@@ -0,0 +1,85 @@
+package com.example.process.model.engine;
+
+import com.example.process.model.BaseEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 发件箱消息实体类
+ * 引擎推进产生的外部副作用（设备指令、通知等），与实例状态在同一事务中写入，提交后由中继投递
+ */
+@Data
+@Entity
+@Table(name = "engine_outbox", indexes = {
+        @Index(name = "idx_engine_outbox_status_lease", columnList = "status, lease_expire_time"),
+        @Index(name = "idx_engine_outbox_instance_node", columnList = "flow_instance_id, node_id")
+})
+@EqualsAndHashCode(callSuper = true)
+public class OutboxMessage extends BaseEntity {
+
+    /**
+     * 主题，决定由哪个投递目标处理
+     */
+    @Column(name = "topic", nullable = false, length = 64)
+    private String topic;
+
+    /**
+     * 消息键（如设备ID）
+     */
+    @Column(name = "message_key")
+    private String messageKey;
+
+    /**
+     * 流程实例ID
+     */
+    @Column(name = "flow_instance_id")
+    private Long flowInstanceId;
+
+    /**
+     * 节点ID
+     */
+    @Column(name = "node_id")
+    private String nodeId;
+
+    /**
+     * 消息内容（JSON格式）
+     */
+    @Column(name = "payload", columnDefinition = "TEXT")
+    private String payload;
+
+    /**
+     * 状态（待投递、投递中、已投递、投递失败）
+     */
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    /**
+     * 租约持有者（领取该消息的中继节点）
+     */
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间，到期未投递完成的消息可被重新领取
+     */
+    @Column(name = "lease_expire_time")
+    private LocalDateTime leaseExpireTime;
+
+    /**
+     * 投递次数
+     */
+    @Column(name = "delivery_count")
+    private Integer deliveryCount;
+
+    /**
+     * 投递完成时间
+     */
+    @Column(name = "delivered_time")
+    private LocalDateTime deliveredTime;
+}
@@ -0,0 +1,61 @@
+package com.example.process.model.engine.constant;
+
+/**
+ * 设备动作状态常量
+ */
+public enum DeviceActionStatus {
+    /**
+     * 等待执行
+     */
+    PENDING("pending", "等待执行"),
+
+    /**
+     * 执行中
+     */
+    RUNNING("running", "执行中"),
+
+    /**
+     * 执行成功
+     */
+    SUCCESS("success", "执行成功"),
+
+    /**
+     * 执行失败
+     */
+    FAILED("failed", "执行失败"),
+
+    /**
+     * 执行超时
+     */
+    TIMEOUT("timeout", "执行超时"),
+
+    /**
+     * 已取消
+     */
+    CANCELLED("cancelled", "已取消");
+
+    private final String code;
+    private final String description;
+
+    DeviceActionStatus(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static DeviceActionStatus fromCode(String code) {
+        for (DeviceActionStatus status : DeviceActionStatus.values()) {
+            if (status.code.equals(code)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("无效的设备动作状态: " + code);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.process.model.engine.constant;
+
+/**
+ * 事件处理状态常量
+ */
+public enum EventStatus {
+    /**
+     * 未处理
+     */
+    PENDING("pending", "未处理"),
+
+    /**
+     * 处理中
+     */
+    PROCESSING("processing", "处理中"),
+
+    /**
+     * 已处理
+     */
+    PROCESSED("processed", "已处理"),
+
+    /**
+     * 忽略（没有处理器或订阅）
+     */
+    IGNORED("ignored", "忽略"),
+
+    /**
+     * 处理失败
+     */
+    FAILED("failed", "处理失败"),
+
+    /**
+     * 已合并（由同一事件源窗口内的最新事件代替处理）
+     */
+    COALESCED("coalesced", "已合并");
+
+    private final String code;
+    private final String description;
+
+    EventStatus(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static EventStatus fromCode(String code) {
+        for (EventStatus status : EventStatus.values()) {
+            if (status.code.equals(code)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("无效的事件状态: " + code);
+    }
+}
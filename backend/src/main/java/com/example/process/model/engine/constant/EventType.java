@@ -39,6 +39,21 @@ public enum EventType {
      */
     DEVICE_LOCATION_CHANGE("device_location_change", "设备位置变化"),
 
+    /**
+     * 设备动作执行成功
+     */
+    DEVICE_ACTION_COMPLETED("device_action_completed", "设备动作完成"),
+
+    /**
+     * 设备动作失败（重试用尽）
+     */
+    DEVICE_ACTION_FAILED("device_action_failed", "设备动作失败"),
+
+    /**
+     * 事件转交（集群模式下把事件交给实例所在节点，投递到指定节点或启动新建的实例）
+     */
+    EVENT_DELIVERY("event_delivery", "事件转交"),
+
     /**
      * 系统事件
      */
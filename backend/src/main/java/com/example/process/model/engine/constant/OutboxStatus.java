@@ -0,0 +1,51 @@
+package com.example.process.model.engine.constant;
+
+/**
+ * 发件箱消息状态常量
+ */
+public enum OutboxStatus {
+    /**
+     * 待投递
+     */
+    PENDING("pending", "待投递"),
+
+    /**
+     * 投递中
+     */
+    DELIVERING("delivering", "投递中"),
+
+    /**
+     * 已投递
+     */
+    DELIVERED("delivered", "已投递"),
+
+    /**
+     * 投递失败
+     */
+    FAILED("failed", "投递失败");
+
+    private final String code;
+    private final String description;
+
+    OutboxStatus(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static OutboxStatus fromCode(String code) {
+        for (OutboxStatus status : OutboxStatus.values()) {
+            if (status.code.equals(code)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("无效的发件箱消息状态: " + code);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.process.model.engine.constant;
+
+/**
+ * 优先级常量
+ * 声明顺序即调度顺序，越靠前越先处理
+ */
+public enum Priority {
+    /**
+     * 高（如火警、告警预案）
+     */
+    HIGH("high", "高"),
+
+    /**
+     * 中（默认）
+     */
+    MEDIUM("medium", "中"),
+
+    /**
+     * 低（如常规遥测）
+     */
+    LOW("low", "低");
+
+    private final String code;
+    private final String description;
+
+    Priority(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static Priority fromCode(String code) {
+        for (Priority priority : Priority.values()) {
+            if (priority.code.equals(code)) {
+                return priority;
+            }
+        }
+        throw new IllegalArgumentException("无效的优先级: " + code);
+    }
+
+    /**
+     * 解析已存储的优先级
+     * 历史数据中优先级是自由文本，编码、中文描述、枚举名和数字 1/2/3 都能识别，无法识别或为空时按中处理
+     *
+     * @param value 优先级
+     * @return 优先级
+     */
+    public static Priority parse(String value) {
+        if (value == null) {
+            return MEDIUM;
+        }
+        String text = value.trim();
+        for (Priority priority : Priority.values()) {
+            if (priority.code.equalsIgnoreCase(text) || priority.description.equals(text)
+                    || priority.name().equalsIgnoreCase(text) || String.valueOf(priority.ordinal() + 1).equals(text)) {
+                return priority;
+            }
+        }
+        return MEDIUM;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.process.model.engine.constant;
+
+/**
+ * 事件订阅类型常量
+ */
+public enum SubscriptionType {
+    /**
+     * 实例停留在事件节点，等待事件唤醒
+     */
+    INSTANCE("instance", "等待实例"),
+
+    /**
+     * 流程开始节点配置了触发事件，事件到达时创建并启动新实例
+     */
+    START("start", "启动流程");
+
+    private final String code;
+    private final String description;
+
+    SubscriptionType(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static SubscriptionType fromCode(String code) {
+        for (SubscriptionType type : SubscriptionType.values()) {
+            if (type.code.equals(code)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("无效的事件订阅类型: " + code);
+    }
+}
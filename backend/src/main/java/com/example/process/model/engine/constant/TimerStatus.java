@@ -0,0 +1,46 @@
+package com.example.process.model.engine.constant;
+
+/**
+ * 流程定时器状态常量
+ */
+public enum TimerStatus {
+    /**
+     * 等待触发
+     */
+    PENDING("pending", "等待触发"),
+
+    /**
+     * 已触发
+     */
+    FIRED("fired", "已触发"),
+
+    /**
+     * 已取消
+     */
+    CANCELLED("cancelled", "已取消");
+
+    private final String code;
+    private final String description;
+
+    TimerStatus(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static TimerStatus fromCode(String code) {
+        for (TimerStatus status : TimerStatus.values()) {
+            if (status.code.equals(code)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("无效的定时器状态: " + code);
+    }
+}
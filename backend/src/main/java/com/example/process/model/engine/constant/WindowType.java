@@ -0,0 +1,46 @@
+package com.example.process.model.engine.constant;
+
+/**
+ * 聚合窗口类型常量
+ */
+public enum WindowType {
+    /**
+     * 滚动窗口：按固定时长对齐切分，取最近一个已结束的窗口
+     */
+    TUMBLING("tumbling", "滚动窗口"),
+
+    /**
+     * 滑动窗口：最近一段时长内的读数
+     */
+    SLIDING("sliding", "滑动窗口"),
+
+    /**
+     * 计数窗口：最近若干条读数
+     */
+    COUNT("count", "计数窗口");
+
+    private final String code;
+    private final String description;
+
+    WindowType(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static WindowType fromCode(String code) {
+        for (WindowType type : WindowType.values()) {
+            if (type.code.equals(code)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("无效的窗口类型: " + code);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.process.model.engine.dto;
+
+import lombok.Data;
+
+/**
+ * 熔断器统计
+ */
+@Data
+public class CircuitBreakerStats {
+
+    /**
+     * 熔断范围（device：单个设备，deviceType：设备类型）
+     */
+    private String scope;
+
+    /**
+     * 设备ID或设备类型
+     */
+    private String key;
+
+    /**
+     * 状态（CLOSED、OPEN、HALF_OPEN）
+     */
+    private String state;
+
+    /**
+     * 滑动窗口内的失败率（百分比）
+     */
+    private double failureRate;
+
+    /**
+     * 打开状态的剩余时间（毫秒）
+     */
+    private long remainingOpenMs;
+
+    /**
+     * 累计打开的次数
+     */
+    private long opened;
+}
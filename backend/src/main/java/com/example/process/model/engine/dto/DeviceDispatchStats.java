@@ -0,0 +1,105 @@
+package com.example.process.model.engine.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 设备动作调度统计
+ */
+@Data
+public class DeviceDispatchStats {
+
+    /**
+     * 当前持有队列的设备数量
+     */
+    private int devices;
+
+    /**
+     * 已领取、等待执行的动作数量
+     */
+    private int queued;
+
+    /**
+     * 执行中的动作数量
+     */
+    private int inFlight;
+
+    /**
+     * 全局同时执行的上限
+     */
+    private int maxConcurrent;
+
+    /**
+     * 各设备类型执行中的动作数量
+     */
+    private Map<String, Integer> inFlightByType = new TreeMap<>();
+
+    /**
+     * 累计下发数量
+     */
+    private long started;
+
+    /**
+     * 累计成功数量
+     */
+    private long succeeded;
+
+    /**
+     * 累计失败数量
+     */
+    private long failed;
+
+    /**
+     * 累计超时数量（重试用尽后最终超时）
+     */
+    private long timedOut;
+
+    /**
+     * 累计因熔断未下发的次数
+     */
+    private long rejected;
+
+    /**
+     * 累计安排的重试次数
+     */
+    private long retried;
+
+    /**
+     * 等待重试的动作数量
+     */
+    private int retrying;
+
+    /**
+     * 累计重试用尽、转入流程错误处理的动作数量
+     */
+    private long escalated;
+
+    /**
+     * 累计去重的动作数量（合并窗口内参数相同的同类动作）
+     */
+    private long deduplicated;
+
+    /**
+     * 累计被覆盖的动作数量（合并窗口内被参数更新的同类动作取代）
+     */
+    private long superseded;
+
+    /**
+     * 累计回收的空闲设备队列数量
+     */
+    private long evicted;
+
+    /**
+     * 等待写回的状态变更数量
+     */
+    private int pendingWrites;
+
+    /**
+     * 未处于关闭状态的熔断器（打开和半开）
+     */
+    private List<CircuitBreakerStats> circuitBreakers = new ArrayList<>();
+}
@@ -0,0 +1,75 @@
+package com.example.process.model.engine.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量事件接收结果
+ */
+@Data
+public class EventBatchResult {
+
+    /**
+     * 收到的事件数量
+     */
+    private int total;
+
+    /**
+     * 接收的事件数量
+     */
+    private int accepted;
+
+    /**
+     * 拒绝的事件数量
+     */
+    private int rejected;
+
+    /**
+     * 重复事件数量（包含在拒绝数量中）
+     */
+    private int duplicates;
+
+    /**
+     * 因事件队列已满被拒绝的数量（异步处理时），大于 0 时调用方应稍后重试被拒绝的事件
+     */
+    private int throttled;
+
+    /**
+     * 逐条结果，与请求中的事件顺序一致
+     */
+    private List<Item> items = new ArrayList<>();
+
+    /**
+     * 单条事件的结果
+     */
+    @Data
+    public static class Item {
+
+        /**
+         * 事件在请求中的序号（从0开始）
+         */
+        private int index;
+
+        /**
+         * 是否接收
+         */
+        private boolean accepted;
+
+        /**
+         * 事件ID（接收时有值）
+         */
+        private Long eventId;
+
+        /**
+         * 处理状态
+         */
+        private String status;
+
+        /**
+         * 拒绝或失败原因
+         */
+        private String message;
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.process.model.engine.dto;
 
+import com.example.process.model.engine.FlowEvent;
+import com.example.process.util.JsonUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -96,6 +99,11 @@ public class FlowEventDTO {
      */
     private String priority;
 
+    /**
+     * 幂等键（可选），同一幂等键的事件只会写入和处理一次
+     */
+    private String idempotencyKey;
+
     /**
      * 备注
      */
@@ -105,4 +113,37 @@ public class FlowEventDTO {
      * 创建时间
      */
     private LocalDateTime createTime;
+
+    /**
+     * 从实体转换为DTO
+     *
+     * @param event 事件实体
+     * @return 事件DTO
+     */
+    public static FlowEventDTO fromEntity(FlowEvent event) {
+        if (event == null) {
+            return null;
+        }
+
+        FlowEventDTO dto = new FlowEventDTO();
+        dto.setId(event.getId());
+        dto.setEventType(event.getEventType());
+        dto.setEventName(event.getEventName());
+        dto.setSourceId(event.getSourceId());
+        dto.setSourceType(event.getSourceType());
+        if (event.getEventData() != null && !event.getEventData().isEmpty()) {
+            dto.setEventData(JsonUtils.parseObject(event.getEventData(), new TypeReference<Map<String, Object>>() {
+            }));
+        }
+        dto.setOccurrenceTime(event.getOccurrenceTime());
+        dto.setProcessingTime(event.getProcessingTime());
+        dto.setStatus(event.getStatus());
+        dto.setFlowInstanceId(event.getFlowInstanceId());
+        dto.setNodeId(event.getNodeId());
+        dto.setPriority(event.getPriority());
+        dto.setIdempotencyKey(event.getIdempotencyKey());
+        dto.setRemarks(event.getRemarks());
+        dto.setCreateTime(event.getCreatedAt());
+        return dto;
+    }
 } 
\ No newline at end of file
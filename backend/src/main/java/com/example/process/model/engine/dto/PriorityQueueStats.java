@@ -0,0 +1,65 @@
+package com.example.process.model.engine.dto;
+
+import lombok.Data;
+
+/**
+ * 单个优先级队列的统计
+ */
+@Data
+public class PriorityQueueStats {
+
+    /**
+     * 优先级
+     */
+    private String priority;
+
+    /**
+     * 排队中的数量
+     */
+    private int queued;
+
+    /**
+     * 执行中的数量
+     */
+    private int running;
+
+    /**
+     * 该优先级最多可同时执行的数量
+     */
+    private int concurrencyLimit;
+
+    /**
+     * 累计提交数量
+     */
+    private long submitted;
+
+    /**
+     * 累计完成数量
+     */
+    private long completed;
+
+    /**
+     * 累计拒绝数量
+     */
+    private long rejected;
+
+    /**
+     * 累计因等待过久提升优先级后出队的数量
+     */
+    private long aged;
+
+    /**
+     * 平均等待时间（毫秒）
+     */
+    private double avgWaitMs;
+
+    /**
+     * 最长等待时间（毫秒）
+     */
+    private double maxWaitMs;
+
+    /**
+     * 当前队首已等待的时间（毫秒）
+     */
+    private double headWaitMs;
+}
@@ -0,0 +1,218 @@
+package com.example.process.model.engine.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 事件回放报告
+ */
+@Data
+public class ReplayReport {
+
+    /**
+     * 回放ID
+     */
+    private String id;
+
+    /**
+     * 状态（running、completed、failed、cancelled）
+     */
+    private String status;
+
+    /**
+     * 回放请求
+     */
+    private ReplayRequest request;
+
+    /**
+     * 开始回放时间
+     */
+    private LocalDateTime startedAt;
+
+    /**
+     * 结束回放时间
+     */
+    private LocalDateTime finishedAt;
+
+    /**
+     * 读取的事件数量
+     */
+    private long eventsRead;
+
+    /**
+     * 投递到至少一个订阅的事件数量
+     */
+    private long eventsDelivered;
+
+    /**
+     * 没有匹配订阅的事件数量
+     */
+    private long eventsIgnored;
+
+    /**
+     * 处理失败的事件数量
+     */
+    private long eventsFailed;
+
+    /**
+     * 创建的实例数量
+     */
+    private long instancesCreated;
+
+    /**
+     * 执行完成的实例数量
+     */
+    private long instancesCompleted;
+
+    /**
+     * 执行的节点数量
+     */
+    private long nodesExecuted;
+
+    /**
+     * 触发的定时器数量
+     */
+    private long timersFired;
+
+    /**
+     * 产生的外部副作用数量（按主题，沙箱中不投递）
+     */
+    private Map<String, Long> sideEffects = new TreeMap<>();
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long elapsedMs;
+
+    /**
+     * 吞吐量（事件/秒）
+     */
+    private double throughput;
+
+    /**
+     * 单个事件处理耗时的中位数（微秒）
+     */
+    private double latencyP50Us;
+
+    /**
+     * 单个事件处理耗时的 95 分位（微秒）
+     */
+    private double latencyP95Us;
+
+    /**
+     * 单个事件处理耗时的 99 分位（微秒）
+     */
+    private double latencyP99Us;
+
+    /**
+     * 单个事件处理耗时的最大值（微秒）
+     */
+    private double latencyMaxUs;
+
+    /**
+     * 与生产实例状态的对比
+     */
+    private Diff diff;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+
+    /**
+     * 与生产实例状态的对比
+     * 按流程分别将回放期间创建的沙箱实例与同一时间范围内创建的生产实例按创建顺序一一对应，比较状态和活动节点
+     */
+    @Data
+    public static class Diff {
+
+        /**
+         * 状态一致的实例对数
+         */
+        private long matched;
+
+        /**
+         * 状态不一致的实例对数（包括只在一侧存在的实例）
+         */
+        private long mismatched;
+
+        /**
+         * 按流程汇总
+         */
+        private List<DefinitionDiff> definitions = new ArrayList<>();
+
+        /**
+         * 不一致的实例样本
+         */
+        private List<InstanceDiff> samples = new ArrayList<>();
+    }
+
+    /**
+     * 单个流程的汇总
+     */
+    @Data
+    public static class DefinitionDiff {
+
+        /**
+         * 流程定义ID
+         */
+        private Long flowDefinitionId;
+
+        /**
+         * 生产实例数量（按状态）
+         */
+        private Map<String, Long> production = new TreeMap<>();
+
+        /**
+         * 沙箱实例数量（按状态）
+         */
+        private Map<String, Long> replay = new TreeMap<>();
+    }
+
+    /**
+     * 不一致的实例
+     */
+    @Data
+    public static class InstanceDiff {
+
+        /**
+         * 流程定义ID
+         */
+        private Long flowDefinitionId;
+
+        /**
+         * 生产实例ID，生产中没有对应实例时为空
+         */
+        private Long productionInstanceId;
+
+        /**
+         * 生产实例状态
+         */
+        private String productionStatus;
+
+        /**
+         * 生产实例活动节点
+         */
+        private List<String> productionActiveNodeIds;
+
+        /**
+         * 沙箱实例ID，沙箱中没有对应实例时为空
+         */
+        private Long replayInstanceId;
+
+        /**
+         * 沙箱实例状态
+         */
+        private String replayStatus;
+
+        /**
+         * 沙箱实例活动节点
+         */
+        private List<String> replayActiveNodeIds;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.process.model.engine.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 事件回放请求
+ */
+@Data
+public class ReplayRequest {
+
+    /**
+     * 开始时间（含，按事件发生时间）
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间（不含）
+     */
+    private LocalDateTime endTime;
+
+    /**
+     * 回放速度：0 表示尽快回放，1 表示保持原始事件间隔，大于 1 时按倍数压缩间隔
+     */
+    private double speed;
+
+    /**
+     * 只回放这些事件类型，为空时回放全部
+     */
+    private List<String> eventTypes;
+
+    /**
+     * 是否与生产实例状态对比
+     */
+    private boolean compareWithProduction = true;
+}
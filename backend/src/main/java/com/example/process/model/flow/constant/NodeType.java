@@ -25,6 +25,11 @@ public class NodeType {
      */
     public static final String CONDITION = "CONDITION";
 
+    /**
+     * 动作节点（流程设计器），动作类型为设备控制时按设备动作节点执行
+     */
+    public static final String ACTION = "ACTION";
+
     /**
      * 设备动作节点
      */
@@ -40,6 +45,11 @@ public class NodeType {
      */
     public static final String WAIT = "WAIT";
 
+    /**
+     * 延迟节点
+     */
+    public static final String DELAY = "DELAY";
+
     /**
      * 并行网关节点
      */
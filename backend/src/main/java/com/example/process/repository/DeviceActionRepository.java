@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -51,6 +52,16 @@ public interface DeviceActionRepository extends JpaRepository<DeviceAction, Long
      */
     List<DeviceAction> findByNodeIdAndFlowInstanceId(String nodeId, Long flowInstanceId);
 
+    /**
+     * 统计实例在指定节点上处于给定状态的设备动作数量
+     *
+     * @param flowInstanceId 流程实例ID
+     * @param nodeId         节点ID
+     * @param statuses       状态
+     * @return 设备动作数量
+     */
+    long countByFlowInstanceIdAndNodeIdAndStatusIn(Long flowInstanceId, String nodeId, Collection<String> statuses);
+
     /**
      * 根据设备ID查询设备动作
      *
@@ -0,0 +1,100 @@
+package com.example.process.repository;
+
+import com.example.process.model.engine.EventSubscription;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 事件订阅数据访问接口
+ */
+@Repository
+public interface EventSubscriptionRepository extends JpaRepository<EventSubscription, Long> {
+
+    /**
+     * 按ID游标分批查询订阅
+     *
+     * @param afterId  游标：上一批最后一条的ID
+     * @param pageable 批大小
+     * @return 订阅列表
+     */
+    @Query("SELECT s FROM EventSubscription s WHERE s.id > :afterId ORDER BY s.id ASC")
+    List<EventSubscription> findBatchAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 按ID游标分批查询指定时间之后创建的订阅
+     *
+     * @param since    创建时间下限
+     * @param afterId  游标：上一批最后一条的ID
+     * @param pageable 批大小
+     * @return 订阅列表
+     */
+    @Query("SELECT s FROM EventSubscription s WHERE s.createdAt >= :since AND s.id > :afterId ORDER BY s.id ASC")
+    List<EventSubscription> findCreatedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    /**
+     * 根据订阅类型查询订阅
+     *
+     * @param subscriptionType 订阅类型
+     * @return 订阅列表
+     */
+    List<EventSubscription> findBySubscriptionType(String subscriptionType);
+
+    /**
+     * 删除实例在指定节点上的订阅
+     *
+     * @param flowInstanceId 流程实例ID
+     * @param nodeId         节点ID
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Query("DELETE FROM EventSubscription s WHERE s.flowInstanceId = :flowInstanceId AND s.nodeId = :nodeId")
+    int deleteByFlowInstanceIdAndNodeId(
+            @Param("flowInstanceId") Long flowInstanceId,
+            @Param("nodeId") String nodeId);
+
+    /**
+     * 删除实例的全部订阅
+     *
+     * @param flowInstanceId 流程实例ID
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Query("DELETE FROM EventSubscription s WHERE s.flowInstanceId = :flowInstanceId")
+    int deleteByFlowInstanceId(@Param("flowInstanceId") Long flowInstanceId);
+
+    /**
+     * 删除流程定义的指定类型订阅
+     *
+     * @param flowDefinitionId 流程定义ID
+     * @param subscriptionType 订阅类型
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Query("DELETE FROM EventSubscription s WHERE s.flowDefinitionId = :flowDefinitionId " +
+            "AND s.subscriptionType = :subscriptionType")
+    int deleteByFlowDefinitionIdAndSubscriptionType(
+            @Param("flowDefinitionId") Long flowDefinitionId,
+            @Param("subscriptionType") String subscriptionType);
+
+    /**
+     * 删除流程版本的指定类型订阅
+     *
+     * @param flowVersionId    流程版本ID
+     * @param subscriptionType 订阅类型
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Query("DELETE FROM EventSubscription s WHERE s.flowVersionId = :flowVersionId " +
+            "AND s.subscriptionType = :subscriptionType")
+    int deleteByFlowVersionIdAndSubscriptionType(
+            @Param("flowVersionId") Long flowVersionId,
+            @Param("subscriptionType") String subscriptionType);
+}
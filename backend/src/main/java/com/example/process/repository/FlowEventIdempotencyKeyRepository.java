@@ -0,0 +1,28 @@
+package com.example.process.repository;
+
+import com.example.process.model.engine.FlowEventIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 事件幂等键数据访问接口
+ */
+@Repository
+public interface FlowEventIdempotencyKeyRepository extends JpaRepository<FlowEventIdempotencyKey, Long> {
+
+    /**
+     * 删除事件占用的幂等键
+     *
+     * @param eventIds 事件ID列表
+     * @return 删除数量
+     */
+    @Modifying
+    @Query("DELETE FROM FlowEventIdempotencyKey k WHERE k.idempotencyKey IN " +
+            "(SELECT e.idempotencyKey FROM FlowEvent e WHERE e.id IN :eventIds)")
+    int deleteByEventIds(@Param("eventIds") List<Long> eventIds);
+}
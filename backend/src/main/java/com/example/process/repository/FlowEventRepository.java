@@ -4,6 +4,7 @@ import com.example.process.model.engine.FlowEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,6 +14,8 @@ import java.util.List;
 
 /**
  * 事件数据访问接口
+ * flow_event 按发生时间分区，按时间范围查询时以 occurrence_time 的半开区间作为必备条件，
+ * 不使用 ":param IS NULL OR ..." 形式的可选条件，使用通用执行计划时也能裁剪分区
  */
 @Repository
 public interface FlowEventRepository extends JpaRepository<FlowEvent, Long> {
@@ -97,12 +100,18 @@ public interface FlowEventRepository extends JpaRepository<FlowEvent, Long> {
     /**
      * 根据事件发生时间范围查询事件
      *
-     * @param startTime 开始时间
-     * @param endTime   结束时间
+     * @param startTime 开始时间（含）
+     * @param endTime   结束时间（不含）
      * @param pageable  分页参数
      * @return 事件分页结果
      */
-    Page<FlowEvent> findByOccurrenceTimeBetween(LocalDateTime startTime, LocalDateTime endTime, Pageable pageable);
+    @Query(value = "SELECT e FROM FlowEvent e WHERE e.occurrenceTime >= :startTime AND e.occurrenceTime < :endTime",
+            countQuery = "SELECT COUNT(e) FROM FlowEvent e " +
+                    "WHERE e.occurrenceTime >= :startTime AND e.occurrenceTime < :endTime")
+    Page<FlowEvent> findByOccurrenceTimeBetween(
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            Pageable pageable);
 
     /**
      * 根据多个条件组合查询事件
@@ -112,19 +121,18 @@ public interface FlowEventRepository extends JpaRepository<FlowEvent, Long> {
      * @param sourceType     事件源类型
      * @param status         事件状态
      * @param flowInstanceId 流程实例ID
-     * @param startTime      开始时间
-     * @param endTime        结束时间
+     * @param startTime      开始时间（含，必填）
+     * @param endTime        结束时间（不含，必填）
      * @param pageable       分页参数
      * @return 事件分页结果
      */
     @Query("SELECT e FROM FlowEvent e WHERE " +
+            "e.occurrenceTime >= :startTime AND e.occurrenceTime < :endTime AND " +
             "(:eventType IS NULL OR e.eventType = :eventType) AND " +
             "(:sourceId IS NULL OR e.sourceId = :sourceId) AND " +
             "(:sourceType IS NULL OR e.sourceType = :sourceType) AND " +
             "(:status IS NULL OR e.status = :status) AND " +
-            "(:flowInstanceId IS NULL OR e.flowInstanceId = :flowInstanceId) AND " +
-            "(:startTime IS NULL OR e.occurrenceTime >= :startTime) AND " +
-            "(:endTime IS NULL OR e.occurrenceTime <= :endTime)")
+            "(:flowInstanceId IS NULL OR e.flowInstanceId = :flowInstanceId)")
     Page<FlowEvent> findByConditions(
             @Param("eventType") String eventType,
             @Param("sourceId") String sourceId,
@@ -146,6 +154,26 @@ public interface FlowEventRepository extends JpaRepository<FlowEvent, Long> {
             "ORDER BY e.priority ASC, e.occurrenceTime ASC")
     List<FlowEvent> findUnprocessedEvents(@Param("status") String status, Pageable pageable);
 
+    /**
+     * 按发生时间和ID游标分批查询时间范围内的事件
+     *
+     * @param startTime 开始时间（含）
+     * @param endTime   结束时间（不含）
+     * @param afterTime 游标：上一批最后一条的发生时间
+     * @param afterId   游标：上一批最后一条的ID
+     * @param pageable  批大小
+     * @return 事件列表（按发生时间、ID升序）
+     */
+    @Query("SELECT e FROM FlowEvent e WHERE e.occurrenceTime >= :startTime AND e.occurrenceTime < :endTime " +
+            "AND (e.occurrenceTime > :afterTime OR (e.occurrenceTime = :afterTime AND e.id > :afterId)) " +
+            "ORDER BY e.occurrenceTime ASC, e.id ASC")
+    List<FlowEvent> findBatchBetween(
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
     /**
      * 统计指定类型的事件数量
      *
@@ -165,9 +193,58 @@ public interface FlowEventRepository extends JpaRepository<FlowEvent, Long> {
     /**
      * 统计指定时间范围内的事件数量
      *
-     * @param startTime 开始时间
-     * @param endTime   结束时间
+     * @param startTime 开始时间（含）
+     * @param endTime   结束时间（不含）
      * @return 事件数量
      */
-    long countByOccurrenceTimeBetween(LocalDateTime startTime, LocalDateTime endTime);
-} 
\ No newline at end of file
+    @Query("SELECT COUNT(e) FROM FlowEvent e WHERE e.occurrenceTime >= :startTime AND e.occurrenceTime < :endTime")
+    long countByOccurrenceTimeBetween(@Param("startTime") LocalDateTime startTime,
+                                      @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 批量更新事件处理状态并清除租约
+     * 发生时间范围用于裁剪分区，应覆盖所有事件的发生时间
+     *
+     * @param ids            事件ID列表
+     * @param from           最早发生时间（含）
+     * @param to             最晚发生时间（含）
+     * @param status         处理状态
+     * @param processingTime 处理时间
+     * @return 更新数量
+     */
+    @Modifying
+    @Query("UPDATE FlowEvent e SET e.status = :status, e.processingTime = :processingTime, " +
+            "e.leaseOwner = NULL, e.leaseExpireTime = NULL, e.updatedAt = CURRENT_TIMESTAMP WHERE e.id IN :ids " +
+            "AND e.occurrenceTime >= :from AND e.occurrenceTime <= :to")
+    int updateStatus(
+            @Param("ids") List<Long> ids,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("status") String status,
+            @Param("processingTime") LocalDateTime processingTime);
+
+    /**
+     * 清除事件的幂等键，使同一幂等键的事件可以重新写入
+     *
+     * @param ids  事件ID列表
+     * @param from 最早发生时间（含），用于裁剪分区
+     * @param to   最晚发生时间（含），用于裁剪分区
+     * @return 更新数量
+     */
+    @Modifying
+    @Query("UPDATE FlowEvent e SET e.idempotencyKey = NULL, e.updatedAt = CURRENT_TIMESTAMP WHERE e.id IN :ids " +
+            "AND e.occurrenceTime >= :from AND e.occurrenceTime <= :to")
+    int clearIdempotencyKey(@Param("ids") List<Long> ids,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to);
+
+    /**
+     * 按ID加载发生时间不早于指定时间的事件，发生时间条件用于裁剪分区
+     *
+     * @param ids   事件ID列表
+     * @param since 最早发生时间（含）
+     * @return 事件列表
+     */
+    @Query("SELECT e FROM FlowEvent e WHERE e.id IN :ids AND e.occurrenceTime >= :since")
+    List<FlowEvent> findAllByIdSince(@Param("ids") List<Long> ids, @Param("since") LocalDateTime since);
+}
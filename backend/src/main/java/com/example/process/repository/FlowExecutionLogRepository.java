@@ -13,6 +13,8 @@ import java.util.List;
 
 /**
  * 流程执行记录数据访问接口
+ * flow_execution_log 按执行时间分区，按时间范围查询时以 execution_time 的半开区间作为必备条件，
+ * 不使用 ":param IS NULL OR ..." 形式的可选条件，使用通用执行计划时也能裁剪分区
  */
 @Repository
 public interface FlowExecutionLogRepository extends JpaRepository<FlowExecutionLog, Long> {
@@ -72,12 +74,19 @@ public interface FlowExecutionLogRepository extends JpaRepository<FlowExecutionL
     /**
      * 根据执行时间范围查询执行记录
      *
-     * @param startTime 开始时间
-     * @param endTime   结束时间
+     * @param startTime 开始时间（含）
+     * @param endTime   结束时间（不含）
      * @param pageable  分页参数
      * @return 执行记录分页结果
      */
-    Page<FlowExecutionLog> findByExecutionTimeBetween(LocalDateTime startTime, LocalDateTime endTime, Pageable pageable);
+    @Query(value = "SELECT log FROM FlowExecutionLog log " +
+            "WHERE log.executionTime >= :startTime AND log.executionTime < :endTime",
+            countQuery = "SELECT COUNT(log) FROM FlowExecutionLog log " +
+                    "WHERE log.executionTime >= :startTime AND log.executionTime < :endTime")
+    Page<FlowExecutionLog> findByExecutionTimeBetween(
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            Pageable pageable);
 
     /**
      * 根据多个条件组合查询执行记录
@@ -86,18 +95,17 @@ public interface FlowExecutionLogRepository extends JpaRepository<FlowExecutionL
      * @param nodeId        节点ID
      * @param executionType 执行类型
      * @param status        执行状态
-     * @param startTime     开始时间
-     * @param endTime       结束时间
+     * @param startTime     开始时间（含，必填）
+     * @param endTime       结束时间（不含，必填）
      * @param pageable      分页参数
      * @return 执行记录分页结果
      */
     @Query("SELECT log FROM FlowExecutionLog log WHERE " +
+            "log.executionTime >= :startTime AND log.executionTime < :endTime AND " +
             "(:flowInstanceId IS NULL OR log.flowInstanceId = :flowInstanceId) AND " +
             "(:nodeId IS NULL OR log.nodeId = :nodeId) AND " +
             "(:executionType IS NULL OR log.executionType = :executionType) AND " +
-            "(:status IS NULL OR log.status = :status) AND " +
-            "(:startTime IS NULL OR log.executionTime >= :startTime) AND " +
-            "(:endTime IS NULL OR log.executionTime <= :endTime)")
+            "(:status IS NULL OR log.status = :status)")
     Page<FlowExecutionLog> findByConditions(
             @Param("flowInstanceId") Long flowInstanceId,
             @Param("nodeId") String nodeId,
@@ -4,11 +4,15 @@ import com.example.process.model.engine.FlowInstance;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 流程实例数据访问接口
@@ -157,4 +161,72 @@ public interface FlowInstanceRepository extends JpaRepository<FlowInstance, Long
      * @return 数量
      */
     long countByStatus(String status);
-} 
\ No newline at end of file
+
+    /**
+     * 在数据库端合并变量：删除指定的键，再用补丁中的键覆盖，未涉及的键不变
+     *
+     * @param id            实例ID
+     * @param patch         新增或修改的变量（JSON对象）
+     * @param removedKeys   删除的变量键（JSON数组）
+     * @param activeNodeIds 活动节点（JSON数组），为 null 时不修改
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query(value = "UPDATE flow_instance SET variables = (COALESCE(variables, CAST('{}' AS jsonb)) " +
+            "- ARRAY(SELECT jsonb_array_elements_text(CAST(:removedKeys AS jsonb)))) || CAST(:patch AS jsonb), " +
+            "active_node_ids = COALESCE(CAST(:activeNodeIds AS jsonb), active_node_ids), " +
+            "updated_at = CURRENT_TIMESTAMP WHERE id = :id", nativeQuery = true)
+    int patchVariables(
+            @Param("id") Long id,
+            @Param("patch") String patch,
+            @Param("removedKeys") String removedKeys,
+            @Param("activeNodeIds") String activeNodeIds);
+
+    /**
+     * 更新活动节点
+     *
+     * @param id            实例ID
+     * @param activeNodeIds 活动节点（JSON数组）
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query(value = "UPDATE flow_instance SET active_node_ids = CAST(:activeNodeIds AS jsonb), " +
+            "updated_at = CURRENT_TIMESTAMP WHERE id = :id", nativeQuery = true)
+    int updateActiveNodeIds(@Param("id") Long id, @Param("activeNodeIds") String activeNodeIds);
+
+    /**
+     * 读取单个变量，不取出整个变量对象
+     *
+     * @param id  实例ID
+     * @param key 变量名
+     * @return 变量值（JSON），实例或变量不存在时返回 null
+     */
+    @Query(value = "SELECT CAST(variables -> :key AS text) FROM flow_instance WHERE id = :id", nativeQuery = true)
+    String findVariableJson(@Param("id") Long id, @Param("key") String key);
+
+    /**
+     * 查询指定流程在时间范围内创建的实例
+     *
+     * @param flowDefinitionIds 流程定义ID
+     * @param startTime         开始时间（含）
+     * @param endTime           结束时间（不含）
+     * @param pageable          分页参数
+     * @return 实例列表（按创建时间、ID升序）
+     */
+    @Query("SELECT i FROM FlowInstance i WHERE i.flowDefinitionId IN :flowDefinitionIds " +
+            "AND i.createdAt >= :startTime AND i.createdAt < :endTime ORDER BY i.createdAt ASC, i.id ASC")
+    List<FlowInstance> findCreatedBetween(
+            @Param("flowDefinitionIds") Collection<Long> flowDefinitionIds,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            Pageable pageable);
+
+    /**
+     * 读取实例优先级
+     *
+     * @param id 实例ID
+     * @return 优先级
+     */
+    @Query("SELECT i.priority FROM FlowInstance i WHERE i.id = :id")
+    Optional<String> findPriorityById(@Param("id") Long id);
+}
@@ -0,0 +1,64 @@
+package com.example.process.repository;
+
+import com.example.process.model.engine.FlowTimer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 流程定时器数据访问接口
+ */
+@Repository
+public interface FlowTimerRepository extends JpaRepository<FlowTimer, Long> {
+
+    /**
+     * 按到期时间分批查询指定状态的定时器
+     * 以 (到期时间, ID) 为游标翻页，结果按到期时间升序
+     *
+     * @param status    状态
+     * @param dueBefore 到期时间上限（包含）
+     * @param afterDue  游标：上一批最后一条的到期时间
+     * @param afterId   游标：上一批最后一条的ID
+     * @param pageable  批大小
+     * @return 定时器列表
+     */
+    @Query("SELECT t FROM FlowTimer t WHERE t.status = :status AND t.dueTime <= :dueBefore " +
+            "AND (t.dueTime > :afterDue OR (t.dueTime = :afterDue AND t.id > :afterId)) " +
+            "ORDER BY t.dueTime ASC, t.id ASC")
+    List<FlowTimer> findBatchDueBefore(
+            @Param("status") String status,
+            @Param("dueBefore") LocalDateTime dueBefore,
+            @Param("afterDue") LocalDateTime afterDue,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    /**
+     * 取消流程实例的所有指定状态的定时器
+     *
+     * @param flowInstanceId 流程实例ID
+     * @param fromStatus     原状态
+     * @param toStatus       目标状态
+     * @return 更新数量
+     */
+    @Modifying
+    @Query("UPDATE FlowTimer t SET t.status = :toStatus, t.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE t.flowInstanceId = :flowInstanceId AND t.status = :fromStatus")
+    int updateStatusByFlowInstanceId(
+            @Param("flowInstanceId") Long flowInstanceId,
+            @Param("fromStatus") String fromStatus,
+            @Param("toStatus") String toStatus);
+
+    /**
+     * 统计指定状态的定时器数量
+     *
+     * @param status 状态
+     * @return 数量
+     */
+    long countByStatus(String status);
+}
@@ -0,0 +1,34 @@
+package com.example.process.repository;
+
+import com.example.process.model.engine.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * 发件箱消息数据访问接口
+ */
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * 统计指定状态的消息数量
+     *
+     * @param status 状态
+     * @return 消息数量
+     */
+    long countByStatus(String status);
+
+    /**
+     * 统计实例在指定节点上发布的、处于给定状态的消息数量
+     *
+     * @param flowInstanceId 流程实例ID
+     * @param nodeId         节点ID
+     * @param topic          主题
+     * @param statuses       状态
+     * @return 消息数量
+     */
+    long countByFlowInstanceIdAndNodeIdAndTopicAndStatusIn(Long flowInstanceId, String nodeId, String topic,
+                                                           Collection<String> statuses);
+}
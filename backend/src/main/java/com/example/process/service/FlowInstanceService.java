@@ -172,6 +172,15 @@ public interface FlowInstanceService {
      */
     Map<String, Object> getInstanceVariables(Long instanceId);
 
+    /**
+     * 获取流程实例的单个变量
+     *
+     * @param instanceId 流程实例ID
+     * @param key        变量名
+     * @return 变量值，不存在时返回 null
+     */
+    Object getInstanceVariable(Long instanceId, String key);
+
     /**
      * 获取流程实例活动节点
      *
@@ -1,5 +1,8 @@
 package com.example.process.service.impl;
 
+import com.example.process.engine.cluster.InstanceOwnership;
+import com.example.process.engine.context.InstanceContextCache;
+import com.example.process.engine.context.InstanceRuntimeContext;
 import com.example.process.exception.BusinessException;
 import com.example.process.model.common.PageRequest;
 import com.example.process.model.common.PageResult;
@@ -37,14 +40,20 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
     private final FlowInstanceRepository flowInstanceRepository;
     private final FlowDefinitionRepository flowDefinitionRepository;
     private final FlowVersionRepository flowVersionRepository;
+    private final InstanceContextCache instanceContextCache;
+    private final InstanceOwnership instanceOwnership;
 
     public FlowInstanceServiceImpl(
             FlowInstanceRepository flowInstanceRepository,
             FlowDefinitionRepository flowDefinitionRepository,
-            FlowVersionRepository flowVersionRepository) {
+            FlowVersionRepository flowVersionRepository,
+            InstanceContextCache instanceContextCache,
+            InstanceOwnership instanceOwnership) {
         this.flowInstanceRepository = flowInstanceRepository;
         this.flowDefinitionRepository = flowDefinitionRepository;
         this.flowVersionRepository = flowVersionRepository;
+        this.instanceContextCache = instanceContextCache;
+        this.instanceOwnership = instanceOwnership;
     }
 
     @Override
@@ -114,6 +123,7 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
     @Override
     @Transactional
     public FlowInstanceDTO startInstance(Long instanceId) {
+        instanceOwnership.checkOwner(instanceId);
         FlowInstance instance = getInstanceEntity(instanceId);
         
         // 验证状态
@@ -136,6 +146,7 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
     @Override
     @Transactional
     public FlowInstanceDTO suspendInstance(Long instanceId) {
+        instanceOwnership.checkOwner(instanceId);
         FlowInstance instance = getInstanceEntity(instanceId);
         
         // 验证状态
@@ -157,6 +168,7 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
     @Override
     @Transactional
     public FlowInstanceDTO resumeInstance(Long instanceId) {
+        instanceOwnership.checkOwner(instanceId);
         FlowInstance instance = getInstanceEntity(instanceId);
         
         // 验证状态
@@ -178,6 +190,7 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
     @Override
     @Transactional
     public FlowInstanceDTO cancelInstance(Long instanceId) {
+        instanceOwnership.checkOwner(instanceId);
         FlowInstance instance = getInstanceEntity(instanceId);
         
         // 验证状态
@@ -196,8 +209,13 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
             // TODO: 计算运行时长
         }
         
-        // 保存实例
+        // 保存实例，写回运行时上下文中的状态，实例结束后不再缓存
+        InstanceRuntimeContext context = instanceContextCache.acquireIfPresent(instanceId);
+        if (context != null) {
+            instanceContextCache.checkpoint(context);
+        }
         instance = flowInstanceRepository.save(instance);
+        instanceContextCache.evictAfterCommit(instanceId);
         
         // TODO: 触发流程执行引擎取消流程
         
@@ -247,19 +265,20 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
     @Override
     @Transactional
     public FlowInstanceDTO updateVariables(Long instanceId, Map<String, Object> variables) {
+        instanceOwnership.checkOwner(instanceId);
         FlowInstance instance = getInstanceEntity(instanceId);
         
-        // 更新变量
+        // 更新变量：合并到运行时上下文，按写回策略持久化
         if (variables != null) {
-            // 合并变量
-            Map<String, Object> existingVariables = getInstanceVariables(instanceId);
-            existingVariables.putAll(variables);
-            instance.setVariables(JsonUtils.toJsonString(existingVariables));
+            InstanceRuntimeContext context = instanceContextCache.acquire(instance);
+            Map<String, Object> mergedVariables = context.copyVariables();
+            mergedVariables.putAll(variables);
+            instanceContextCache.update(context, mergedVariables, context.copyActiveNodeIds());
+            if (instanceContextCache.isCheckpointDue(context)) {
+                instanceContextCache.checkpoint(context);
+            }
         }
         
-        // 保存实例
-        instance = flowInstanceRepository.save(instance);
-        
         return convertToDTO(instance);
     }
 
@@ -347,6 +366,7 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
         
         // 删除实例
         flowInstanceRepository.delete(instance);
+        instanceContextCache.evict(instanceId);
         
         // TODO: 删除相关的执行记录、设备动作等
     }
@@ -366,6 +386,12 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
 
     @Override
     public Map<String, Object> getInstanceVariables(Long instanceId) {
+        // 优先读取运行时上下文
+        InstanceRuntimeContext context = instanceContextCache.find(instanceId);
+        if (context != null) {
+            return context.copyVariables();
+        }
+        
         FlowInstance instance = getInstanceEntity(instanceId);
         
         // 解析变量
@@ -376,8 +402,33 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
         }
     }
 
+    @Override
+    public Object getInstanceVariable(Long instanceId, String key) {
+        // 优先读取运行时上下文
+        InstanceRuntimeContext context = instanceContextCache.find(instanceId);
+        if (context != null) {
+            return context.getVariable(key);
+        }
+        
+        // 只取出单个变量
+        String json = flowInstanceRepository.findVariableJson(instanceId, key);
+        if (json == null) {
+            if (!flowInstanceRepository.existsById(instanceId)) {
+                throw new BusinessException("流程实例不存在: " + instanceId);
+            }
+            return null;
+        }
+        return JsonUtils.parseObject(json, Object.class);
+    }
+
     @Override
     public List<String> getActiveNodes(Long instanceId) {
+        // 优先读取运行时上下文
+        InstanceRuntimeContext context = instanceContextCache.find(instanceId);
+        if (context != null) {
+            return context.copyActiveNodeIds();
+        }
+        
         FlowInstance instance = getInstanceEntity(instanceId);
         
         // 解析活动节点
@@ -417,15 +468,19 @@ public class FlowInstanceServiceImpl implements FlowInstanceService {
             dto.setStatusDesc("未知状态");
         }
         
-        // 解析活动节点
-        if (StringUtils.hasText(instance.getActiveNodeIds())) {
+        // 解析活动节点和变量，热点实例直接取运行时上下文
+        InstanceRuntimeContext context = instanceContextCache.find(instance.getId());
+        if (context != null) {
+            dto.setActiveNodeIds(context.copyActiveNodeIds());
+        } else if (StringUtils.hasText(instance.getActiveNodeIds())) {
             dto.setActiveNodeIds(JsonUtils.parseArray(instance.getActiveNodeIds(), String.class));
         } else {
             dto.setActiveNodeIds(new ArrayList<>());
         }
         
-        // 解析变量
-        if (StringUtils.hasText(instance.getVariables())) {
+        if (context != null) {
+            dto.setVariables(context.copyVariables());
+        } else if (StringUtils.hasText(instance.getVariables())) {
             dto.setVariables(JsonUtils.parseObject(instance.getVariables(), Map.class));
         } else {
             dto.setVariables(new HashMap<>());
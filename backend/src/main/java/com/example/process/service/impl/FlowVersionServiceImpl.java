@@ -1,5 +1,7 @@
 package com.example.process.service.impl;
 
+import com.example.process.engine.event.EventSubscriptionIndex;
+import com.example.process.engine.graph.FlowGraphCache;
 import com.example.process.exception.BusinessException;
 import com.example.process.model.common.PageRequest;
 import com.example.process.model.common.PageResult;
@@ -31,6 +33,8 @@ public class FlowVersionServiceImpl implements FlowVersionService {
 
     private final FlowVersionRepository flowVersionRepository;
     private final FlowDefinitionRepository flowDefinitionRepository;
+    private final FlowGraphCache flowGraphCache;
+    private final EventSubscriptionIndex eventSubscriptionIndex;
 
     @Override
     @Transactional
@@ -83,6 +87,7 @@ public class FlowVersionServiceImpl implements FlowVersionService {
 
         // 保存更新
         FlowVersion updatedFlowVersion = flowVersionRepository.save(flowVersion);
+        flowGraphCache.invalidate(id);
 
         log.info("更新流程版本成功：id={}, flowDefinitionId={}, version={}", 
                 updatedFlowVersion.getId(), updatedFlowVersion.getFlowDefinitionId(), updatedFlowVersion.getVersion());
@@ -150,6 +155,7 @@ public class FlowVersionServiceImpl implements FlowVersionService {
 
         // 保存更新
         FlowVersion publishedFlowVersion = flowVersionRepository.save(flowVersion);
+        flowGraphCache.invalidate(id);
 
         log.info("发布流程版本成功：id={}, flowDefinitionId={}, version={}", 
                 publishedFlowVersion.getId(), publishedFlowVersion.getFlowDefinitionId(), publishedFlowVersion.getVersion());
@@ -169,6 +175,7 @@ public class FlowVersionServiceImpl implements FlowVersionService {
 
         // 保存更新
         FlowVersion disabledFlowVersion = flowVersionRepository.save(flowVersion);
+        eventSubscriptionIndex.unregisterStartTrigger(id);
 
         log.info("禁用流程版本成功：id={}, flowDefinitionId={}, version={}", 
                 disabledFlowVersion.getId(), disabledFlowVersion.getFlowDefinitionId(), disabledFlowVersion.getVersion());
@@ -208,6 +215,10 @@ public class FlowVersionServiceImpl implements FlowVersionService {
         flowDefinition.setCurrentVersion(flowVersion.getVersion());
         flowDefinitionRepository.save(flowDefinition);
 
+        // 当前版本开始节点配置了事件类型时，匹配的事件到达即启动新实例
+        eventSubscriptionIndex.registerStartTrigger(flowVersion.getFlowDefinitionId(), id,
+                flowGraphCache.get(id).getStartNode());
+
         log.info("设置流程版本为当前版本成功：id={}, flowDefinitionId={}, version={}", 
                 currentFlowVersion.getId(), currentFlowVersion.getFlowDefinitionId(), currentFlowVersion.getVersion());
         
@@ -229,6 +240,7 @@ public class FlowVersionServiceImpl implements FlowVersionService {
         // 逻辑删除
         flowVersion.setIsDeleted(true);
         flowVersionRepository.save(flowVersion);
+        flowGraphCache.invalidate(id);
 
         log.info("删除流程版本成功：id={}, flowDefinitionId={}, version={}", 
                 flowVersion.getId(), flowVersion.getFlowDefinitionId(), flowVersion.getVersion());
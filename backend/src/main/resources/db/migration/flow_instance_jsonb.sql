@@ -0,0 +1,5 @@
+-- 流程实例变量和活动节点由 TEXT 改为 jsonb
+-- ddl-auto: update 不会修改已有列的类型，已有数据库需手动执行一次
+ALTER TABLE flow_instance
+    ALTER COLUMN variables TYPE jsonb USING CAST(NULLIF(variables, '') AS jsonb),
+    ALTER COLUMN active_node_ids TYPE jsonb USING CAST(NULLIF(active_node_ids, '') AS jsonb);
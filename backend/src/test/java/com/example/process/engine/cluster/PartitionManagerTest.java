@@ -0,0 +1,222 @@
+package com.example.process.engine.cluster;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实例分区管理器测试：同一个 JVM 中的多个管理器模拟多个引擎节点，共享一个 PostgreSQL 数据库
+ */
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_VARIABLE, matches = ".+")
+class PartitionManagerTest {
+
+    private static final int PARTITIONS = 16;
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private final List<PartitionManager> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.dataSource();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS flow_engine_node (id BIGSERIAL PRIMARY KEY, " +
+                "node_id VARCHAR(255) NOT NULL UNIQUE, address VARCHAR(255), backend_pid INTEGER, " +
+                "heartbeat_time TIMESTAMP NOT NULL, created_at TIMESTAMP NOT NULL, created_by VARCHAR(255), " +
+                "updated_at TIMESTAMP, updated_by VARCHAR(255), is_deleted BOOLEAN NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS flow_engine_partition (id BIGSERIAL PRIMARY KEY, " +
+                "partition_no INTEGER NOT NULL UNIQUE, owner_node VARCHAR(255) NOT NULL, epoch BIGINT NOT NULL, " +
+                "created_at TIMESTAMP NOT NULL, created_by VARCHAR(255), updated_at TIMESTAMP, " +
+                "updated_by VARCHAR(255), is_deleted BOOLEAN NOT NULL)");
+        jdbcTemplate.update("DELETE FROM flow_engine_node");
+        jdbcTemplate.update("DELETE FROM flow_engine_partition");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(PartitionManager::stop);
+    }
+
+    @Test
+    void nodesSplitPartitionsWithoutOverlap() {
+        PartitionManager a = start("node-a");
+        assertEquals(PARTITIONS, a.getOwnedPartitions().size());
+
+        PartitionManager b = start("node-b");
+        PartitionManager c = start("node-c");
+        settle();
+
+        Set<Integer> all = new HashSet<>();
+        for (PartitionManager node : nodes) {
+            Set<Integer> owned = node.getOwnedPartitions();
+            assertTrue(owned.size() <= (PARTITIONS + 2) / 3, node.getNodeId() + " 持有过多分区: " + owned);
+            for (Integer partition : owned) {
+                assertTrue(all.add(partition), "分区被多个节点持有: " + partition);
+            }
+        }
+        assertEquals(PARTITIONS, all.size());
+        for (long instanceId = 1; instanceId <= 100; instanceId++) {
+            long id = instanceId;
+            assertEquals(1, nodes.stream().filter(node -> node.owns(id)).count(), "实例归属不唯一: " + id);
+        }
+        assertNotNull(b.findOwnerAddress(1L));
+        assertNotNull(c.findOwnerAddress(2L));
+    }
+
+    @Test
+    void survivorTakesOverStoppedNode() {
+        PartitionManager a = start("node-a");
+        PartitionManager b = start("node-b");
+        settle();
+        assertFalse(b.getOwnedPartitions().isEmpty());
+
+        b.stop();
+        nodes.remove(b);
+        a.heartbeat();
+
+        assertEquals(PARTITIONS, a.getOwnedPartitions().size());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (long instanceId = 1; instanceId <= PARTITIONS; instanceId++) {
+                assertTrue(a.holdsFence(instanceId));
+            }
+        });
+    }
+
+    @Test
+    void staleOwnerIsFencedAfterTakeover() {
+        PartitionManager a = start("node-a");
+        long instanceId = PARTITIONS + 3;
+        transactionTemplate.executeWithoutResult(status -> assertTrue(a.holdsFence(instanceId)));
+
+        // 锁连接被断开，a 要到下一次心跳才会发现，b 在此之前接管
+        terminateLockConnection("node-a");
+        PartitionManager b = start("node-b", 1);
+
+        assertTrue(a.owns(instanceId), "a 尚未察觉分区丢失");
+        assertTrue(b.owns(instanceId));
+        transactionTemplate.executeWithoutResult(status -> {
+            assertFalse(a.holdsFence(instanceId));
+            assertTrue(b.holdsFence(instanceId));
+        });
+
+        a.heartbeat();
+        assertFalse(a.owns(instanceId));
+    }
+
+    @Test
+    void takeoverWaitsForInFlightWrite() throws Exception {
+        PartitionManager a = start("node-a");
+        long instanceId = PARTITIONS + 5;
+        CountDownLatch fenced = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Thread writer = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(a.holdsFence(instanceId));
+            fenced.countDown();
+            await(commit);
+        }));
+        writer.start();
+        assertTrue(fenced.await(5, TimeUnit.SECONDS));
+
+        terminateLockConnection("node-a");
+        PartitionManager b = node("node-b", 1);
+        Thread takeover = new Thread(b::start);
+        takeover.start();
+
+        // a 的写事务未结束前，b 无法登记为分区持有者
+        takeover.join(500);
+        assertTrue(takeover.isAlive());
+        assertFalse(b.owns(instanceId));
+
+        commit.countDown();
+        writer.join(5000);
+        takeover.join(5000);
+        assertFalse(takeover.isAlive());
+        assertTrue(b.owns(instanceId));
+    }
+
+    private PartitionManager start(String nodeId) {
+        return start(nodeId, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    private PartitionManager start(String nodeId, long nodeTimeoutMs) {
+        PartitionManager node = node(nodeId, nodeTimeoutMs);
+        node.start();
+        return node;
+    }
+
+    /**
+     * @param nodeTimeoutMs 节点超时；接管测试中取 1 毫秒，被断开锁连接的节点不再计入存活节点，接管节点抢占全部分区
+     */
+    private PartitionManager node(String nodeId, long nodeTimeoutMs) {
+        EngineProperties.Cluster properties = new EngineProperties.Cluster();
+        properties.setEnabled(true);
+        properties.setPartitionCount(PARTITIONS);
+        // 心跳由测试手动触发
+        properties.setHeartbeatIntervalMs(TimeUnit.HOURS.toMillis(1));
+        properties.setNodeTimeoutMs(nodeTimeoutMs);
+        PartitionManager node = new PartitionManager(dataSource, transactionTemplate, properties, nodeId,
+                "http://" + nodeId, new PartitionListener() {
+                    @Override
+                    public void onAssigned(Set<Integer> partitions) {
+                    }
+
+                    @Override
+                    public void onRevoked(Set<Integer> partitions) {
+                    }
+                });
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * 所有节点轮流心跳直到分区分配稳定
+     */
+    private void settle() {
+        for (int round = 0; round < 5; round++) {
+            nodes.forEach(PartitionManager::heartbeat);
+        }
+    }
+
+    private void terminateLockConnection(String nodeId) {
+        Integer pid = jdbcTemplate.queryForObject("SELECT backend_pid FROM flow_engine_node WHERE node_id = ?",
+                Integer.class, nodeId);
+        jdbcTemplate.queryForObject("SELECT pg_terminate_backend(?)", Boolean.class, pid);
+        // 会话退出后咨询锁才会释放
+        for (int i = 0; i < 100 && jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_stat_activity WHERE pid = ?", Integer.class, pid) > 0; i++) {
+            sleep(20);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
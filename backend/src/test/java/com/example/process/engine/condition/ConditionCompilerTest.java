@@ -0,0 +1,153 @@
+package com.example.process.engine.condition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 条件表达式编译器测试
+ * 期望值均为同一表达式和变量在 ConditionEvaluator.ts（evaluateCondition）中的求值结果
+ */
+class ConditionCompilerTest {
+
+    @Test
+    void equalityIsStrict() {
+        assertTrue(evaluate(binary("eq", variable("x"), constant("5")), vars("x", 5)));
+        assertTrue(evaluate(binary("eq", variable("x"), constant("5")), vars("x", 5.0)));
+        // "5" === 5
+        assertFalse(evaluate(binary("eq", variable("x"), constant("5")), vars("x", "5")));
+        assertTrue(evaluate(binary("eq", variable("x"), constant("\"on\"")), vars("x", "on")));
+        assertTrue(evaluate(binary("eq", variable("x"), constant("true")), vars("x", true)));
+        // 不存在的变量取 null：null === null，null !== undefined
+        assertTrue(evaluate(binary("eq", variable("missing"), constant("null")), vars()));
+        assertFalse(evaluate(binary("eq", variable("missing"), undefinedConstant()), vars()));
+        assertTrue(evaluate(binary("neq", variable("missing"), undefinedConstant()), vars()));
+        // 数组按引用比较：同一变量相等，内容相同的两个数组不相等
+        assertTrue(evaluate(binary("eq", variable("a"), variable("a")), vars("a", List.of(1))));
+        assertFalse(evaluate(binary("eq", variable("a"), variable("b")), vars("a", List.of(1), "b", List.of(1))));
+    }
+
+    @Test
+    void relationalComparisonFollowsJavaScript() {
+        // 两侧都是字符串时按字符比较："10" > "9" 为 false
+        assertFalse(evaluate(binary("gt", variable("x"), constant("\"9\"")), vars("x", "10")));
+        // 一侧是数值时转换为数值比较："10" > 9
+        assertTrue(evaluate(binary("gt", variable("x"), constant("9")), vars("x", "10")));
+        // null 转换为 0：null > -1、null < 1
+        assertTrue(evaluate(binary("gt", variable("missing"), constant("-1")), vars()));
+        assertTrue(evaluate(binary("lt", variable("missing"), constant("1")), vars()));
+        // 不能转换为数值的字符串和 undefined 为 NaN，所有比较都为 false
+        assertFalse(evaluate(binary("gt", variable("x"), constant("1")), vars("x", "abc")));
+        assertFalse(evaluate(binary("lte", variable("x"), constant("1")), vars("x", "abc")));
+        assertFalse(evaluate(binary("gte", variable("x"), undefinedConstant()), vars("x", 1)));
+        // 布尔值转换为 0/1
+        assertTrue(evaluate(binary("gt", variable("x"), constant("0")), vars("x", true)));
+        // 数组先转换为字符串："10" < "9"；[5] > 4
+        assertTrue(evaluate(binary("lt", variable("a"), variable("b")), vars("a", List.of(10), "b", List.of(9))));
+        assertTrue(evaluate(binary("gt", variable("a"), constant("4")), vars("a", List.of(5))));
+        // 十六进制字符串和首尾空白
+        assertTrue(evaluate(binary("gte", variable("x"), constant("31")), vars("x", " 0x1F ")));
+        // 嵌套表达式的结果是布尔值：(x > 1) > 0
+        assertTrue(evaluate(binary("gt", binary("gt", variable("x"), constant("1")), constant("0")), vars("x", 2)));
+        assertFalse(evaluate(binary("gt", binary("gt", variable("x"), constant("1")), constant("0")), vars("x", 0)));
+    }
+
+    @Test
+    void logicalOperatorsUseTruthiness() {
+        assertFalse(evaluate(nary("and", variable("x"), constant("true")), vars("x", "")));
+        assertTrue(evaluate(nary("or", variable("x"), variable("y")), vars("x", 0, "y", "a")));
+        assertTrue(evaluate(nary("not", variable("x")), vars("x", Double.NaN)));
+        assertFalse(evaluate(nary("not", variable("x")), vars("x", List.of())));
+        // [].every(Boolean) 为 true，[].some(Boolean) 为 false
+        assertTrue(evaluate(nary("and"), vars()));
+        assertFalse(evaluate(nary("or"), vars()));
+    }
+
+    @Test
+    void stringOperatorsRequireStrings() {
+        assertTrue(evaluate(binary("contains", variable("x"), constant("\"ell\"")), vars("x", "hello")));
+        assertFalse(evaluate(binary("contains", variable("x"), constant("\"1\"")), vars("x", 123)));
+        assertTrue(evaluate(binary("startsWith", variable("x"), constant("\"he\"")), vars("x", "hello")));
+        assertTrue(evaluate(binary("endsWith", variable("x"), constant("\"lo\"")), vars("x", "hello")));
+        assertFalse(evaluate(binary("endsWith", variable("missing"), constant("\"lo\"")), vars()));
+    }
+
+    @Test
+    void membershipUsesSameValueZero() {
+        assertTrue(evaluate(binary("in", variable("x"), constant("[1, 2, 3]")), vars("x", 2)));
+        assertTrue(evaluate(binary("in", variable("x"), constant("[1, 2, 3]")), vars("x", 2.0)));
+        assertFalse(evaluate(binary("in", variable("x"), constant("[1, 2, 3]")), vars("x", "2")));
+        assertTrue(evaluate(binary("notIn", variable("x"), constant("[1, 2, 3]")), vars("x", "2")));
+        assertTrue(evaluate(binary("in", variable("x"), constant("[\"a\", \"b\"]")), vars("x", "b")));
+        assertTrue(evaluate(binary("in", variable("x"), constant("[1, \"2\"]")), vars("x", "2")));
+        assertTrue(evaluate(binary("in", variable("x"), variable("list")),
+                vars("x", Double.NaN, "list", List.of(1, Double.NaN))));
+        // 集合不是数组时 in 和 notIn 都为 false
+        assertFalse(evaluate(binary("in", variable("x"), constant("\"abc\"")), vars("x", "a")));
+        assertFalse(evaluate(binary("notIn", variable("x"), constant("\"abc\"")), vars("x", "a")));
+        assertFalse(evaluate(binary("notIn", variable("x"), variable("missing")), vars("x", 1)));
+    }
+
+    @Test
+    void nullChecksTreatNullAndUndefinedAsEmpty() {
+        assertTrue(evaluate(nary("isNull", variable("missing")), vars()));
+        assertTrue(evaluate(nary("isNull", undefinedConstant()), vars()));
+        assertTrue(evaluate(nary("isNull"), vars()));
+        assertTrue(evaluate(nary("isNotNull", variable("x")), vars("x", 0)));
+        // 服务端没有可用函数，函数操作数取 null
+        assertTrue(evaluate(nary("isNull", "{\"type\": \"function\", \"value\": \"now\"}"), vars()));
+    }
+
+    @Test
+    void malformedExpressionsAreFalse() {
+        assertNull(ConditionCompiler.compile(""));
+        assertFalse(ConditionCompiler.compile("{not json").evaluate(vars()));
+        assertFalse(evaluate(binary("matches", variable("x"), constant("1")), vars("x", 1)));
+        assertFalse(evaluate("{\"operator\": \"eq\"}", vars()));
+        // 'operator' in 1 抛出异常，整个表达式为 false
+        assertFalse(evaluate("{\"operator\": \"isNotNull\", \"operands\": [1]}", vars()));
+    }
+
+    @Test
+    void collectsVariableNames() {
+        CompiledCondition condition = ConditionCompiler.compile(nary("and",
+                binary("gt", variable("a"), constant("1")), binary("lt", variable("b"), variable("a"))));
+        assertArrayEquals(new String[]{"a", "b"}, condition.getVariableNames());
+    }
+
+    private static boolean evaluate(String expression, Map<String, Object> variables) {
+        return ConditionCompiler.compile(expression).evaluate(variables);
+    }
+
+    private static String binary(String operator, String left, String right) {
+        return nary(operator, left, right);
+    }
+
+    private static String nary(String operator, String... operands) {
+        return "{\"operator\": \"" + operator + "\", \"operands\": [" + String.join(", ", operands) + "]}";
+    }
+
+    private static String variable(String name) {
+        return "{\"type\": \"variable\", \"value\": \"" + name + "\"}";
+    }
+
+    private static String constant(String json) {
+        return "{\"type\": \"constant\", \"value\": " + json + "}";
+    }
+
+    private static String undefinedConstant() {
+        return "{\"type\": \"constant\"}";
+    }
+
+    private static Map<String, Object> vars(Object... pairs) {
+        Map<String, Object> variables = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            variables.put((String) pairs[i], pairs[i + 1]);
+        }
+        return variables;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.process.engine.condition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JavaScript 取值语义测试，期望值为对应 JavaScript 表达式的结果
+ */
+class JsValuesTest {
+
+    @Test
+    void toNumberFollowsEcmaScript() {
+        assertEquals(0, JsValues.toNumber(null));
+        assertTrue(Double.isNaN(JsValues.toNumber(JsValues.UNDEFINED)));
+        assertEquals(1, JsValues.toNumber(true));
+        assertEquals(0, JsValues.toNumber(""));
+        assertEquals(0, JsValues.toNumber("  "));
+        assertEquals(12.5, JsValues.toNumber(" 12.5\n"));
+        assertEquals(1000, JsValues.toNumber("1e3"));
+        assertEquals(0.5, JsValues.toNumber(".5"));
+        assertEquals(31, JsValues.toNumber("0x1F"));
+        assertEquals(5, JsValues.toNumber("0b101"));
+        assertEquals(Double.NEGATIVE_INFINITY, JsValues.toNumber("-Infinity"));
+        assertTrue(Double.isNaN(JsValues.toNumber("12px")));
+        assertTrue(Double.isNaN(JsValues.toNumber("0x")));
+        assertTrue(Double.isNaN(JsValues.toNumber("-0x1F")));
+        assertTrue(Double.isNaN(JsValues.toNumber("infinity")));
+        // Number([]) 为 0，Number([7]) 为 7，Number([1, 2]) 为 NaN，Number({}) 为 NaN
+        assertEquals(0, JsValues.toNumber(List.of()));
+        assertEquals(7, JsValues.toNumber(List.of(7)));
+        assertTrue(Double.isNaN(JsValues.toNumber(List.of(1, 2))));
+        assertTrue(Double.isNaN(JsValues.toNumber(Map.of())));
+    }
+
+    @Test
+    void toJsStringFollowsEcmaScript() {
+        assertEquals("null", JsValues.toJsString(null));
+        assertEquals("undefined", JsValues.toJsString(JsValues.UNDEFINED));
+        assertEquals("123", JsValues.toJsString(123.0));
+        assertEquals("0", JsValues.toJsString(-0.0));
+        assertEquals("0.1", JsValues.toJsString(0.1));
+        assertEquals("-2.5", JsValues.toJsString(-2.5));
+        assertEquals("0.000001", JsValues.toJsString(1e-6));
+        assertEquals("9.9e-7", JsValues.toJsString(9.9e-7));
+        assertEquals("1.5e-7", JsValues.toJsString(1.5e-7));
+        assertEquals("1e+21", JsValues.toJsString(1e21));
+        assertEquals("100000000000000000000", JsValues.toJsString(1e20));
+        assertEquals("NaN", JsValues.toJsString(Double.NaN));
+        assertEquals("-Infinity", JsValues.toJsString(Double.NEGATIVE_INFINITY));
+        // String([1, null, 2]) 为 "1,,2"，嵌套数组展开
+        assertEquals("1,,2", JsValues.toJsString(Arrays.asList(1, null, 2)));
+        assertEquals("1,2,3", JsValues.toJsString(List.of(1, List.of(2, 3))));
+        assertEquals("[object Object]", JsValues.toJsString(Map.of("a", 1)));
+    }
+
+    @Test
+    void truthiness() {
+        assertFalse(JsValues.truthy(null));
+        assertFalse(JsValues.truthy(JsValues.UNDEFINED));
+        assertFalse(JsValues.truthy(0));
+        assertFalse(JsValues.truthy(-0.0));
+        assertFalse(JsValues.truthy(Double.NaN));
+        assertFalse(JsValues.truthy(""));
+        assertTrue(JsValues.truthy("0"));
+        assertTrue(JsValues.truthy(List.of()));
+        assertTrue(JsValues.truthy(Map.of()));
+    }
+
+    @Test
+    void equalityAndSameValueZero() {
+        assertTrue(JsValues.strictEquals(1, 1.0));
+        assertTrue(JsValues.strictEquals(0, -0.0));
+        assertFalse(JsValues.strictEquals(Double.NaN, Double.NaN));
+        assertTrue(JsValues.sameValueZero(Double.NaN, Double.NaN));
+        assertFalse(JsValues.strictEquals("1", 1));
+        assertFalse(JsValues.strictEquals(null, JsValues.UNDEFINED));
+        assertFalse(JsValues.strictEquals(List.of(1), List.of(1)));
+    }
+
+    @Test
+    void relationalComparison() {
+        assertTrue(JsValues.compare("lt", "a", "b"));
+        assertTrue(JsValues.compare("lt", "B", "a"));
+        assertFalse(JsValues.compare("gt", "10", "9"));
+        assertTrue(JsValues.compare("gt", "10", 9));
+        // null >= 0 为 true，undefined >= 0 为 false
+        assertTrue(JsValues.compare("gte", null, 0));
+        assertFalse(JsValues.compare("gte", JsValues.UNDEFINED, 0));
+        assertFalse(JsValues.compareNumbers("lte", Double.NaN, Double.NaN));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.process.engine.device;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 熔断器测试
+ */
+class CircuitBreakerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 50, 100, 2);
+        assertTrue(breaker.tryAcquire(0));
+        breaker.record(true, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.record(false, 10 * MS);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getOpened());
+        assertFalse(breaker.tryAcquire(50 * MS));
+        assertEquals(60, breaker.remainingOpenMs(50 * MS));
+    }
+
+    @Test
+    void doesNotOpenBeforeMinimumCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 3, 50, 100, 1);
+        breaker.record(false, 0);
+        breaker.record(true, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        // 只在记录失败时判断是否打开
+        breaker.record(false, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void slidingWindowForgetsOldFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 75, 100, 1);
+        breaker.record(false, 0);
+        for (int i = 0; i < 4; i++) {
+            breaker.record(true, 0);
+        }
+        assertEquals(0, breaker.getFailureRate());
+        breaker.record(false, 0);
+        breaker.record(false, 0);
+        assertEquals(50, breaker.getFailureRate());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulTrials() {
+        CircuitBreaker breaker = opened(2);
+        assertTrue(breaker.tryAcquire(100 * MS));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire(100 * MS));
+        assertFalse(breaker.tryAcquire(100 * MS), "半开状态放行了超过试探次数的调用");
+
+        breaker.record(true, 110 * MS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.record(true, 120 * MS);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+    }
+
+    @Test
+    void halfOpenFailureReopens() {
+        CircuitBreaker breaker = opened(2);
+        assertTrue(breaker.tryAcquire(100 * MS));
+        breaker.record(false, 150 * MS);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpened());
+        assertFalse(breaker.tryAcquire(200 * MS));
+        assertTrue(breaker.tryAcquire(250 * MS));
+    }
+
+    @Test
+    void cancelReleasesHalfOpenTrial() {
+        CircuitBreaker breaker = opened(1);
+        assertTrue(breaker.tryAcquire(100 * MS));
+        assertFalse(breaker.tryAcquire(100 * MS));
+        breaker.cancel();
+        assertTrue(breaker.tryAcquire(100 * MS));
+    }
+
+    @Test
+    void resultsRecordedWhileOpenAreIgnored() {
+        CircuitBreaker breaker = opened(1);
+        breaker.record(true, 10 * MS);
+        breaker.record(false, 20 * MS);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getOpened());
+        assertEquals(0, breaker.remainingOpenMs(100 * MS));
+    }
+
+    /**
+     * 在时刻 0 打开、打开 100 毫秒的熔断器
+     */
+    private static CircuitBreaker opened(int halfOpenCalls) {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, 50, 100, halfOpenCalls);
+        breaker.record(false, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.process.engine.event;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 高频事件合并测试
+ */
+class EventCoalescerTest {
+
+    private final FlowEventWriter flowEventWriter = mock(FlowEventWriter.class);
+    private final EventPipeline eventPipeline = mock(EventPipeline.class);
+
+    @Test
+    void keepsOnlyLatestEventInWindow() {
+        EventCoalescer coalescer = coalescer(60_000);
+        assertTrue(coalescer.offer(event("d1", "on", 1)));
+        assertFalse(coalescer.offer(event("d1", "on", 2)));
+        assertFalse(coalescer.offer(event("d1", "on", 3)));
+        // 其他事件源和状态变化立即放行
+        assertTrue(coalescer.offer(event("d2", "on", 1)));
+        assertTrue(coalescer.offer(event("d1", "off", 4)));
+        assertEquals(2, coalescer.getCoalescedCount());
+
+        coalescer.flushDue();
+        verifyNoInteractions(flowEventWriter, eventPipeline);
+    }
+
+    @Test
+    void stopFlushesPendingEventsBeforeWindowEnds() {
+        EventCoalescer coalescer = coalescer(60_000);
+        doAnswer(invocation -> {
+            List<FlowEventDTO> events = invocation.getArgument(0);
+            events.forEach(event -> event.setId(100L));
+            return null;
+        }).when(flowEventWriter).insertBatch(anyList());
+        when(eventPipeline.tryPublish(any())).thenReturn(new CompletableFuture<>());
+
+        assertTrue(coalescer.offer(event("d1", "on", 1)));
+        FlowEventDTO latest = event("d1", "on", 2);
+        assertFalse(coalescer.offer(latest));
+
+        coalescer.stop();
+        verify(flowEventWriter).insertBatch(List.of(latest));
+        verify(eventPipeline).tryPublish(latest);
+        // 关闭后到达的事件不再合并
+        assertTrue(coalescer.offer(event("d1", "on", 3)));
+    }
+
+    private EventCoalescer coalescer(long windowMs) {
+        EngineProperties properties = new EngineProperties();
+        properties.getEventCoalesce().setWindowMs(windowMs);
+        return new EventCoalescer(flowEventWriter, eventPipeline, properties);
+    }
+
+    private static FlowEventDTO event(String sourceId, String status, int value) {
+        FlowEventDTO event = new FlowEventDTO();
+        event.setEventType("device_status_change");
+        event.setSourceId(sourceId);
+        event.setEventData(Map.of("status", status, "value", value));
+        return event;
+    }
+}
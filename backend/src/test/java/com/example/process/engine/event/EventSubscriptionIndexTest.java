@@ -0,0 +1,77 @@
+package com.example.process.engine.event;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.engine.EventSubscription;
+import com.example.process.model.engine.constant.SubscriptionType;
+import com.example.process.repository.EventSubscriptionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 事件订阅索引测试
+ */
+class EventSubscriptionIndexTest {
+
+    private final EventSubscriptionRepository repository = mock(EventSubscriptionRepository.class);
+    private final EventSubscriptionIndex index = new EventSubscriptionIndex(repository, new EngineProperties());
+
+    @Test
+    void matchesExactAndWildcardSubscriptions() {
+        EventSubscription exact = subscription(1L, 100L, "temperature", "device", "d1");
+        EventSubscription anySource = subscription(2L, 101L, "temperature", null, null);
+        EventSubscription other = subscription(3L, 102L, "temperature", "device", "d2");
+        when(repository.findBatchAfter(anyLong(), any())).thenReturn(List.of(exact, anySource, other));
+        index.rebuild();
+
+        assertEquals(List.of(1L, 2L), ids(index.match("temperature", "device", "d1")));
+        assertEquals(List.of(2L), ids(index.match("temperature", null, null)));
+        assertTrue(index.match("humidity", "device", "d1").isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void rebuildKeepsServingOldIndexAndReplaysConcurrentChanges() {
+        EventSubscription first = subscription(1L, 100L, "temperature", "device", "d1");
+        when(repository.findBatchAfter(anyLong(), any())).thenReturn(List.of(first));
+        index.rebuild();
+
+        EventSubscription second = subscription(2L, 101L, "temperature", "device", "d1");
+        when(repository.findBatchAfter(anyLong(), any())).thenAnswer(invocation -> {
+            // 加载期间查找仍看到完整的旧索引
+            assertEquals(List.of(1L), ids(index.match("temperature", "device", "d1")));
+            // 加载期间提交的移除在替换前重放到新索引
+            index.unsubscribeAll(100L);
+            return List.of(first, second);
+        });
+        index.rebuild();
+
+        assertEquals(List.of(2L), ids(index.match("temperature", "device", "d1")));
+        assertEquals(1, index.size());
+    }
+
+    private static EventSubscription subscription(Long id, Long instanceId, String eventType, String sourceType,
+                                                  String sourceId) {
+        EventSubscription subscription = new EventSubscription();
+        subscription.setId(id);
+        subscription.setSubscriptionType(SubscriptionType.INSTANCE.getCode());
+        subscription.setEventType(eventType);
+        subscription.setSourceType(sourceType);
+        subscription.setSourceId(sourceId);
+        subscription.setFlowDefinitionId(1L);
+        subscription.setFlowVersionId(1L);
+        subscription.setFlowInstanceId(instanceId);
+        subscription.setNodeId("event-" + id);
+        return subscription;
+    }
+
+    private static List<Long> ids(List<EventSubscription> subscriptions) {
+        return subscriptions.stream().map(EventSubscription::getId).sorted().toList();
+    }
+}
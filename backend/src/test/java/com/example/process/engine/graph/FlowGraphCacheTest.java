@@ -0,0 +1,53 @@
+package com.example.process.engine.graph;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.model.flow.FlowVersion;
+import com.example.process.repository.FlowVersionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 编译后流程图缓存测试
+ */
+class FlowGraphCacheTest {
+
+    private static final String GRAPH = "{\"nodes\": [{\"id\": \"start\", \"type\": \"START\"}], \"edges\": []}";
+
+    private final FlowVersionRepository repository = mock(FlowVersionRepository.class);
+    private final FlowGraphCache cache = new FlowGraphCache(repository, new EngineProperties());
+
+    @Test
+    void cachesCompiledGraph() {
+        when(repository.findById(1L)).thenReturn(Optional.of(version(1L)));
+        CompiledFlowGraph first = cache.get(1L);
+        assertSame(first, cache.get(1L));
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    void graphLoadedDuringInvalidationIsNotCached() {
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            // 加载期间事务提交，提交后的失效先于写回缓存执行
+            cache.invalidate(1L);
+            return Optional.of(version(1L));
+        }).thenReturn(Optional.of(version(1L)));
+
+        assertNotNull(cache.get(1L));
+        assertEquals(0, cache.size(), "写回了失效之前加载的流程图");
+
+        CompiledFlowGraph reloaded = cache.get(1L);
+        assertSame(reloaded, cache.get(1L));
+        verify(repository, times(2)).findById(1L);
+    }
+
+    private static FlowVersion version(Long id) {
+        FlowVersion version = new FlowVersion();
+        version.setId(id);
+        version.setFlowGraph(GRAPH);
+        return version;
+    }
+}
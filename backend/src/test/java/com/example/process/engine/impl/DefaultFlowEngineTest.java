@@ -0,0 +1,206 @@
+package com.example.process.engine.impl;
+
+import com.example.process.config.EngineProperties;
+import com.example.process.engine.EventHandler;
+import com.example.process.engine.NodeExecutor;
+import com.example.process.engine.cluster.InstanceOwnership;
+import com.example.process.engine.context.InstanceContextCache;
+import com.example.process.engine.context.InstanceRuntimeContext;
+import com.example.process.engine.device.DevicePresence;
+import com.example.process.engine.event.EventSubscriptionIndex;
+import com.example.process.engine.event.FlowEventWriter;
+import com.example.process.engine.graph.CompiledFlowGraph;
+import com.example.process.engine.graph.FlowGraphCache;
+import com.example.process.engine.outbox.Outbox;
+import com.example.process.engine.outbox.TransactionalOutbox;
+import com.example.process.engine.timer.FlowTimerScheduler;
+import com.example.process.engine.window.WindowAggregator;
+import com.example.process.model.engine.FlowExecutionLog;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.FlowTimer;
+import com.example.process.model.engine.OutboxMessage;
+import com.example.process.model.engine.constant.ExecutionStatus;
+import com.example.process.model.engine.constant.InstanceStatus;
+import com.example.process.model.flow.constant.NodeType;
+import com.example.process.model.flow.dto.FlowEdge;
+import com.example.process.model.flow.dto.FlowGraph;
+import com.example.process.model.flow.dto.FlowNode;
+import com.example.process.repository.FlowExecutionLogRepository;
+import com.example.process.repository.FlowInstanceRepository;
+import com.example.process.repository.FlowTimerRepository;
+import com.example.process.service.FlowInstanceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 流程执行引擎测试：一次调用沿自动节点推进到等待状态，推进结果一次性写出
+ */
+class DefaultFlowEngineTest {
+
+    private final FlowInstanceService flowInstanceService = mock(FlowInstanceService.class);
+    private final FlowInstanceRepository flowInstanceRepository = mock(FlowInstanceRepository.class);
+    private final FlowGraphCache flowGraphCache = mock(FlowGraphCache.class);
+    private final InstanceContextCache instanceContextCache = mock(InstanceContextCache.class);
+    private final InstanceRuntimeContext context = mock(InstanceRuntimeContext.class);
+    private final FlowExecutionLogRepository flowExecutionLogRepository = mock(FlowExecutionLogRepository.class);
+    private final FlowTimerScheduler flowTimerScheduler = mock(FlowTimerScheduler.class);
+    private final TransactionalOutbox transactionalOutbox = mock(TransactionalOutbox.class);
+    private final FlowInstance instance = new FlowInstance();
+    private DefaultFlowEngine engine;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<NodeExecutor> nodeExecutors = mock(ObjectProvider.class);
+        when(nodeExecutors.orderedStream()).thenAnswer(invocation ->
+                Stream.of(new DefaultNodeExecutor(), new PublishingExecutor()));
+        ObjectProvider<EventHandler> eventHandlers = mock(ObjectProvider.class);
+        when(eventHandlers.orderedStream()).thenAnswer(invocation -> Stream.empty());
+        engine = new DefaultFlowEngine(flowInstanceService, flowInstanceRepository, flowGraphCache,
+                instanceContextCache, mock(InstanceOwnership.class), mock(EventSubscriptionIndex.class),
+                mock(WindowAggregator.class), mock(DevicePresence.class), flowExecutionLogRepository,
+                (Executor) Runnable::run, flowTimerScheduler, mock(FlowTimerRepository.class), transactionalOutbox,
+                mock(FlowEventWriter.class), mock(PlatformTransactionManager.class), new EngineProperties(),
+                nodeExecutors, eventHandlers);
+
+        instance.setId(1L);
+        instance.setFlowVersionId(10L);
+        instance.setStatus(InstanceStatus.RUNNING.getCode());
+        when(flowInstanceRepository.findById(1L)).thenReturn(Optional.of(instance));
+        when(flowGraphCache.get(10L)).thenReturn(graph());
+        when(instanceContextCache.acquire(instance)).thenReturn(context);
+        when(context.copyVariables()).thenAnswer(invocation -> new HashMap<>());
+    }
+
+    @Test
+    void startRunsAutomaticNodesUntilFirstWaitState() {
+        when(context.copyActiveNodeIds()).thenReturn(new ArrayList<>());
+        engine.startInstance(1L);
+
+        // start、notify、audit 在一次调用中执行，令牌停在 delay 上，之后的节点不执行
+        assertEquals(List.of("start", "notify", "audit"), executed(savedLogs()));
+        verify(instanceContextCache).update(eq(context), argThat(variables -> "sent".equals(variables.get("notify"))),
+                eq(List.of("delay")));
+        assertNotEquals(InstanceStatus.COMPLETED.getCode(), instance.getStatus());
+
+        // 途中产生的发件箱消息和定时器随同一次写出提交，实例同时写回检查点
+        List<OutboxMessage> messages = captureOutbox();
+        assertEquals(1, messages.size());
+        assertEquals("notify", messages.get(0).getNodeId());
+        List<FlowTimer> timers = captureTimers();
+        assertEquals(1, timers.size());
+        assertEquals("delay", timers.get(0).getNodeId());
+        verify(instanceContextCache).checkpoint(context);
+        verify(flowExecutionLogRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void resumingWaitStateRunsToEndInOneCall() {
+        when(context.copyActiveNodeIds()).thenReturn(new ArrayList<>(List.of("delay")));
+        engine.executeNode(1L, "delay", new HashMap<>());
+
+        assertEquals(List.of("delay", "notifyAgain", "end"), executed(savedLogs()));
+        verify(instanceContextCache).update(eq(context), anyMap(), eq(List.of()));
+        assertEquals(InstanceStatus.COMPLETED.getCode(), instance.getStatus());
+        verify(flowInstanceRepository).save(instance);
+        assertEquals(1, captureOutbox().size());
+        assertTrue(captureTimers().isEmpty());
+    }
+
+    /**
+     * start -> notify -> audit -> delay（等待 30 秒） -> notifyAgain -> end
+     */
+    private static CompiledFlowGraph graph() {
+        FlowNode delay = node("delay", NodeType.DELAY);
+        delay.setProperties(Map.of("delaySeconds", 30));
+        FlowGraph graph = new FlowGraph();
+        graph.setNodes(new ArrayList<>(List.of(node("start", NodeType.START), node("notify", PublishingExecutor.TYPE),
+                node("audit", NodeType.TASK), delay, node("notifyAgain", PublishingExecutor.TYPE),
+                node("end", NodeType.END))));
+        graph.setEdges(new ArrayList<>(List.of(edge("start", "notify"), edge("notify", "audit"),
+                edge("audit", "delay"), edge("delay", "notifyAgain"), edge("notifyAgain", "end"))));
+        return CompiledFlowGraph.compile(10L, graph);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<FlowExecutionLog> savedLogs() {
+        ArgumentCaptor<List<FlowExecutionLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(flowExecutionLogRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OutboxMessage> captureOutbox() {
+        ArgumentCaptor<List<OutboxMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionalOutbox).append(captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<FlowTimer> captureTimers() {
+        ArgumentCaptor<List<FlowTimer>> captor = ArgumentCaptor.forClass(List.class);
+        verify(flowTimerScheduler).schedule(captor.capture());
+        return captor.getValue();
+    }
+
+    private static List<String> executed(List<FlowExecutionLog> logs) {
+        List<String> nodeIds = new ArrayList<>();
+        for (FlowExecutionLog executionLog : logs) {
+            if (ExecutionStatus.SUCCESS.getCode().equals(executionLog.getStatus())) {
+                nodeIds.add(executionLog.getNodeId());
+            }
+        }
+        return nodeIds;
+    }
+
+    private static FlowNode node(String id, String type) {
+        FlowNode node = new FlowNode();
+        node.setId(id);
+        node.setType(type);
+        return node;
+    }
+
+    private static FlowEdge edge(String source, String target) {
+        FlowEdge edge = new FlowEdge();
+        edge.setId(source + "-" + target);
+        edge.setSource(source);
+        edge.setTarget(target);
+        return edge;
+    }
+
+    /**
+     * 通过发件箱发布通知、不等待结果的自动节点
+     */
+    private static final class PublishingExecutor implements NodeExecutor {
+
+        private static final String TYPE = "NOTIFY";
+
+        @Override
+        public Map<String, Object> execute(FlowInstance instance, FlowNode node, Map<String, Object> input) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, Object> execute(FlowInstance instance, FlowNode node, Map<String, Object> input,
+                                           Outbox outbox) {
+            outbox.publish("notification", node.getId(), Map.of("nodeId", node.getId()));
+            return Map.of(node.getId(), "sent");
+        }
+
+        @Override
+        public String getSupportedNodeType() {
+            return TYPE;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.process.engine.impl;
+
+import com.example.process.engine.FlowEngine;
+import com.example.process.model.engine.constant.EventType;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.repository.DeviceActionRepository;
+import com.example.process.repository.OutboxMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备动作完成事件处理器测试
+ */
+class DeviceActionCompletionHandlerTest {
+
+    private final DeviceActionRepository deviceActionRepository = mock(DeviceActionRepository.class);
+    private final OutboxMessageRepository outboxMessageRepository = mock(OutboxMessageRepository.class);
+    private final FlowEngine flowEngine = mock(FlowEngine.class);
+    private final DeviceActionCompletionHandler handler;
+
+    @SuppressWarnings("unchecked")
+    DeviceActionCompletionHandlerTest() {
+        ObjectProvider<FlowEngine> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(flowEngine);
+        handler = new DeviceActionCompletionHandler(deviceActionRepository, outboxMessageRepository, provider);
+    }
+
+    @Test
+    void resumesNodeWhenAllCommandsFinished() {
+        when(flowEngine.resumeNode(eq(1L), eq("device"), isNull(), anyMap())).thenReturn(true);
+
+        assertTrue(handler.handleEvent(completed()));
+        verify(flowEngine).resumeNode(eq(1L), eq("device"), isNull(),
+                argThat(input -> "d1".equals(input.get("deviceId"))));
+    }
+
+    @Test
+    void keepsWaitingWhileOtherCommandsAreRunning() {
+        when(deviceActionRepository.countByFlowInstanceIdAndNodeIdAndStatusIn(eq(1L), eq("device"), anyCollection()))
+                .thenReturn(1L);
+
+        assertFalse(handler.handleEvent(completed()));
+        verifyNoInteractions(flowEngine);
+    }
+
+    @Test
+    void keepsWaitingWhileCommandsAreStillInOutbox() {
+        when(outboxMessageRepository.countByFlowInstanceIdAndNodeIdAndTopicAndStatusIn(
+                eq(1L), eq("device"), anyString(), anyCollection())).thenReturn(1L);
+
+        assertFalse(handler.handleEvent(completed()));
+        verifyNoInteractions(flowEngine);
+    }
+
+    private static FlowEventDTO completed() {
+        FlowEventDTO event = new FlowEventDTO();
+        event.setEventType(EventType.DEVICE_ACTION_COMPLETED.getCode());
+        event.setFlowInstanceId(1L);
+        event.setNodeId("device");
+        event.setEventData(Map.of("deviceId", "d1", "status", "success"));
+        return event;
+    }
+}
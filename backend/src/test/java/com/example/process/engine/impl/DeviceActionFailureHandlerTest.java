@@ -0,0 +1,101 @@
+package com.example.process.engine.impl;
+
+import com.example.process.engine.FlowEngine;
+import com.example.process.engine.graph.CompiledFlowGraph;
+import com.example.process.engine.graph.FlowGraphCache;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.constant.EventType;
+import com.example.process.model.engine.constant.InstanceStatus;
+import com.example.process.model.engine.dto.FlowEventDTO;
+import com.example.process.model.flow.constant.NodeType;
+import com.example.process.model.flow.dto.FlowGraph;
+import com.example.process.model.flow.dto.FlowNode;
+import com.example.process.repository.FlowInstanceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备动作失败事件处理器测试
+ */
+class DeviceActionFailureHandlerTest {
+
+    private final FlowInstanceRepository flowInstanceRepository = mock(FlowInstanceRepository.class);
+    private final FlowGraphCache flowGraphCache = mock(FlowGraphCache.class);
+    private final FlowEngine flowEngine = mock(FlowEngine.class);
+    private final DeviceActionFailureHandler handler;
+
+    @SuppressWarnings("unchecked")
+    DeviceActionFailureHandlerTest() {
+        ObjectProvider<FlowEngine> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(flowEngine);
+        handler = new DeviceActionFailureHandler(flowInstanceRepository, flowGraphCache, provider);
+        when(flowGraphCache.get(10L)).thenReturn(graph());
+    }
+
+    @Test
+    void runningInstanceMovesWaitingTokenToErrorNode() {
+        when(flowInstanceRepository.findById(1L)).thenReturn(Optional.of(instance(InstanceStatus.RUNNING)));
+        when(flowEngine.resumeNode(eq(1L), eq("device"), eq("error"), anyMap())).thenReturn(true);
+
+        assertTrue(handler.handleEvent(failure()));
+        verify(flowEngine).resumeNode(eq(1L), eq("device"), eq("error"),
+                argThat(input -> "device".equals(input.get("failedNodeId")) && "d1".equals(input.get("deviceId"))));
+        verify(flowEngine, never()).executeNode(anyLong(), anyString(), anyMap());
+    }
+
+    @Test
+    void tokenThatLeftTheNodeIsNotMoved() {
+        when(flowInstanceRepository.findById(1L)).thenReturn(Optional.of(instance(InstanceStatus.RUNNING)));
+        when(flowEngine.resumeNode(eq(1L), eq("device"), eq("error"), anyMap())).thenReturn(false);
+
+        assertFalse(handler.handleEvent(failure()));
+        verify(flowEngine, never()).executeNode(anyLong(), anyString(), anyMap());
+    }
+
+    @Test
+    void completedInstanceIsNotAdvanced() {
+        when(flowInstanceRepository.findById(1L)).thenReturn(Optional.of(instance(InstanceStatus.COMPLETED)));
+
+        assertFalse(handler.handleEvent(failure()));
+        verifyNoInteractions(flowEngine);
+    }
+
+    private static FlowEventDTO failure() {
+        FlowEventDTO event = new FlowEventDTO();
+        event.setEventType(EventType.DEVICE_ACTION_FAILED.getCode());
+        event.setFlowInstanceId(1L);
+        event.setNodeId("device");
+        event.setEventData(Map.of("deviceId", "d1", "status", "failed"));
+        return event;
+    }
+
+    private static FlowInstance instance(InstanceStatus status) {
+        FlowInstance instance = new FlowInstance();
+        instance.setId(1L);
+        instance.setFlowVersionId(10L);
+        instance.setStatus(status.getCode());
+        return instance;
+    }
+
+    private static CompiledFlowGraph graph() {
+        FlowNode device = new FlowNode();
+        device.setId("device");
+        device.setType(NodeType.DEVICE_ACTION);
+        device.setProperties(Map.of("deviceId", "d1", "actionType", "open", "errorNodeId", "error"));
+        FlowNode error = new FlowNode();
+        error.setId("error");
+        error.setType(NodeType.TASK);
+        FlowGraph graph = new FlowGraph();
+        graph.setNodes(new ArrayList<>(List.of(device, error)));
+        return CompiledFlowGraph.compile(10L, graph);
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.process.engine.impl;
+
+import com.example.process.engine.NodeExecutor;
+import com.example.process.engine.device.DeviceCommandSink;
+import com.example.process.engine.graph.CompiledFlowGraph;
+import com.example.process.model.engine.FlowExecutionLog;
+import com.example.process.model.engine.FlowInstance;
+import com.example.process.model.engine.constant.ExecutionStatus;
+import com.example.process.model.flow.constant.NodeType;
+import com.example.process.model.flow.dto.FlowEdge;
+import com.example.process.model.flow.dto.FlowGraph;
+import com.example.process.model.flow.dto.FlowNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流程推进器测试
+ */
+class FlowRunnerTest {
+
+    private final NodeExecutor defaultExecutor = new DefaultNodeExecutor();
+    private final NodeExecutor deviceExecutor = new DeviceActionNodeExecutor();
+    private final TaskExecutor taskExecutor = new TaskExecutor();
+    private final ExecutorService branchExecutor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        branchExecutor.shutdownNow();
+    }
+
+    @Test
+    void forkRunsBranchesConcurrently() {
+        // 两个分支互相等待对方开始，顺序执行时会超时
+        CountDownLatch started = new CountDownLatch(2);
+        taskExecutor.barrier = started;
+        CompiledFlowGraph graph = graph(List.of(node("start", NodeType.START), node("fork", NodeType.PARALLEL_GATEWAY),
+                        task("a", "a", 1), task("b", "b", 2), node("join", NodeType.PARALLEL_GATEWAY),
+                        node("end", NodeType.END)),
+                edge("start", "fork"), edge("fork", "a"), edge("fork", "b"), edge("a", "join"), edge("b", "join"),
+                edge("join", "end"));
+        FlowRunner runner = runner(graph, new HashMap<>(), new ArrayList<>(), branchExecutor);
+        runner.enterNode("start");
+
+        assertTrue(runner.isCompleted());
+        assertEquals(2, taskExecutor.threads.size());
+        assertEquals(2, new HashSet<>(taskExecutor.threads.values()).size(), "分支没有在不同线程上执行");
+        assertEquals(1, runner.getVariables().get("a"));
+        assertEquals(2, runner.getVariables().get("b"));
+        assertEquals(1, Collections.frequency(executed(runner), "join"));
+        assertEquals(1, Collections.frequency(executed(runner), "end"));
+    }
+
+    @Test
+    void joinWaitsForEveryIncomingEdge() {
+        CompiledFlowGraph graph = graph(List.of(node("start", NodeType.START), node("fork", NodeType.PARALLEL_GATEWAY),
+                        task("a", "a", 1), node("wait", NodeType.WAIT), node("join", NodeType.PARALLEL_GATEWAY),
+                        node("end", NodeType.END)),
+                edge("start", "fork"), edge("fork", "a"), edge("fork", "wait"), edge("a", "join"),
+                edge("wait", "join"), edge("join", "end"));
+        FlowRunner first = runner(graph, new HashMap<>(), new ArrayList<>(), branchExecutor);
+        first.enterNode("start");
+
+        // 一个分支停在等待节点，先到达的令牌停留在汇聚网关上
+        assertFalse(first.isCompleted());
+        assertEquals(Set.of("wait", "join"), new HashSet<>(first.getActiveNodeIds()));
+        assertFalse(executed(first).contains("join"));
+
+        FlowRunner second = runner(graph, first.getVariables(), new ArrayList<>(first.getActiveNodeIds()),
+                branchExecutor);
+        second.executeNode("wait", Map.of());
+        assertTrue(second.isCompleted());
+        assertTrue(second.getActiveNodeIds().isEmpty());
+        assertEquals(List.of("wait", "join", "end"), executed(second));
+    }
+
+    @Test
+    void nestedForkRunsInsideBranch() {
+        CompiledFlowGraph graph = graph(List.of(node("start", NodeType.START), node("outer", NodeType.PARALLEL_GATEWAY),
+                        task("a", "a", 1), node("inner", NodeType.PARALLEL_GATEWAY), task("b", "b", 2),
+                        task("c", "c", 3), node("innerJoin", NodeType.PARALLEL_GATEWAY),
+                        node("outerJoin", NodeType.PARALLEL_GATEWAY), node("end", NodeType.END)),
+                edge("start", "outer"), edge("outer", "a"), edge("outer", "inner"), edge("inner", "b"),
+                edge("inner", "c"), edge("b", "innerJoin"), edge("c", "innerJoin"), edge("innerJoin", "outerJoin"),
+                edge("a", "outerJoin"), edge("outerJoin", "end"));
+        FlowRunner runner = runner(graph, new HashMap<>(), new ArrayList<>(), branchExecutor);
+        runner.enterNode("start");
+
+        assertTrue(runner.isCompleted());
+        assertTrue(runner.getActiveNodeIds().isEmpty());
+        assertEquals(1, runner.getVariables().get("a"));
+        assertEquals(2, runner.getVariables().get("b"));
+        assertEquals(3, runner.getVariables().get("c"));
+        List<String> executed = executed(runner);
+        for (String nodeId : List.of("innerJoin", "outerJoin", "end")) {
+            assertEquals(1, Collections.frequency(executed, nodeId), nodeId + " 执行次数不正确");
+        }
+    }
+
+    @Test
+    void branchWritesMergeInIncomingEdgeOrder() {
+        for (String slow : List.of("x", "y")) {
+            TaskExecutor executor = new TaskExecutor();
+            executor.slowNodeId = slow;
+            CompiledFlowGraph graph = graph(List.of(node("start", NodeType.START),
+                            node("fork", NodeType.PARALLEL_GATEWAY), task("x", "v", "x"), task("y", "v", "y"),
+                            node("join", NodeType.PARALLEL_GATEWAY), node("end", NodeType.END)),
+                    edge("start", "fork"), edge("fork", "x"), edge("fork", "y"), edge("x", "join"),
+                    edge("y", "join"), edge("join", "end"));
+            FlowInstance instance = new FlowInstance();
+            instance.setId(1L);
+            FlowRunner runner = new FlowRunner(instance, graph, new HashMap<>(), new ArrayList<>(),
+                    type -> NodeType.TASK.equals(type) ? executor : defaultExecutor, branchExecutor);
+            runner.enterNode("start");
+
+            // 无论哪个分支先结束，都按汇聚网关入边顺序合并，后一条入边的写入生效
+            assertTrue(runner.isCompleted());
+            assertEquals("y", runner.getVariables().get("v"), "分支 " + slow + " 较慢时合并结果不正确");
+        }
+    }
+
+    @Test
+    void deviceActionNodeWaitsForResult() {
+        CompiledFlowGraph graph = deviceGraph();
+        FlowRunner runner = runner(graph, new HashMap<>(), new ArrayList<>());
+        runner.enterNode("start");
+
+        assertEquals(List.of("device"), runner.getActiveNodeIds());
+        assertFalse(runner.isCompleted(), "设备指令尚未执行，实例不应结束");
+        assertEquals(1, runner.getOutboxMessages().size());
+        assertEquals(DeviceCommandSink.TOPIC, runner.getOutboxMessages().get(0).getTopic());
+        assertEquals(List.of("start", "device"), executed(runner));
+    }
+
+    @Test
+    void resumeAfterSuccessContinuesWithoutResendingCommands() {
+        FlowRunner runner = runner(deviceGraph(), new HashMap<>(), new ArrayList<>(List.of("device")));
+        runner.resumeNode("device", null, Map.of("status", "success"));
+
+        assertTrue(runner.isCompleted());
+        assertTrue(runner.getActiveNodeIds().isEmpty());
+        assertTrue(runner.getOutboxMessages().isEmpty(), "恢复推进时重新下发了设备指令");
+        assertEquals(List.of("end"), executed(runner));
+        assertEquals("success", runner.getVariables().get("status"));
+    }
+
+    @Test
+    void failureMovesWaitingTokenToErrorBranch() {
+        FlowRunner runner = runner(deviceGraph(), new HashMap<>(), new ArrayList<>(List.of("device")));
+        runner.resumeNode("device", "error", Map.of("failedNodeId", "device"));
+
+        assertTrue(runner.getActiveNodeIds().isEmpty(), "设备动作节点上留下了令牌");
+        assertEquals(List.of("error", "errorEnd"), executed(runner));
+        assertTrue(runner.isCompleted());
+        assertEquals("device", runner.getVariables().get("failedNodeId"));
+    }
+
+    /**
+     * start -> device -> end，错误分支 error -> errorEnd
+     */
+    private static CompiledFlowGraph deviceGraph() {
+        FlowNode device = node("device", NodeType.DEVICE_ACTION);
+        device.setProperties(Map.of("deviceId", "d1", "actionType", "open", "errorNodeId", "error"));
+        return graph(List.of(node("start", NodeType.START), device, node("end", NodeType.END),
+                        node("error", NodeType.TASK), node("errorEnd", NodeType.END)),
+                edge("start", "device"), edge("device", "end"), edge("error", "errorEnd"));
+    }
+
+    private FlowRunner runner(CompiledFlowGraph graph, Map<String, Object> variables, List<String> activeNodeIds) {
+        return runner(graph, variables, activeNodeIds, null);
+    }
+
+    private FlowRunner runner(CompiledFlowGraph graph, Map<String, Object> variables, List<String> activeNodeIds,
+                              Executor branchExecutor) {
+        FlowInstance instance = new FlowInstance();
+        instance.setId(1L);
+        return new FlowRunner(instance, graph, variables, activeNodeIds, this::resolve, branchExecutor);
+    }
+
+    private NodeExecutor resolve(String type) {
+        if (NodeType.DEVICE_ACTION.equals(type)) {
+            return deviceExecutor;
+        }
+        return NodeType.TASK.equals(type) ? taskExecutor : defaultExecutor;
+    }
+
+    /**
+     * 按执行顺序返回执行过的节点（不含等待中的节点）
+     */
+    private static List<String> executed(FlowRunner runner) {
+        List<String> nodeIds = new ArrayList<>();
+        for (FlowExecutionLog executionLog : runner.getExecutionLogs()) {
+            if (ExecutionStatus.SUCCESS.getCode().equals(executionLog.getStatus())) {
+                nodeIds.add(executionLog.getNodeId());
+            }
+        }
+        return nodeIds;
+    }
+
+    private static CompiledFlowGraph graph(List<FlowNode> nodes, FlowEdge... edges) {
+        FlowGraph graph = new FlowGraph();
+        graph.setNodes(new ArrayList<>(nodes));
+        graph.setEdges(new ArrayList<>(Arrays.asList(edges)));
+        return CompiledFlowGraph.compile(1L, graph);
+    }
+
+    /**
+     * 执行时把变量 name 设为 value 的任务节点
+     */
+    private static FlowNode task(String id, String name, Object value) {
+        FlowNode node = node(id, NodeType.TASK);
+        node.setProperties(Map.of("name", name, "value", value));
+        return node;
+    }
+
+    private static FlowNode node(String id, String type) {
+        FlowNode node = new FlowNode();
+        node.setId(id);
+        node.setType(type);
+        return node;
+    }
+
+    /**
+     * 任务节点执行器：写入节点属性指定的变量，并记录执行线程
+     */
+    private static final class TaskExecutor implements NodeExecutor {
+
+        private final Map<String, String> threads = new ConcurrentHashMap<>();
+        private volatile CountDownLatch barrier;
+        private volatile String slowNodeId;
+
+        @Override
+        public Map<String, Object> execute(FlowInstance instance, FlowNode node, Map<String, Object> input) {
+            threads.put(node.getId(), Thread.currentThread().getName());
+            try {
+                if (barrier != null) {
+                    barrier.countDown();
+                    assertTrue(barrier.await(5, TimeUnit.SECONDS), "分支没有并发执行");
+                }
+                if (node.getId().equals(slowNodeId)) {
+                    Thread.sleep(50);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            Map<String, Object> output = new HashMap<>();
+            if (node.getProperties() != null) {
+                output.put(node.getProperties().get("name").toString(), node.getProperties().get("value"));
+            }
+            return output;
+        }
+
+        @Override
+        public String getSupportedNodeType() {
+            return NodeType.TASK;
+        }
+    }
+
+    private static FlowEdge edge(String source, String target) {
+        FlowEdge edge = new FlowEdge();
+        edge.setId(source + "-" + target);
+        edge.setSource(source);
+        edge.setTarget(target);
+        return edge;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.process.engine.lease;
+
+import com.example.process.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 租约领取 SQL 冒烟测试：在 PostgreSQL 兼容模式的 H2 内存库上执行领取、失败标记、完成和归还语句
+ * 续约（UPDATE ... RETURNING）和互斥列领取（数组参数、咨询锁）依赖 PostgreSQL，只在 {@link LeaseClaimerTest} 中测试
+ */
+class LeaseClaimerSmokeTest {
+
+    private static final String TABLE = "lease_claimer_smoke";
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = TestDatabase.h2("lease_claimer");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (id BIGSERIAL PRIMARY KEY, " +
+                "status VARCHAR(32) NOT NULL, lease_owner VARCHAR(255), lease_expire_time TIMESTAMP, " +
+                "delivery_count INTEGER, completion_time TIMESTAMP, occurrence_time TIMESTAMP, " +
+                "updated_at TIMESTAMP, is_deleted BOOLEAN NOT NULL DEFAULT false)");
+        jdbcTemplate.update("DELETE FROM " + TABLE);
+    }
+
+    @Test
+    void claimCompleteAndRelease() {
+        List<Long> inserted = List.of(insert("pending", null, null, 0), insert("pending", null, null, 0),
+                insert("pending", null, null, 0));
+        LeaseClaimer a = claimer("node-a", null);
+        LeaseClaimer b = claimer("node-b", null);
+
+        List<Long> first = a.claim(2);
+        assertEquals(inserted.subList(0, 2), first);
+        assertEquals(inserted.subList(2, 3), b.claim(10));
+        assertTrue(a.claim(10).isEmpty(), "领取了其他节点持有有效租约的行");
+        assertEquals(3, count("status = 'running' AND delivery_count = 1 AND lease_expire_time IS NOT NULL"));
+
+        assertEquals(0, b.complete(first, "done"), "其他节点写回了不属于自己的行");
+        assertEquals(2, a.complete(first, "done"));
+        assertEquals(2, count("status = 'done' AND lease_owner IS NULL AND completion_time IS NOT NULL"));
+
+        assertEquals(1, b.release(inserted.subList(2, 3)));
+        assertEquals(inserted.subList(2, 3), a.claim(10));
+        assertEquals(1, count("status = 'running' AND lease_owner = 'node-a' AND delivery_count = 2"));
+    }
+
+    @Test
+    void expiredLeasesAreReclaimedOrMarkedFailed() {
+        Timestamp expired = Timestamp.valueOf(LocalDateTime.now().minusMinutes(1));
+        long reclaimable = insert("running", "node-b", expired, 1);
+        long exhausted = insert("running", "node-b", expired, 5);
+        long stalePending = insert("pending", "node-b", expired, 5);
+
+        assertEquals(List.of(reclaimable), claimer("node-a", null).claim(10));
+        assertEquals("node-a", jdbcTemplate.queryForObject("SELECT lease_owner FROM " + TABLE + " WHERE id = ?",
+                String.class, reclaimable));
+        assertEquals(2, count("status = 'failed' AND lease_owner IS NULL AND id IN (" + exhausted + ", " +
+                stalePending + ")"));
+    }
+
+    @Test
+    void claimHonoursPartitionWindowAndCondition() {
+        LocalDateTime now = LocalDateTime.now();
+        long old = insert("pending", null, null, 0, now.minusHours(2));
+        long first = insert("pending", null, null, 0, now);
+        long second = insert("pending", null, null, 0, now);
+        long oddId = first % 2 == 1 ? first : second;
+
+        LeaseClaimer claimer = claimer("node-a", "occurrence_time");
+        assertEquals(List.of(oddId), claimer.claim(10, "MOD(id, 2) = 1"));
+        List<Long> rest = claimer.claim(10);
+        assertEquals(1, rest.size());
+        assertFalse(rest.contains(old), "领取了回看范围之外的行");
+        assertEquals(1, count("status = 'pending' AND id = " + old));
+    }
+
+    private LeaseClaimer claimer(String owner, String partitionColumn) {
+        return new LeaseClaimer(jdbcTemplate, transactionTemplate, TABLE, "pending", "running", "failed",
+                null, null, partitionColumn, 3600, "id", "completion_time", owner, 60, 5);
+    }
+
+    private long insert(String status, String owner, Timestamp leaseExpireTime, int deliveryCount) {
+        return insert(status, owner, leaseExpireTime, deliveryCount, LocalDateTime.now());
+    }
+
+    private long insert(String status, String owner, Timestamp leaseExpireTime, int deliveryCount,
+                        LocalDateTime occurrenceTime) {
+        jdbcTemplate.update("INSERT INTO " + TABLE + " (status, lease_owner, lease_expire_time, delivery_count, " +
+                        "occurrence_time, is_deleted) VALUES (?, ?, ?, ?, ?, false)",
+                status, owner, leaseExpireTime, deliveryCount, Timestamp.valueOf(occurrenceTime));
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + TABLE, Long.class);
+        return id != null ? id : 0;
+    }
+
+    private long count(String condition) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + TABLE + " WHERE " + condition, Long.class);
+        return count != null ? count : 0;
+    }
+}
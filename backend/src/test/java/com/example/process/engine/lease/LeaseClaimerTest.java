@@ -0,0 +1,168 @@
+package com.example.process.engine.lease;
+
+import com.example.process.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 租约领取测试：同一个 JVM 中的多个领取者模拟多个节点，并发领取同一张 PostgreSQL 表
+ */
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_VARIABLE, matches = ".+")
+class LeaseClaimerTest {
+
+    private static final String TABLE = "lease_claimer_test";
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = TestDatabase.dataSource();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (id BIGSERIAL PRIMARY KEY, " +
+                "device_id VARCHAR(255), status VARCHAR(32) NOT NULL, lease_owner VARCHAR(255), " +
+                "lease_expire_time TIMESTAMP, delivery_count INTEGER, completion_time TIMESTAMP, " +
+                "updated_at TIMESTAMP, is_deleted BOOLEAN NOT NULL DEFAULT false)");
+        jdbcTemplate.update("DELETE FROM " + TABLE);
+    }
+
+    @Test
+    void concurrentClaimersNeverShareRows() throws Exception {
+        insert(2000, null);
+        List<LeaseClaimer> claimers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            claimers.add(claimer("node-" + i, null, 60));
+        }
+
+        List<List<Long>> claimed = runConcurrently(claimers, claimer -> {
+            List<Long> ids = new ArrayList<>();
+            while (true) {
+                List<Long> batch = claimer.claim(50);
+                if (batch.isEmpty()) {
+                    return ids;
+                }
+                ids.addAll(batch);
+                assertEquals(batch.size(), claimer.complete(batch, "done"));
+            }
+        });
+
+        Set<Long> all = new HashSet<>();
+        for (List<Long> ids : claimed) {
+            for (Long id : ids) {
+                assertTrue(all.add(id), "行被多个领取者领取: " + id);
+            }
+        }
+        assertEquals(2000, all.size());
+        assertEquals(2000, count("status = 'done' AND delivery_count = 1"));
+    }
+
+    @Test
+    void staleOwnerCannotCompleteAfterLeaseExpires() throws Exception {
+        insert(1, null);
+        LeaseClaimer a = claimer("node-a", null, 1);
+        LeaseClaimer b = claimer("node-b", null, 60);
+        List<Long> ids = a.claim(10);
+        assertEquals(1, ids.size());
+        assertTrue(b.claim(10).isEmpty());
+
+        Thread.sleep(1500);
+        assertEquals(ids, b.claim(10));
+        assertTrue(a.renew(ids).isEmpty(), "原持有者续约了已被接管的行");
+        assertEquals(0, a.complete(ids, "done"), "原持有者写回了已被接管的行");
+        assertEquals(1, b.complete(ids, "done"));
+    }
+
+    @Test
+    void renewedLeaseIsNotReclaimed() throws Exception {
+        insert(1, null);
+        LeaseClaimer a = claimer("node-a", null, 1);
+        LeaseClaimer b = claimer("node-b", null, 60);
+        List<Long> ids = a.claim(10);
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(500);
+            assertEquals(ids, a.renew(ids));
+            assertTrue(b.claim(10).isEmpty());
+        }
+    }
+
+    @Test
+    void eachDeviceIsClaimedByOneOwner() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            jdbcTemplate.update("DELETE FROM " + TABLE);
+            for (int device = 0; device < 10; device++) {
+                insert(3, "device-" + device);
+            }
+            List<LeaseClaimer> claimers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                claimers.add(claimer("node-" + i, "device_id", 60));
+            }
+
+            runConcurrently(claimers, claimer -> claimer.claim(5));
+
+            List<Map<String, Object>> owners = jdbcTemplate.queryForList("SELECT device_id, " +
+                    "COUNT(DISTINCT lease_owner) AS owners FROM " + TABLE + " WHERE status = 'running' " +
+                    "GROUP BY device_id");
+            for (Map<String, Object> row : owners) {
+                assertEquals(1L, ((Number) row.get("owners")).longValue(),
+                        "设备被多个节点同时领取: " + row.get("device_id"));
+            }
+        }
+    }
+
+    private LeaseClaimer claimer(String owner, String exclusiveColumn, long leaseSeconds) {
+        return new LeaseClaimer(jdbcTemplate, transactionTemplate, TABLE, "pending", "running", "failed",
+                null, exclusiveColumn, null, 0, "id", "completion_time", owner, leaseSeconds, 5);
+    }
+
+    private void insert(int count, String deviceId) {
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update("INSERT INTO " + TABLE + " (device_id, status, delivery_count, is_deleted) " +
+                    "VALUES (?, 'pending', 0, false)", deviceId);
+        }
+    }
+
+    private long count(String condition) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + TABLE + " WHERE " + condition, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * 所有领取者同时开始执行，返回各自的结果
+     */
+    private static <T> List<T> runConcurrently(List<LeaseClaimer> claimers, ClaimTask<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(claimers.size());
+        CyclicBarrier barrier = new CyclicBarrier(claimers.size());
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (LeaseClaimer claimer : claimers) {
+                futures.add(executor.submit(() -> {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    return task.run(claimer);
+                }));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ClaimTask<T> {
+        T run(LeaseClaimer claimer) throws Exception;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.process.engine.priority;
+
+import com.example.process.model.engine.constant.Priority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多级优先级线程池测试
+ */
+class PriorityTaskExecutorTest {
+
+    private PriorityTaskExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void lowerPriorityCannotUseThreadReservedForHigher() throws Exception {
+        // 2 个线程，为高优先级预留 1 个：中、低优先级合计最多占用 1 个线程
+        executor = new PriorityTaskExecutor("test-", 2, 10, new int[]{1, 0, 0}, 0);
+        executor.start();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch mediumStarted = new CountDownLatch(1);
+        CountDownLatch lowStarted = new CountDownLatch(1);
+        CountDownLatch highStarted = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            mediumStarted.countDown();
+            await(release);
+        }, Priority.MEDIUM);
+        assertTrue(mediumStarted.await(5, TimeUnit.SECONDS));
+
+        executor.execute(lowStarted::countDown, Priority.LOW);
+        assertFalse(lowStarted.await(200, TimeUnit.MILLISECONDS), "低优先级任务占用了为高优先级预留的线程");
+
+        executor.execute(highStarted::countDown, Priority.HIGH);
+        assertTrue(highStarted.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        assertTrue(lowStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void higherPriorityRunsFirst() throws Exception {
+        executor = new PriorityTaskExecutor("test-", 1, 10, new int[]{0, 0, 0}, 0);
+        CountDownLatch done = new CountDownLatch(3);
+        StringBuilder order = new StringBuilder();
+        executor.execute(() -> {
+            order.append('L');
+            done.countDown();
+        }, Priority.LOW);
+        executor.execute(() -> {
+            order.append('M');
+            done.countDown();
+        }, Priority.MEDIUM);
+        executor.execute(() -> {
+            order.append('H');
+            done.countDown();
+        }, Priority.HIGH);
+        executor.start();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("HML", order.toString());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
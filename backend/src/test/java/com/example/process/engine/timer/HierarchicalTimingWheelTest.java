@@ -0,0 +1,81 @@
+package com.example.process.engine.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分层时间轮测试
+ */
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK_MS = 10;
+
+    @Test
+    void expiredTaskIsNotAdded() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, 8, 100);
+        assertFalse(wheel.add(100, "now"));
+        assertFalse(wheel.add(50, "past"));
+        assertTrue(wheel.add(101, "next"));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void taskFiresAtEndOfItsTick() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, 8, 0);
+        wheel.add(5, "a");
+        List<String> fired = new ArrayList<>();
+        wheel.advance(9, fired::add);
+        assertTrue(fired.isEmpty(), "任务提前触发");
+        wheel.advance(10, fired::add);
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advancingPastManyTicksFiresInOrder() {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(TICK_MS, 4, 0);
+        wheel.add(5000, 3);
+        wheel.add(35, 1);
+        wheel.add(700, 2);
+        List<Integer> fired = new ArrayList<>();
+        wheel.advance(100000, fired::add);
+        assertEquals(List.of(1, 2, 3), fired);
+    }
+
+    @Test
+    void tasksNeverFireEarlyOrMoreThanOneTickLate() {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(TICK_MS, 8, 0);
+        Random random = new Random(7);
+        Map<Integer, Long> due = new HashMap<>();
+        Map<Integer, Long> firedAt = new HashMap<>();
+        int next = 0;
+        // 初始任务跨越多层
+        for (; next < 2000; next++) {
+            long expiration = 1 + random.nextInt(20000);
+            due.put(next, expiration);
+            assertTrue(wheel.add(expiration, next));
+        }
+        for (long now = 1; now <= 30000; now++) {
+            long time = now;
+            wheel.advance(now, task -> assertNull(firedAt.put(task, time), "任务重复触发: " + task));
+            // 推进过程中继续加入任务
+            if (now < 20000 && random.nextInt(10) == 0) {
+                long expiration = now + 1 + random.nextInt(5000);
+                due.put(next, expiration);
+                assertTrue(wheel.add(expiration, next));
+                next++;
+            }
+        }
+
+        assertEquals(due.keySet(), firedAt.keySet());
+        assertEquals(0, wheel.size());
+        for (Map.Entry<Integer, Long> entry : due.entrySet()) {
+            long fired = firedAt.get(entry.getKey());
+            assertTrue(fired >= entry.getValue(), "任务提前触发: " + entry.getKey());
+            assertTrue(fired < entry.getValue() + TICK_MS, "任务延后超过一格: " + entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.process.engine.window;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 读数窗口测试
+ */
+class SampleWindowTest {
+
+    @Test
+    void slidingWindowEvictsByTime() {
+        SampleWindow window = new SampleWindow(1000, 10);
+        window.add(0, 5);
+        window.add(100, 1);
+        window.add(200, 3);
+
+        assertEquals(3, window.stat("count", 200));
+        assertEquals(9.0, window.stat("sum", 200));
+        assertEquals(3.0, window.stat("avg", 200));
+        assertEquals(1.0, window.stat("min", 200));
+        assertEquals(5.0, window.stat("max", 200));
+        assertEquals(3.0, window.stat("last", 200));
+        assertEquals(0.2, window.stat("span", 200));
+
+        // 时刻 0 的读数在 1000 毫秒后移出窗口
+        assertEquals(2, window.stat("count", 1050));
+        assertEquals(3.0, window.stat("max", 1050));
+        assertEquals(1.0, window.stat("min", 1050));
+        assertEquals(1, window.stat("count", 1150));
+        assertEquals(3.0, window.stat("min", 1150));
+
+        assertEquals(0, window.stat("count", 5000));
+        assertNull(window.stat("sum", 5000));
+        assertNull(window.stat("min", 5000));
+    }
+
+    @Test
+    void slidingWindowEvictsOldestWhenFull() {
+        SampleWindow window = new SampleWindow(60000, 2);
+        window.add(0, 9);
+        window.add(1, 1);
+        window.add(2, 2);
+        assertEquals(2, window.stat("count", 2));
+        assertEquals(2.0, window.stat("max", 2));
+    }
+
+    @Test
+    void outOfOrderTimestampsAreClamped() {
+        SampleWindow window = new SampleWindow(1000, 10);
+        window.add(500, 1);
+        window.add(100, 2);
+        assertEquals(0.0, window.stat("span", 500));
+        // 两条读数按同一时刻淘汰
+        assertEquals(0, window.stat("count", 1500));
+    }
+
+    @Test
+    void unknownStatIsNull() {
+        SampleWindow window = new SampleWindow(0, 3);
+        window.add(0, 1);
+        assertNull(window.stat("median", 0));
+    }
+
+    @Test
+    void countWindowMatchesBruteForce() {
+        int capacity = 7;
+        SampleWindow window = new SampleWindow(0, capacity);
+        Deque<Double> expected = new ArrayDeque<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            // 取值范围小，出现较多相等的读数
+            double value = random.nextInt(20) - 10;
+            window.add(i, value);
+            expected.addLast(value);
+            if (expected.size() > capacity) {
+                expected.removeFirst();
+            }
+
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double v : expected) {
+                sum += v;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            assertEquals(expected.size(), window.stat("count", i));
+            assertEquals(sum, (Double) window.stat("sum", i), 1e-9);
+            assertEquals(min, window.stat("min", i), "第 " + i + " 条读数后的最小值");
+            assertEquals(max, window.stat("max", i), "第 " + i + " 条读数后的最大值");
+            assertEquals(value, window.stat("last", i));
+        }
+    }
+}
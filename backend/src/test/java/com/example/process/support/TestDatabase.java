@@ -0,0 +1,50 @@
+package com.example.process.support;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * 集成测试使用的 PostgreSQL 数据库
+ * 通过环境变量 PROCESS_ENGINE_TEST_DB_URL、PROCESS_ENGINE_TEST_DB_USER、PROCESS_ENGINE_TEST_DB_PASSWORD 指定，
+ * 未指定时依赖数据库的测试跳过。测试会建表并清空数据，应使用专用的测试库。
+ * 使用 testcontainers 配置（mvn test -Ptestcontainers）时，地址为 Testcontainers 的 jdbc:tc: 地址，由其驱动启动容器。
+ * 不依赖 PostgreSQL 专有函数的 SQL 另外在 PostgreSQL 兼容模式的 H2 内存库上冒烟测试，始终执行。
+ */
+public final class TestDatabase {
+
+    /**
+     * 数据库地址的环境变量名
+     */
+    public static final String URL_VARIABLE = "PROCESS_ENGINE_TEST_DB_URL";
+
+    private TestDatabase() {
+    }
+
+    /**
+     * 创建数据源，每次获取连接都新建物理连接，关闭连接即结束数据库会话
+     * 驱动按地址自动选择（PostgreSQL 或 Testcontainers），不指定驱动类
+     *
+     * @return 数据源
+     */
+    public static DriverManagerDataSource dataSource() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setUrl(System.getenv(URL_VARIABLE));
+        dataSource.setUsername(System.getenv("PROCESS_ENGINE_TEST_DB_USER"));
+        dataSource.setPassword(System.getenv("PROCESS_ENGINE_TEST_DB_PASSWORD"));
+        return dataSource;
+    }
+
+    /**
+     * 创建 PostgreSQL 兼容模式的 H2 内存库数据源，同名的库在 JVM 内共享，最后一个连接关闭后仍然保留
+     *
+     * @param name 库名
+     * @return 数据源
+     */
+    public static DriverManagerDataSource h2(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        return dataSource;
+    }
+}